@@ -0,0 +1,149 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountLock;
+import com.bank.simulator.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readers and writers on the same 16 accounts, for each account lock
+ * strategy (fair RW lock, StampedLock optimistic reads):
+ * <ul>
+ * <li>getBalance: read throughput, with or without a writer thread
+ * transferring between the accounts</li>
+ * <li>transferWithReaders: transfer throughput while 4 background threads
+ * keep reading the balances, i.e. what readers cost writers</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AccountBenchmark {
+
+    private static final int ACCOUNTS = 16;
+    private static final int READERS = 4;
+
+    @State(Scope.Benchmark)
+    public static class Readable {
+        @Param({ "FAIR", "STAMPED" })
+        public AccountLock.Mode lock;
+
+        @Param({ "0", "1" })
+        public int writers;
+
+        BankService bank;
+        Account[] accounts;
+        Thread writer;
+
+        @Setup(Level.Iteration)
+        public void open() {
+            bank = Fixtures.newBankService(ACCOUNTS, lock);
+            accounts = Fixtures.accountArray(bank, ACCOUNTS);
+            if (writers == 0)
+                return;
+            // Keeps taking the same accounts' write locks while readers run
+            writer = new Thread(() -> {
+                for (int i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                    try {
+                        bank.transfer(accounts[i % ACCOUNTS], accounts[(i + 1) % ACCOUNTS], Fixtures.AMOUNT);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "bench-writer");
+            writer.start();
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws InterruptedException {
+            if (writer != null) {
+                writer.interrupt();
+                writer.join();
+                writer = null;
+            }
+            bank.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Polled {
+        @Param({ "FAIR", "STAMPED" })
+        public AccountLock.Mode lock;
+
+        BankService bank;
+        Account[] accounts;
+        Thread[] readers;
+
+        @Setup(Level.Iteration)
+        public void open() {
+            bank = Fixtures.newBankService(ACCOUNTS, lock);
+            accounts = Fixtures.accountArray(bank, ACCOUNTS);
+            readers = new Thread[READERS];
+            for (int r = 0; r < readers.length; r++) {
+                // Dashboard-style polling of the accounts the transfers write
+                readers[r] = new Thread(() -> {
+                    for (int i = 0; !Thread.currentThread().isInterrupted(); i++)
+                        accounts[i % ACCOUNTS].getBalance();
+                }, "bench-reader-" + r);
+                readers[r].start();
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws InterruptedException {
+            for (Thread reader : readers)
+                reader.interrupt();
+            for (Thread reader : readers)
+                reader.join();
+            bank.shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int thread;
+        int next;
+
+        @Setup(Level.Trial)
+        public void start(ThreadParams params) {
+            thread = params.getThreadIndex();
+        }
+
+        // Wraps at a multiple of ACCOUNTS, never negative
+        int advance() {
+            int i = next;
+            next = (i + 1) & 0xFFFF;
+            return i;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal getBalance(Readable state, Cursor cursor) {
+        return state.accounts[cursor.advance() % ACCOUNTS].getBalance();
+    }
+
+    @Benchmark
+    public void transferWithReaders(Polled state, Cursor cursor) throws InterruptedException {
+        int i = cursor.advance();
+        int from = (cursor.thread + i) % ACCOUNTS;
+        state.bank.transfer(state.accounts[from], state.accounts[(from + 1 + (i & 7)) % ACCOUNTS], Fixtures.AMOUNT);
+    }
+}
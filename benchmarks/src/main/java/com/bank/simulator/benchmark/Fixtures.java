@@ -0,0 +1,133 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.AccountLock;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.AuditService;
+import com.bank.simulator.service.BankService;
+import com.bank.simulator.service.BinarySnapshotCodec;
+import com.bank.simulator.service.FraudDetectionService;
+import com.bank.simulator.service.JournalService;
+import com.bank.simulator.service.JsonSnapshotCodec;
+import com.bank.simulator.service.SnapshotCodec;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * State shared by the benchmarks. Audit output is muted and the journal is
+ * never opened, so only the code under test is measured (the journal's fsync
+ * cost is a separate concern).
+ */
+final class Fixtures {
+
+    static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    static final BigDecimal START_BALANCE = new BigDecimal("1000000000.00"); // Never runs dry
+    static final int STREAM_LENGTH = 1 << 16; // Pre-drawn account pairs per thread
+
+    private static final double ZIPF_SKEW = 0.99; // YCSB's default
+
+    private Fixtures() {
+    }
+
+    static BankService newBankService(int accountCount, AccountLock.Mode lock) {
+        AuditService quietAudit = new AuditService() {
+            @Override
+            public void logTransaction(Transaction transaction) {
+            }
+        };
+        BankService bank = new BankService(new TransactionRepository(), new AccountRepository(),
+                new FraudDetectionService(), quietAudit, new JournalService());
+        for (int i = 0; i < accountCount; i++)
+            bank.openAccount(new Account(String.format("A%06d", i), "Holder" + i, START_BALANCE, BigDecimal.ZERO,
+                    AccountLock.create(lock)));
+        return bank;
+    }
+
+    static Account[] accountArray(BankService bank, int accountCount) {
+        Account[] accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++)
+            accounts[i] = bank.getAccountRepository().findByAccountNumber(String.format("A%06d", i)).get();
+        return accounts;
+    }
+
+    /**
+     * Pre-drawn (from, to) account index pairs for one thread, so the timed
+     * loop does no random number generation.
+     */
+    static int[] pairStream(String pattern, int thread, int accountCount) {
+        int[] stream = new int[STREAM_LENGTH * 2];
+        ZipfianGenerator zipf = pattern.equals("zipfian") ? new ZipfianGenerator(accountCount, ZIPF_SKEW) : null;
+        Random random = new Random(thread);
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            int from;
+            int to;
+            switch (pattern) {
+                case "uncontended": // Thread t owns accounts 2t and 2t+1
+                    from = 2 * thread + (i & 1);
+                    to = 2 * thread + 1 - (i & 1);
+                    break;
+                case "hotPair":
+                    from = i & 1;
+                    to = 1 - from;
+                    break;
+                case "hotAccount": // Account 0 and the thread's own account 2t+2, both ways
+                    from = (i & 1) == 0 ? 0 : 2 * thread + 2;
+                    to = (i & 1) == 0 ? 2 * thread + 2 : 0;
+                    break;
+                case "zipfian":
+                    from = zipf.next(random);
+                    do {
+                        to = zipf.next(random);
+                    } while (to == from);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown contention pattern: " + pattern);
+            }
+            stream[2 * i] = from;
+            stream[2 * i + 1] = to;
+        }
+        return stream;
+    }
+
+    static List<Account> accounts(int count) {
+        List<Account> accounts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            accounts.add(new Account(String.format("A%08d", i), "Holder" + i, BigDecimal.valueOf(100_000 + i, 2)));
+        return accounts;
+    }
+
+    static List<Transaction> transactions(int count, int accountCount) {
+        List<Transaction> transactions = new ArrayList<>(count);
+        long baseSeconds = Instant.now().getEpochSecond();
+        for (int i = 0; i < count; i++) {
+            int src = i % accountCount;
+            int dest = (i * 31 + 7) % accountCount;
+            if (dest == src)
+                dest = (dest + 1) % accountCount;
+            transactions.add(new Transaction(new UUID(i, ~i).toString(), String.format("A%08d", src),
+                    String.format("A%08d", dest), BigDecimal.valueOf(1 + i % 5000, 2),
+                    Instant.ofEpochSecond(baseSeconds, i % 1_000_000_000), TransactionStatus.SUCCESS));
+        }
+        return transactions;
+    }
+
+    static SnapshotCodec codec(String format) {
+        switch (format) {
+            case "JSON":
+                return new JsonSnapshotCodec(AccountFactory.decimal());
+            case "BINARY":
+                return new BinarySnapshotCodec(AccountFactory.decimal());
+            default:
+                throw new IllegalArgumentException("Unknown snapshot format: " + format);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.service.FraudDetectionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/** FraudDetectionService.isFraudulent on a clean transfer. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FraudBenchmark {
+
+    FraudDetectionService fraud;
+    Account from;
+    Account to;
+    BigDecimal amount;
+
+    @Setup(Level.Trial)
+    public void open() {
+        fraud = new FraudDetectionService();
+        from = new Account("A1001", "Alice", Fixtures.START_BALANCE);
+        to = new Account("A1002", "Bob", Fixtures.START_BALANCE);
+        amount = new BigDecimal("250.00");
+    }
+
+    @Benchmark
+    public boolean isFraudulent() {
+        return fraud.isFraudulent(from, to, amount);
+    }
+}
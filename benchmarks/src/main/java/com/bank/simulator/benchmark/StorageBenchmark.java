@@ -0,0 +1,86 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.SnapshotCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full-checkpoint write and the snapshot load StorageService performs,
+ * in both formats, with 100,000 transactions in the log. 10M accounts run
+ * with {@code -p accounts=10000000} and a larger heap ({@code -jvmArgs -Xmx16g}).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+
+    private static final int SNAPSHOT_TRANSACTIONS = 100_000;
+
+    @Param({ "10000", "1000000" })
+    public int accounts;
+
+    @Param({ "JSON", "BINARY" })
+    public String format;
+
+    List<Account> state;
+    List<Transaction> log;
+    SnapshotCodec codec;
+    Path written; // Target of write()
+    Path snapshot; // Source of load()
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        state = Fixtures.accounts(accounts);
+        log = Fixtures.transactions(SNAPSHOT_TRANSACTIONS, accounts);
+        codec = Fixtures.codec(format);
+        String suffix = format.equals("JSON") ? ".json" : ".bin";
+        written = Files.createTempFile("bench-snapshot", suffix);
+        snapshot = Files.createTempFile("bench-snapshot", suffix);
+        codec.write(snapshot, state, log, 1, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(written);
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        return codec.write(written, state, log, 1, 0);
+    }
+
+    @Benchmark
+    public void load(Blackhole bh) throws IOException {
+        AccountRepository accounts = new AccountRepository();
+        TransactionRepository transactions = new TransactionRepository();
+        bh.consume(codec.read(snapshot, accounts, transactions));
+        bh.consume(accounts);
+        bh.consume(transactions);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.TransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionRepository.save and findAll on the in-memory log with
+ * {@code size} transactions already stored.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TransactionRepositoryBenchmark {
+
+    @Param({ "10000", "1000000" })
+    public int size;
+
+    List<Transaction> stored;
+    Transaction extra;
+    TransactionRepository repository;
+
+    @Setup(Level.Trial)
+    public void draw() {
+        stored = Fixtures.transactions(size, 1000);
+        extra = stored.get(0);
+    }
+
+    // Refilled per iteration, so saves from earlier iterations do not pile up
+    @Setup(Level.Iteration)
+    public void fill() {
+        repository = new TransactionRepository();
+        repository.saveAll(stored);
+    }
+
+    @Benchmark
+    public void save(Blackhole bh) {
+        repository.save(extra);
+        bh.consume(repository);
+    }
+
+    @Benchmark
+    public List<Transaction> findAll() {
+        return repository.findAll();
+    }
+}
@@ -0,0 +1,85 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountLock;
+import com.bank.simulator.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BankService.transfer on the lock-based path under four contention
+ * patterns: uncontended (each thread owns its own account pair), hotPair (all
+ * threads on two accounts), hotAccount (every thread to and from one shared
+ * account) and zipfian (skewed over 10,000 accounts, s=0.99). With
+ * {@code stripes > 0} the hot accounts 0 and 1 are split into balance stripes
+ * up front. Thread counts come from JMH's {@code -t}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+    private static final int TRANSFER_ACCOUNTS = 10_000;
+
+    @Param({ "uncontended", "hotPair", "hotAccount", "zipfian" })
+    public String pattern;
+
+    @Param({ "0", "8" })
+    public int stripes;
+
+    BankService bank;
+    Account[] accounts;
+
+    // A fresh bank per iteration, so the transaction log does not grow across the run
+    @Setup(Level.Iteration)
+    public void openBank(BenchmarkParams params) {
+        int count = Math.max(TRANSFER_ACCOUNTS, 2 * params.getThreads() + 2);
+        bank = Fixtures.newBankService(count, AccountLock.Mode.FAIR);
+        accounts = Fixtures.accountArray(bank, count);
+        if (stripes > 0) {
+            accounts[0].enableStriping(stripes);
+            accounts[1].enableStriping(stripes);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeBank() {
+        bank.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Pairs {
+        int[] stream;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void draw(TransferBenchmark benchmark, ThreadParams thread) {
+            stream = Fixtures.pairStream(benchmark.pattern, thread.getThreadIndex(), TRANSFER_ACCOUNTS);
+        }
+    }
+
+    @Benchmark
+    public void transfer(Pairs pairs) throws InterruptedException {
+        int i = pairs.cursor;
+        pairs.cursor = (i + 2) & (pairs.stream.length - 1);
+        bank.transfer(accounts[pairs.stream[i]], accounts[pairs.stream[i + 1]], Fixtures.AMOUNT);
+    }
+}
@@ -2,6 +2,7 @@ package com.bank.simulator;
 
 import com.bank.simulator.model.Account;
 import com.bank.simulator.service.BankService;
+import com.bank.simulator.service.TransferGraphAnalyzer;
 import java.math.BigDecimal;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -12,24 +13,140 @@ public class BankingSimulator {
 
     public static void main(String[] args) throws InterruptedException {
 
+        // --load [key=value ...]: headless capacity test instead of the demo + dashboard
+        if (args.length > 0 && args[0].equals("--load")) {
+            try {
+                com.bank.simulator.benchmark.LoadGenerator.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+            } catch (java.io.IOException | IllegalArgumentException e) {
+                System.err.println("Load test failed: " + e.getMessage());
+                System.exit(2);
+            }
+            return;
+        }
+
         System.out.println("=== Starting Advanced Banking Simulator ===");
 
-        BankService bankService = new BankService();
+        // -Dbank.ledger=fixed keeps balances as scaled longs (-Dbank.ledger.scale, default 2)
+        com.bank.simulator.model.AccountFactory accountFactory = "fixed"
+                .equalsIgnoreCase(System.getProperty("bank.ledger", "decimal"))
+                        ? com.bank.simulator.model.AccountFactory
+                                .fixedPoint(Integer.getInteger("bank.ledger.scale", 2))
+                        : com.bank.simulator.model.AccountFactory.decimal();
+        // -Dbank.lock=stamped reads balances optimistically (StampedLock) instead of through the fair RW lock
+        com.bank.simulator.model.AccountLock.Mode lockMode = com.bank.simulator.model.AccountLock.Mode
+                .valueOf(System.getProperty("bank.lock", "fair").toUpperCase());
+        accountFactory.setLockMode(lockMode);
+        // -Dbank.accounts=dense keeps accounts in primitive arrays (fixed-point at -Dbank.ledger.scale)
+        // with -Dbank.accounts.locks shared locks, for tens of millions of accounts
+        if ("dense".equalsIgnoreCase(System.getProperty("bank.accounts", "objects"))) {
+            accountFactory = com.bank.simulator.model.AccountFactory.dense(new com.bank.simulator.model.AccountTable(
+                    Integer.getInteger("bank.ledger.scale", 2),
+                    Integer.getInteger("bank.accounts.locks", com.bank.simulator.model.AccountTable.DEFAULT_LOCKS),
+                    lockMode));
+            System.out.println(">> Dense Accounts: " + accountFactory.getAccountTable().getLockCount()
+                    + " shared locks, scale " + accountFactory.getScale());
+        }
+        // The tiered store (default) seals old transaction segments to disk; bank.tx.store=memory keeps them all
+        com.bank.simulator.repository.TransactionRepository transactionRepository;
+        try {
+            transactionRepository = com.bank.simulator.repository.TransactionRepository
+                    .configured(System.getProperties());
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            System.err.println("Cannot open transaction store: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        // -Dbank.shards=N runs transfers on N single-writer shards instead of account locks
+        BankService bankService;
+        try {
+            bankService = new BankService(accountFactory, Integer.getInteger("bank.shards", 0),
+                    com.bank.simulator.service.AuditService.configured(System.getProperties()),
+                    transactionRepository);
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            System.err.println("Cannot open audit log: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        // -Dbank.stats.sample=N times one transfer in N for /api/stats (1 = all, 0 = stats off)
+        int statsSample = Integer.getInteger("bank.stats.sample",
+                com.bank.simulator.service.TransferStats.DEFAULT_SAMPLE_RATE);
+        if (statsSample > 0)
+            bankService.getStats().setSampleRate(statsSample);
+        else
+            bankService.getStats().setEnabled(false);
+        // -Dbank.fraud.* adds velocity / new-payee rules and a reloadable blacklist file
+        try {
+            bankService.getFraudDetectionService().setRules(
+                    com.bank.simulator.service.FraudDetectionService.configuredRules(System.getProperties()));
+        } catch (java.io.IOException e) {
+            System.err.println("Cannot load fraud rules: " + e.getMessage());
+            System.exit(2);
+        }
+        // Laundering-ring / fan-out detection on completed transfers (/api/alerts); -Dbank.alerts=false disables
+        if (Boolean.parseBoolean(System.getProperty("bank.alerts", "true"))) {
+            TransferGraphAnalyzer graphAnalyzer = new TransferGraphAnalyzer(
+                    Long.getLong("bank.alerts.window", TransferGraphAnalyzer.DEFAULT_WINDOW_MILLIS / 1000) * 1000,
+                    Integer.getInteger("bank.alerts.cycle", TransferGraphAnalyzer.DEFAULT_MAX_CYCLE_LENGTH),
+                    Integer.getInteger("bank.alerts.fan", TransferGraphAnalyzer.DEFAULT_FAN_THRESHOLD),
+                    Integer.getInteger("bank.alerts.edges", TransferGraphAnalyzer.DEFAULT_MAX_EDGES));
+            graphAnalyzer.start();
+            bankService.setTransferGraphAnalyzer(graphAnalyzer);
+        }
+        // -Dbank.stripes=K splits accounts with contended locks into K balance stripes
+        // (-Dbank.stripes.window seconds, .promote / .demote thresholds per window)
+        int stripes = Integer.getInteger("bank.stripes", 0);
+        if (stripes > 0) {
+            com.bank.simulator.service.HotAccountStriper striper = new com.bank.simulator.service.HotAccountStriper(
+                    bankService.getAccountRepository(), bankService.getStats(), stripes,
+                    Long.getLong("bank.stripes.window",
+                            com.bank.simulator.service.HotAccountStriper.DEFAULT_WINDOW_MILLIS / 1000) * 1000,
+                    Long.getLong("bank.stripes.promote",
+                            com.bank.simulator.service.HotAccountStriper.DEFAULT_PROMOTE_THRESHOLD),
+                    Long.getLong("bank.stripes.demote",
+                            com.bank.simulator.service.HotAccountStriper.DEFAULT_DEMOTE_THRESHOLD));
+            striper.start();
+            bankService.setHotAccountStriper(striper);
+        }
+
+        // -Dbank.history.archive=true moves all but the newest chunks of long account histories to disk
+        try {
+            accountFactory.setHistoryArchive(
+                    com.bank.simulator.service.HistoryArchive.configured(System.getProperties()));
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            System.err.println("Cannot open history archive: " + e.getMessage());
+            System.exit(2);
+        }
 
         // Initialize Services
+        // -Dbank.snapshot=binary switches full checkpoints to the compact binary format
+        com.bank.simulator.service.StorageService.SnapshotFormat snapshotFormat = com.bank.simulator.service.StorageService.SnapshotFormat
+                .valueOf(System.getProperty("bank.snapshot", "json").toUpperCase());
         com.bank.simulator.service.StorageService storageService = new com.bank.simulator.service.StorageService(
-                bankService.getAccountRepository(), bankService.getTransactionRepository());
+                bankService.getAccountRepository(), bankService.getTransactionRepository(),
+                bankService.getJournalService(), snapshotFormat, accountFactory);
 
-        // Try to load existing data
-        if (storageService.load()) {
-            System.out.println(">> Loaded existing data from bank_data.json");
+        // Try to recover existing data (base file + journal replay)
+        boolean recovered = storageService.load();
+
+        // Start journaling before any new state is created so it is captured
+        storageService.start();
+
+        // Flush the journal on Shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("\n[SHUTDOWN] Flushing journal...");
+            bankService.shutdown(); // Drain queued transfers first
+            storageService.stop();
+        }));
+
+        if (recovered) {
+            System.out.println(">> Recovered existing data from snapshot + journal");
         } else {
             System.out.println(">> No existing data found. Creating default accounts...");
-            // Setup Accounts and save directly
-            bankService.getAccountRepository().save(new Account("A1001", "Alice", new BigDecimal("1000")));
-            bankService.getAccountRepository().save(new Account("A1002", "Bob", new BigDecimal("1000")));
-            bankService.getAccountRepository().save(new Account("A1003", "Charlie", new BigDecimal("1000")));
-            bankService.getAccountRepository().save(new Account("BLK_999", "EvilCorp", new BigDecimal("0")));
+            // Setup Accounts (journaled)
+            bankService.openAccount(accountFactory.create("A1001", "Alice", new BigDecimal("1000")));
+            bankService.openAccount(accountFactory.create("A1002", "Bob", new BigDecimal("1000")));
+            bankService.openAccount(accountFactory.create("A1003", "Charlie", new BigDecimal("1000")));
+            bankService.openAccount(accountFactory.create("BLK_999", "EvilCorp", new BigDecimal("0")));
         }
 
         // Retrieve references for the simulation loop
@@ -45,27 +162,38 @@ public class BankingSimulator {
             // For now, let's assume they exist.
         }
 
-        // Start Auto-Save
-        storageService.start();
-
-        // Auto-Save on Shutdown
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            System.out.println("\n[SHUTDOWN] Saving state...");
-            storageService.stop();
-        }));
-
         // Start Interest Service
+        // Finish interest / fee batch runs a crash interrupted, before anything new is posted
+        try {
+            bankService.getBatchPostingRunner().resumeIncomplete(java.util.Arrays.asList(
+                    com.bank.simulator.service.PostingJob.configured("interest", System.getProperties()),
+                    com.bank.simulator.service.PostingJob.configured("fees", System.getProperties())));
+        } catch (java.io.IOException e) {
+            System.err.println("[BATCH] Cannot resume interrupted runs: " + e.getMessage());
+        }
+
+        // -Dbank.interest=lazy accrues on account access, =batch posts transactions in parallel
         com.bank.simulator.service.InterestService interestService = new com.bank.simulator.service.InterestService(
-                bankService.getAccountRepository());
+                bankService.getAccountRepository(), bankService.getJournalService(), accountFactory,
+                com.bank.simulator.service.InterestService.Mode
+                        .valueOf(System.getProperty("bank.interest", "sweep").toUpperCase()),
+                bankService.getBatchPostingRunner());
         interestService.start();
 
         // Start UI Server
         try {
             // Dashboard now needs bankService for manual triggers
+            // -Dbank.http.executor=virtual|pool|dispatcher, -Dbank.http.threads=N (pool size / fallback)
+            com.bank.simulator.ui.RequestExecutor requestExecutor = com.bank.simulator.ui.RequestExecutor.create(
+                    com.bank.simulator.ui.RequestExecutor.Mode
+                            .valueOf(System.getProperty("bank.http.executor", "virtual").toUpperCase()),
+                    Integer.getInteger("bank.http.threads", 200));
             com.bank.simulator.ui.DashboardServer dashboard = new com.bank.simulator.ui.DashboardServer(
                     bankService.getAccountRepository(),
                     bankService.getTransactionRepository(),
-                    bankService);
+                    bankService,
+                    storageService,
+                    requestExecutor);
             dashboard.start();
         } catch (Exception e) {
             System.err.println("Failed to start UI: " + e.getMessage());
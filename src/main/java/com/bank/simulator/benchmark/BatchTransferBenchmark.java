@@ -0,0 +1,126 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.model.TransferRequest;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.AuditService;
+import com.bank.simulator.service.BankService;
+import com.bank.simulator.service.FraudDetectionService;
+import com.bank.simulator.service.JournalService;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * BankService.transferBatch vs the same transfers as individual transfer()
+ * calls.
+ *
+ * Usage: java -cp out com.bank.simulator.benchmark.BatchTransferBenchmark [batchSize] [accounts] [rounds]
+ * (defaults: 10,000 transfers among 1,000 accounts, 60 rounds)
+ */
+public class BatchTransferBenchmark {
+
+    private static final BigDecimal START_BALANCE = new BigDecimal("1000.00");
+
+    public static void main(String[] args) throws Exception {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        System.out.println("=== Batch Transfer Benchmark: " + batchSize + " transfers among " + accountCount
+                + " accounts, " + rounds + " rounds ===");
+
+        long individualNanos = 0;
+        long batchNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            List<TransferRequest> requests = generate(batchSize, accountCount, round);
+            boolean measured = round >= rounds / 2; // First half warms up the JIT
+
+            BankService bank = newBankService(accountCount);
+            long start = System.nanoTime();
+            int individualOk = 0;
+            for (TransferRequest r : requests) {
+                Account from = bank.getAccountRepository().findByAccountNumber(r.getSourceAccount()).get();
+                Account to = bank.getAccountRepository().findByAccountNumber(r.getDestinationAccount()).get();
+                try {
+                    bank.transfer(from, to, r.getAmount());
+                    individualOk++;
+                } catch (RuntimeException e) {
+                    // Rolled back (insufficient funds), same as in the batch
+                }
+            }
+            long individual = System.nanoTime() - start;
+            BigDecimal[] individualBalances = balances(bank, accountCount);
+
+            bank = newBankService(accountCount);
+            start = System.nanoTime();
+            List<Transaction> results = bank.transferBatch(requests);
+            long batch = System.nanoTime() - start;
+            int batchOk = 0;
+            for (Transaction t : results) {
+                if (t.getStatus() == TransactionStatus.SUCCESS)
+                    batchOk++;
+            }
+
+            // Same order of evaluation, so both runs must end in exactly the same state
+            BigDecimal[] batchBalances = balances(bank, accountCount);
+            for (int i = 0; i < accountCount; i++) {
+                if (individualBalances[i].compareTo(batchBalances[i]) != 0 || individualOk != batchOk)
+                    throw new IllegalStateException("Batch diverged from individual transfers at A" + i);
+            }
+
+            if (measured) {
+                individualNanos += individual;
+                batchNanos += batch;
+            }
+        }
+
+        int measuredRounds = rounds - rounds / 2;
+        System.out.printf("individual: %,8.2f ms per %,d transfers%n", individualNanos / 1e6 / measuredRounds,
+                batchSize);
+        System.out.printf("batch:      %,8.2f ms per %,d transfers  (%.1fx faster, identical balances)%n",
+                batchNanos / 1e6 / measuredRounds, batchSize, (double) individualNanos / batchNanos);
+    }
+
+    private static List<TransferRequest> generate(int batchSize, int accountCount, long seed) {
+        Random random = new Random(seed);
+        List<TransferRequest> requests = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            int a = random.nextInt(accountCount);
+            int b = (a + 1 + random.nextInt(accountCount - 1)) % accountCount;
+            // Some items overdraw, so the batch has to roll back individual items
+            requests.add(new TransferRequest("A" + a, "A" + b, BigDecimal.valueOf(1 + random.nextInt(30000), 2)));
+        }
+        return requests;
+    }
+
+    private static BankService newBankService(int accountCount) throws Exception {
+        // Journal never opened and audit muted: only the transfer path is measured
+        AuditService quietAudit = new AuditService() {
+            @Override
+            public void logTransaction(Transaction transaction) {
+            }
+        };
+        JournalService journal = new JournalService(Files.createTempDirectory("batch-bench"), 5,
+                AccountFactory.decimal());
+        BankService bank = new BankService(new TransactionRepository(), new AccountRepository(),
+                new FraudDetectionService(), quietAudit, journal);
+        for (int i = 0; i < accountCount; i++)
+            bank.openAccount(new Account("A" + i, "Holder" + i, START_BALANCE));
+        return bank;
+    }
+
+    private static BigDecimal[] balances(BankService bank, int accountCount) {
+        BigDecimal[] result = new BigDecimal[accountCount];
+        for (int i = 0; i < accountCount; i++)
+            result[i] = bank.getAccountRepository().findByAccountNumber("A" + i).get().getBalance();
+        return result;
+    }
+}
@@ -0,0 +1,248 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.AuditService;
+import com.bank.simulator.service.BankService;
+import com.bank.simulator.service.FraudDetectionService;
+import com.bank.simulator.service.JournalService;
+import com.bank.simulator.ui.DashboardServer;
+import com.bank.simulator.ui.RequestExecutor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * The dashboard's HTTP API end to end over loopback: request parsing,
+ * response rendering and the service work behind each endpoint.
+ *
+ * One keep-alive connection per client thread sends pre-encoded requests and
+ * reads each response in full (Content-Length or chunked). Besides requests
+ * per second it reports the server's CPU time and bytes allocated per
+ * request: the totals over all threads except the clients, from the
+ * per-thread counters. That isolates the server side from the client and is
+ * steadier than throughput on a small box.
+ *
+ * Endpoints: metrics (every account), logs (latest 20), query (500
+ * transactions from /api/transactions), stats, transfer (one POST) and batch
+ * (POST of 200 transfers).
+ *
+ * Usage: java -cp out com.bank.simulator.benchmark.HttpApiBenchmark [seconds] [clients] [port]
+ * (defaults: 5 s per endpoint after 2 s of warm-up, 1 client, port 18080)
+ */
+public class HttpApiBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+    private static final int SEED_TRANSFERS = 20_000;
+    private static final int BATCH_ITEMS = 200;
+    private static final BigDecimal START_BALANCE = new BigDecimal("1000000000.00");
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 18080;
+
+        // Headers and body go out as separate writes; with Nagle on, every response waits out a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        AccountFactory factory = AccountFactory.decimal();
+        BankService bank = newBankService(factory);
+        Account[] accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = factory.create(String.format("A%06d", i), "Holder " + i, START_BALANCE);
+            bank.getAccountRepository().save(accounts[i]);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < SEED_TRANSFERS; i++) {
+            int a = random.nextInt(ACCOUNTS);
+            int b = (a + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            bank.transfer(accounts[a], accounts[b], BigDecimal.valueOf(1 + random.nextInt(10_000), 2));
+        }
+
+        DashboardServer server = new DashboardServer(bank.getAccountRepository(), bank.getTransactionRepository(),
+                bank, null, RequestExecutor.create(RequestExecutor.Mode.POOL, Math.max(4, clients)));
+        server.start(port);
+
+        StringBuilder batch = new StringBuilder("{\"transfers\":[");
+        for (int i = 0; i < BATCH_ITEMS; i++) {
+            int a = random.nextInt(ACCOUNTS);
+            int b = (a + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            batch.append(i > 0 ? ", " : "").append(String.format("{\"from\":\"A%06d\", \"to\":\"A%06d\", \"amount\":\"%d.%02d\"}",
+                    a, b, 1 + random.nextInt(100), random.nextInt(100)));
+        }
+        batch.append("]}");
+
+        String[][] endpoints = {
+                { "metrics", get("/api/metrics") },
+                { "logs", get("/api/logs") },
+                { "query", get("/api/transactions?limit=500") },
+                { "stats", get("/api/stats") },
+                { "transfer", post("/api/transfer", "{\"from\":\"A000001\", \"to\":\"A000002\", \"amount\":\"0.01\"}") },
+                { "batch", post("/api/transfers/batch", batch.toString()) },
+        };
+
+        System.out.println("=== HTTP API Benchmark: " + clients + " clients, " + seconds + "s per endpoint, "
+                + ACCOUNTS + " accounts, " + SEED_TRANSFERS + " seeded transactions ===");
+        for (String[] endpoint : endpoints) {
+            byte[] request = endpoint[1].getBytes(StandardCharsets.UTF_8);
+            run(port, request, clients, 2, null); // Warm-up
+            run(port, request, clients, seconds, endpoint[0]);
+        }
+        System.exit(0); // The HTTP server has no stop; its threads are not daemons
+    }
+
+    private static void run(int port, byte[] request, int clients, int seconds, String name) throws Exception {
+        long[] requests = new long[clients];
+        long[] responseBytes = new long[clients];
+        long[] clientIds = new long[clients];
+        Thread[] workers = new Thread[clients];
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int c = 0; c < clients; c++) {
+            int id = c;
+            workers[c] = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", port)) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream(), 1 << 16);
+                    while (System.nanoTime() < deadline) {
+                        out.write(request);
+                        out.flush();
+                        responseBytes[id] += readResponse(in);
+                        requests[id]++;
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Request failed", e);
+                }
+            }, "http-bench-client-" + c);
+            clientIds[c] = workers[c].getId();
+        }
+
+        long[] before = serverCounters(clientIds);
+        long start = System.nanoTime();
+        for (Thread w : workers)
+            w.start();
+        for (Thread w : workers)
+            w.join();
+        long nanos = System.nanoTime() - start;
+        long[] after = serverCounters(clientIds);
+
+        if (name != null) {
+            long total = 0;
+            long bytes = 0;
+            for (int c = 0; c < clients; c++) {
+                total += requests[c];
+                bytes += responseBytes[c];
+            }
+            System.out.printf("%-9s %,10.0f req/s  %,8.1f us server CPU/req  %,10d server bytes/req  %,8d response bytes%n",
+                    name, total / (nanos / 1e9), (after[0] - before[0]) / 1e3 / total,
+                    (after[1] - before[1]) / total, bytes / total);
+        }
+    }
+
+    // { CPU nanos, allocated bytes } summed over every live thread except the clients
+    private static long[] serverCounters(long[] excluded) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        long cpu = 0;
+        long allocated = 0;
+        outer: for (long id : bean.getAllThreadIds()) {
+            for (long x : excluded)
+                if (x == id)
+                    continue outer;
+            if (id == Thread.currentThread().getId())
+                continue;
+            cpu += Math.max(0, bean.getThreadCpuTime(id));
+            if (bean instanceof com.sun.management.ThreadMXBean)
+                allocated += Math.max(0, ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(id));
+        }
+        return new long[] { cpu, allocated };
+    }
+
+    // Reads one response, returns its body length; fails on anything but 200
+    private static long readResponse(InputStream in) throws IOException {
+        String status = readLine(in);
+        if (!status.startsWith("HTTP/1.1 200"))
+            throw new IOException("Unexpected response: " + status);
+        long length = -1;
+        boolean chunked = false;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            String header = line.substring(0, colon).trim();
+            if (header.equalsIgnoreCase("Content-Length"))
+                length = Long.parseLong(line.substring(colon + 1).trim());
+            else if (header.equalsIgnoreCase("Transfer-Encoding"))
+                chunked = line.substring(colon + 1).trim().equalsIgnoreCase("chunked");
+        }
+        if (!chunked) {
+            skip(in, length);
+            return length;
+        }
+        long total = 0;
+        while (true) {
+            long chunk = Long.parseLong(readLine(in).trim(), 16);
+            if (chunk == 0) {
+                readLine(in); // Blank line after the last chunk
+                return total;
+            }
+            skip(in, chunk);
+            readLine(in);
+            total += chunk;
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1)
+                throw new IOException("Connection closed");
+            if (c != '\r')
+                sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    private static void skip(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() == -1)
+                    throw new IOException("Connection closed");
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    private static String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    }
+
+    private static String post(String path, String body) {
+        return "POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+                + body.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + body;
+    }
+
+    private static BankService newBankService(AccountFactory factory) throws IOException {
+        // Never opened, so the journal hands out LSNs but writes nothing
+        JournalService journal = new JournalService(Files.createTempDirectory("http-bench"), 5, factory);
+        AuditService quietAudit = new AuditService() {
+            @Override
+            public void logTransaction(Transaction transaction) {
+            }
+        };
+        return new BankService(new TransactionRepository(), new AccountRepository(), new FraudDetectionService(),
+                quietAudit, journal, factory);
+    }
+}
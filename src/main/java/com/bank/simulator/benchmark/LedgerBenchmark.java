@@ -0,0 +1,196 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.exception.InsufficientFundsException;
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.FixedPointAccount;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.AuditService;
+import com.bank.simulator.service.BankService;
+import com.bank.simulator.service.FraudDetectionService;
+import com.bank.simulator.service.JournalService;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BigDecimal vs fixed-point (long minor units) ledger: throughput, bytes
+ * allocated per operation and GC activity.
+ *
+ * Workloads per mode:
+ * <ul>
+ * <li>ledger: a debit/credit pair on two accounts, i.e. only the balance
+ * arithmetic and the MIN_BALANCE check</li>
+ * <li>transfer: full BankService.transfer (fraud check, locking, transaction
+ * record, history), with audit output and journal I/O switched off so the
+ * ledger representation is what differs. What it allocates is the
+ * Transaction record and the growth of the log and history that keep it</li>
+ * <li>declined / thrown: the same transfers from accounts at MIN_BALANCE, all
+ * declined; through tryTransfer's result code, then through transfer's
+ * InsufficientFundsException</li>
+ * </ul>
+ *
+ * Usage: java -cp out com.bank.simulator.benchmark.LedgerBenchmark [threads] [opsPerThread] [accounts]
+ * (defaults: available processors, 500,000, 1,000)
+ */
+public class LedgerBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.25");
+    private static final BigDecimal START_BALANCE = new BigDecimal("1000000.00");
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        int accountCount = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+
+        System.out.println("=== Ledger Benchmark: " + threads + " threads x " + ops + " ops, " + accountCount
+                + " accounts ===");
+
+        AccountFactory[] modes = { AccountFactory.decimal(), AccountFactory.fixedPoint(2) };
+        // First round warms up the JIT, second round is reported
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            for (AccountFactory factory : modes) {
+                run("ledger", factory, threads, ops, accountCount, false, report);
+            }
+            for (AccountFactory factory : modes) {
+                run("transfer", factory, threads, ops / 5, accountCount, true, report);
+            }
+            for (AccountFactory factory : modes) {
+                run("declined", factory, threads, ops / 5, accountCount, true, report);
+                run("thrown", factory, threads, ops / 5, accountCount, true, report);
+            }
+        }
+    }
+
+    private static void run(String workload, AccountFactory factory, int threads, int ops, int accountCount,
+            boolean fullTransfer, boolean report) throws Exception {
+        boolean declines = !workload.equals("transfer") && fullTransfer;
+        BigDecimal startBalance = declines ? Account.MIN_BALANCE : START_BALANCE;
+        Account[] accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = factory.create(String.format("A%06d", i), "Holder" + i, startBalance);
+        }
+        BankService bank = newBankService(factory);
+
+        System.gc();
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        AtomicLong allocated = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            workers[t] = new Thread(() -> {
+                long allocBefore = threadAllocatedBytes();
+                int x = seed * 7919 + 1;
+                for (int i = 0; i < ops; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 17;
+                    x ^= x << 5;
+                    int a = (x & 0x7fffffff) % accountCount;
+                    int b = (a + 1 + ((x >>> 8) & 0x7fffffff) % (accountCount - 1)) % accountCount;
+                    try {
+                        if (workload.equals("declined")) {
+                            bank.tryTransfer(accounts[a], accounts[b], AMOUNT);
+                        } else if (fullTransfer) {
+                            try {
+                                bank.transfer(accounts[a], accounts[b], AMOUNT);
+                            } catch (InsufficientFundsException e) {
+                                // "thrown": every transfer
+                            }
+                        } else {
+                            ledgerMove(accounts[a], accounts[b]);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                allocated.addAndGet(threadAllocatedBytes() - allocBefore);
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread w : workers)
+            w.start();
+        for (Thread w : workers)
+            w.join();
+        long nanos = System.nanoTime() - start;
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account a : accounts)
+            total = total.add(a.getBalance());
+        BigDecimal expected = startBalance.multiply(BigDecimal.valueOf(accountCount));
+
+        if (report) {
+            long totalOps = (long) threads * ops;
+            System.out.printf("%-9s %-11s %,12.0f ops/s  %,8d bytes/op  gc=%d (%d ms)  liquidity %s%n",
+                    workload, factory.getMode(), totalOps / (nanos / 1e9),
+                    allocated.get() < 0 ? -1 : allocated.get() / totalOps,
+                    gcCount() - gcCountBefore, gcMillis() - gcMillisBefore,
+                    total.compareTo(expected) == 0 ? "OK" : "MISMATCH " + total);
+        }
+        bank.shutdown();
+    }
+
+    // Same lock order and operations as the critical section in BankService.transfer
+    private static void ledgerMove(Account from, Account to) {
+        Account first = from.getAccountNumber().compareTo(to.getAccountNumber()) < 0 ? from : to;
+        Account second = first == from ? to : from;
+        first.getLock().writeLock().lock();
+        second.getLock().writeLock().lock();
+        try {
+            if (from instanceof FixedPointAccount && to instanceof FixedPointAccount) {
+                long units = ((FixedPointAccount) from).toUnits(AMOUNT);
+                ((FixedPointAccount) from).debitUnits(units);
+                ((FixedPointAccount) to).creditUnits(units);
+            } else {
+                from.debit(AMOUNT);
+                to.credit(AMOUNT);
+            }
+        } finally {
+            second.getLock().writeLock().unlock();
+            first.getLock().writeLock().unlock();
+        }
+    }
+
+    private static BankService newBankService(AccountFactory factory) throws IOException {
+        // Never opened, so the journal hands out LSNs but writes nothing
+        JournalService journal = new JournalService(Files.createTempDirectory("ledger-bench"), 5, factory);
+        AuditService quietAudit = new AuditService() {
+            @Override
+            public void logTransaction(Transaction transaction) {
+            }
+        };
+        return new BankService(new TransactionRepository(), new AccountRepository(), new FraudDetectionService(),
+                quietAudit, journal, factory);
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(0, gc.getCollectionTime());
+        return millis;
+    }
+}
@@ -0,0 +1,444 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.AuditService;
+import com.bank.simulator.service.BankService;
+import com.bank.simulator.service.FraudDetectionService;
+import com.bank.simulator.service.JournalService;
+import com.bank.simulator.service.LatencyHistogram;
+import com.bank.simulator.service.ShardedTransferEngine;
+import com.bank.simulator.service.TransferGraphAnalyzer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Headless capacity test: drives BankService with a configurable synthetic
+ * workload and reports throughput, latency, outcomes and the liquidity
+ * invariant. Used to size hardware, so it runs the real service stack
+ * (journal with group commit included) without the dashboard or the demo
+ * accounts.
+ *
+ * Run it as {@code java -cp out com.bank.simulator.BankingSimulator --load [options]}.
+ * Options come from {@code --config profile.properties} and/or
+ * {@code key=value} arguments (arguments win):
+ * <pre>
+ *   accounts=1000            number of accounts
+ *   balance=10000.00         opening balance of each account
+ *   distribution=uniform     account popularity: uniform | zipfian | hotset
+ *   zipf.skew=0.99           zipfian exponent
+ *   hotset.size=10           hotset: number of hot accounts ...
+ *   hotset.share=0.9         ... and the share of picks that land on them
+ *   amount=uniform           amount distribution: fixed | uniform | lognormal
+ *   amount.min=1.00          fixed amount, or lower bound
+ *   amount.max=500.00        upper bound (uniform, lognormal)
+ *   amount.median=50.00      lognormal median
+ *   amount.sigma=1.0         lognormal shape
+ *   fraud.ratio=0.0          share of transfers sent with fraud.amount to trip fraud detection
+ *   fraud.amount=50000.00
+ *   rate=0                   target transfers/s (open loop); 0 = closed loop
+ *   concurrency=16           worker threads (closed loop: transfers in flight)
+ *   duration=30              measured seconds
+ *   warmup=5                 seconds run before measuring
+ *   journal=true             journal to a temporary directory (deleted afterwards)
+ *   journal.window=5         group-commit window in ms
+ *   audit=false              write the audit log to a temporary directory (-Dbank.audit.* applies)
+ *   alerts=false             run the laundering-ring analyzer on completed transfers
+ *   ledger=decimal           decimal | fixed (default: -Dbank.ledger)
+ *   shards=0                 sharded transfer engine (default: -Dbank.shards)
+ *   seed=42
+ * </pre>
+ * In open-loop mode latency is measured from when each transfer was
+ * scheduled, not when a worker got to it, so a saturated system shows up as
+ * growing latency instead of being hidden (coordinated omission).
+ */
+public class LoadGenerator {
+
+    private static final int ENGINE_RING_CAPACITY = 16384; // Same as BankService
+    private static final long REPORT_INTERVAL_MILLIS = 5000;
+    private static final long SPIN_THRESHOLD_NANOS = 50_000; // Park for longer waits, spin for shorter ones
+
+    private final Config config;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder[] outcomes = new LongAdder[TransactionStatus.values().length];
+    private final LongAdder completed = new LongAdder(); // Warm-up included, for progress lines
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    private Account[] accounts;
+    private ZipfianGenerator zipf;
+
+    LoadGenerator(Config config) {
+        this.config = config;
+        for (int i = 0; i < outcomes.length; i++)
+            outcomes[i] = new LongAdder();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Properties properties = new Properties();
+        Properties overrides = new Properties();
+        for (int i = 0; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (args[i].equals("--config")) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(args[++i]), StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            } else if (eq > 0) {
+                overrides.setProperty(args[i].substring(0, eq), args[i].substring(eq + 1));
+            } else {
+                throw new IllegalArgumentException("Expected key=value or --config <file>: " + args[i]);
+            }
+        }
+        properties.putAll(overrides); // Command line wins over the profile
+        boolean ok = new LoadGenerator(Config.from(properties)).run();
+        System.exit(ok ? 0 : 1);
+    }
+
+    // ---------------------------------------------------------------- config
+
+    static final class Config {
+        private static final Set<String> KEYS = new HashSet<>(Arrays.asList("accounts", "balance",
+                "distribution", "zipf.skew", "hotset.size", "hotset.share", "amount", "amount.min", "amount.max",
+                "amount.median", "amount.sigma", "fraud.ratio", "fraud.amount", "rate", "concurrency", "duration",
+                "warmup", "journal", "journal.window", "audit", "alerts", "ledger", "shards", "seed"));
+
+        int accounts;
+        BigDecimal balance;
+        String distribution;
+        double zipfSkew;
+        int hotsetSize;
+        double hotsetShare;
+        String amount;
+        long amountMin; // Cents
+        long amountMax;
+        double amountMedian;
+        double amountSigma;
+        double fraudRatio;
+        BigDecimal fraudAmount;
+        double rate;
+        int concurrency;
+        int duration;
+        int warmup;
+        boolean journal;
+        long journalWindow;
+        boolean audit;
+        boolean alerts;
+        String ledger;
+        int shards;
+        long seed;
+
+        static Config from(Properties p) {
+            for (String key : p.stringPropertyNames()) {
+                if (!KEYS.contains(key))
+                    throw new IllegalArgumentException("Unknown load option: " + key);
+            }
+            Config c = new Config();
+            c.accounts = Integer.parseInt(p.getProperty("accounts", "1000"));
+            c.balance = new BigDecimal(p.getProperty("balance", "10000.00"));
+            c.distribution = p.getProperty("distribution", "uniform");
+            c.zipfSkew = Double.parseDouble(p.getProperty("zipf.skew", "0.99"));
+            c.hotsetSize = Integer.parseInt(p.getProperty("hotset.size", "10"));
+            c.hotsetShare = Double.parseDouble(p.getProperty("hotset.share", "0.9"));
+            c.amount = p.getProperty("amount", "uniform");
+            c.amountMin = cents(p.getProperty("amount.min", "1.00"));
+            c.amountMax = cents(p.getProperty("amount.max", "500.00"));
+            c.amountMedian = cents(p.getProperty("amount.median", "50.00"));
+            c.amountSigma = Double.parseDouble(p.getProperty("amount.sigma", "1.0"));
+            c.fraudRatio = Double.parseDouble(p.getProperty("fraud.ratio", "0.0"));
+            c.fraudAmount = new BigDecimal(p.getProperty("fraud.amount", "50000.00"));
+            c.rate = Double.parseDouble(p.getProperty("rate", "0"));
+            c.concurrency = Integer.parseInt(p.getProperty("concurrency", "16"));
+            c.duration = Integer.parseInt(p.getProperty("duration", "30"));
+            c.warmup = Integer.parseInt(p.getProperty("warmup", "5"));
+            c.journal = Boolean.parseBoolean(p.getProperty("journal", "true"));
+            c.journalWindow = Long.parseLong(p.getProperty("journal.window", "5"));
+            c.audit = Boolean.parseBoolean(p.getProperty("audit", "false"));
+            c.alerts = Boolean.parseBoolean(p.getProperty("alerts", "false"));
+            c.ledger = p.getProperty("ledger", System.getProperty("bank.ledger", "decimal"));
+            c.shards = Integer.parseInt(p.getProperty("shards", String.valueOf(Integer.getInteger("bank.shards", 0))));
+            c.seed = Long.parseLong(p.getProperty("seed", "42"));
+
+            if (c.accounts < 2)
+                throw new IllegalArgumentException("accounts must be at least 2");
+            if (!c.distribution.matches("uniform|zipfian|hotset"))
+                throw new IllegalArgumentException("distribution must be uniform, zipfian or hotset");
+            if (c.distribution.equals("hotset") && (c.hotsetSize < 1 || c.hotsetSize >= c.accounts))
+                throw new IllegalArgumentException("hotset.size must be between 1 and accounts - 1");
+            if (!c.amount.matches("fixed|uniform|lognormal"))
+                throw new IllegalArgumentException("amount must be fixed, uniform or lognormal");
+            if (c.amountMin <= 0 || c.amountMax < c.amountMin)
+                throw new IllegalArgumentException("need 0 < amount.min <= amount.max");
+            if (c.concurrency < 1 || c.duration < 1 || c.warmup < 0)
+                throw new IllegalArgumentException("concurrency and duration must be positive");
+            return c;
+        }
+
+        private static long cents(String amount) {
+            return new BigDecimal(amount).movePointRight(2).longValueExact();
+        }
+
+        @Override
+        public String toString() {
+            String mix = distribution.equals("zipfian") ? "zipfian(s=" + zipfSkew + ")"
+                    : distribution.equals("hotset") ? "hotset(" + hotsetSize + " accounts, " + hotsetShare * 100 + "%)"
+                            : "uniform";
+            return String.format("accounts=%,d x %s, popularity=%s, amount=%s [%s..%s], fraud=%.1f%%, %s, "
+                    + "concurrency=%d, %ds + %ds warm-up, journal=%s, ledger=%s, shards=%d",
+                    accounts, balance, mix, amount, BigDecimal.valueOf(amountMin, 2), BigDecimal.valueOf(amountMax, 2),
+                    fraudRatio * 100, rate > 0 ? String.format("open loop at %,.0f/s", rate) : "closed loop",
+                    concurrency, duration, warmup, journal ? journalWindow + "ms group commit" : "off", ledger, shards);
+        }
+    }
+
+    // ------------------------------------------------------------------ run
+
+    /**
+     * @return true if the liquidity invariant held
+     */
+    boolean run() throws IOException, InterruptedException {
+        System.out.println("=== Load Test: " + config + " ===");
+
+        AccountFactory factory = "fixed".equalsIgnoreCase(config.ledger)
+                ? AccountFactory.fixedPoint(Integer.getInteger("bank.ledger.scale", 2))
+                : AccountFactory.decimal();
+        Path journalDir = config.journal ? Files.createTempDirectory("load-journal") : null;
+        JournalService journal = config.journal ? new JournalService(journalDir, config.journalWindow, factory)
+                : new JournalService(factory); // Never opened: records are dropped
+        Path auditDir = config.audit ? Files.createTempDirectory("load-audit") : null;
+        Properties auditProps = new Properties(System.getProperties());
+        if (auditDir != null)
+            auditProps.setProperty("bank.audit.dir", auditDir.toString());
+        AuditService audit = config.audit ? AuditService.configured(auditProps) : new AuditService() {
+            @Override
+            public void logTransaction(Transaction transaction) {
+            }
+        };
+        TransactionRepository transactions = new TransactionRepository();
+        ShardedTransferEngine engine = null;
+        if (config.shards > 0) {
+            engine = new ShardedTransferEngine(config.shards, ENGINE_RING_CAPACITY, transactions, journal, audit);
+            engine.start();
+        }
+        // -Dbank.fraud.* rules apply here as in the simulator
+        BankService bank = new BankService(transactions, new AccountRepository(),
+                new FraudDetectionService(FraudDetectionService.configuredRules(System.getProperties())), audit, journal,
+                factory, engine);
+        if (config.journal)
+            journal.open();
+        TransferGraphAnalyzer graph = null;
+        if (config.alerts) {
+            graph = new TransferGraphAnalyzer();
+            graph.start();
+            bank.setTransferGraphAnalyzer(graph);
+        }
+
+        accounts = new Account[config.accounts];
+        for (int i = 0; i < config.accounts; i++) {
+            accounts[i] = factory.create(String.format("L%07d", i), "Load" + i, config.balance);
+            bank.openAccount(accounts[i]);
+        }
+        if (config.distribution.equals("zipfian"))
+            zipf = new ZipfianGenerator(config.accounts, config.zipfSkew);
+        BigDecimal liquidityBefore = liquidity();
+
+        Thread[] workers = new Thread[config.concurrency];
+        long start = System.nanoTime();
+        for (int w = 0; w < workers.length; w++) {
+            final int id = w;
+            workers[w] = new Thread(() -> work(bank, id, start), "load-" + w);
+            workers[w].start();
+        }
+
+        // Warm-up, then measure
+        progress(start, start + config.warmup * 1_000_000_000L, "warm-up");
+        long measureStart = System.nanoTime();
+        measuring = true;
+        progress(start, measureStart + config.duration * 1_000_000_000L, "measuring");
+        measuring = false;
+        long measureNanos = System.nanoTime() - measureStart;
+        stopped = true;
+        for (Thread w : workers)
+            w.join();
+
+        bank.shutdown(); // Drains the engine, if any
+        journal.close();
+        BigDecimal liquidityAfter = liquidity();
+        boolean ok = liquidityBefore.compareTo(liquidityAfter) == 0;
+        report(measureNanos, liquidityBefore, liquidityAfter, ok);
+        if (graph != null)
+            System.out.printf("Alerts:     %,d raised; analyzer processed %,d of %,d transfers (%,d dropped, "
+                    + "%,d searches cut short), %,d edges in window%n", graph.getAlertCount(), graph.getProcessed(),
+                    graph.getReceived(), graph.getDropped(), graph.getTruncatedSearches(), graph.getEdgeCount());
+
+        if (config.audit)
+            System.out.printf("Audit:      %,d written in %,d batches, %,d dropped, %,d spilled, %,d waited for room%n",
+                    audit.getLogged(), audit.getBatches(), audit.getDropped(), audit.getSpilled(), audit.getBlocked());
+
+        deleteTree(journalDir);
+        deleteTree(auditDir);
+        return ok;
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (dir == null)
+            return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    private void work(BankService bank, int id, long start) {
+        Random random = new Random(config.seed * 31 + id);
+        double nanosPerTransfer = config.rate > 0 ? 1e9 / config.rate : 0;
+        long k = 0;
+        while (!stopped) {
+            long scheduled;
+            if (nanosPerTransfer > 0) {
+                // Worker id takes every concurrency-th slot of the global schedule
+                scheduled = start + (long) ((k++ * config.concurrency + id) * nanosPerTransfer);
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0 && !stopped) {
+                    if (wait > SPIN_THRESHOLD_NANOS)
+                        LockSupport.parkNanos(wait - SPIN_THRESHOLD_NANOS);
+                    else
+                        Thread.onSpinWait();
+                }
+                if (stopped)
+                    break;
+            } else {
+                scheduled = System.nanoTime();
+            }
+
+            int from = pick(random);
+            int to;
+            do {
+                to = pick(random);
+            } while (to == from);
+            BigDecimal amount = random.nextDouble() < config.fraudRatio ? config.fraudAmount : amount(random);
+
+            TransactionStatus status;
+            try {
+                // Result codes: declines are a large share of this workload
+                switch (bank.tryTransfer(accounts[from], accounts[to], amount)) {
+                    case SUCCESS:
+                        status = TransactionStatus.SUCCESS;
+                        break;
+                    case REJECTED_FRAUD:
+                        status = TransactionStatus.REJECTED_FRAUD;
+                        break;
+                    default:
+                        status = TransactionStatus.ROLLED_BACK; // Insufficient funds or lock timeout
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                status = TransactionStatus.FAILED; // Rejected before anything was attempted
+            } catch (RuntimeException e) {
+                status = TransactionStatus.ROLLED_BACK; // Lock timeout, or a failed cross-shard credit
+            }
+            if (measuring) {
+                latency.record(System.nanoTime() - scheduled);
+                outcomes[status.ordinal()].increment();
+            }
+            completed.increment();
+        }
+    }
+
+    private int pick(Random random) {
+        switch (config.distribution) {
+            case "zipfian":
+                return zipf.next(random);
+            case "hotset":
+                return random.nextDouble() < config.hotsetShare ? random.nextInt(config.hotsetSize)
+                        : config.hotsetSize + random.nextInt(config.accounts - config.hotsetSize);
+            default:
+                return random.nextInt(config.accounts);
+        }
+    }
+
+    private BigDecimal amount(Random random) {
+        long cents;
+        switch (config.amount) {
+            case "fixed":
+                cents = config.amountMin;
+                break;
+            case "lognormal":
+                cents = Math.round(config.amountMedian * Math.exp(config.amountSigma * random.nextGaussian()));
+                cents = Math.max(config.amountMin, Math.min(config.amountMax, cents));
+                break;
+            default:
+                cents = config.amountMin + (long) (random.nextDouble() * (config.amountMax - config.amountMin + 1));
+        }
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private BigDecimal liquidity() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account a : accounts)
+            total = total.add(a.getBalance());
+        return total;
+    }
+
+    // ------------------------------------------------------------- reporting
+
+    private void progress(long start, long until, String phase) throws InterruptedException {
+        long lastCount = completed.sum();
+        long lastTime = System.nanoTime();
+        while (System.nanoTime() < until) {
+            long sleep = Math.min(REPORT_INTERVAL_MILLIS, (until - System.nanoTime()) / 1_000_000);
+            if (sleep > 0)
+                Thread.sleep(sleep);
+            long now = System.nanoTime();
+            long count = completed.sum();
+            System.out.printf("[LOAD] %5.0fs %-9s %,12.0f transfers/s%n", (now - start) / 1e9, phase,
+                    (count - lastCount) / ((now - lastTime) / 1e9));
+            lastCount = count;
+            lastTime = now;
+        }
+    }
+
+    private void report(long measureNanos, BigDecimal before, BigDecimal after, boolean ok) {
+        double seconds = measureNanos / 1e9;
+        LatencyHistogram.Snapshot h = latency.snapshot();
+        long succeeded = outcomes[TransactionStatus.SUCCESS.ordinal()].sum();
+
+        System.out.println("\n=== Load Test Report ===");
+        System.out.printf("Measured:   %.1fs, %,d transfers%n", seconds, h.getCount());
+        System.out.printf("Throughput: %,.0f transfers/s achieved%s, %,.0f/s successful%n", h.getCount() / seconds,
+                config.rate > 0 ? String.format(" (target %,.0f/s)", config.rate) : "", succeeded / seconds);
+        System.out.printf("Latency:    p50 %s  p90 %s  p99 %s  p99.9 %s  max %s  (mean %s)%n", millis(h.valueAt(50)),
+                millis(h.valueAt(90)), millis(h.valueAt(99)), millis(h.valueAt(99.9)), millis(h.getMax()),
+                millis(Math.round(h.getMean())));
+        System.out.print("Outcomes:  ");
+        for (TransactionStatus status : TransactionStatus.values()) {
+            long n = outcomes[status.ordinal()].sum();
+            System.out.printf(" %s %,d (%.2f%%)", status, n, h.getCount() == 0 ? 0 : n * 100.0 / h.getCount());
+        }
+        System.out.println();
+        System.out.println("Liquidity:  before " + before + ", after " + after + " -> "
+                + (ok ? "OK (no money created or destroyed)" : "MISMATCH"));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+}
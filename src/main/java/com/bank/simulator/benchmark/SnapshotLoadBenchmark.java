@@ -0,0 +1,104 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.BinarySnapshotCodec;
+import com.bank.simulator.service.JsonSnapshotCodec;
+import com.bank.simulator.service.SnapshotCodec;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Load-time comparison of the JSON and binary snapshot formats.
+ *
+ * Usage: java -Xmx24g -cp out com.bank.simulator.benchmark.SnapshotLoadBenchmark [accounts] [transactions]
+ * (defaults: 1,000,000 accounts, 50,000,000 transactions; large sizes need a big heap)
+ */
+public class SnapshotLoadBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int txnCount = args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000;
+
+        System.out.println("=== Snapshot Load Benchmark: " + accountCount + " accounts, " + txnCount
+                + " transactions ===");
+
+        List<Account> accounts = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(new Account("A" + (1000 + i), "Holder" + i, BigDecimal.valueOf(100_000 + i, 2)));
+        }
+        Collection<Transaction> transactions = generatedTransactions(accountCount, txnCount);
+
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        run("JSON", new JsonSnapshotCodec(AccountFactory.decimal()), dir.resolve("bank_data.json"), accounts, transactions);
+        run("BINARY", new BinarySnapshotCodec(AccountFactory.decimal()), dir.resolve("bank_data.bin"), accounts, transactions);
+    }
+
+    private static void run(String name, SnapshotCodec codec, Path file, List<Account> accounts,
+            Collection<Transaction> transactions) throws IOException {
+        long start = System.nanoTime();
+        codec.write(file, accounts, transactions, 1, 0);
+        long writeMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.gc();
+        AccountRepository accountRepository = new AccountRepository();
+        TransactionRepository transactionRepository = new TransactionRepository();
+        start = System.nanoTime();
+        codec.read(file, accountRepository, transactionRepository);
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%-7s size=%,d bytes  write=%,d ms  load=%,d ms  (accounts=%,d, transactions restored=%,d)%n",
+                name, Files.size(file), writeMillis, loadMillis, accountRepository.findAll().size(),
+                transactionRepository.size());
+        Files.delete(file);
+    }
+
+    // Generated on the fly so the writer never needs all transactions in memory
+    private static Collection<Transaction> generatedTransactions(int accountCount, int txnCount) {
+        return new AbstractCollection<Transaction>() {
+            @Override
+            public Iterator<Transaction> iterator() {
+                return new Iterator<Transaction>() {
+                    private int i;
+                    private final long baseSeconds = Instant.now().getEpochSecond();
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < txnCount;
+                    }
+
+                    @Override
+                    public Transaction next() {
+                        int src = i % accountCount;
+                        int dest = (i * 31 + 7) % accountCount;
+                        Transaction t = new Transaction(new UUID(i, ~i).toString(), "A" + (1000 + src),
+                                "A" + (1000 + dest), BigDecimal.valueOf(1 + i % 5000, 2),
+                                Instant.ofEpochSecond(baseSeconds, i % 1_000_000_000),
+                                TransactionStatus.SUCCESS);
+                        i++;
+                        return t;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return txnCount;
+            }
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.AuditService;
+import com.bank.simulator.service.BankService;
+import com.bank.simulator.service.FraudDetectionService;
+import com.bank.simulator.service.JournalService;
+import com.bank.simulator.service.LatencyHistogram;
+import com.bank.simulator.service.TransferStats;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Cost of the transfer instrumentation (TransferStats) on the lock-based path.
+ *
+ * Each round runs on one bank and flips stats on and off every chunk of
+ * transfers, so heap growth lands on both sides equally. Adjacent on/off
+ * chunks form a pair and the overhead reported is the median over all pairs,
+ * which keeps an occasional GC pause from deciding the result. The "hot"
+ * workload puts every thread on a handful of accounts so the contention check
+ * and map are exercised too.
+ *
+ * Usage: java -cp out com.bank.simulator.benchmark.StatsOverheadBenchmark [threads] [opsPerThread] [rounds]
+ * (defaults: available processors, 200,000 per round, 10 rounds)
+ */
+public class StatsOverheadBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final BigDecimal START_BALANCE = new BigDecimal("100000000.00");
+    private static final int CHUNK = 10_000; // Transfers per thread between flips
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        System.out.println("=== Stats Overhead Benchmark: " + threads + " threads x " + ops + " ops, " + rounds
+                + " rounds ===");
+        for (int accounts : new int[] { 1_000, 4 }) {
+            int pairsPerRound = ops / CHUNK / 2;
+            int measuredRounds = rounds - rounds / 2;
+            long[] onNanos = new long[pairsPerRound * measuredRounds];
+            long[] offNanos = new long[onNanos.length];
+            double[] ratios = new double[onNanos.length];
+            BankService bank = null;
+            int pairs = 0;
+            for (int round = 0; round < rounds; round++) {
+                boolean measured = round >= rounds / 2; // First half warms up the JIT
+                bank = newBankService(accounts);
+                for (int pair = 0; pair < pairsPerRound; pair++) {
+                    // Alternate the order so neither side always runs first
+                    boolean onFirst = pair % 2 == 0;
+                    long on = 0;
+                    long off = 0;
+                    for (int side = 0; side < 2; side++) {
+                        boolean enabled = (side == 0) == onFirst;
+                        bank.getStats().setEnabled(enabled);
+                        long nanos = run(bank, accounts, threads, CHUNK);
+                        if (enabled)
+                            on = nanos;
+                        else
+                            off = nanos;
+                    }
+                    if (measured) {
+                        onNanos[pairs] = on;
+                        offNanos[pairs] = off;
+                        ratios[pairs] = (double) on / off;
+                        pairs++;
+                    }
+                }
+                bank.shutdown();
+            }
+            String label = accounts == 4 ? "hot" : "spread";
+            double perChunk = (double) threads * CHUNK * 1e9;
+            System.out.printf("%-6s stats off %,12.0f transfers/s (median chunk)%n", label,
+                    perChunk / median(offNanos));
+            System.out.printf("%-6s stats on  %,12.0f transfers/s (median chunk)  overhead %+.1f%% (median of %d pairs)%n",
+                    label, perChunk / median(onNanos), (median(ratios) - 1) * 100, pairs);
+            print(bank.getStats());
+        }
+    }
+
+    private static long run(BankService bank, int accountCount, int threads, int ops) throws Exception {
+        Account[] accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++)
+            accounts[i] = bank.getAccountRepository().findByAccountNumber("A" + i).get();
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            workers[t] = new Thread(() -> {
+                int x = seed * 7919 + 1;
+                for (int i = 0; i < ops; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 17;
+                    x ^= x << 5;
+                    int a = (x & 0x7fffffff) % accountCount;
+                    int b = (a + 1 + ((x >>> 10) & 0x7fffffff) % (accountCount - 1)) % accountCount;
+                    try {
+                        bank.transfer(accounts[a], accounts[b], AMOUNT);
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (RuntimeException e) {
+                        // Lock timeout under heavy contention; counted in the stats
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread w : workers)
+            w.start();
+        for (Thread w : workers)
+            w.join();
+        return System.nanoTime() - start;
+    }
+
+    private static double median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static void print(TransferStats stats) {
+        LatencyHistogram.Snapshot transfer = stats.getTransferLatency();
+        LatencyHistogram.Snapshot wait = stats.getLockWait();
+        LatencyHistogram.Snapshot held = stats.getCriticalSection();
+        System.out.printf("       transfer p50 %,d ns  p99 %,d ns | lock wait p50 %,d ns  p99 %,d ns | "
+                + "critical section p50 %,d ns  p99 %,d ns%n", transfer.valueAt(50), transfer.valueAt(99),
+                wait.valueAt(50), wait.valueAt(99), held.valueAt(50), held.valueAt(99));
+        if (!stats.getTopContended(1).isEmpty()) {
+            TransferStats.Contention top = stats.getTopContended(1).get(0);
+            System.out.printf("       most contended: %s (%,d contended acquisitions)%n", top.getAccountNumber(),
+                    top.getCount());
+        }
+    }
+
+    private static BankService newBankService(int accountCount) throws Exception {
+        // Journal never opened and audit muted: only the transfer path is measured
+        AuditService quietAudit = new AuditService() {
+            @Override
+            public void logTransaction(Transaction transaction) {
+            }
+        };
+        JournalService journal = new JournalService(Files.createTempDirectory("stats-bench"), 5,
+                AccountFactory.decimal());
+        BankService bank = new BankService(new TransactionRepository(), new AccountRepository(),
+                new FraudDetectionService(), quietAudit, journal);
+        for (int i = 0; i < accountCount; i++)
+            bank.openAccount(new Account("A" + i, "Holder" + i, START_BALANCE));
+        return bank;
+    }
+}
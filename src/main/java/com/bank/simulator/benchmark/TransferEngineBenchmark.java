@@ -0,0 +1,138 @@
+package com.bank.simulator.benchmark;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.AuditService;
+import com.bank.simulator.service.BankService;
+import com.bank.simulator.service.FraudDetectionService;
+import com.bank.simulator.service.JournalService;
+import com.bank.simulator.service.ShardedTransferEngine;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-based transfers vs the sharded single-writer engine.
+ *
+ * Workloads: "uniform" picks random account pairs, "hot-pair" sends every
+ * transfer between two accounts (the A1001/A1002 pattern of the simulator).
+ * Sharded callers keep a window of outstanding futures instead of waiting for
+ * each transfer, which is how the engine is meant to be driven.
+ *
+ * Usage: java -cp out com.bank.simulator.benchmark.TransferEngineBenchmark [threads] [opsPerThread] [shards]
+ * (defaults: available processors, 200,000, available processors)
+ */
+public class TransferEngineBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final BigDecimal START_BALANCE = new BigDecimal("100000000.00");
+    private static final int ACCOUNTS = 1_000;
+    private static final int WINDOW = 64; // Outstanding futures per caller thread
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : cores;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int shards = args.length > 2 ? Integer.parseInt(args[2]) : cores;
+
+        System.out.println("=== Transfer Engine Benchmark: " + threads + " threads x " + ops + " ops, " + shards
+                + " shards, " + ACCOUNTS + " accounts ===");
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1; // First round is JIT warm-up
+            for (String workload : new String[] { "uniform", "hot-pair" }) {
+                run(workload, 0, threads, ops, report);
+                run(workload, shards, threads, ops, report);
+            }
+        }
+    }
+
+    private static void run(String workload, int shards, int threads, int ops, boolean report) throws Exception {
+        Account[] accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++)
+            accounts[i] = new Account(String.format("A%06d", i), "Holder" + i, START_BALANCE);
+
+        // Journal never opened and audit muted: only the execution model differs
+        TransactionRepository txRepo = new TransactionRepository();
+        JournalService journal = new JournalService(Files.createTempDirectory("engine-bench"), 5,
+                AccountFactory.decimal());
+        AuditService quietAudit = new AuditService() {
+            @Override
+            public void logTransaction(Transaction transaction) {
+            }
+        };
+        ShardedTransferEngine engine = null;
+        if (shards > 0) {
+            engine = new ShardedTransferEngine(shards, 16384, txRepo, journal, quietAudit);
+            engine.start();
+        }
+        BankService bank = new BankService(txRepo, new AccountRepository(), new FraudDetectionService(), quietAudit,
+                journal, AccountFactory.decimal(), engine);
+
+        AtomicLong failures = new AtomicLong();
+        boolean hotPair = workload.equals("hot-pair");
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            workers[t] = new Thread(() -> {
+                int x = seed * 7919 + 1;
+                ArrayDeque<CompletableFuture<Transaction>> window = new ArrayDeque<>(WINDOW);
+                for (int i = 0; i < ops; i++) {
+                    x ^= x << 13;
+                    x ^= x >>> 17;
+                    x ^= x << 5;
+                    int a;
+                    int b;
+                    if (hotPair) {
+                        a = (i & 1);
+                        b = 1 - a;
+                    } else {
+                        a = (x & 0x7fffffff) % ACCOUNTS;
+                        b = (a + 1 + ((x >>> 10) & 0x7fffffff) % (ACCOUNTS - 1)) % ACCOUNTS;
+                    }
+                    if (window.size() == WINDOW && !await(window.poll()))
+                        failures.incrementAndGet();
+                    window.add(bank.transferAsync(accounts[a], accounts[b], AMOUNT));
+                }
+                for (CompletableFuture<Transaction> f : window) {
+                    if (!await(f))
+                        failures.incrementAndGet();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread w : workers)
+            w.start();
+        for (Thread w : workers)
+            w.join();
+        long nanos = System.nanoTime() - start;
+        bank.shutdown();
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account a : accounts)
+            total = total.add(a.getBalance());
+        boolean liquidityOk = total.compareTo(START_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS))) == 0;
+
+        if (report) {
+            long totalOps = (long) threads * ops;
+            System.out.printf("%-9s %-12s %,12.0f transfers/s  failed=%,d  liquidity %s%n", workload,
+                    shards == 0 ? "locks" : "sharded(" + shards + ")", totalOps / (nanos / 1e9), failures.get(),
+                    liquidityOk ? "OK" : "MISMATCH " + total);
+        }
+    }
+
+    private static boolean await(CompletableFuture<Transaction> future) {
+        try {
+            future.join();
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.bank.simulator.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf-distributed ranks in [0, n): rank k is drawn with probability
+ * proportional to 1/(k+1)^s. Inverse-CDF lookup over a precomputed table, so
+ * a draw is one binary search; share one generator between threads and give
+ * each thread its own Random.
+ */
+class ZipfianGenerator {
+    private final double[] cdf;
+
+    ZipfianGenerator(int n, double s) {
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, s);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++)
+            cdf[k] /= sum;
+    }
+
+    int next(Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+}
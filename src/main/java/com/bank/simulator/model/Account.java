@@ -2,86 +2,539 @@ package com.bank.simulator.model;
 
 import com.bank.simulator.exception.InsufficientFundsException;
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.math.RoundingMode;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
 
 public class Account {
 
+    /** {@link #tryLockStripe}: the stripe path cannot serve this leg, use the write lock. */
+    public static final int NO_STRIPE = -1;
+    /** {@link #tryLockStripe}: no stripe was free within the timeout. */
+    public static final int STRIPE_TIMEOUT = -2;
+
+    private static final AtomicLongFieldUpdater<Account> LAST_LSN = AtomicLongFieldUpdater
+            .newUpdater(Account.class, "lastLsn");
+
+    /**
+     * The order in which to take several accounts' write locks: by lock rank
+     * where accounts share locks (AccountTable), else by account number.
+     */
+    public static final Comparator<Account> LOCK_ORDER = (a, b) -> {
+        int ra = a.lockRank();
+        int rb = b.lockRank();
+        if (ra != rb)
+            return Integer.compare(ra, rb);
+        return a.getAccountNumber().compareTo(b.getAccountNumber());
+    };
+
     private final String accountNumber;
     private final String holderName;
     private BigDecimal balance;
     private BigDecimal debt;
 
-    // Advanced: ReadWriteLock allows multiple readers (balance checks) but only one
-    // writer (transfers)
-    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock(true); // Fair lock
-    private final List<Transaction> transactionHistory = new ArrayList<>();
+    // Many readers (balance checks), one writer (transfers); fair RW lock or
+    // StampedLock optimistic reads, see AccountLock
+    private final AccountLock lock;
+    private final TransactionHistory transactionHistory; // Own lock, not the account's
+
+    // Journal position (LSN) of the last change applied to this account. Lets a
+    // fuzzy checkpoint tell which journal records it already reflects.
+    // Volatile: stripe legs of a striped account advance it concurrently.
+    private volatile long lastLsn;
+
+    // Lazy interest (null = none): interest is materialized up to accruedPeriod
+    private InterestAccrual interestAccrual;
+    private long accruedPeriod;
 
     public Account(String accountNumber, String holderName, BigDecimal initialBalance) {
         this(accountNumber, holderName, initialBalance, BigDecimal.ZERO);
     }
 
     public Account(String accountNumber, String holderName, BigDecimal initialBalance, BigDecimal initialDebt) {
+        this(accountNumber, holderName, initialBalance, initialDebt, AccountLock.fair());
+    }
+
+    public Account(String accountNumber, String holderName, BigDecimal initialBalance, BigDecimal initialDebt,
+            AccountLock lock) {
+        this.lock = lock;
         this.accountNumber = accountNumber;
         this.holderName = holderName;
         this.balance = initialBalance;
         this.debt = initialDebt;
+        this.transactionHistory = new TransactionHistory();
+    }
+
+    // For views whose state lives elsewhere (DenseAccount): they override every accessor below
+    Account(String accountNumber, AccountLock lock) {
+        this.lock = lock;
+        this.accountNumber = accountNumber;
+        this.holderName = null;
+        this.balance = BigDecimal.ZERO;
+        this.debt = BigDecimal.ZERO;
+        this.transactionHistory = null;
     }
 
     public BigDecimal getDebt() {
-        rwLock.readLock().lock();
-        try {
-            return debt;
-        } finally {
-            rwLock.readLock().unlock();
+        long stamp = lock.tryOptimisticRead();
+        BigDecimal d = debt;
+        InterestAccrual accrual = getInterestAccrual();
+        long accrued = getAccruedPeriod();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                d = debt;
+                accrual = getInterestAccrual();
+                accrued = getAccruedPeriod();
+            } finally {
+                lock.unlockRead(stamp);
+            }
         }
+        long periods = pendingPeriods(accrual, accrued);
+        return periods == 0 ? d : d.add(accrual.debtInterest(d, periods));
     }
 
     public void addDebt(BigDecimal amount) {
-        rwLock.writeLock().lock();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
         try {
+            accrueLocked();
             debt = debt.add(amount);
         } finally {
-            rwLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
-    private static final BigDecimal MIN_BALANCE = new BigDecimal("20");
+    public static final BigDecimal MIN_BALANCE = new BigDecimal("20");
 
     public void debit(BigDecimal amount) {
-        rwLock.writeLock().lock();
+        if (!tryDebit(amount))
+            throw insufficientFunds();
+    }
+
+    /**
+     * Same as {@link #debit}, but a decline is a false return rather than an
+     * exception: the form for transfer engines, where declines are routine.
+     */
+    public boolean tryDebit(BigDecimal amount) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
         try {
-            // Rule: Check if (Balance - Amount) < 20
-            if (balance.subtract(amount).compareTo(MIN_BALANCE) < 0) {
-                String msg = String.format(
-                        "Transaction Declined. Insufficient Funds. Your balance is %s, but you need to maintain a minimum of %s.",
-                        balance, MIN_BALANCE);
-                throw new InsufficientFundsException(msg);
+            accrueLocked();
+            BalanceStripe[] stripes = lock.getStripes();
+            if (stripes != null)
+                gatherStripes(stripes); // Check and debit the total, borrowing across stripes
+            try {
+                // Rule: Check if (Balance - Amount) < 20
+                BigDecimal remaining = balance.subtract(amount);
+                if (remaining.compareTo(MIN_BALANCE) < 0)
+                    return false;
+                balance = remaining;
+                return true;
+            } finally {
+                if (stripes != null)
+                    spreadStripes(stripes);
             }
-            balance = balance.subtract(amount);
         } finally {
-            rwLock.writeLock().unlock();
+            writeLock.unlock();
         }
     }
 
+    /** The exception for a declined debit, quoting the balance as it is now. */
+    public InsufficientFundsException insufficientFunds() {
+        return new InsufficientFundsException(String.format(
+                "Transaction Declined. Insufficient Funds. Your balance is %s, but you need to maintain a minimum of %s.",
+                getBalance(), MIN_BALANCE));
+    }
+
+    /**
+     * Adds {@code amount}, which may be negative (batch netting, fees, replayed
+     * debits). No MIN_BALANCE check: callers have already made it.
+     */
     public void credit(BigDecimal amount) {
-        rwLock.writeLock().lock();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
         try {
+            accrueLocked();
+            // A negative credit on the main balance alone would leave the stripes their
+            // shares, and stripe debits would keep passing: take it from the total
+            BalanceStripe[] stripes = amount.signum() < 0 ? lock.getStripes() : null;
+            if (stripes != null)
+                gatherStripes(stripes);
             balance = balance.add(amount);
+            if (stripes != null)
+                spreadStripes(stripes);
         } finally {
-            rwLock.writeLock().unlock();
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Recovery: replaces balance and debt with the values a delta snapshot
+     * recorded. The account keeps its identity, so its history and lock stay
+     * as the base snapshot restored them.
+     */
+    public void restoreBalance(BigDecimal balance, BigDecimal debt) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            BalanceStripe[] stripes = lock.getStripes();
+            if (stripes != null)
+                gatherStripes(stripes);
+            this.balance = balance;
+            this.debt = debt;
+            if (stripes != null)
+                spreadStripes(stripes);
+        } finally {
+            writeLock.unlock();
         }
     }
 
     public BigDecimal getBalance() {
-        rwLock.readLock().lock();
+        long stamp = lock.tryOptimisticRead();
+        BigDecimal b = stripedBalance();
+        InterestAccrual accrual = getInterestAccrual();
+        long accrued = getAccruedPeriod();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                b = stripedBalance();
+                accrual = getInterestAccrual();
+                accrued = getAccruedPeriod();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        long periods = pendingPeriods(accrual, accrued);
+        return periods == 0 ? b : b.add(accrual.balanceInterest(b, periods));
+    }
+
+    // Main balance plus the stripes. Stripe legs do not hold off readers: each
+    // stripe is read as it stands, like an account in a concurrent transfer
+    private BigDecimal stripedBalance() {
+        BigDecimal b = balance;
+        BalanceStripe[] stripes = lock.getStripes();
+        if (stripes != null)
+            for (BalanceStripe s : stripes)
+                b = b.add(s.amount);
+        return b;
+    }
+
+    /**
+     * Switches the account to lazy interest. It accrues from the period
+     * recovery restored (see {@link #restoreInterestPeriod}), so periods that
+     * passed while the process was down are charged on the next write; an
+     * account without one starts at the current period.
+     */
+    public void enableInterestAccrual(InterestAccrual accrual) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            accrueLocked(); // Settle under the old schedule first
+            long period = accrual.currentPeriod();
+            long restored = getInterestAccrual() == null ? getAccruedPeriod() : 0;
+            setInterestState(accrual, restored > 0 ? Math.min(restored, period) : period);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** The period lazy interest is materialized up to (0 = never accrued). */
+    public long getInterestPeriod() {
+        long stamp = lock.tryOptimisticRead();
+        long period = getAccruedPeriod();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                period = getAccruedPeriod();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return period;
+    }
+
+    /**
+     * Recovery: the period a snapshot or journal record says the account had
+     * accrued to. Only moves forward; takes effect when interest is enabled.
+     */
+    public void restoreInterestPeriod(long period) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (period > getAccruedPeriod())
+                setInterestState(getInterestAccrual(), period);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Materializes lazily accrued interest now (checkpoints call this so the
+     * snapshot holds journaled values only).
+     */
+    public void accrueInterest() {
+        if (!hasPendingInterest())
+            return;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            accrueLocked();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean hasPendingInterest() {
+        long stamp = lock.tryOptimisticRead();
+        InterestAccrual accrual = getInterestAccrual();
+        long accrued = getAccruedPeriod();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                accrual = getInterestAccrual();
+                accrued = getAccruedPeriod();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return pendingPeriods(accrual, accrued) > 0;
+    }
+
+    // Read under the lock or in an optimistic read, like the ledger fields
+    protected InterestAccrual getInterestAccrual() {
+        return interestAccrual;
+    }
+
+    protected long getAccruedPeriod() {
+        return accruedPeriod;
+    }
+
+    // Write lock held
+    void setInterestState(InterestAccrual accrual, long accruedPeriod) {
+        this.interestAccrual = accrual;
+        this.accruedPeriod = accruedPeriod;
+    }
+
+    // Periods not yet materialized; caller holds the write lock
+    protected final long pendingPeriods() {
+        return pendingPeriods(getInterestAccrual(), getAccruedPeriod());
+    }
+
+    // Same, from values a reader copied
+    protected static long pendingPeriods(InterestAccrual accrual, long accruedPeriod) {
+        if (accrual == null)
+            return 0;
+        return Math.max(0, accrual.currentPeriod() - accruedPeriod); // 0 if the clock stepped back
+    }
+
+    // Caller holds the write lock; every balance or debt change starts here
+    protected final void accrueLocked() {
+        long periods = pendingPeriods();
+        if (periods == 0)
+            return;
+        InterestAccrual accrual = getInterestAccrual();
+        setInterestState(accrual, getAccruedPeriod() + periods);
+        BalanceStripe[] stripes = lock.getStripes();
+        if (stripes != null)
+            gatherStripes(stripes); // Interest on the whole balance
+        applyInterest(accrual, periods);
+        if (stripes != null)
+            spreadStripes(stripes);
+    }
+
+    /**
+     * Adds the interest for {@code periods} to balance and debt and reports it
+     * to the accrual's listener, zero or not, with the period now reached.
+     * Write lock held.
+     */
+    protected void applyInterest(InterestAccrual accrual, long periods) {
+        BigDecimal interest = accrual.balanceInterest(balance, periods);
+        BigDecimal debtInterest = accrual.debtInterest(debt, periods);
+        balance = balance.add(interest);
+        debt = debt.add(debtInterest);
+        accrual.accrued(this, interest, debtInterest, getAccruedPeriod());
+    }
+
+    /**
+     * Splits the balance into {@code count} stripes (sub-ledgers), each under
+     * a lock of its own, so transfer legs on a hot account stop queueing on
+     * one write lock (see {@link #tryLockStripe}). No-op if already striped.
+     */
+    public void enableStriping(int count) {
+        if (count < 2)
+            throw new IllegalArgumentException("Striping needs at least 2 stripes: " + count);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
         try {
-            return balance;
+            accrueLocked();
+            if (lock.getStripes() != null)
+                return;
+            BalanceStripe[] stripes = new BalanceStripe[count];
+            for (int i = 0; i < count; i++)
+                stripes[i] = new BalanceStripe();
+            lock.setStripes(stripes);
+            spreadStripes(stripes);
         } finally {
-            rwLock.readLock().unlock();
+            writeLock.unlock();
+        }
+    }
+
+    /** Folds the stripes back into one balance. No-op if not striped. */
+    public void disableStriping() {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            BalanceStripe[] stripes = lock.getStripes();
+            if (stripes == null)
+                return;
+            gatherStripes(stripes);
+            lock.setStripes(null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean isStriped() {
+        return lock.getStripes() != null;
+    }
+
+    public int getStripeCount() {
+        BalanceStripe[] stripes = lock.getStripes();
+        return stripes == null ? 0 : stripes.length;
+    }
+
+    /** Transfer legs served by stripes since the account was last striped. */
+    public long getStripedLegs() {
+        BalanceStripe[] stripes = lock.getStripes();
+        long legs = 0;
+        if (stripes != null)
+            for (BalanceStripe s : stripes)
+                legs += s.legs;
+        return legs;
+    }
+
+    /**
+     * Locks one stripe of a striped account for a transfer leg, instead of the
+     * write lock. A debit needs a stripe that covers the amount plus
+     * MIN_BALANCE on its own, which keeps the total above MIN_BALANCE without
+     * looking at the other stripes; a credit takes any stripe. Free stripes
+     * are tried first, from a random start.
+     *
+     * @param debitAmount the amount to debit, or null for a credit
+     * @return the stripe to pass to debitStripe/creditStripe, stampStripe and
+     *         unlockStripe; {@link #NO_STRIPE} if the caller must take the write
+     *         lock instead (not striped, interest pending, no stripe covers the
+     *         debit); {@link #STRIPE_TIMEOUT} if no stripe was free in time
+     */
+    public int tryLockStripe(BigDecimal debitAmount, long timeout, TimeUnit unit) throws InterruptedException {
+        BalanceStripe[] stripes = lock.getStripes();
+        if (stripes == null)
+            return NO_STRIPE;
+        int n = stripes.length;
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            if (coversDebit(stripes[i], debitAmount) && stripes[i].lock.tryLock()) {
+                int claimed = claimStripe(stripes, i, debitAmount);
+                if (claimed != STRIPE_TIMEOUT)
+                    return claimed;
+            }
+        }
+        // All busy: queue on each candidate in turn until the deadline
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int k = 0; k < n; k++) {
+            int i = (start + k) % n;
+            if (!coversDebit(stripes[i], debitAmount))
+                continue;
+            if (!stripes[i].lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                return STRIPE_TIMEOUT;
+            int claimed = claimStripe(stripes, i, debitAmount);
+            if (claimed != STRIPE_TIMEOUT)
+                return claimed;
         }
+        return NO_STRIPE;
+    }
+
+    // Stripe i locked: keep it (i), give up on stripes (NO_STRIPE) or try the next (STRIPE_TIMEOUT)
+    private int claimStripe(BalanceStripe[] stripes, int i, BigDecimal debitAmount) {
+        // Holding a stripe excludes the write lock, so these are stable now
+        if (lock.getStripes() != stripes || pendingPeriods() > 0) {
+            stripes[i].lock.unlock();
+            return NO_STRIPE; // Demoted, or interest to materialize under the write lock
+        }
+        if (!coversDebit(stripes[i], debitAmount)) {
+            stripes[i].lock.unlock();
+            return STRIPE_TIMEOUT;
+        }
+        stripes[i].legs++;
+        return i;
+    }
+
+    /** Stripe {@code stripe} held (see {@link #tryLockStripe}). */
+    public void debitStripe(int stripe, BigDecimal amount) {
+        BalanceStripe s = lock.getStripes()[stripe];
+        if (!coversDebit(s, amount))
+            throw new IllegalStateException("Stripe does not cover " + amount);
+        debitStripe(s, amount);
+    }
+
+    /** Stripe {@code stripe} held (see {@link #tryLockStripe}). */
+    public void creditStripe(int stripe, BigDecimal amount) {
+        creditStripe(lock.getStripes()[stripe], amount);
+    }
+
+    /**
+     * The stripe-leg counterpart of {@link #setLastLsn}: legs on other stripes
+     * stamp concurrently, so the LSN only moves forward.
+     */
+    public void stampStripe(long lsn) {
+        LAST_LSN.accumulateAndGet(this, lsn, Math::max);
+    }
+
+    public void unlockStripe(int stripe) {
+        lock.getStripes()[stripe].lock.unlock();
+    }
+
+    // Stripe hooks; FixedPointAccount keeps units instead of amounts
+
+    boolean coversDebit(BalanceStripe s, BigDecimal debitAmount) {
+        return debitAmount == null || s.amount.subtract(debitAmount).compareTo(MIN_BALANCE) >= 0;
+    }
+
+    void debitStripe(BalanceStripe s, BigDecimal amount) {
+        s.amount = s.amount.subtract(amount);
+    }
+
+    void creditStripe(BalanceStripe s, BigDecimal amount) {
+        s.amount = s.amount.add(amount);
+    }
+
+    // Write lock held (every stripe too): the stripes into the main balance
+    void gatherStripes(BalanceStripe[] stripes) {
+        BigDecimal b = balance;
+        for (BalanceStripe s : stripes) {
+            b = b.add(s.amount);
+            s.amount = BigDecimal.ZERO;
+        }
+        balance = b;
+    }
+
+    // Write lock held, stripes empty: equal shares out of the main balance,
+    // which keeps what does not divide evenly
+    void spreadStripes(BalanceStripe[] stripes) {
+        BigDecimal count = BigDecimal.valueOf(stripes.length);
+        BigDecimal share = balance.divide(count, balance.scale(), RoundingMode.DOWN);
+        if (share.signum() <= 0)
+            return;
+        for (BalanceStripe s : stripes)
+            s.amount = share;
+        balance = balance.subtract(share.multiply(count));
     }
 
     /**
@@ -89,27 +542,69 @@ public class Account {
      * CAUTION: Manually managing locks requires strict discipline to avoid
      * deadlocks.
      */
-    public ReentrantReadWriteLock getRwLock() {
-        return rwLock;
+    public AccountLock getLock() {
+        return lock;
+    }
+
+    // Position in LOCK_ORDER among accounts sharing a lock table; -1 for an own lock
+    int lockRank() {
+        return -1;
     }
 
     public void addTransaction(Transaction tx) {
-        // History is often appending, but can be read frequently.
-        // We protect the list with a write lock for modification.
-        rwLock.writeLock().lock();
-        try {
-            transactionHistory.add(tx);
-        } finally {
-            rwLock.writeLock().unlock();
-        }
+        getHistory().append(tx);
     }
 
+    /**
+     * Paged, lock-free access to the history; prefer this to
+     * {@link #getTransactionHistory()} for anything request-driven.
+     */
+    public TransactionHistory getHistory() {
+        return transactionHistory;
+    }
+
+    /** Copy of the whole history: O(history length), archived chunks included. */
     public List<Transaction> getTransactionHistory() {
-        rwLock.readLock().lock();
+        return getHistory().toList();
+    }
+
+    public void enableHistoryArchive(TransactionHistory.Archive archive) {
+        getHistory().setArchive(archive);
+    }
+
+    /**
+     * Attaches the entries the account had in the transaction log's sealed
+     * files before a restart, ahead of anything appended since.
+     */
+    public void restoreHistory(Function<String, TransactionHistory.Restored> source) {
+        getHistory().setRestored(source.apply(getAccountNumber()));
+    }
+
+    public long getLastLsn() {
+        long stamp = lock.tryOptimisticRead();
+        long lsn = lastLsn;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                lsn = lastLsn;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return lsn;
+    }
+
+    /**
+     * Must be called while holding the write lock, in the same critical section
+     * as the change the LSN describes.
+     */
+    public void setLastLsn(long lsn) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
         try {
-            return new ArrayList<>(transactionHistory); // Return copy to prevent external mutation issues
+            lastLsn = lsn;
         } finally {
-            rwLock.readLock().unlock();
+            writeLock.unlock();
         }
     }
 
@@ -0,0 +1,122 @@
+package com.bank.simulator.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Creates accounts for the configured ledger mode. Everything that builds an
+ * Account (startup, dashboard, snapshot load, journal replay) goes through
+ * here so one deployment never mixes representations.
+ */
+public class AccountFactory {
+
+    public enum LedgerMode {
+        DECIMAL, // BigDecimal balances (original behaviour)
+        FIXED_POINT, // long minor units, see FixedPointAccount
+        DENSE // Fixed-point, in an AccountTable instead of an object per account
+    }
+
+    private final LedgerMode mode;
+    private final int scale;
+    private final AccountTable accountTable; // DENSE only
+    private volatile AccountLock.Mode lockMode = AccountLock.Mode.FAIR;
+    private volatile InterestAccrual interestAccrual; // Attached to every account created from now on
+    private volatile TransactionHistory.Archive historyArchive; // Likewise; null keeps all history in memory
+
+    public AccountFactory(LedgerMode mode, int scale) {
+        if (mode == LedgerMode.DENSE)
+            throw new IllegalArgumentException("Dense accounts need a table, see dense(AccountTable)");
+        this.mode = mode;
+        this.scale = scale;
+        this.accountTable = null;
+    }
+
+    private AccountFactory(AccountTable accountTable) {
+        this.mode = LedgerMode.DENSE;
+        this.scale = accountTable.getScale();
+        this.accountTable = accountTable;
+        this.lockMode = accountTable.getLockMode();
+    }
+
+    public static AccountFactory decimal() {
+        return new AccountFactory(LedgerMode.DECIMAL, 0);
+    }
+
+    public static AccountFactory fixedPoint(int scale) {
+        return new AccountFactory(LedgerMode.FIXED_POINT, scale);
+    }
+
+    /**
+     * Accounts in {@code table}; they are only found through a repository
+     * backed by the same table (see AccountRepository.forFactory).
+     */
+    public static AccountFactory dense(AccountTable table) {
+        return new AccountFactory(table);
+    }
+
+    public Account create(String accountNumber, String holderName, BigDecimal initialBalance) {
+        return create(accountNumber, holderName, initialBalance, BigDecimal.ZERO);
+    }
+
+    public Account create(String accountNumber, String holderName, BigDecimal initialBalance,
+            BigDecimal initialDebt) {
+        Account account;
+        if (mode == LedgerMode.DENSE) {
+            account = accountTable.create(accountNumber, holderName, initialBalance, initialDebt);
+        } else {
+            AccountLock lock = AccountLock.create(lockMode);
+            account = mode == LedgerMode.FIXED_POINT
+                    ? new FixedPointAccount(accountNumber, holderName, initialBalance, initialDebt, scale, lock)
+                    : new Account(accountNumber, holderName, initialBalance, initialDebt, lock);
+        }
+        InterestAccrual accrual = interestAccrual;
+        if (accrual != null)
+            account.enableInterestAccrual(accrual);
+        TransactionHistory.Archive archive = historyArchive;
+        if (archive != null)
+            account.enableHistoryArchive(archive);
+        return account;
+    }
+
+    /**
+     * Lock strategy of every account created from now on (default FAIR). A
+     * dense factory keeps its table's locks.
+     */
+    public void setLockMode(AccountLock.Mode lockMode) {
+        if (mode == LedgerMode.DENSE && lockMode != accountTable.getLockMode())
+            throw new IllegalStateException("Dense account locks are fixed by the table: " + accountTable.getLockMode());
+        this.lockMode = lockMode;
+    }
+
+    public AccountLock.Mode getLockMode() {
+        return lockMode;
+    }
+
+    public void setInterestAccrual(InterestAccrual interestAccrual) {
+        this.interestAccrual = interestAccrual;
+    }
+
+    public InterestAccrual getInterestAccrual() {
+        return interestAccrual;
+    }
+
+    public void setHistoryArchive(TransactionHistory.Archive historyArchive) {
+        this.historyArchive = historyArchive;
+    }
+
+    public TransactionHistory.Archive getHistoryArchive() {
+        return historyArchive;
+    }
+
+    public LedgerMode getMode() {
+        return mode;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /** The table of a dense factory, else null. */
+    public AccountTable getAccountTable() {
+        return accountTable;
+    }
+}
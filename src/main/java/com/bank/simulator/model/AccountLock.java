@@ -0,0 +1,386 @@
+package com.bank.simulator.model;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrency strategy of one account. Writers (transfers, interest, replay)
+ * always use {@link #writeLock()}: a reentrant Lock, so BankService can hold
+ * both accounts' write locks, in {@link Account#LOCK_ORDER}, while debit/credit
+ * take them again. Readers follow the optimistic pattern:
+ *
+ * <pre>
+ * long stamp = lock.tryOptimisticRead();
+ * ... copy the fields ...
+ * if (!lock.validate(stamp)) {
+ *     stamp = lock.readLock();
+ *     try { ... copy them again ... } finally { lock.unlockRead(stamp); }
+ * }
+ * </pre>
+ *
+ * With {@link #fair()} there is no optimistic mode: tryOptimisticRead()
+ * returns 0, validate(0) is false, and every read takes the fair read lock
+ * (the original behaviour). With {@link #stamped()} a read retries under the
+ * read lock only if a write overlapped it, so balance queries neither queue
+ * behind writers nor delay them.
+ *
+ * A striped account (see {@link Account#enableStriping(int)}) also has one
+ * lock per balance stripe. Transfer legs take a single stripe and nothing
+ * else; the write lock takes every stripe, in order, on its outermost
+ * acquisition, so whole-account writers still see the account alone.
+ */
+public abstract class AccountLock {
+
+    public enum Mode {
+        FAIR, // ReentrantReadWriteLock(true) (original behaviour)
+        STAMPED // StampedLock, optimistic reads
+    }
+
+    private final Lock writeView = new WriteView();
+    private volatile BalanceStripe[] stripes; // null: not striped; replaced under the write lock only
+    private BalanceStripe[] heldStripes; // Stripes the write lock holder locked
+
+    public static AccountLock create(Mode mode) {
+        return mode == Mode.STAMPED ? stamped() : fair();
+    }
+
+    public static AccountLock fair() {
+        return new Fair();
+    }
+
+    public static AccountLock stamped() {
+        return new Stamped();
+    }
+
+    public abstract Mode getMode();
+
+    /**
+     * Reentrant exclusive lock, stripes included; supports tryLock with a
+     * timeout. No conditions.
+     */
+    public final Lock writeLock() {
+        return writeView;
+    }
+
+    /** @return a stamp to validate after reading, or 0 if a read lock is needed */
+    public abstract long tryOptimisticRead();
+
+    /** True if no write happened since {@code stamp} was issued; always false for 0. */
+    public abstract boolean validate(long stamp);
+
+    /** Blocks until reading is safe; pass the result to {@link #unlockRead(long)}. */
+    public abstract long readLock();
+
+    public abstract void unlockRead(long stamp);
+
+    /** Cheap pre-acquisition check: is somebody else holding or waiting for the lock? */
+    public abstract boolean isContended();
+
+    // The exclusive lock without stripes
+    abstract void baseLock();
+
+    abstract void baseLockInterruptibly() throws InterruptedException;
+
+    abstract boolean baseTryLock();
+
+    abstract boolean baseTryLock(long nanos) throws InterruptedException;
+
+    abstract void baseUnlock();
+
+    // Holds of the current thread, 0 if it does not own the lock
+    abstract int holds();
+
+    BalanceStripe[] getStripes() {
+        return stripes;
+    }
+
+    /**
+     * Write lock held. New stripes are locked here and released with the
+     * write lock, like stripes taken at acquisition.
+     */
+    void setStripes(BalanceStripe[] newStripes) {
+        if (newStripes != null) {
+            for (BalanceStripe s : newStripes)
+                s.lock.lock(); // Not published yet: never contended
+            heldStripes = newStripes;
+        }
+        stripes = newStripes; // Removed stripes stay held until the write lock is released
+    }
+
+    // Outermost acquisition: every stripe, in index order; false (nothing held) if the deadline passes
+    private boolean lockStripes(long deadline) throws InterruptedException {
+        BalanceStripe[] s = stripes;
+        if (s == null)
+            return true;
+        for (int i = 0; i < s.length; i++) {
+            boolean locked;
+            if (deadline == Long.MAX_VALUE) {
+                s[i].lock.lockInterruptibly();
+                locked = true;
+            } else {
+                locked = s[i].lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
+            if (!locked) {
+                while (--i >= 0)
+                    s[i].lock.unlock();
+                return false;
+            }
+        }
+        heldStripes = s;
+        return true;
+    }
+
+    private void unlockStripes() {
+        BalanceStripe[] s = heldStripes;
+        heldStripes = null;
+        if (s != null)
+            for (int i = s.length - 1; i >= 0; i--)
+                s[i].lock.unlock();
+    }
+
+    private final class WriteView implements Lock {
+        @Override
+        public void lock() {
+            baseLock();
+            if (holds() == 1) {
+                BalanceStripe[] s = stripes;
+                if (s != null) {
+                    for (BalanceStripe stripe : s)
+                        stripe.lock.lock();
+                    heldStripes = s;
+                }
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            baseLockInterruptibly();
+            if (holds() == 1) {
+                boolean locked = false;
+                try {
+                    locked = lockStripes(Long.MAX_VALUE);
+                } finally {
+                    if (!locked)
+                        baseUnlock();
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!baseTryLock())
+                return false;
+            if (holds() == 1) {
+                BalanceStripe[] s = stripes;
+                if (s != null) {
+                    for (int i = 0; i < s.length; i++) {
+                        if (!s[i].lock.tryLock()) {
+                            while (--i >= 0)
+                                s[i].lock.unlock();
+                            baseUnlock();
+                            return false;
+                        }
+                    }
+                    heldStripes = s;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            if (!baseTryLock(unit.toNanos(time)))
+                return false;
+            if (holds() == 1) {
+                boolean locked = false;
+                try {
+                    locked = lockStripes(deadline);
+                } finally {
+                    if (!locked)
+                        baseUnlock();
+                }
+                return locked;
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            if (holds() == 1)
+                unlockStripes();
+            baseUnlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class Fair extends AccountLock {
+        private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock(true);
+
+        @Override
+        public Mode getMode() {
+            return Mode.FAIR;
+        }
+
+        @Override
+        public long tryOptimisticRead() {
+            return 0;
+        }
+
+        @Override
+        public boolean validate(long stamp) {
+            return false;
+        }
+
+        @Override
+        public long readLock() {
+            rwLock.readLock().lock();
+            return 1;
+        }
+
+        @Override
+        public void unlockRead(long stamp) {
+            rwLock.readLock().unlock();
+        }
+
+        @Override
+        public boolean isContended() {
+            return rwLock.isWriteLocked() || rwLock.getReadLockCount() > 0 || rwLock.hasQueuedThreads();
+        }
+
+        @Override
+        void baseLock() {
+            rwLock.writeLock().lock();
+        }
+
+        @Override
+        void baseLockInterruptibly() throws InterruptedException {
+            rwLock.writeLock().lockInterruptibly();
+        }
+
+        @Override
+        boolean baseTryLock() {
+            return rwLock.writeLock().tryLock();
+        }
+
+        @Override
+        boolean baseTryLock(long nanos) throws InterruptedException {
+            return rwLock.writeLock().tryLock(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        void baseUnlock() {
+            rwLock.writeLock().unlock();
+        }
+
+        @Override
+        int holds() {
+            return rwLock.getWriteHoldCount();
+        }
+    }
+
+    /**
+     * StampedLock is not reentrant, so the write side tracks its owner and
+     * hold count. The owner reading its own account (getBalance inside a
+     * transfer) needs no read lock: readLock() returns 0 for it.
+     */
+    private static final class Stamped extends AccountLock {
+        private final StampedLock lock = new StampedLock();
+        // Written by the write lock holder only; only the current thread can
+        // have set owner to itself, so a stale read elsewhere is harmless
+        private Thread owner;
+        private int holds;
+        private long writeStamp;
+
+        @Override
+        public Mode getMode() {
+            return Mode.STAMPED;
+        }
+
+        @Override
+        public long tryOptimisticRead() {
+            return lock.tryOptimisticRead();
+        }
+
+        @Override
+        public boolean validate(long stamp) {
+            return stamp != 0 && lock.validate(stamp);
+        }
+
+        @Override
+        public long readLock() {
+            return owner == Thread.currentThread() ? 0 : lock.readLock();
+        }
+
+        @Override
+        public void unlockRead(long stamp) {
+            if (stamp != 0)
+                lock.unlockRead(stamp);
+        }
+
+        @Override
+        public boolean isContended() {
+            return lock.isWriteLocked() || lock.isReadLocked();
+        }
+
+        private boolean reenter() {
+            if (owner != Thread.currentThread())
+                return false;
+            holds++;
+            return true;
+        }
+
+        private boolean acquired(long stamp) {
+            if (stamp == 0)
+                return false;
+            writeStamp = stamp;
+            owner = Thread.currentThread();
+            holds = 1;
+            return true;
+        }
+
+        @Override
+        void baseLock() {
+            if (!reenter())
+                acquired(lock.writeLock());
+        }
+
+        @Override
+        void baseLockInterruptibly() throws InterruptedException {
+            if (!reenter())
+                acquired(lock.writeLockInterruptibly());
+        }
+
+        @Override
+        boolean baseTryLock() {
+            return reenter() || acquired(lock.tryWriteLock());
+        }
+
+        @Override
+        boolean baseTryLock(long nanos) throws InterruptedException {
+            return reenter() || acquired(lock.tryWriteLock(nanos, TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        void baseUnlock() {
+            if (owner != Thread.currentThread())
+                throw new IllegalMonitorStateException();
+            if (--holds == 0) {
+                owner = null;
+                lock.unlockWrite(writeStamp);
+            }
+        }
+
+        @Override
+        int holds() {
+            return owner == Thread.currentThread() ? holds : 0;
+        }
+    }
+}
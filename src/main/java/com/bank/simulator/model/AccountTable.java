@@ -0,0 +1,418 @@
+package com.bank.simulator.model;
+
+import java.math.BigDecimal;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Dense account storage for tens of millions of accounts: no object per
+ * account. Each account is an int id. Its balance, debt and LSN are longs
+ * in pages of primitive arrays, and its number and holder are offsets into
+ * {@link StringArena}s. Holder names are pooled, so a name shared by many
+ * accounts is stored once. Accounts share a fixed table of locks, picked
+ * by id, instead of owning one each. Histories and lazy-interest periods
+ * take memory only for the pages of accounts that use them.
+ *
+ * {@link DenseAccount} is the Account callers see: a short-lived view of
+ * one id that reads and writes the arrays under the shared lock. Views of
+ * the same id are equal and interchangeable.
+ *
+ * Number lookups are lock-free: an open-addressing int table of id + 1 by
+ * account number hash, replaced whole when it grows. Creating and registering
+ * accounts is serialized on the table. Balances are fixed-point (see
+ * FixedPointAccount); stripes are not supported, because a lock is shared by
+ * unrelated accounts.
+ */
+public final class AccountTable {
+
+    public static final int DEFAULT_LOCKS = 4096;
+
+    private static final int PAGE_SHIFT = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int MIN_INDEX = 1024;
+
+    private final int scale;
+    private final long minBalanceUnits;
+    private final AccountLock[] locks;
+    private final StringArena numbers = new StringArena();
+    private final StringArena holders = new StringArena();
+
+    // Per id, in pages. Outer arrays are replaced, never changed in place, under the table's
+    // monitor; page contents are guarded by the account's lock
+    private volatile long[][] balancePages = new long[0][];
+    private volatile long[][] debtPages = new long[0][];
+    private volatile long[][] lsnPages = new long[0][];
+    private volatile int[][] numberPages = new int[0][];
+    private volatile int[][] holderPages = new int[0][];
+    private volatile long[][] accruedPages = new long[0][]; // Null pages until interest is enabled; 0 = none
+    private volatile Object[] historyPages = new Object[0]; // AtomicReferenceArray<TransactionHistory>, or null
+
+    private volatile int size; // Ids allocated
+    private volatile AtomicIntegerArray index = new AtomicIntegerArray(MIN_INDEX); // id + 1 by number; 0 free
+    private volatile int registered;
+    private int[] holderPool = new int[MIN_INDEX]; // Holder offset + 1 by name; table monitor
+    private int holderCount;
+
+    private volatile InterestAccrual accrual; // One schedule for the whole table
+    private volatile TransactionHistory.Archive archive;
+    private volatile Function<String, TransactionHistory.Restored> restoredHistories; // Restored prefix per account
+
+    /**
+     * @param lockCount rounded up to a power of two
+     */
+    public AccountTable(int scale, int lockCount, AccountLock.Mode lockMode) {
+        if (lockCount < 1)
+            throw new IllegalArgumentException("lockCount must be positive: " + lockCount);
+        this.scale = scale;
+        this.minBalanceUnits = MinorUnits.toUnits(Account.MIN_BALANCE, scale);
+        int n = 1;
+        while (n < lockCount)
+            n <<= 1;
+        this.locks = new AccountLock[n];
+        for (int i = 0; i < locks.length; i++)
+            locks[i] = AccountLock.create(lockMode);
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public int getLockCount() {
+        return locks.length;
+    }
+
+    public AccountLock.Mode getLockMode() {
+        return locks[0].getMode();
+    }
+
+    /**
+     * Allocates an id for a new account. Like a new Account object, it is not
+     * found by number until {@link #register(Account)}.
+     */
+    public Account create(String accountNumber, String holderName, BigDecimal initialBalance,
+            BigDecimal initialDebt) {
+        long balance = MinorUnits.toUnits(initialBalance, scale);
+        long debt = MinorUnits.toUnits(initialDebt, scale);
+        int id;
+        synchronized (this) {
+            id = size;
+            if (id == Integer.MAX_VALUE)
+                throw new IllegalStateException("Account table full");
+            int page = id >>> PAGE_SHIFT;
+            if (page == balancePages.length) {
+                balancePages = grow(balancePages);
+                debtPages = grow(debtPages);
+                lsnPages = grow(lsnPages);
+                numberPages = grow(numberPages);
+                holderPages = grow(holderPages);
+            }
+            int slot = id & (PAGE_SIZE - 1);
+            balancePages[page][slot] = balance;
+            debtPages[page][slot] = debt;
+            numberPages[page][slot] = numbers.append(accountNumber);
+            holderPages[page][slot] = internHolder(holderName);
+            size = id + 1;
+        }
+        return new DenseAccount(this, id, accountNumber);
+    }
+
+    private static long[][] grow(long[][] pages) {
+        long[][] grown = Arrays.copyOf(pages, pages.length + 1);
+        grown[pages.length] = new long[PAGE_SIZE];
+        return grown;
+    }
+
+    private static int[][] grow(int[][] pages) {
+        int[][] grown = Arrays.copyOf(pages, pages.length + 1);
+        grown[pages.length] = new int[PAGE_SIZE];
+        return grown;
+    }
+
+    // Table monitor held
+    private int internHolder(String name) {
+        int mask = holderPool.length - 1;
+        for (int i = mix(name.hashCode()) & mask;; i = (i + 1) & mask) {
+            int ref = holderPool[i];
+            if (ref == 0)
+                break;
+            if (holders.matches(ref - 1, name))
+                return ref - 1;
+        }
+        int offset = holders.append(name);
+        insert(holderPool, offset + 1, name.hashCode());
+        if (++holderCount * 4L > holderPool.length * 3L) {
+            int[] grown = new int[holderPool.length * 2];
+            for (int ref : holderPool)
+                if (ref != 0)
+                    insert(grown, ref, holders.hash(ref - 1));
+            holderPool = grown;
+        }
+        return offset;
+    }
+
+    private static void insert(int[] pool, int ref, int hash) {
+        int mask = pool.length - 1;
+        int i = mix(hash) & mask;
+        while (pool[i] != 0)
+            i = (i + 1) & mask;
+        pool[i] = ref;
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    /**
+     * Makes the account findable by its number; an account saved earlier
+     * under the same number is replaced (its id is not reused).
+     *
+     * @throws IllegalArgumentException if the account is not a view of this table
+     */
+    public synchronized void register(Account account) {
+        if (!(account instanceof DenseAccount) || ((DenseAccount) account).getTable() != this)
+            throw new IllegalArgumentException(
+                    "Account " + account.getAccountNumber() + " was not created by this account table");
+        int id = ((DenseAccount) account).getId();
+        String number = account.getAccountNumber();
+        AtomicIntegerArray table = index;
+        int mask = table.length() - 1;
+        for (int i = mix(number.hashCode()) & mask;; i = (i + 1) & mask) {
+            int entry = table.get(i);
+            if (entry == 0) {
+                table.set(i, id + 1); // Publishes the account's arrays and strings to lookups
+                break;
+            }
+            if (numbers.matches(numberOffset(entry - 1), number)) {
+                table.set(i, id + 1);
+                return;
+            }
+        }
+        registered++;
+        if (registered * 4L > table.length() * 3L) {
+            AtomicIntegerArray grown = new AtomicIntegerArray(table.length() * 2);
+            int grownMask = grown.length() - 1;
+            for (int s = 0; s < table.length(); s++) {
+                int entry = table.get(s);
+                if (entry == 0)
+                    continue;
+                int i = mix(numbers.hash(numberOffset(entry - 1))) & grownMask;
+                while (grown.get(i) != 0)
+                    i = (i + 1) & grownMask;
+                grown.set(i, entry);
+            }
+            index = grown;
+        }
+    }
+
+    /** A view of the registered account with this number, or null. */
+    public Account find(String accountNumber) {
+        AtomicIntegerArray table = index;
+        int mask = table.length() - 1;
+        for (int i = mix(accountNumber.hashCode()) & mask;; i = (i + 1) & mask) {
+            int entry = table.get(i);
+            if (entry == 0)
+                return null;
+            if (numbers.matches(numberOffset(entry - 1), accountNumber))
+                return new DenseAccount(this, entry - 1, accountNumber);
+        }
+    }
+
+    /** Registered accounts, as views, in no particular order. */
+    public Collection<Account> accounts() {
+        return new AbstractCollection<Account>() {
+            @Override
+            public int size() {
+                return registered;
+            }
+
+            @Override
+            public Iterator<Account> iterator() {
+                AtomicIntegerArray table = index;
+                return new Iterator<Account>() {
+                    private int slot = advance(0);
+
+                    private int advance(int from) {
+                        while (from < table.length() && table.get(from) == 0)
+                            from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < table.length();
+                    }
+
+                    @Override
+                    public Account next() {
+                        if (slot >= table.length())
+                            throw new NoSuchElementException();
+                        int id = table.get(slot) - 1;
+                        slot = advance(slot + 1);
+                        return new DenseAccount(AccountTable.this, id, null);
+                    }
+                };
+            }
+        };
+    }
+
+    public int getRegisteredCount() {
+        return registered;
+    }
+
+    /**
+     * Heap held by the table's arrays: pages, index, holder pool and arenas
+     * (whole chunks); not the locks or histories.
+     */
+    public long getFootprintBytes() {
+        long pages = (long) balancePages.length * PAGE_SIZE * (8 + 8 + 8 + 4 + 4);
+        for (long[] page : accruedPages)
+            if (page != null)
+                pages += (long) PAGE_SIZE * 8;
+        return pages + 4L * index.length() + 4L * holderPool.length + numbers.getReservedBytes()
+                + holders.getReservedBytes();
+    }
+
+    // ------------------------------------------------------------ per id (DenseAccount)
+
+    AccountLock lock(int id) {
+        return locks[id & (locks.length - 1)];
+    }
+
+    int lockRank(int id) {
+        return id & (locks.length - 1);
+    }
+
+    long minBalanceUnits() {
+        return minBalanceUnits;
+    }
+
+    private int numberOffset(int id) {
+        return numberPages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)];
+    }
+
+    String accountNumber(int id) {
+        return numbers.get(numberOffset(id));
+    }
+
+    String holderName(int id) {
+        return holders.get(holderPages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)]);
+    }
+
+    long balance(int id) {
+        return balancePages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)];
+    }
+
+    void setBalance(int id, long units) {
+        balancePages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)] = units;
+    }
+
+    long debt(int id) {
+        return debtPages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)];
+    }
+
+    void setDebt(int id, long units) {
+        debtPages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)] = units;
+    }
+
+    long lastLsn(int id) {
+        return lsnPages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)];
+    }
+
+    void setLastLsn(int id, long lsn) {
+        lsnPages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)] = lsn;
+    }
+
+    InterestAccrual interestAccrual(int id) {
+        return accruedPeriod(id) == 0 ? null : accrual;
+    }
+
+    long accruedPeriod(int id) {
+        long[][] pages = accruedPages;
+        int page = id >>> PAGE_SHIFT;
+        return page < pages.length && pages[page] != null ? pages[page][id & (PAGE_SIZE - 1)] : 0;
+    }
+
+    // Account's write lock held. A period without a schedule is one recovery restored
+    void setInterestState(int id, InterestAccrual interestAccrual, long accruedPeriod) {
+        if (accruedPeriod == 0) {
+            if (accruedPeriod(id) != 0)
+                accruedPages[id >>> PAGE_SHIFT][id & (PAGE_SIZE - 1)] = 0;
+            return;
+        }
+        if (interestAccrual != null)
+            accrual = interestAccrual; // The latest schedule applies to the whole table
+        int page = id >>> PAGE_SHIFT;
+        long[][] pages = accruedPages;
+        if (page >= pages.length || pages[page] == null) {
+            synchronized (this) {
+                pages = accruedPages;
+                if (page >= pages.length || pages[page] == null) {
+                    pages = Arrays.copyOf(pages, Math.max(pages.length, page + 1));
+                    pages[page] = new long[PAGE_SIZE];
+                    accruedPages = pages;
+                }
+            }
+        }
+        pages[page][id & (PAGE_SIZE - 1)] = accruedPeriod;
+    }
+
+    /** The account's history, created on first use. */
+    @SuppressWarnings("unchecked")
+    TransactionHistory history(int id) {
+        Object[] pages = historyPages;
+        int page = id >>> PAGE_SHIFT;
+        AtomicReferenceArray<TransactionHistory> histories = page < pages.length
+                ? (AtomicReferenceArray<TransactionHistory>) pages[page]
+                : null;
+        if (histories == null) {
+            synchronized (this) {
+                pages = historyPages;
+                if (page >= pages.length || pages[page] == null) {
+                    pages = Arrays.copyOf(pages, Math.max(pages.length, page + 1));
+                    pages[page] = new AtomicReferenceArray<TransactionHistory>(PAGE_SIZE);
+                    historyPages = pages;
+                }
+                histories = (AtomicReferenceArray<TransactionHistory>) pages[page];
+            }
+        }
+        int slot = id & (PAGE_SIZE - 1);
+        TransactionHistory history = histories.get(slot);
+        if (history == null) {
+            TransactionHistory created = new TransactionHistory();
+            TransactionHistory.Archive a = archive;
+            if (a != null)
+                created.setArchive(a);
+            Function<String, TransactionHistory.Restored> restored = restoredHistories;
+            if (restored != null)
+                created.setRestored(restored.apply(accountNumber(id)));
+            history = histories.compareAndSet(slot, null, created) ? created : histories.get(slot);
+        }
+        return history;
+    }
+
+    /** Source of the restored part of every history created from now on. */
+    void setRestoredHistories(Function<String, TransactionHistory.Restored> source) {
+        restoredHistories = source;
+    }
+
+    /** Archive for histories created from now on, and for the account's own if it has one. */
+    void setHistoryArchive(int id, TransactionHistory.Archive historyArchive) {
+        archive = historyArchive;
+        Object[] pages = historyPages;
+        int page = id >>> PAGE_SHIFT;
+        if (page < pages.length && pages[page] != null) {
+            @SuppressWarnings("unchecked")
+            TransactionHistory existing = ((AtomicReferenceArray<TransactionHistory>) pages[page])
+                    .get(id & (PAGE_SIZE - 1));
+            if (existing != null)
+                existing.setArchive(historyArchive);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.bank.simulator.model;
+
+import java.math.BigDecimal;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One sub-ledger of a striped account: part of its balance under a lock of
+ * its own. Decimal accounts use {@code amount}, fixed-point accounts
+ * {@code units}. Written by the stripe's lock holder; the account's write
+ * lock holds every stripe (see {@link AccountLock#writeLock()}).
+ */
+final class BalanceStripe {
+
+    final ReentrantLock lock = new ReentrantLock();
+    volatile BigDecimal amount = BigDecimal.ZERO;
+    volatile long units;
+    volatile long legs; // Transfer legs served, for demotion
+}
@@ -0,0 +1,146 @@
+package com.bank.simulator.model;
+
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/**
+ * An account of an {@link AccountTable}: a view of one id, holding nothing but
+ * the table, the id and (once asked for) the account number. Everything else
+ * is read from and written to the table's arrays under the shared lock the
+ * table assigns to the id, so views are cheap to create and throw away, and
+ * two views of the same id see the same account.
+ */
+public final class DenseAccount extends FixedPointAccount {
+
+    private final AccountTable table;
+    private final int id;
+    private String accountNumber; // Decoded on first use; racy but idempotent
+
+    DenseAccount(AccountTable table, int id, String accountNumber) {
+        super(accountNumber, table.lock(id), table.getScale(), table.minBalanceUnits());
+        this.table = table;
+        this.id = id;
+        this.accountNumber = accountNumber;
+    }
+
+    public AccountTable getTable() {
+        return table;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    long loadBalanceUnits() {
+        return table.balance(id);
+    }
+
+    @Override
+    void storeBalanceUnits(long units) {
+        table.setBalance(id, units);
+    }
+
+    @Override
+    long loadDebtUnits() {
+        return table.debt(id);
+    }
+
+    @Override
+    void storeDebtUnits(long units) {
+        table.setDebt(id, units);
+    }
+
+    @Override
+    protected InterestAccrual getInterestAccrual() {
+        return table.interestAccrual(id);
+    }
+
+    @Override
+    protected long getAccruedPeriod() {
+        return table.accruedPeriod(id);
+    }
+
+    @Override
+    void setInterestState(InterestAccrual accrual, long accruedPeriod) {
+        table.setInterestState(id, accrual, accruedPeriod);
+    }
+
+    @Override
+    int lockRank() {
+        return table.lockRank(id);
+    }
+
+    /** No-op: the lock is shared with other accounts, so it cannot carry stripes. */
+    @Override
+    public void enableStriping(int count) {
+        if (count < 2)
+            throw new IllegalArgumentException("Striping needs at least 2 stripes: " + count);
+    }
+
+    @Override
+    public TransactionHistory getHistory() {
+        return table.history(id);
+    }
+
+    @Override
+    public void enableHistoryArchive(TransactionHistory.Archive archive) {
+        table.setHistoryArchive(id, archive);
+    }
+
+    /** Applied when the history is created, so accounts that never use one do not get one. */
+    @Override
+    public void restoreHistory(Function<String, TransactionHistory.Restored> source) {
+        table.setRestoredHistories(source);
+    }
+
+    @Override
+    public long getLastLsn() {
+        AccountLock lock = getLock();
+        long stamp = lock.tryOptimisticRead();
+        long lsn = table.lastLsn(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                lsn = table.lastLsn(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return lsn;
+    }
+
+    @Override
+    public void setLastLsn(long lsn) {
+        Lock writeLock = getLock().writeLock();
+        writeLock.lock();
+        try {
+            table.setLastLsn(id, lsn);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String getAccountNumber() {
+        String number = accountNumber;
+        if (number == null)
+            accountNumber = number = table.accountNumber(id);
+        return number;
+    }
+
+    @Override
+    public String getHolderName() {
+        return table.holderName(id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DenseAccount && ((DenseAccount) o).table == table && ((DenseAccount) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+}
@@ -0,0 +1,274 @@
+package com.bank.simulator.model;
+
+import java.math.BigDecimal;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Ledger mode that keeps balance and debt as long minor units (e.g. cents at
+ * scale 2) instead of immutable BigDecimals, so debits, credits and the
+ * MIN_BALANCE check allocate nothing. BigDecimal only appears at the API and
+ * persistence edges (getBalance/getDebt and the BigDecimal overloads).
+ * Arithmetic overflow is detected and raised as ArithmeticException.
+ */
+public class FixedPointAccount extends Account {
+
+    private final int scale;
+    private final long minBalanceUnits;
+    private long balanceUnits; // Guarded by the account lock
+    private long debtUnits;
+
+    public FixedPointAccount(String accountNumber, String holderName, BigDecimal initialBalance,
+            BigDecimal initialDebt, int scale) {
+        this(accountNumber, holderName, initialBalance, initialDebt, scale, AccountLock.fair());
+    }
+
+    public FixedPointAccount(String accountNumber, String holderName, BigDecimal initialBalance,
+            BigDecimal initialDebt, int scale, AccountLock lock) {
+        super(accountNumber, holderName, BigDecimal.ZERO, BigDecimal.ZERO, lock);
+        this.scale = scale;
+        this.minBalanceUnits = MinorUnits.toUnits(MIN_BALANCE, scale);
+        this.balanceUnits = MinorUnits.toUnits(initialBalance, scale);
+        this.debtUnits = MinorUnits.toUnits(initialDebt, scale);
+    }
+
+    // View constructor, see Account(String, AccountLock)
+    FixedPointAccount(String accountNumber, AccountLock lock, int scale, long minBalanceUnits) {
+        super(accountNumber, lock);
+        this.scale = scale;
+        this.minBalanceUnits = minBalanceUnits;
+    }
+
+    // Ledger state; DenseAccount keeps it in its AccountTable instead. Account lock held
+    long loadBalanceUnits() {
+        return balanceUnits;
+    }
+
+    void storeBalanceUnits(long units) {
+        balanceUnits = units;
+    }
+
+    long loadDebtUnits() {
+        return debtUnits;
+    }
+
+    void storeDebtUnits(long units) {
+        debtUnits = units;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Converts an API amount into this account's minor units. Fails if the
+     * amount has more decimal places than the ledger scale or does not fit.
+     */
+    public long toUnits(BigDecimal amount) {
+        return MinorUnits.toUnits(amount, scale);
+    }
+
+    public void debitUnits(long units) {
+        if (!tryDebitUnits(units))
+            throw insufficientFunds();
+    }
+
+    /** See {@link Account#tryDebit}. */
+    public boolean tryDebitUnits(long units) {
+        Lock writeLock = getLock().writeLock();
+        writeLock.lock();
+        try {
+            accrueLocked();
+            BalanceStripe[] stripes = getLock().getStripes();
+            if (stripes != null)
+                gatherStripes(stripes); // Check and debit the total, borrowing across stripes
+            try {
+                // Rule: Check if (Balance - Amount) < 20
+                long remaining = Math.subtractExact(loadBalanceUnits(), units);
+                if (remaining < minBalanceUnits)
+                    return false;
+                storeBalanceUnits(remaining);
+                return true;
+            } finally {
+                if (stripes != null)
+                    spreadStripes(stripes);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void creditUnits(long units) {
+        Lock writeLock = getLock().writeLock();
+        writeLock.lock();
+        try {
+            accrueLocked();
+            BalanceStripe[] stripes = units < 0 ? getLock().getStripes() : null;
+            if (stripes != null)
+                gatherStripes(stripes); // See Account.credit
+            storeBalanceUnits(Math.addExact(loadBalanceUnits(), units));
+            if (stripes != null)
+                spreadStripes(stripes);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void addDebtUnits(long units) {
+        Lock writeLock = getLock().writeLock();
+        writeLock.lock();
+        try {
+            accrueLocked();
+            storeDebtUnits(Math.addExact(loadDebtUnits(), units));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long getBalanceUnits() {
+        AccountLock lock = getLock();
+        long stamp = lock.tryOptimisticRead();
+        long units = stripedBalanceUnits(lock);
+        InterestAccrual accrual = getInterestAccrual();
+        long accrued = getAccruedPeriod();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                units = stripedBalanceUnits(lock);
+                accrual = getInterestAccrual();
+                accrued = getAccruedPeriod();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        long periods = pendingPeriods(accrual, accrued);
+        return periods == 0 ? units : Math.addExact(units, accrual.balanceInterestUnits(units, periods));
+    }
+
+    // Main balance plus the stripes, see Account.getBalance
+    private long stripedBalanceUnits(AccountLock lock) {
+        long units = loadBalanceUnits();
+        BalanceStripe[] stripes = lock.getStripes();
+        if (stripes != null)
+            for (BalanceStripe s : stripes)
+                units += s.units;
+        return units;
+    }
+
+    public long getDebtUnits() {
+        AccountLock lock = getLock();
+        long stamp = lock.tryOptimisticRead();
+        long units = loadDebtUnits();
+        InterestAccrual accrual = getInterestAccrual();
+        long accrued = getAccruedPeriod();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                units = loadDebtUnits();
+                accrual = getInterestAccrual();
+                accrued = getAccruedPeriod();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        long periods = pendingPeriods(accrual, accrued);
+        return periods == 0 ? units : Math.addExact(units, accrual.debtInterestUnits(units, periods));
+    }
+
+    @Override
+    protected void applyInterest(InterestAccrual accrual, long periods) {
+        long balance = loadBalanceUnits();
+        long debt = loadDebtUnits();
+        long interestUnits = accrual.balanceInterestUnits(balance, periods);
+        long debtInterestUnits = accrual.debtInterestUnits(debt, periods);
+        storeBalanceUnits(Math.addExact(balance, interestUnits)); // Saturated by the accrual, never past MAX_VALUE
+        storeDebtUnits(Math.addExact(debt, debtInterestUnits));
+        // BigDecimal only for the journal record
+        accrual.accrued(this, MinorUnits.toDecimal(interestUnits, scale),
+                MinorUnits.toDecimal(debtInterestUnits, scale), getAccruedPeriod());
+    }
+
+    @Override
+    boolean coversDebit(BalanceStripe s, BigDecimal debitAmount) {
+        return debitAmount == null || s.units - toUnits(debitAmount) >= minBalanceUnits;
+    }
+
+    @Override
+    void debitStripe(BalanceStripe s, BigDecimal amount) {
+        s.units = Math.subtractExact(s.units, toUnits(amount));
+    }
+
+    @Override
+    void creditStripe(BalanceStripe s, BigDecimal amount) {
+        s.units = Math.addExact(s.units, toUnits(amount));
+    }
+
+    @Override
+    void gatherStripes(BalanceStripe[] stripes) {
+        long units = loadBalanceUnits();
+        for (BalanceStripe s : stripes) {
+            units = Math.addExact(units, s.units);
+            s.units = 0;
+        }
+        storeBalanceUnits(units);
+    }
+
+    @Override
+    void spreadStripes(BalanceStripe[] stripes) {
+        long units = loadBalanceUnits();
+        long share = units / stripes.length;
+        if (share <= 0)
+            return;
+        for (BalanceStripe s : stripes)
+            s.units = share;
+        storeBalanceUnits(units - share * stripes.length);
+    }
+
+    // BigDecimal edge: conversions happen here, not on the transfer path
+
+    @Override
+    public void debit(BigDecimal amount) {
+        debitUnits(toUnits(amount));
+    }
+
+    @Override
+    public boolean tryDebit(BigDecimal amount) {
+        return tryDebitUnits(toUnits(amount));
+    }
+
+    @Override
+    public void credit(BigDecimal amount) {
+        creditUnits(toUnits(amount));
+    }
+
+    @Override
+    public void addDebt(BigDecimal amount) {
+        addDebtUnits(toUnits(amount));
+    }
+
+    @Override
+    public void restoreBalance(BigDecimal balance, BigDecimal debt) {
+        Lock writeLock = getLock().writeLock();
+        writeLock.lock();
+        try {
+            BalanceStripe[] stripes = getLock().getStripes();
+            if (stripes != null)
+                gatherStripes(stripes); // Emptied, then overwritten with the main balance
+            storeBalanceUnits(toUnits(balance));
+            storeDebtUnits(toUnits(debt));
+            if (stripes != null)
+                spreadStripes(stripes);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance() {
+        return MinorUnits.toDecimal(getBalanceUnits(), scale);
+    }
+
+    @Override
+    public BigDecimal getDebt() {
+        return MinorUnits.toDecimal(getDebtUnits(), scale);
+    }
+}
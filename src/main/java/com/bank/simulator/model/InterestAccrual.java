@@ -0,0 +1,113 @@
+package com.bank.simulator.model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Lazy interest: instead of a sweep crediting every account each period, an
+ * account remembers the last period it accrued and catches up in closed form
+ * on its next write. Reads see the accrued value without changing anything,
+ * so the work is proportional to account activity, not to the number of
+ * accounts.
+ *
+ * For n elapsed periods the interest is {@code value * ((1 + rate)^n - 1)},
+ * rounded once to the ledger scale. For a single period that is exactly
+ * what the sweep credits; over several periods it can differ from the sweep
+ * by the per-period rounding (a few minor units). Growth saturates at
+ * {@link #MAX_GROWTH} and fixed-point interest at the largest balance a
+ * {@code long} holds, so a long gap (a restart after downtime, a clock jump)
+ * caps the ledger instead of throwing on the write that catches up.
+ */
+public class InterestAccrual {
+
+    /**
+     * Told about every materialized accrual, under the account's write lock,
+     * so it can be journaled before the change that triggered it.
+     */
+    public interface Listener {
+        /**
+         * @param period the period the account has now accrued to; reported
+         *               even when both amounts are zero, so the journal always
+         *               knows where a recovered account resumes
+         */
+        void accrued(Account account, BigDecimal interest, BigDecimal debtInterest, long period);
+    }
+
+    // (1 + rate)^n stops here: beyond it no ledger can hold the interest anyway
+    private static final BigDecimal MAX_GROWTH = BigDecimal.valueOf(Long.MAX_VALUE);
+    private static final double MAX_GROWTH_LOG = Math.log(Long.MAX_VALUE);
+
+    private final long periodMillis;
+    private final BigDecimal balanceRate;
+    private final BigDecimal debtRate;
+    private final Listener listener;
+
+    public InterestAccrual(long periodMillis, BigDecimal balanceRate, BigDecimal debtRate, Listener listener) {
+        this.periodMillis = periodMillis;
+        this.balanceRate = balanceRate;
+        this.debtRate = debtRate;
+        this.listener = listener;
+    }
+
+    public long currentPeriod() {
+        return System.currentTimeMillis() / periodMillis;
+    }
+
+    // (1 + rate)^periods - 1, to 34 significant digits, at most MAX_GROWTH
+    private static BigDecimal growth(BigDecimal rate, long periods) {
+        BigDecimal base = BigDecimal.ONE.add(rate);
+        // Past the saturation point pow() would only build a huge number to be capped (or overflow the scale)
+        if (rate.signum() > 0 && periods > MAX_GROWTH_LOG / Math.log(base.doubleValue()))
+            return MAX_GROWTH;
+        return base.pow((int) Math.min(periods, 999_999_999), MathContext.DECIMAL128) // pow()'s limit
+                .subtract(BigDecimal.ONE).min(MAX_GROWTH);
+    }
+
+    /** Interest on a positive balance over {@code periods}, at scale 2 like the sweep. */
+    public BigDecimal balanceInterest(BigDecimal balance, long periods) {
+        if (balance.signum() <= 0 || periods <= 0)
+            return BigDecimal.ZERO;
+        return balance.multiply(growth(balanceRate, periods)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public BigDecimal debtInterest(BigDecimal debt, long periods) {
+        if (debt.signum() <= 0 || periods <= 0)
+            return BigDecimal.ZERO;
+        return debt.multiply(growth(debtRate, periods)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /** Same for a fixed-point balance in minor units. */
+    public long balanceInterestUnits(long units, long periods) {
+        return units <= 0 || periods <= 0 ? 0 : interestUnits(units, balanceRate, periods);
+    }
+
+    public long debtInterestUnits(long units, long periods) {
+        return units <= 0 || periods <= 0 ? 0 : interestUnits(units, debtRate, periods);
+    }
+
+    // Saturates so that units + interest never leaves the long range
+    private static long interestUnits(long units, BigDecimal rate, long periods) {
+        BigDecimal interest = BigDecimal.valueOf(units).multiply(growth(rate, periods))
+                .setScale(0, RoundingMode.HALF_UP);
+        long headroom = Long.MAX_VALUE - units;
+        return interest.compareTo(BigDecimal.valueOf(headroom)) > 0 ? headroom : interest.longValue();
+    }
+
+    void accrued(Account account, BigDecimal interest, BigDecimal debtInterest, long period) {
+        if (listener != null)
+            listener.accrued(account, interest, debtInterest, period);
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    public BigDecimal getBalanceRate() {
+        return balanceRate;
+    }
+
+    public BigDecimal getDebtRate() {
+        return debtRate;
+    }
+}
@@ -0,0 +1,26 @@
+package com.bank.simulator.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversions between BigDecimal amounts and long minor units at a fixed scale.
+ */
+public final class MinorUnits {
+
+    private MinorUnits() {
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has more decimal places than
+     *                             {@code scale} or does not fit in a long
+     */
+    public static long toUnits(BigDecimal amount, int scale) {
+        // setScale is a no-op for amounts already at the ledger scale; the scale-0
+        // result lets longValueExact take its compact path (no BigInteger)
+        return amount.setScale(scale).scaleByPowerOfTen(scale).longValueExact();
+    }
+
+    public static BigDecimal toDecimal(long units, int scale) {
+        return BigDecimal.valueOf(units, scale);
+    }
+}
@@ -0,0 +1,105 @@
+package com.bank.simulator.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only UTF-8 string storage in 1 MB byte chunks, addressed by an int
+ * offset: one byte array per megabyte instead of a String object (and its
+ * own array) per entry. Entries are a length (one byte below 128, else two
+ * with the top bit set) and the bytes; an entry never spans two chunks.
+ *
+ * Appends are serialized by the owner. Readers take no lock: they must get an
+ * offset through something the appender published after appending (a
+ * volatile write), which also publishes the bytes.
+ */
+final class StringArena {
+
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int MAX_LENGTH = 0x7FFF;
+
+    private volatile byte[][] chunks = new byte[0][];
+    private long used; // Owner's lock
+
+    /** @return the entry's offset */
+    int append(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        if (length > MAX_LENGTH)
+            throw new IllegalArgumentException("String too long for the arena: " + length + " bytes");
+        int entry = (length < 0x80 ? 1 : 2) + length;
+        long offset = used;
+        if ((offset & (CHUNK_SIZE - 1)) + entry > CHUNK_SIZE)
+            offset = (offset | (CHUNK_SIZE - 1)) + 1; // Rest of this chunk stays unused
+        if (offset + entry > Integer.MAX_VALUE)
+            throw new IllegalStateException("String arena full (2 GB)");
+        int c = (int) (offset >>> CHUNK_SHIFT);
+        byte[][] current = chunks;
+        if (c == current.length) {
+            current = Arrays.copyOf(current, c + 1);
+            current[c] = new byte[CHUNK_SIZE];
+            chunks = current;
+        }
+        byte[] chunk = current[c];
+        int pos = (int) (offset & (CHUNK_SIZE - 1));
+        if (length < 0x80) {
+            chunk[pos++] = (byte) length;
+        } else {
+            chunk[pos++] = (byte) (0x80 | length >>> 8);
+            chunk[pos++] = (byte) length;
+        }
+        System.arraycopy(bytes, 0, chunk, pos, length);
+        used = offset + entry;
+        return (int) offset;
+    }
+
+    String get(int offset) {
+        byte[] chunk = chunks[offset >>> CHUNK_SHIFT];
+        int pos = offset & (CHUNK_SIZE - 1);
+        int length = chunk[pos++] & 0xFF;
+        if (length >= 0x80)
+            length = (length & 0x7F) << 8 | chunk[pos++] & 0xFF;
+        return new String(chunk, pos, length, StandardCharsets.UTF_8);
+    }
+
+    /** Same as get(offset).equals(s), without decoding ASCII entries. */
+    boolean matches(int offset, String s) {
+        byte[] chunk = chunks[offset >>> CHUNK_SHIFT];
+        int pos = offset & (CHUNK_SIZE - 1);
+        int length = chunk[pos++] & 0xFF;
+        if (length >= 0x80)
+            length = (length & 0x7F) << 8 | chunk[pos++] & 0xFF;
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char ch = s.charAt(i);
+            if (ch >= 0x80)
+                return get(offset).equals(s); // Multi-byte: compare decoded
+            if (i >= length || chunk[pos + i] != ch)
+                return false;
+        }
+        return n == length;
+    }
+
+    /** Same as get(offset).hashCode(), without decoding ASCII entries. */
+    int hash(int offset) {
+        byte[] chunk = chunks[offset >>> CHUNK_SHIFT];
+        int pos = offset & (CHUNK_SIZE - 1);
+        int length = chunk[pos++] & 0xFF;
+        if (length >= 0x80)
+            length = (length & 0x7F) << 8 | chunk[pos++] & 0xFF;
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = chunk[pos + i];
+            if (b < 0)
+                return get(offset).hashCode();
+            h = 31 * h + b;
+        }
+        return h;
+    }
+
+    /** Bytes reserved, including chunk tails not filled yet. */
+    long getReservedBytes() {
+        return (long) chunks.length * CHUNK_SIZE;
+    }
+}
@@ -2,48 +2,86 @@ package com.bank.simulator.model;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.UUID;
 
 public class Transaction {
 
-    private final String transactionId;
+    private final long id; // TransactionIds value; 0 for other ids (UUIDs from older data, posting ids)
+    private String transactionId; // Rendered from id on first use; racy but idempotent
     private final String sourceAccount;
     private final String destinationAccount;
     private final BigDecimal amount;
-    private final Instant timestamp;
-    private TransactionStatus status;
+    private final long timestampNanos; // Since the epoch; an Instant is only built when asked for
+    private volatile TransactionStatus status; // Written by the transfer that owns it, read anywhere
 
     public Transaction(String sourceAccount, String destinationAccount, BigDecimal amount) {
-        this.transactionId = UUID.randomUUID().toString();
+        this(sourceAccount, destinationAccount, amount, System.currentTimeMillis());
+    }
+
+    // Batch constructor: a new id and the batch's shared timestamp
+    public Transaction(String sourceAccount, String destinationAccount, BigDecimal amount, long timestampMillis) {
+        this.id = TransactionIds.next(timestampMillis);
         this.sourceAccount = sourceAccount;
         this.destinationAccount = destinationAccount;
         this.amount = amount;
-        this.timestamp = Instant.now();
+        this.timestampNanos = timestampMillis * 1_000_000L;
         this.status = TransactionStatus.FAILED; // Default initial state
     }
 
-    public synchronized void markSuccess() {
+    // Caller supplies the id and timestamp (posting runs: ids derived from the run)
+    public Transaction(String transactionId, String sourceAccount, String destinationAccount, BigDecimal amount,
+            Instant timestamp) {
+        this(transactionId, sourceAccount, destinationAccount, amount, timestamp, TransactionStatus.FAILED);
+    }
+
+    // Restore constructor (journal replay / storage load)
+    public Transaction(String transactionId, String sourceAccount, String destinationAccount, BigDecimal amount,
+            Instant timestamp, TransactionStatus status) {
+        this.id = TransactionIds.parse(transactionId);
+        this.transactionId = transactionId;
+        this.sourceAccount = sourceAccount;
+        this.destinationAccount = destinationAccount;
+        this.amount = amount;
+        this.timestampNanos = timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano();
+        this.status = status;
+    }
+
+    public void markSuccess() {
         this.status = TransactionStatus.SUCCESS;
     }
 
-    public synchronized void markRolledBack() {
+    public void markRolledBack() {
         this.status = TransactionStatus.ROLLED_BACK;
     }
 
-    public synchronized void markFraud() {
+    public void markFraud() {
         this.status = TransactionStatus.REJECTED_FRAUD;
     }
-    
+
     // Getters
-    public String getTransactionId() { return transactionId; }
+    public String getTransactionId() {
+        String s = transactionId;
+        if (s == null)
+            transactionId = s = TransactionIds.format(id);
+        return s;
+    }
+
+    /** The 64-bit id (see TransactionIds), or 0 if the id is not one. */
+    public long getId() { return id; }
     public String getSourceAccount() { return sourceAccount; }
     public String getDestinationAccount() { return destinationAccount; }
     public BigDecimal getAmount() { return amount; }
-    public Instant getTimestamp() { return timestamp; }
-    public synchronized TransactionStatus getStatus() { return status; }
-    
+
+    /** A new Instant per call; indexes and clocks should use {@link #getTimestampMillis()}. */
+    public Instant getTimestamp() {
+        return Instant.ofEpochSecond(Math.floorDiv(timestampNanos, 1_000_000_000L),
+                Math.floorMod(timestampNanos, 1_000_000_000L));
+    }
+
+    public long getTimestampMillis() { return Math.floorDiv(timestampNanos, 1_000_000L); }
+    public TransactionStatus getStatus() { return status; }
+
     @Override
     public String toString() {
-        return "Transaction{id='" + transactionId + "', src='" + sourceAccount + "', dest='" + destinationAccount + "', amt=" + amount + ", stat=" + status + "}";
+        return "Transaction{id='" + getTransactionId() + "', src='" + sourceAccount + "', dest='" + destinationAccount + "', amt=" + amount + ", stat=" + status + "}";
     }
 }
@@ -0,0 +1,246 @@
+package com.bank.simulator.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An account's transaction history: an append-only sequence stored in chunks
+ * of {@value #CHUNK_SIZE}. Every entry keeps its position (0, 1, 2, ...) for
+ * good, so a position is a stable cursor for paging.
+ *
+ * Appends are serialized on this object but never copy more than one chunk
+ * (and only while the first chunk is still growing). Readers take no lock:
+ * they read the published size, then the chunks below it, which are never
+ * changed once written. A page therefore costs O(page size) however long the
+ * history is, and never holds up a transfer.
+ *
+ * With an {@link Archive} attached, full chunks beyond the newest
+ * {@link Archive#getResidentChunks()} are written out by the archive's
+ * thread and dropped from memory; pages that reach back that far read them
+ * back from the archive.
+ *
+ * After a restart, the entries an account had in the transaction log's
+ * sealed files can be attached as a {@link Restored} prefix instead of being
+ * appended again; they take positions 0 to its size and appended entries
+ * follow.
+ */
+public class TransactionHistory {
+
+    public static final int CHUNK_SIZE = 256;
+    private static final int CHUNK_SHIFT = 8;
+    private static final int FIRST_CHUNK_CAPACITY = 8; // Most accounts never fill a chunk
+
+    /** Where chunks that fell out of memory are kept. */
+    public interface Archive {
+
+        /** Full chunks each history keeps in memory; older ones are archived. */
+        int getResidentChunks();
+
+        /** Asks for {@link TransactionHistory#archiveOldChunks()} to be run soon, off the caller's thread. */
+        void schedule(TransactionHistory history);
+
+        /** @return a reference that {@link #load(long)} accepts */
+        long store(Transaction[] chunk) throws IOException;
+
+        Transaction[] load(long ref) throws IOException;
+    }
+
+    /** Entries read from elsewhere, ahead of every appended one. */
+    public interface Restored {
+
+        int size();
+
+        Transaction get(int index);
+    }
+
+    // Stands in for a chunk that was moved to the archive
+    private static final class ArchivedChunk {
+        private final long ref;
+
+        ArchivedChunk(long ref) {
+            this.ref = ref;
+        }
+    }
+
+    // Slot i holds entries [i * CHUNK_SIZE, (i + 1) * CHUNK_SIZE): a Transaction[] or an ArchivedChunk
+    private volatile Object[] chunks = new Object[4];
+    private volatile int size; // Appended entries, published after the entry is in place
+    private volatile Restored restored; // Set before the first append, never changed after
+    private volatile Archive archive;
+    private int archivedChunks; // Slots below this are ArchivedChunk; guarded by this
+    private boolean archiveScheduled; // Guarded by this
+
+    public synchronized void append(Transaction tx) {
+        int n = size;
+        int slot = n >>> CHUNK_SHIFT;
+        int offset = n & (CHUNK_SIZE - 1);
+        Object[] dir = chunks;
+        if (slot == dir.length) {
+            dir = Arrays.copyOf(dir, dir.length * 2);
+            chunks = dir;
+        }
+        Transaction[] chunk = (Transaction[]) dir[slot];
+        if (chunk == null) {
+            chunk = new Transaction[slot == 0 ? FIRST_CHUNK_CAPACITY : CHUNK_SIZE];
+            dir[slot] = chunk;
+        } else if (offset == chunk.length) {
+            // Only the first chunk grows; readers still holding the old array see a valid prefix
+            chunk = Arrays.copyOf(chunk, Math.min(chunk.length * 2, CHUNK_SIZE));
+            dir[slot] = chunk;
+        }
+        chunk[offset] = tx;
+        size = n + 1;
+        if (offset == CHUNK_SIZE - 1)
+            maybeScheduleArchive();
+    }
+
+    // Caller holds the monitor
+    private void maybeScheduleArchive() {
+        Archive a = archive;
+        if (a == null || archiveScheduled)
+            return;
+        if (size / CHUNK_SIZE - archivedChunks > a.getResidentChunks()) {
+            archiveScheduled = true;
+            a.schedule(this);
+        }
+    }
+
+    /**
+     * Stores full chunks beyond the resident limit in the archive and drops
+     * them from memory. Runs on the archive's thread; the disk write happens
+     * outside the monitor, so appends are never held up by it.
+     */
+    public void archiveOldChunks() throws IOException {
+        Archive a = archive;
+        while (true) {
+            int slot;
+            Transaction[] chunk;
+            synchronized (this) {
+                if (a == null || size / CHUNK_SIZE - archivedChunks <= a.getResidentChunks()) {
+                    archiveScheduled = false;
+                    return;
+                }
+                slot = archivedChunks;
+                chunk = (Transaction[]) chunks[slot];
+            }
+            long ref;
+            try {
+                ref = a.store(chunk); // Full chunks are immutable, no lock needed
+            } catch (IOException e) {
+                synchronized (this) {
+                    archiveScheduled = false;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                chunks[slot] = new ArchivedChunk(ref);
+                archivedChunks = slot + 1;
+            }
+        }
+    }
+
+    /**
+     * Attaches the archive that old chunks move to. Chunks already beyond the
+     * resident limit are archived on the next full chunk.
+     */
+    public synchronized void setArchive(Archive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Attaches the entries restored from the transaction log's files. Only
+     * before anything is appended, so no position ever moves.
+     */
+    public synchronized void setRestored(Restored restored) {
+        if (size != 0)
+            throw new IllegalStateException("History already has appended entries");
+        this.restored = restored;
+    }
+
+    private int restoredSize() {
+        Restored r = restored;
+        return r == null ? 0 : r.size();
+    }
+
+    public int size() {
+        return restoredSize() + size;
+    }
+
+    /** Chunks currently held by the archive instead of memory. */
+    public synchronized int getArchivedChunks() {
+        return archivedChunks;
+    }
+
+    /**
+     * Up to {@code limit} entries after position {@code after}, oldest first
+     * (after = -1 starts at the beginning). The position of the last entry
+     * returned is the cursor for the next page.
+     *
+     * @throws UncheckedIOException if an archived chunk cannot be read back
+     */
+    public List<Transaction> page(long after, int limit) {
+        Restored r = restored;
+        int prefix = r == null ? 0 : r.size();
+        int end = prefix + size; // Everything below is fully published
+        long start = Math.max(0, after + 1);
+        if (start >= end || limit <= 0)
+            return Collections.emptyList();
+        int from = (int) start;
+        int to = (int) Math.min(end, start + limit);
+        List<Transaction> page = new ArrayList<>(to - from);
+        for (; from < Math.min(to, prefix); from++)
+            page.add(r.get(from));
+        from -= prefix;
+        to -= prefix;
+        Object[] dir = chunks;
+        int pos = from;
+        while (pos < to) {
+            int slot = pos >>> CHUNK_SHIFT;
+            int offset = pos & (CHUNK_SIZE - 1);
+            int count = Math.min(to - pos, CHUNK_SIZE - offset);
+            Transaction[] chunk = chunk(dir, slot);
+            for (int i = 0; i < count; i++)
+                page.add(chunk[offset + i]);
+            pos += count;
+        }
+        return page;
+    }
+
+    /**
+     * The entry at {@code position}, which must be below a {@link #size()}
+     * this thread has read.
+     */
+    public Transaction get(long position) {
+        Restored r = restored;
+        int prefix = r == null ? 0 : r.size();
+        if (position < prefix)
+            return r.get((int) position);
+        int pos = (int) position - prefix;
+        return chunk(chunks, pos >>> CHUNK_SHIFT)[pos & (CHUNK_SIZE - 1)];
+    }
+
+    /** The newest {@code limit} entries, oldest first. */
+    public List<Transaction> latest(int limit) {
+        return page(size() - 1L - limit, limit);
+    }
+
+    /** Every entry, reading archived chunks back: O(history), meant for recovery checks, not requests. */
+    public List<Transaction> toList() {
+        return page(-1, size());
+    }
+
+    private Transaction[] chunk(Object[] dir, int slot) {
+        Object c = dir[slot];
+        if (c instanceof Transaction[])
+            return (Transaction[]) c;
+        try {
+            return archive.load(((ArchivedChunk) c).ref);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read archived history chunk", e);
+        }
+    }
+}
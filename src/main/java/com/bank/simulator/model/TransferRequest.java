@@ -0,0 +1,36 @@
+package com.bank.simulator.model;
+
+import java.math.BigDecimal;
+
+/**
+ * One item of a batch transfer, identified by account numbers.
+ */
+public class TransferRequest {
+
+    private final String sourceAccount;
+    private final String destinationAccount;
+    private final BigDecimal amount;
+
+    public TransferRequest(String sourceAccount, String destinationAccount, BigDecimal amount) {
+        this.sourceAccount = sourceAccount;
+        this.destinationAccount = destinationAccount;
+        this.amount = amount;
+    }
+
+    public String getSourceAccount() {
+        return sourceAccount;
+    }
+
+    public String getDestinationAccount() {
+        return destinationAccount;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferRequest[%s -> %s: %s]", sourceAccount, destinationAccount, amount);
+    }
+}
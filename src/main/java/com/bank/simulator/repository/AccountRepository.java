@@ -1,6 +1,7 @@
 package com.bank.simulator.repository;
 
 import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
@@ -10,6 +11,12 @@ public class AccountRepository {
 
     private final Map<String, Account> accountStore = new ConcurrentHashMap<>();
 
+    /** The repository for accounts from {@code factory}: a dense one if the factory has a table. */
+    public static AccountRepository forFactory(AccountFactory factory) {
+        return factory.getAccountTable() != null ? new DenseAccountRepository(factory.getAccountTable())
+                : new AccountRepository();
+    }
+
     public void save(Account account) {
         accountStore.put(account.getAccountNumber(), account);
     }
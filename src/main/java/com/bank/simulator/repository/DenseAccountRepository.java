@@ -0,0 +1,40 @@
+package com.bank.simulator.repository;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountTable;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * AccountRepository over an {@link AccountTable}: no map entry or Account
+ * object per account. Lookups return a fresh view (DenseAccount) each time,
+ * so compare accounts with equals, not ==.
+ */
+public class DenseAccountRepository extends AccountRepository {
+
+    private final AccountTable table;
+
+    public DenseAccountRepository(AccountTable table) {
+        this.table = table;
+    }
+
+    /** @throws IllegalArgumentException if the account was not created by this table */
+    @Override
+    public void save(Account account) {
+        table.register(account);
+    }
+
+    @Override
+    public Optional<Account> findByAccountNumber(String accountNumber) {
+        return Optional.ofNullable(table.find(accountNumber));
+    }
+
+    @Override
+    public Collection<Account> findAll() {
+        return table.accounts();
+    }
+
+    public AccountTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,355 @@
+package com.bank.simulator.repository;
+
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionIds;
+import com.bank.simulator.model.TransactionStatus;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A sealed segment in its on-disk form, read through a read-only memory
+ * map: the heap holds only this object, whatever the segment's size, and
+ * the OS pages in what queries touch.
+ *
+ * File layout (big-endian), every section addressed by an offset in the
+ * header so any entry is reached without scanning:
+ * <pre>
+ * header    magic, version, base, count, minTime, maxTime, accounts, blocks,
+ *           then the offsets of the sections below
+ * accounts  int offset per account, sorted, then the names (short length + UTF-8)
+ * records   int offset per transaction, then the records: source and
+ *           destination account (index into accounts), status, timestamp
+ *           (seconds, nanos), amount (scale, unscaled bytes), id
+ * postings  per account: source start, count, destination start, count;
+ *           per status: start, count; then the positions themselves (ints)
+ * time      blockMax[blocks], blockMin[blocks]
+ * </pre>
+ */
+final class MappedSegment extends TransactionSegment {
+
+    private static final int MAGIC = 0x42545853; // "BTXS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 8 + 8 + 4 + 4 + 6 * 4;
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private final Path file;
+    private final MappedByteBuffer buf;
+    private final int count;
+    private final long minTime;
+    private final long maxTime;
+    private final int accounts;
+    private final int blocks;
+    private final int accountIndex;
+    private final int accountData;
+    private final int recordIndex;
+    private final int recordData;
+    private final int postings;
+    private final int time;
+
+    private MappedSegment(Path file, MappedByteBuffer buf) throws IOException {
+        super(buf.getLong(8));
+        this.file = file;
+        this.buf = buf;
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+            throw new IOException("Not a transaction segment: " + file);
+        this.count = buf.getInt(16);
+        this.minTime = buf.getLong(20);
+        this.maxTime = buf.getLong(28);
+        this.accounts = buf.getInt(36);
+        this.blocks = buf.getInt(40);
+        this.accountIndex = buf.getInt(44);
+        this.accountData = buf.getInt(48);
+        this.recordIndex = buf.getInt(52);
+        this.recordData = buf.getInt(56);
+        this.postings = buf.getInt(60);
+        this.time = buf.getInt(64);
+    }
+
+    static MappedSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new MappedSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a complete in-memory segment to {@code file} (through a temporary
+     * file, so a crash never leaves a half-written segment under its name).
+     */
+    static void write(MemorySegment segment, Path file) throws IOException {
+        int count = segment.size();
+        Set<String> names = new HashSet<>(segment.getSourceIndex().keySet());
+        names.addAll(segment.getDestinationIndex().keySet());
+        List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted);
+        Map<String, Integer> ids = new HashMap<>(sorted.size() * 2);
+        for (int i = 0; i < sorted.size(); i++)
+            ids.put(sorted.get(i), i);
+
+        ByteArrayOutputStream names8 = new ByteArrayOutputStream(sorted.size() * 8);
+        int[] nameOffsets = new int[sorted.size()];
+        DataOutputStream nameOut = new DataOutputStream(names8);
+        for (int i = 0; i < sorted.size(); i++) {
+            nameOffsets[i] = nameOut.size();
+            writeString(nameOut, sorted.get(i));
+        }
+
+        ByteArrayOutputStream records8 = new ByteArrayOutputStream(count * 80);
+        DataOutputStream recordOut = new DataOutputStream(records8);
+        int[] recordOffsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            Transaction tx = segment.get(i);
+            recordOffsets[i] = recordOut.size();
+            recordOut.writeInt(ids.get(tx.getSourceAccount()));
+            recordOut.writeInt(ids.get(tx.getDestinationAccount()));
+            recordOut.writeByte(tx.getStatus().ordinal());
+            recordOut.writeLong(tx.getTimestamp().getEpochSecond());
+            recordOut.writeInt(tx.getTimestamp().getNano());
+            byte[] unscaled = tx.getAmount().unscaledValue().toByteArray();
+            recordOut.writeInt(tx.getAmount().scale());
+            recordOut.writeByte(unscaled.length);
+            recordOut.write(unscaled);
+            writeString(recordOut, tx.getTransactionId());
+        }
+
+        // Posting directory: 4 ints per account, 2 per status; then the positions
+        int statuses = TransactionStatus.values().length;
+        List<PositionList> lists = new ArrayList<>();
+        int[] directory = new int[sorted.size() * 4 + statuses * 2];
+        int next = 0;
+        for (int a = 0; a < sorted.size(); a++) {
+            PositionList src = segment.getSourceIndex().get(sorted.get(a));
+            PositionList dst = segment.getDestinationIndex().get(sorted.get(a));
+            directory[a * 4] = next;
+            directory[a * 4 + 1] = src == null ? 0 : src.size();
+            next += directory[a * 4 + 1];
+            directory[a * 4 + 2] = next;
+            directory[a * 4 + 3] = dst == null ? 0 : dst.size();
+            next += directory[a * 4 + 3];
+            lists.add(src);
+            lists.add(dst);
+        }
+        for (TransactionStatus s : TransactionStatus.values()) {
+            PositionList l = (PositionList) segment.statusIndex(s);
+            directory[sorted.size() * 4 + s.ordinal() * 2] = next;
+            directory[sorted.size() * 4 + s.ordinal() * 2 + 1] = l.size();
+            next += l.size();
+            lists.add(l);
+        }
+        int blocks = (count + TIME_BLOCK - 1) >>> TIME_BLOCK_SHIFT;
+
+        long accountIndex = HEADER_BYTES;
+        long accountData = accountIndex + 4L * sorted.size();
+        long recordIndex = accountData + names8.size();
+        long recordData = recordIndex + 4L * count;
+        long postings = recordData + records8.size();
+        long time = postings + 4L * directory.length + 4L * next;
+        long total = time + 16L * blocks;
+        if (total > Integer.MAX_VALUE)
+            throw new IOException("Segment too large for one file: " + total + " bytes");
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(segment.getBase());
+            out.writeInt(count);
+            out.writeLong(segment.getMinTime());
+            out.writeLong(segment.getMaxTime());
+            out.writeInt(sorted.size());
+            out.writeInt(blocks);
+            out.writeInt((int) accountIndex);
+            out.writeInt((int) accountData);
+            out.writeInt((int) recordIndex);
+            out.writeInt((int) recordData);
+            out.writeInt((int) postings);
+            out.writeInt((int) time);
+            for (int off : nameOffsets)
+                out.writeInt(off);
+            names8.writeTo(out);
+            for (int off : recordOffsets)
+                out.writeInt(off);
+            records8.writeTo(out);
+            for (int d : directory)
+                out.writeInt(d);
+            for (PositionList l : lists) {
+                if (l == null)
+                    continue;
+                int n = l.size();
+                for (int i = 0; i < n; i++)
+                    out.writeInt(l.get(i));
+            }
+            for (int b = 0; b < blocks; b++)
+                out.writeLong(segment.blockMax(b));
+            for (int b = 0; b < blocks; b++)
+                out.writeLong(segment.blockMin(b));
+            out.flush();
+            if (out.size() != total)
+                throw new IOException("Segment layout mismatch: " + out.size() + " != " + total);
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF)
+            throw new IOException("String too long for a segment: " + bytes.length + " bytes");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Largest TransactionIds id in the segment, 0 if none; reads only the id of each record. */
+    long maxId() {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            int p = recordData + buf.getInt(recordIndex + 4 * i);
+            max = Math.max(max, TransactionIds.parse(readString(p + 26 + (buf.get(p + 25) & 0xFF))));
+        }
+        return max;
+    }
+
+    private String readString(int offset) {
+        byte[] bytes = new byte[buf.getShort(offset) & 0xFFFF];
+        ByteBuffer view = buf.duplicate(); // Absolute bulk reads without touching the shared position
+        view.position(offset + 2);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String account(int index) {
+        return readString(accountData + buf.getInt(accountIndex + 4 * index));
+    }
+
+    // Binary search of the sorted account names, -1 if absent
+    private int accountId(String account) {
+        int lo = 0;
+        int hi = accounts - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = account(mid).compareTo(account);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private Positions postings(int directoryEntry) {
+        int start = buf.getInt(postings + 8 * directoryEntry);
+        int n = buf.getInt(postings + 8 * directoryEntry + 4);
+        if (n == 0)
+            return null;
+        int data = postings + 4 * (accounts * 4 + STATUSES.length * 2) + 4 * start;
+        return new Positions() {
+            @Override
+            public int size() {
+                return n;
+            }
+
+            @Override
+            public int get(int i) {
+                return buf.getInt(data + 4 * i);
+            }
+        };
+    }
+
+    @Override
+    int size() {
+        return count;
+    }
+
+    @Override
+    boolean isComplete() {
+        return true;
+    }
+
+    @Override
+    Transaction get(int local) {
+        int p = recordData + buf.getInt(recordIndex + 4 * local);
+        String source = account(buf.getInt(p));
+        String destination = account(buf.getInt(p + 4));
+        TransactionStatus status = STATUSES[buf.get(p + 8)];
+        Instant timestamp = Instant.ofEpochSecond(buf.getLong(p + 9), buf.getInt(p + 17));
+        int scale = buf.getInt(p + 21);
+        byte[] unscaled = new byte[buf.get(p + 25) & 0xFF];
+        ByteBuffer view = buf.duplicate();
+        view.position(p + 26);
+        view.get(unscaled);
+        String id = readString(p + 26 + unscaled.length);
+        return new Transaction(id, source, destination, new BigDecimal(new BigInteger(unscaled), scale), timestamp,
+                status);
+    }
+
+    @Override
+    long getMinTime() {
+        return minTime;
+    }
+
+    @Override
+    long getMaxTime() {
+        return maxTime;
+    }
+
+    @Override
+    Positions sourceIndex(String account) {
+        int id = accountId(account);
+        return id < 0 ? null : postings(id * 2);
+    }
+
+    @Override
+    Positions destinationIndex(String account) {
+        int id = accountId(account);
+        return id < 0 ? null : postings(id * 2 + 1);
+    }
+
+    @Override
+    Positions statusIndex(TransactionStatus status) {
+        return postings(accounts * 2 + status.ordinal());
+    }
+
+    @Override
+    long blockMax(int block) {
+        return buf.getLong(time + 8 * block);
+    }
+
+    @Override
+    long blockMin(int block) {
+        return buf.getLong(time + 8 * (blocks + block));
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getFileBytes() {
+        return buf.capacity();
+    }
+}
@@ -0,0 +1,222 @@
+package com.bank.simulator.repository;
+
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionStatus;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The in-memory form of a segment: the active one that takes new
+ * transactions, and recent sealed ones.
+ *
+ * Appends never wait for each other. A saver claims a slot with one CAS on
+ * {@code reserved} and stores its transaction there. Indexing is combined:
+ * whichever saver gets the index lock with tryLock indexes every stored slot
+ * in order, including those of savers that found the lock taken and simply
+ * returned. After unlocking it checks for a slot stored meanwhile, so none
+ * is left behind. Readers see slots below {@code indexed} only, so a
+ * transaction becomes visible to queries and to {@link #size()} at the same
+ * moment.
+ */
+final class MemorySegment extends TransactionSegment {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CLOSED = Integer.MIN_VALUE; // Flag bit on 'reserved'
+
+    private final int capacity;
+    private final long bucketEnd; // Epoch millis; a transaction stamped at or after it starts the next segment
+    private final AtomicReferenceArray<AtomicReferenceArray<Transaction>> chunks;
+    private final AtomicInteger reserved = new AtomicInteger(); // Slots claimed, | CLOSED once sealed
+    private final ReentrantLock indexLock = new ReentrantLock();
+    private volatile int indexed; // Slots [0, indexed) are in every index
+
+    // Written by the index lock holder only, published by 'indexed'
+    private final Map<String, PositionList> bySource = new ConcurrentHashMap<>();
+    private final Map<String, PositionList> byDestination = new ConcurrentHashMap<>();
+    private final PositionList[] byStatus = new PositionList[TransactionStatus.values().length];
+    private final long[] blockMax;
+    private final long[] blockMin;
+    private volatile long minTime = Long.MAX_VALUE;
+    private volatile long maxTime = Long.MIN_VALUE;
+
+    MemorySegment(long base, int capacity, long bucketEnd) {
+        super(base);
+        this.capacity = capacity;
+        this.bucketEnd = bucketEnd;
+        this.chunks = new AtomicReferenceArray<>((capacity + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        int blocks = (capacity + TIME_BLOCK - 1) >>> TIME_BLOCK_SHIFT;
+        this.blockMax = new long[blocks];
+        this.blockMin = new long[blocks];
+        for (int i = 0; i < byStatus.length; i++)
+            byStatus[i] = new PositionList();
+    }
+
+    long getBucketEnd() {
+        return bucketEnd;
+    }
+
+    /**
+     * Stores {@code tx} in the next free slot and indexes what it can.
+     *
+     * @return false if the segment is full or closed: roll and retry
+     */
+    boolean append(Transaction tx) {
+        int slot;
+        while (true) {
+            int r = reserved.get();
+            if (r < 0 || r >= capacity)
+                return false;
+            if (reserved.compareAndSet(r, r + 1)) {
+                slot = r;
+                break;
+            }
+        }
+        AtomicReferenceArray<Transaction> chunk = chunks.get(slot >>> CHUNK_SHIFT);
+        if (chunk == null) {
+            chunks.compareAndSet(slot >>> CHUNK_SHIFT, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = chunks.get(slot >>> CHUNK_SHIFT);
+        }
+        chunk.set(slot & (CHUNK_SIZE - 1), tx);
+        drain();
+        return true;
+    }
+
+    // Index stored slots unless another saver is already doing it
+    private void drain() {
+        while (indexLock.tryLock()) {
+            try {
+                indexStored();
+            } finally {
+                indexLock.unlock();
+            }
+            if (!hasUnindexed())
+                return; // Anyone storing after this check sees the lock free
+        }
+    }
+
+    private boolean hasUnindexed() {
+        int i = indexed;
+        return i < (reserved.get() & ~CLOSED) && slot(i) != null;
+    }
+
+    private Transaction slot(int i) {
+        AtomicReferenceArray<Transaction> chunk = chunks.get(i >>> CHUNK_SHIFT);
+        return chunk == null ? null : chunk.get(i & (CHUNK_SIZE - 1));
+    }
+
+    // Index lock held; stops at the first claimed slot not stored yet
+    private void indexStored() {
+        int i = indexed;
+        int claimed = reserved.get() & ~CLOSED;
+        Transaction tx;
+        while (i < claimed && (tx = slot(i)) != null) {
+            index(i, tx);
+            i++;
+        }
+        indexed = i;
+    }
+
+    private void index(int pos, Transaction tx) {
+        long time = tx.getTimestampMillis();
+        int block = pos >>> TIME_BLOCK_SHIFT;
+        if ((pos & (TIME_BLOCK - 1)) == 0) {
+            blockMax[block] = block == 0 ? time : Math.max(blockMax[block - 1], time);
+            blockMin[block] = Long.MAX_VALUE;
+        } else {
+            blockMax[block] = Math.max(blockMax[block], time);
+        }
+        // A late timestamp lowers the minimum of the blocks before it; usually none
+        for (int b = block; b >= 0 && blockMin[b] > time; b--)
+            blockMin[b] = time;
+        if (time < minTime)
+            minTime = time;
+        if (time > maxTime)
+            maxTime = time;
+        bySource.computeIfAbsent(tx.getSourceAccount(), k -> new PositionList()).add(pos);
+        byDestination.computeIfAbsent(tx.getDestinationAccount(), k -> new PositionList()).add(pos);
+        byStatus[tx.getStatus().ordinal()].add(pos);
+    }
+
+    /**
+     * Takes no more appends.
+     *
+     * @return the final number of entries
+     */
+    int close() {
+        while (true) {
+            int r = reserved.get();
+            if (r < 0)
+                return r & ~CLOSED;
+            if (reserved.compareAndSet(r, r | CLOSED))
+                return r;
+        }
+    }
+
+    boolean isEmpty() {
+        return (reserved.get() & ~CLOSED) == 0;
+    }
+
+    @Override
+    int size() {
+        return indexed;
+    }
+
+    @Override
+    boolean isComplete() {
+        int r = reserved.get();
+        return r < 0 && indexed == (r & ~CLOSED);
+    }
+
+    @Override
+    Transaction get(int local) {
+        return chunks.get(local >>> CHUNK_SHIFT).get(local & (CHUNK_SIZE - 1));
+    }
+
+    @Override
+    long getMinTime() {
+        return minTime;
+    }
+
+    @Override
+    long getMaxTime() {
+        return maxTime;
+    }
+
+    @Override
+    Positions sourceIndex(String account) {
+        return bySource.get(account);
+    }
+
+    @Override
+    Positions destinationIndex(String account) {
+        return byDestination.get(account);
+    }
+
+    @Override
+    Positions statusIndex(TransactionStatus status) {
+        return byStatus[status.ordinal()];
+    }
+
+    @Override
+    long blockMax(int block) {
+        return blockMax[block];
+    }
+
+    @Override
+    long blockMin(int block) {
+        return blockMin[block];
+    }
+
+    // For sealing: the keys and lists of a complete segment
+    Map<String, PositionList> getSourceIndex() {
+        return bySource;
+    }
+
+    Map<String, PositionList> getDestinationIndex() {
+        return byDestination;
+    }
+}
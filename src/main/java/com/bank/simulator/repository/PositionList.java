@@ -0,0 +1,56 @@
+package com.bank.simulator.repository;
+
+import java.util.Arrays;
+
+/**
+ * Ascending positions, within one in-memory segment, of the transactions that
+ * share one index key (a source account, a destination account or a
+ * status). Append-only, one writer at a time (the segment's indexer), any
+ * number of readers without a lock: entries are written before the volatile
+ * size that publishes them.
+ *
+ * Stored in int chunks so a busy key never copies its whole list; the first
+ * chunk starts tiny because most accounts have few transactions.
+ */
+final class PositionList implements Positions {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int FIRST_CHUNK_CAPACITY = 4;
+
+    private volatile int[][] chunks = new int[4][];
+    private volatile int size;
+
+    // Caller serializes appends; positions must be ascending
+    void add(int position) {
+        int n = size;
+        int slot = n >>> CHUNK_SHIFT;
+        int offset = n & (CHUNK_SIZE - 1);
+        int[][] dir = chunks;
+        if (slot == dir.length) {
+            dir = Arrays.copyOf(dir, dir.length * 2);
+            chunks = dir;
+        }
+        int[] chunk = dir[slot];
+        if (chunk == null) {
+            chunk = new int[slot == 0 ? FIRST_CHUNK_CAPACITY : CHUNK_SIZE];
+            dir[slot] = chunk;
+        } else if (offset == chunk.length) {
+            chunk = Arrays.copyOf(chunk, Math.min(chunk.length * 2, CHUNK_SIZE));
+            dir[slot] = chunk;
+        }
+        chunk[offset] = position;
+        size = n + 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** Entry {@code i}; i must be below a {@link #size()} this thread has read. */
+    @Override
+    public int get(int i) {
+        return chunks[i >>> CHUNK_SHIFT][i & (CHUNK_SIZE - 1)];
+    }
+}
@@ -0,0 +1,26 @@
+package com.bank.simulator.repository;
+
+/**
+ * An ascending list of segment-local positions: one index key's entries,
+ * in memory ({@link PositionList}) or in a sealed segment file.
+ */
+interface Positions {
+
+    int size();
+
+    int get(int i);
+
+    /** Index of the first entry >= {@code position} among the first {@code n}: O(log n). */
+    default int lowerBound(int position, int n) {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (get(mid) < position)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
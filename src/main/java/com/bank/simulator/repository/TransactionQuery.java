@@ -0,0 +1,109 @@
+package com.bank.simulator.repository;
+
+import com.bank.simulator.model.TransactionStatus;
+import java.time.Instant;
+
+/**
+ * Filters for {@link TransactionRepository#query(TransactionQuery)}. Every
+ * filter left null matches everything; set ones are ANDed.
+ *
+ * Results come in log order (the order transactions were saved, which is
+ * their time order up to the moment spent waiting for locks), oldest first
+ * unless {@link #newestFirst()}. A result's {@code next} is passed back as
+ * {@link #after(long)} to continue.
+ */
+public class TransactionQuery {
+
+    public static final int DEFAULT_LIMIT = 100;
+
+    private String account; // Either side
+    private String source;
+    private String destination;
+    private TransactionStatus status;
+    private Instant from; // Inclusive
+    private Instant to; // Exclusive
+    private int limit = DEFAULT_LIMIT;
+    private long cursor = -1;
+    private boolean newestFirst;
+
+    /** Transfers in which {@code accountNumber} is the source or the destination. */
+    public TransactionQuery account(String accountNumber) {
+        this.account = accountNumber;
+        return this;
+    }
+
+    public TransactionQuery source(String accountNumber) {
+        this.source = accountNumber;
+        return this;
+    }
+
+    public TransactionQuery destination(String accountNumber) {
+        this.destination = accountNumber;
+        return this;
+    }
+
+    public TransactionQuery status(TransactionStatus status) {
+        this.status = status;
+        return this;
+    }
+
+    /** Timestamps in [from, to); either end may be null. */
+    public TransactionQuery between(Instant from, Instant to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public TransactionQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /** Continue after (oldest first) or before (newest first) the result with this position. */
+    public TransactionQuery after(long position) {
+        this.cursor = position;
+        return this;
+    }
+
+    public TransactionQuery newestFirst() {
+        this.newestFirst = true;
+        return this;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public TransactionStatus getStatus() {
+        return status;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /** -1 when starting from the first (or, newest first, the last) result. */
+    public long getCursor() {
+        return cursor;
+    }
+
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+}
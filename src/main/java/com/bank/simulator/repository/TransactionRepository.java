@@ -1,27 +1,726 @@
 package com.bank.simulator.repository;
 
 import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionHistory;
+import com.bank.simulator.model.TransactionIds;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
 
+/**
+ * The transaction log, stored as a sequence of segments. Every saved
+ * transaction gets a position (0, 1, 2, ...) that stays its cursor for good.
+ * The newest segment takes appends; a new one is started when a transaction
+ * falls into the next time bucket or the segment is full.
+ *
+ * In tiered mode a maintenance thread seals each finished segment into a
+ * compact file, keeps the newest few sealed segments in memory, reads older
+ * ones back through memory maps ({@link MappedSegment}), and drops whole
+ * segments once they are older than the retention. Heap use then depends on
+ * the segment size, not on how long the process has been running. The sealed
+ * files are also the durable history: a restart maps them again, and
+ * snapshots carry only the transactions after {@link #getSealedPosition()}.
+ * In memory mode (the default constructor) nothing is written or dropped.
+ *
+ * Saves take no lock (see {@link MemorySegment}); only starting a new segment
+ * is serialized. Readers take no lock. A {@link #query(TransactionQuery)}
+ * skips segments outside its time and position range and, inside each, walks
+ * only the smallest matching index, so its cost follows the size of the
+ * answer, not of the log.
+ *
+ * The status index records the status at save time; transactions are saved
+ * once their outcome is final.
+ */
 public class TransactionRepository {
 
-    // CopyOnWriteArrayList is efficient for frequent reads and infrequent writes,
-    // or when we need to iterate safely without locking the whole list.
-    // However, for a high-volume system, a synchronized list or DB is better.
-    // For this simulator, we use a synchronized wrapper or internal locking.
+    public static final int DEFAULT_SEGMENT_CAPACITY = 1 << 18;
+    public static final long DEFAULT_BUCKET_MILLIS = 3_600_000;
+    public static final int DEFAULT_HOT_SEGMENTS = 1;
+    private static final int MAX_SEGMENT_CAPACITY = 1 << 23; // Keeps a sealed file well under 2 GB
+    private static final long MAINTENANCE_MILLIS = 1000;
+    private static final int MAX_UNSEALED = 2; // Finished segments waiting to be sealed before savers wait
+    private static final String FILE_PREFIX = "tx-";
+    private static final String FILE_SUFFIX = ".seg";
 
-    private final List<Transaction> transactionLog = Collections.synchronizedList(new ArrayList<>());
+    private final Path dir; // null: memory only
+    private final int segmentCapacity;
+    private final long bucketMillis;
+    private final int hotSegments;
+    private final long retentionMillis; // 0: keep everything
+
+    private final Object rollLock = new Object(); // Serializes changes to the segment list
+    private volatile TransactionSegment[] segments; // Oldest first, replaced as a whole
+    private volatile MemorySegment active;
+    private volatile long sealedPosition; // Positions below it are in files (or dropped)
+    private volatile TransactionSegment[] restoredFiles = new TransactionSegment[0]; // Mapped on start
+
+    // Maintenance thread only: sealed segments still held in memory, and their files
+    private final Map<MemorySegment, MappedSegment> sealed = new IdentityHashMap<>();
+    private final Thread maintenanceThread;
+    private final Object maintenanceSignal = new Object();
+    private volatile boolean running = true;
+    private volatile long droppedSegments;
+    private volatile long sealFailures;
+    private volatile boolean sealingFailed; // Savers stop waiting for sealing until it works again
+
+    /** Everything in memory, kept forever (benchmarks, tests, embedded use). */
+    public TransactionRepository() {
+        this.dir = null;
+        this.segmentCapacity = DEFAULT_SEGMENT_CAPACITY;
+        this.bucketMillis = DEFAULT_BUCKET_MILLIS;
+        this.hotSegments = 0;
+        this.retentionMillis = 0;
+        this.active = new MemorySegment(0, segmentCapacity, bucketEnd(System.currentTimeMillis()));
+        this.segments = new TransactionSegment[] { active };
+        this.maintenanceThread = null;
+    }
+
+    /**
+     * Tiered store in {@code dir}. Segment files left there by an earlier run
+     * are mapped again as the start of the log, as far as they run without a
+     * gap; recovery then cuts them back to what its snapshot continues from
+     * ({@link #resumeAt(long)}).
+     *
+     * @param segmentCapacity transactions per segment at most
+     * @param bucketMillis    time span of a segment
+     * @param hotSegments     sealed segments kept in memory besides the active one
+     * @param retentionMillis age after which whole segments are dropped, 0 to
+     *                        keep them all
+     */
+    public TransactionRepository(Path dir, int segmentCapacity, long bucketMillis, int hotSegments,
+            long retentionMillis) throws IOException {
+        if (segmentCapacity <= 0 || segmentCapacity > MAX_SEGMENT_CAPACITY)
+            throw new IllegalArgumentException("Segment capacity must be 1.." + MAX_SEGMENT_CAPACITY);
+        if (bucketMillis <= 0 || hotSegments < 0 || retentionMillis < 0)
+            throw new IllegalArgumentException("Invalid transaction store settings");
+        this.dir = dir;
+        this.segmentCapacity = segmentCapacity;
+        this.bucketMillis = bucketMillis;
+        this.hotSegments = hotSegments;
+        this.retentionMillis = retentionMillis;
+        Files.createDirectories(dir);
+        List<TransactionSegment> files = reopen(dir);
+        long end = files.isEmpty() ? 0 : files.get(files.size() - 1).getBase() + files.get(files.size() - 1).size();
+        // Ids grow with the log, so the newest file holds the largest: new ids start above it
+        if (!files.isEmpty())
+            TransactionIds.issueAfter(((MappedSegment) files.get(files.size() - 1)).maxId());
+        this.restoredFiles = files.toArray(new TransactionSegment[0]);
+        this.sealedPosition = end;
+        this.active = new MemorySegment(end, segmentCapacity, bucketEnd(System.currentTimeMillis()));
+        files.add(active);
+        this.segments = files.toArray(new TransactionSegment[0]);
+        this.maintenanceThread = new Thread(this::maintenanceLoop, "tx-segments");
+        maintenanceThread.setDaemon(true);
+        maintenanceThread.start();
+    }
+
+    /**
+     * Builds the store from {@code bank.tx.*} properties.
+     * <ul>
+     * <li>bank.tx.store: tiered or memory (default tiered; the sealed files are
+     * what keeps snapshots and restarts independent of history length)</li>
+     * <li>bank.tx.dir: directory of the sealed segments (default bank_segments)</li>
+     * <li>bank.tx.segment: transactions per segment at most (default 262144)</li>
+     * <li>bank.tx.bucket: seconds of time per segment (default 3600)</li>
+     * <li>bank.tx.hot: sealed segments kept in memory (default 1)</li>
+     * <li>bank.tx.retention: hours after which segments are dropped (default 0,
+     * never)</li>
+     * </ul>
+     */
+    public static TransactionRepository configured(Properties props) throws IOException {
+        if ("memory".equalsIgnoreCase(props.getProperty("bank.tx.store", "tiered")))
+            return new TransactionRepository();
+        Path dir = Paths.get(props.getProperty("bank.tx.dir", "bank_segments"));
+        int capacity = Integer.parseInt(props.getProperty("bank.tx.segment",
+                String.valueOf(DEFAULT_SEGMENT_CAPACITY)));
+        long bucket = Long.parseLong(props.getProperty("bank.tx.bucket",
+                String.valueOf(DEFAULT_BUCKET_MILLIS / 1000))) * 1000;
+        int hot = Integer.parseInt(props.getProperty("bank.tx.hot", String.valueOf(DEFAULT_HOT_SEGMENTS)));
+        long retentionHours = Long.parseLong(props.getProperty("bank.tx.retention", "0"));
+        TransactionRepository repo = new TransactionRepository(dir, capacity, bucket, hot,
+                retentionHours * 3_600_000);
+        System.out.println(">> Transaction store: " + dir + " (tiered, " + bucket / 1000 + "s buckets of up to "
+                + capacity + ", " + hot + " sealed in memory, retention "
+                + (retentionHours == 0 ? "unlimited" : retentionHours + "h") + ")");
+        return repo;
+    }
+
+    // Sealed files of an earlier run, oldest first, up to the first gap or unreadable file
+    private static List<TransactionSegment> reopen(Path dir) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, FILE_PREFIX + "*")) {
+            for (Path f : files) {
+                if (f.getFileName().toString().endsWith(FILE_SUFFIX))
+                    found.add(f);
+                else
+                    Files.delete(f); // A seal cut short by a crash
+            }
+        }
+        found.sort((a, b) -> Long.compare(fileBase(a), fileBase(b)));
+        List<TransactionSegment> segments = new ArrayList<>(found.size());
+        long expected = found.isEmpty() ? 0 : fileBase(found.get(0));
+        for (Path f : found) {
+            MappedSegment seg = null;
+            try {
+                if (expected >= 0 && fileBase(f) == expected)
+                    seg = MappedSegment.open(f);
+            } catch (IOException e) {
+                System.err.println("[STORE] Cannot read segment " + f + ": " + e.getMessage());
+            }
+            if (seg == null || seg.getBase() != expected) {
+                if (expected >= 0)
+                    System.err.println("[STORE] Dropping " + f + " and later segment files: gap in the log");
+                Files.delete(f);
+                expected = -1; // Everything after a gap goes too
+                continue;
+            }
+            segments.add(seg);
+            expected = seg.getBase() + seg.size();
+        }
+        return segments;
+    }
+
+    private static long fileBase(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private long bucketEnd(long millis) {
+        return (Math.floorDiv(millis, bucketMillis) + 1) * bucketMillis;
+    }
 
     public void save(Transaction transaction) {
-        transactionLog.add(transaction);
+        long time = transaction.getTimestampMillis();
+        while (true) {
+            MemorySegment a = active;
+            if (time < a.getBucketEnd() && a.append(transaction))
+                return;
+            awaitSealing();
+            roll(a, time); // Next bucket, or full
+        }
+    }
+
+    // Backpressure: a saver that would start a segment while sealing lags behind waits for it
+    private void awaitSealing() {
+        if (maintenanceThread == null)
+            return;
+        synchronized (maintenanceSignal) {
+            while (running && !sealingFailed && getMemorySegmentCount() > hotSegments + MAX_UNSEALED) {
+                maintenanceSignal.notifyAll();
+                try {
+                    maintenanceSignal.wait(MAINTENANCE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void saveAll(Collection<Transaction> transactions) {
+        for (Transaction tx : transactions)
+            save(tx);
+    }
+
+    // Closes 'current' and starts the segment for 'millis', unless another thread already did
+    private void roll(MemorySegment current, long millis) {
+        synchronized (rollLock) {
+            if (active != current)
+                return;
+            int count = current.close();
+            MemorySegment next = new MemorySegment(current.getBase() + count, segmentCapacity,
+                    bucketEnd(Math.max(millis, current.getBucketEnd() - bucketMillis)));
+            TransactionSegment[] s = segments;
+            TransactionSegment[] grown = count == 0 ? s.clone() : Arrays.copyOf(s, s.length + 1);
+            grown[grown.length - 1] = next; // An empty segment is replaced, not kept
+            segments = grown;
+            active = next;
+        }
+    }
+
+    /**
+     * One past the last position readers can see. Every position below it is
+     * saved and indexed; positions below {@link #getFirstPosition()} were
+     * dropped by retention.
+     */
+    public long size() {
+        return size(segments);
     }
 
+    private static long size(TransactionSegment[] s) {
+        // Only the newest in-memory segments can still be filling
+        TransactionSegment firstIncomplete = null;
+        for (int i = s.length - 1; i >= 0 && s[i] instanceof MemorySegment; i--) {
+            if (!s[i].isComplete())
+                firstIncomplete = s[i];
+        }
+        if (firstIncomplete != null)
+            return firstIncomplete.getBase() + firstIncomplete.size();
+        TransactionSegment last = s[s.length - 1];
+        return last.getBase() + last.size();
+    }
+
+    /**
+     * Positions below this are durable in sealed files, or were dropped by
+     * retention; a snapshot needs to carry only the transactions from here
+     * on. Always 0 in memory mode.
+     */
+    public long getSealedPosition() {
+        return sealedPosition;
+    }
+
+    /**
+     * Recovery: the transactions about to be restored start at log position
+     * {@code position}. Sealed files from the earlier run that reach that
+     * position are deleted, because the snapshot being loaded carries those
+     * transactions itself, and the log continues at {@code position}. Does
+     * nothing once this run has saved a transaction.
+     *
+     * @return the position the next saved transaction gets
+     */
+    public long resumeAt(long position) throws IOException {
+        synchronized (rollLock) {
+            TransactionSegment[] s = segments;
+            if (!active.isEmpty() || (s.length > 1 && s[s.length - 2] instanceof MemorySegment))
+                return size(s);
+            List<TransactionSegment> kept = new ArrayList<>(s.length);
+            for (int i = 0; i < s.length - 1; i++) {
+                if (s[i].getBase() + s[i].size() <= position)
+                    kept.add(s[i]);
+                else
+                    Files.deleteIfExists(((MappedSegment) s[i]).getFile());
+            }
+            long end = position;
+            if (!kept.isEmpty()) {
+                TransactionSegment last = kept.get(kept.size() - 1);
+                end = last.getBase() + last.size();
+                if (end != position)
+                    System.err.println("[STORE] Segment files end at position " + end + ", the snapshot continues at "
+                            + position + ": later positions move down");
+            }
+            restoredFiles = kept.toArray(new TransactionSegment[0]);
+            sealedPosition = end;
+            active = new MemorySegment(end, segmentCapacity, bucketEnd(System.currentTimeMillis()));
+            kept.add(active);
+            segments = kept.toArray(new TransactionSegment[0]);
+            return end;
+        }
+    }
+
+    /** True if sealed files of an earlier run are part of the log. */
+    public boolean hasRestoredFiles() {
+        return restoredFiles.length > 0;
+    }
+
+    /**
+     * The entries of {@code account} in the sealed files of the earlier run,
+     * as the restored part of its {@link TransactionHistory}. Built on first
+     * use from the files' account indexes, so a restart costs nothing per
+     * historical transaction. The files stay readable through their maps even
+     * after retention deletes them, like any history entry.
+     *
+     * @return null if no files were restored
+     */
+    public TransactionHistory.Restored restoredHistory(String account) {
+        TransactionSegment[] files = restoredFiles;
+        return files.length == 0 ? null : new RestoredHistory(files, account);
+    }
+
+    /** Oldest position still stored. */
+    public long getFirstPosition() {
+        return segments[0].getBase();
+    }
+
+    /**
+     * Copies the transactions at position {@code from} and after (positions
+     * are stable, so a position is a cursor). Older positions dropped by
+     * retention are skipped.
+     */
+    public List<Transaction> findFrom(long from) {
+        long end = size();
+        TransactionSegment[] s = segments;
+        long pos = Math.max(from, s[0].getBase());
+        if (pos >= end)
+            return Collections.emptyList();
+        List<Transaction> result = new ArrayList<>((int) Math.min(end - pos, Integer.MAX_VALUE - 8));
+        for (int i = indexOf(s, pos); i < s.length && pos < end; i++) {
+            TransactionSegment seg = s[i];
+            long segEnd = Math.min(end, seg.getBase() + seg.size());
+            for (; pos < segEnd; pos++)
+                result.add(seg.get((int) (pos - seg.getBase())));
+        }
+        return result;
+    }
+
+    /**
+     * Read-only view of positions {@code from} up to {@code to} (exclusive)
+     * that fetches each transaction only as it is iterated, so writing the
+     * whole log to a snapshot does not copy it onto the heap first. Positions
+     * dropped by retention are skipped; {@code to} is capped at {@link #size()}.
+     */
+    public Collection<Transaction> range(long from, long to) {
+        TransactionSegment[] s = segments;
+        long start = Math.max(from, s[0].getBase());
+        long end = Math.min(to, size(s)); // From the same segment array the iterator walks
+        int count = (int) Math.max(0, Math.min(end - start, Integer.MAX_VALUE));
+        return new AbstractCollection<Transaction>() {
+            @Override
+            public Iterator<Transaction> iterator() {
+                return new Iterator<Transaction>() {
+                    private long pos = start;
+                    private int seg = count == 0 ? 0 : indexOf(s, start);
+
+                    @Override
+                    public boolean hasNext() {
+                        return pos < start + count;
+                    }
+
+                    @Override
+                    public Transaction next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        while (pos >= s[seg].getBase() + s[seg].size())
+                            seg++;
+                        return s[seg].get((int) (pos++ - s[seg].getBase()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /** Every stored transaction: O(retained log), sealed segments included. */
     public List<Transaction> findAll() {
-        synchronized (transactionLog) {
-            return new ArrayList<>(transactionLog);
+        return findFrom(0);
+    }
+
+    // Index of the segment holding 'pos' (the last one whose base is <= pos)
+    private static int indexOf(TransactionSegment[] s, long pos) {
+        int lo = 0;
+        int hi = s.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (s[mid].getBase() <= pos)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Transactions matching every filter of {@code q}, up to its limit, in log
+     * order. Segments entirely outside the time or position range are skipped;
+     * inside one, the cost is two binary searches per filter plus one step per
+     * entry of the most selective index in range.
+     */
+    public QueryResult query(TransactionQuery q) {
+        long hi = size(); // Everything read below is complete up to here
+        TransactionSegment[] s = segments;
+        long lo = s[0].getBase();
+        if (q.getCursor() >= 0) {
+            if (q.isNewestFirst())
+                hi = Math.min(hi, q.getCursor());
+            else
+                lo = Math.max(lo, q.getCursor() + 1);
+        }
+        TransactionSegment.Collector out = new TransactionSegment.Collector(Math.max(0, q.getLimit()));
+        if (lo < hi && q.getLimit() > 0) {
+            long from = q.getFrom() == null ? Long.MIN_VALUE : q.getFrom().toEpochMilli();
+            long to = q.getTo() == null ? Long.MAX_VALUE : q.getTo().toEpochMilli();
+            int first = indexOf(s, lo);
+            int last = indexOf(s, hi - 1);
+            int step = q.isNewestFirst() ? -1 : 1;
+            for (int i = q.isNewestFirst() ? last : first; i >= first && i <= last && !out.isFull(); i += step) {
+                TransactionSegment seg = s[i];
+                // maxTime is exact; a 'to' inside the millisecond of minTime may still match
+                if (seg.getMaxTime() < from || seg.getMinTime() > to)
+                    continue;
+                seg.query(q, lo, hi, out);
+            }
+        }
+        long next = out.isFull() ? out.positions.get(out.positions.size() - 1) : -1;
+        return new QueryResult(out.items, out.positions, next, out.scanned);
+    }
+
+    // ------------------------------------------------------------ tiering
+
+    private void maintenanceLoop() {
+        while (running) {
+            boolean backlog = false;
+            try {
+                backlog = maintain(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                System.err.println("[STORE] Maintenance failed: " + e.getMessage()); // Keep the schedule alive
+            }
+            synchronized (maintenanceSignal) {
+                maintenanceSignal.notifyAll(); // Savers waiting in awaitSealing()
+                try {
+                    if (running && !backlog)
+                        maintenanceSignal.wait(MAINTENANCE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * One maintenance pass (maintenance thread only): close an idle bucket,
+     * seal finished segments, swap cold ones for their files, apply retention.
+     *
+     * @return true if finished segments are still waiting to be sealed
+     */
+    private boolean maintain(long now) {
+        MemorySegment a = active;
+        if (!a.isEmpty() && now >= a.getBucketEnd())
+            roll(a, now); // Quiet period: do not leave an old bucket open
+        long cutoff = retentionMillis > 0 ? now - retentionMillis : Long.MIN_VALUE;
+
+        // Seal finished segments, oldest first; one at a time so swaps and retention keep up
+        boolean backlog = false;
+        boolean sealedOne = false;
+        for (TransactionSegment seg : segments) {
+            if (seg == active || !(seg instanceof MemorySegment) || sealed.containsKey(seg) || !seg.isComplete()
+                    || seg.getMaxTime() < cutoff) // Expired: retention drops it below without a file
+                continue;
+            if (sealedOne) {
+                backlog = true;
+                break;
+            }
+            sealedOne = true;
+            MemorySegment mem = (MemorySegment) seg;
+            Path file = dir.resolve(String.format("%s%016d%s", FILE_PREFIX, mem.getBase(), FILE_SUFFIX));
+            try {
+                MappedSegment.write(mem, file);
+                sealed.put(mem, MappedSegment.open(file));
+                sealingFailed = false;
+            } catch (IOException e) {
+                sealFailures++;
+                sealingFailed = true;
+                System.err.println("[STORE] Cannot seal segment at " + mem.getBase() + ", kept in memory: "
+                        + e.getMessage());
+                break; // Try again next round
+            }
+        }
+
+        synchronized (rollLock) {
+            TransactionSegment[] s = segments;
+            List<TransactionSegment> kept = new ArrayList<>(s.length);
+            List<Path> deleted = new ArrayList<>();
+            // Sealed segments beyond the newest 'hotSegments' are swapped for their mapped file
+            int hot = 0;
+            TransactionSegment[] swapped = s.clone();
+            for (int i = swapped.length - 1; i >= 0; i--) {
+                MappedSegment mapped = sealed.get(swapped[i]);
+                if (mapped == null)
+                    continue;
+                if (++hot > hotSegments) {
+                    sealed.remove(swapped[i]);
+                    swapped[i] = mapped;
+                }
+            }
+            // Retention: drop whole finished segments from the front
+            int i = 0;
+            while (i < swapped.length - 1 && swapped[i].isComplete() && swapped[i].getMaxTime() < cutoff) {
+                TransactionSegment gone = swapped[i];
+                MappedSegment mapped = gone instanceof MappedSegment ? (MappedSegment) gone : sealed.remove(gone);
+                if (mapped != null)
+                    deleted.add(mapped.getFile());
+                droppedSegments++;
+                i++;
+            }
+            for (; i < swapped.length; i++)
+                kept.add(swapped[i]);
+            if (!Arrays.equals(s, kept.toArray()))
+                segments = kept.toArray(new TransactionSegment[0]);
+            sealedPosition = sealedEnd(segments);
+            for (Path f : deleted) {
+                try {
+                    Files.deleteIfExists(f); // Readers still holding the map keep reading it
+                } catch (IOException e) {
+                    System.err.println("[STORE] Cannot delete expired segment " + f + ": " + e.getMessage());
+                }
+            }
+        }
+        return backlog;
+    }
+
+    // End of the run of segments, from the oldest kept, that are in files (maintenance thread only)
+    private long sealedEnd(TransactionSegment[] s) {
+        long end = s[0].getBase(); // Anything older was dropped by retention
+        for (TransactionSegment seg : s) {
+            if (!(seg instanceof MappedSegment) && !sealed.containsKey(seg))
+                break;
+            end = seg.getBase() + seg.size();
+        }
+        return end;
+    }
+
+    /** Stops the maintenance thread; what is stored stays readable. */
+    public void shutdown() {
+        if (maintenanceThread == null)
+            return;
+        running = false;
+        synchronized (maintenanceSignal) {
+            maintenanceSignal.notifyAll();
+        }
+        try {
+            maintenanceThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isTiered() {
+        return dir != null;
+    }
+
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    /** Segments on the heap: the active one, sealed hot ones and any not sealed yet. */
+    public int getMemorySegmentCount() {
+        int n = 0;
+        for (TransactionSegment seg : segments)
+            if (seg instanceof MemorySegment)
+                n++;
+        return n;
+    }
+
+    public long getMappedBytes() {
+        long bytes = 0;
+        for (TransactionSegment seg : segments)
+            if (seg instanceof MappedSegment)
+                bytes += ((MappedSegment) seg).getFileBytes();
+        return bytes;
+    }
+
+    public long getDroppedSegments() {
+        return droppedSegments;
+    }
+
+    public long getSealFailures() {
+        return sealFailures;
+    }
+
+    /** One account's entries in restored files: their log positions, collected on first use. */
+    private static final class RestoredHistory implements TransactionHistory.Restored {
+        private final TransactionSegment[] files;
+        private final String account;
+        private volatile long[] positions;
+
+        RestoredHistory(TransactionSegment[] files, String account) {
+            this.files = files;
+            this.account = account;
+        }
+
+        private long[] positions() {
+            long[] p = positions;
+            if (p == null) {
+                synchronized (this) {
+                    p = positions;
+                    if (p == null) {
+                        p = collect();
+                        positions = p;
+                    }
+                }
+            }
+            return p;
+        }
+
+        // Source and destination index of every file, merged in log order
+        private long[] collect() {
+            long[] out = new long[0];
+            int n = 0;
+            for (TransactionSegment seg : files) {
+                Positions src = seg.sourceIndex(account);
+                Positions dst = seg.destinationIndex(account);
+                int sn = src == null ? 0 : src.size();
+                int dn = dst == null ? 0 : dst.size();
+                if (n + sn + dn > out.length)
+                    out = Arrays.copyOf(out, Math.max(out.length * 2, n + sn + dn));
+                int i = 0;
+                int j = 0;
+                while (i < sn || j < dn) {
+                    int a = i < sn ? src.get(i) : Integer.MAX_VALUE;
+                    int b = j < dn ? dst.get(j) : Integer.MAX_VALUE;
+                    if (a <= b)
+                        i++;
+                    if (b <= a)
+                        j++; // A self-transfer is in both lists once
+                    out[n++] = seg.getBase() + Math.min(a, b);
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        @Override
+        public int size() {
+            return positions().length;
+        }
+
+        @Override
+        public Transaction get(int index) {
+            long pos = positions()[index];
+            TransactionSegment seg = files[indexOf(files, pos)];
+            return seg.get((int) (pos - seg.getBase()));
+        }
+    }
+
+    /** One page of a query: the transactions, their log positions and the cursor for the next page. */
+    public static final class QueryResult {
+        private final List<Transaction> transactions;
+        private final List<Long> positions;
+        private final long next;
+        private final int scanned;
+
+        QueryResult(List<Transaction> transactions, List<Long> positions, long next, int scanned) {
+            this.transactions = Collections.unmodifiableList(transactions);
+            this.positions = Collections.unmodifiableList(positions);
+            this.next = next;
+            this.scanned = scanned;
+        }
+
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+
+        /** Log position of each transaction, usable as a cursor. */
+        public long getPosition(int index) {
+            return positions.get(index);
+        }
+
+        /** Cursor for the next page, or -1 if this page reached the end. */
+        public long getNext() {
+            return next;
+        }
+
+        /** Index entries examined to build the page: what the query cost. */
+        public int getScanned() {
+            return scanned;
         }
     }
 }
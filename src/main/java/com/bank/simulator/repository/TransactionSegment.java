@@ -0,0 +1,265 @@
+package com.bank.simulator.repository;
+
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionStatus;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A contiguous run of the transaction log, positions [base, base + size()),
+ * with its own indexes over segment-local positions: per source account, per
+ * destination account, per status, and per time block of 256 positions the
+ * latest timestamp up to the block ({@link #blockMax(int)}) and the earliest
+ * from the block on ({@link #blockMin(int)}). Both only rise with the block,
+ * so a time range maps to a position range with two binary searches although
+ * transactions are not saved in exact timestamp order.
+ *
+ * The query walk lives here; the two kinds of segment only store things
+ * differently ({@link MemorySegment} while hot, {@link MappedSegment} once
+ * sealed to disk).
+ */
+abstract class TransactionSegment {
+
+    static final int TIME_BLOCK_SHIFT = 8;
+    static final int TIME_BLOCK = 1 << TIME_BLOCK_SHIFT;
+
+    private final long base;
+
+    TransactionSegment(long base) {
+        this.base = base;
+    }
+
+    final long getBase() {
+        return base;
+    }
+
+    /** Entries readers may see; everything below is fully indexed. */
+    abstract int size();
+
+    /** True once the segment takes no more entries and all of them are indexed. */
+    abstract boolean isComplete();
+
+    abstract Transaction get(int local);
+
+    /** Earliest timestamp in the segment (epoch millis), Long.MAX_VALUE if empty. */
+    abstract long getMinTime();
+
+    /** Latest timestamp in the segment (epoch millis), Long.MIN_VALUE if empty. */
+    abstract long getMaxTime();
+
+    /** @return null if no transaction in the segment has this source */
+    abstract Positions sourceIndex(String account);
+
+    abstract Positions destinationIndex(String account);
+
+    abstract Positions statusIndex(TransactionStatus status);
+
+    abstract long blockMax(int block);
+
+    abstract long blockMin(int block);
+
+    /**
+     * Adds this segment's matches among global positions [lo, hi) to
+     * {@code out}, in the query's order, until it is full.
+     */
+    final void query(TransactionQuery q, long lo, long hi, Collector out) {
+        int n = size(); // Indexes are complete up to here
+        int l = (int) Math.max(0, lo - base);
+        int h = (int) Math.min(n, hi - base);
+        int blocks = (n + TIME_BLOCK - 1) >>> TIME_BLOCK_SHIFT;
+        if (q.getFrom() != null) // Earlier blocks end before 'from'
+            l = Math.max(l, firstBlock(blocks, q.getFrom().toEpochMilli(), true) << TIME_BLOCK_SHIFT);
+        if (q.getTo() != null) // Blocks from here on start after the millisecond 'to' falls in
+            h = Math.min(h, firstBlock(blocks, q.getTo().toEpochMilli(), false) << TIME_BLOCK_SHIFT);
+        if (l >= h)
+            return;
+
+        // Walk the index with the fewest entries in [l, h); the others are checked per entry
+        Positions first = null;
+        Positions second = null;
+        long best = Long.MAX_VALUE;
+        boolean indexed = false;
+        if (q.getSource() != null) {
+            Positions p = sourceIndex(q.getSource());
+            long c = count(p, l, h);
+            if (c < best) {
+                best = c;
+                first = p;
+                second = null;
+            }
+            indexed = true;
+        }
+        if (q.getDestination() != null) {
+            Positions p = destinationIndex(q.getDestination());
+            long c = count(p, l, h);
+            if (c < best) {
+                best = c;
+                first = p;
+                second = null;
+            }
+            indexed = true;
+        }
+        if (q.getStatus() != null) {
+            Positions p = statusIndex(q.getStatus());
+            long c = count(p, l, h);
+            if (c < best) {
+                best = c;
+                first = p;
+                second = null;
+            }
+            indexed = true;
+        }
+        if (q.getAccount() != null) {
+            Positions s = sourceIndex(q.getAccount());
+            Positions d = destinationIndex(q.getAccount());
+            long c = count(s, l, h) + count(d, l, h);
+            if (c < best) {
+                best = c;
+                first = s;
+                second = d;
+            }
+            indexed = true;
+        }
+        if (indexed && best == 0)
+            return;
+
+        PositionWalk walk = indexed ? new PositionWalk(first, second, l, h, q.isNewestFirst())
+                : new PositionWalk(l, h, q.isNewestFirst());
+        int p;
+        while ((p = walk.next()) >= 0) {
+            out.scanned++;
+            Transaction tx = get(p);
+            if (matches(q, tx) && out.add(tx, base + p))
+                return;
+        }
+    }
+
+    // First block whose blockMax is >= key (atLeast) or whose blockMin is > key
+    private int firstBlock(int blocks, long key, boolean atLeast) {
+        int lo = 0;
+        int hi = blocks;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (atLeast ? blockMax(mid) < key : blockMin(mid) <= key)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private static long count(Positions list, int lo, int hi) {
+        if (list == null)
+            return 0;
+        int n = list.size();
+        return list.lowerBound(hi, n) - list.lowerBound(lo, n);
+    }
+
+    static boolean matches(TransactionQuery q, Transaction tx) {
+        if (q.getSource() != null && !q.getSource().equals(tx.getSourceAccount()))
+            return false;
+        if (q.getDestination() != null && !q.getDestination().equals(tx.getDestinationAccount()))
+            return false;
+        if (q.getAccount() != null && !q.getAccount().equals(tx.getSourceAccount())
+                && !q.getAccount().equals(tx.getDestinationAccount()))
+            return false;
+        if (q.getStatus() != null && q.getStatus() != tx.getStatus())
+            return false;
+        if (q.getFrom() != null && tx.getTimestamp().isBefore(q.getFrom()))
+            return false;
+        return q.getTo() == null || tx.getTimestamp().isBefore(q.getTo());
+    }
+
+    /** One page being filled across segments. */
+    static final class Collector {
+        final List<Transaction> items;
+        final List<Long> positions;
+        final int limit;
+        int scanned;
+
+        Collector(int limit) {
+            this.limit = limit;
+            this.items = new ArrayList<>(Math.min(limit, 1024));
+            this.positions = new ArrayList<>(Math.min(limit, 1024));
+        }
+
+        /** @return true once the page is full */
+        boolean add(Transaction tx, long position) {
+            items.add(tx);
+            positions.add(position);
+            return isFull();
+        }
+
+        boolean isFull() {
+            return items.size() >= limit;
+        }
+    }
+
+    /**
+     * Positions in [lo, hi), in either direction: every one, or those of one
+     * index list, or the merge of two (an account as source and as
+     * destination; a self-transfer appears in both and is returned once).
+     */
+    private static final class PositionWalk {
+        private final Positions first;
+        private final Positions second;
+        private final boolean descending;
+        private final int step;
+        private int i;
+        private final int iEnd;
+        private int j;
+        private final int jEnd;
+
+        // Every position
+        PositionWalk(int lo, int hi, boolean descending) {
+            this.first = null;
+            this.second = null;
+            this.descending = descending;
+            this.step = descending ? -1 : 1;
+            this.i = descending ? hi - 1 : lo;
+            this.iEnd = descending ? lo - 1 : hi;
+            this.j = 0;
+            this.jEnd = 0;
+        }
+
+        PositionWalk(Positions first, Positions second, int lo, int hi, boolean descending) {
+            this.first = first;
+            this.second = second;
+            this.descending = descending;
+            this.step = descending ? -1 : 1;
+            int fn = first == null ? 0 : first.size();
+            int fLo = first == null ? 0 : first.lowerBound(lo, fn);
+            int fHi = first == null ? 0 : first.lowerBound(hi, fn);
+            int sn = second == null ? 0 : second.size();
+            int sLo = second == null ? 0 : second.lowerBound(lo, sn);
+            int sHi = second == null ? 0 : second.lowerBound(hi, sn);
+            this.i = descending ? fHi - 1 : fLo;
+            this.iEnd = descending ? fLo - 1 : fHi;
+            this.j = descending ? sHi - 1 : sLo;
+            this.jEnd = descending ? sLo - 1 : sHi;
+        }
+
+        /** @return the next position, or -1 when the walk is done */
+        int next() {
+            if (first == null && second == null) {
+                if (i == iEnd)
+                    return -1;
+                int p = i;
+                i += step;
+                return p;
+            }
+            int a = i != iEnd ? first.get(i) : -1;
+            int b = j != jEnd ? second.get(j) : -1;
+            if (a < 0 && b < 0)
+                return -1;
+            if (b < 0 || (a >= 0 && (descending ? a > b : a < b))) {
+                i += step;
+                return a;
+            }
+            if (a == b)
+                i += step; // Same transaction in both lists
+            j += step;
+            return b;
+        }
+    }
+}
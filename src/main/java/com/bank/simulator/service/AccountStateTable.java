@@ -0,0 +1,92 @@
+package com.bank.simulator.service;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Per-account state for stateful fraud rules, bounded in size.
+ *
+ * Entries remember when they were last used. Once the table is full, adding
+ * an account first sweeps out entries idle for longer than {@code ttlMillis}
+ * (one thread sweeps, the others carry on). If nothing can be evicted the
+ * account is not tracked for that call and {@link #get} returns null, so
+ * memory stays bounded under any number of distinct accounts.
+ *
+ * An update racing with the sweep that removes its entry is lost; that entry
+ * had been idle for a full ttl, so the rule loses at most one observation.
+ */
+class AccountStateTable<S extends AccountStateTable.State> {
+
+    abstract static class State {
+        volatile long lastUsedMillis;
+    }
+
+    private final ConcurrentHashMap<String, S> states = new ConcurrentHashMap<>();
+    private final Function<String, S> factory;
+    private final int maxAccounts;
+    private final long ttlMillis;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private final LongAdder untracked = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    AccountStateTable(int maxAccounts, long ttlMillis, Function<String, S> factory) {
+        this.maxAccounts = maxAccounts;
+        this.ttlMillis = ttlMillis;
+        this.factory = factory;
+    }
+
+    /**
+     * @return the account's state, created if needed, or null if the table is
+     *         full of live entries
+     */
+    S get(String accountNumber, long nowMillis) {
+        S state = states.get(accountNumber);
+        if (state == null) {
+            if (states.size() >= maxAccounts && !sweep(nowMillis)) {
+                untracked.increment();
+                return null;
+            }
+            state = states.computeIfAbsent(accountNumber, factory);
+        }
+        // Hot accounts are used many times per millisecond; skip redundant writes
+        if (state.lastUsedMillis != nowMillis)
+            state.lastUsedMillis = nowMillis;
+        return state;
+    }
+
+    // true if there is room afterwards
+    private boolean sweep(long nowMillis) {
+        if (!sweepLock.tryLock())
+            return false;
+        try {
+            if (states.size() < maxAccounts)
+                return true; // Another thread swept first
+            int removed = 0;
+            for (Iterator<S> it = states.values().iterator(); it.hasNext();) {
+                if (nowMillis - it.next().lastUsedMillis > ttlMillis) {
+                    it.remove();
+                    removed++;
+                }
+            }
+            evicted.add(removed);
+            return states.size() < maxAccounts;
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    int size() {
+        return states.size();
+    }
+
+    long getUntracked() {
+        return untracked.sum();
+    }
+
+    long getEvicted() {
+        return evicted.sum();
+    }
+}
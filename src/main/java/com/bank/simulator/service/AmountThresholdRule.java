@@ -0,0 +1,30 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import java.math.BigDecimal;
+
+/**
+ * Rejects any single transfer above a fixed amount.
+ */
+public class AmountThresholdRule implements FraudRule {
+
+    private final BigDecimal threshold;
+
+    public AmountThresholdRule(BigDecimal threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "amount-threshold";
+    }
+
+    @Override
+    public boolean isViolated(Account source, Account destination, BigDecimal amount, long nowMillis) {
+        return amount.compareTo(threshold) > 0;
+    }
+
+    public BigDecimal getThreshold() {
+        return threshold;
+    }
+}
@@ -1,26 +1,285 @@
 package com.bank.simulator.service;
 
 import com.bank.simulator.model.Transaction;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Asynchronous audit log. Transfers hand their transaction to a bounded ring
+ * buffer and return; one writer thread drains it in batches, formats a batch
+ * into a single buffer and hands it to the {@link AuditSink} in one write.
+ *
+ * What happens when the writer falls behind and the ring is full is the
+ * {@link OverflowPolicy}. Nothing here can grow without bound, unlike the
+ * executor queue this replaced.
+ */
 public class AuditService {
 
-    private final ExecutorService auditExecutor = Executors.newSingleThreadExecutor();
+    public enum OverflowPolicy {
+        /** The transfer thread waits for room: nothing is lost, transfers slow down. */
+        BLOCK,
+        /** The entry is discarded and counted in {@link #getDropped()}. */
+        DROP,
+        /** The transfer thread appends the entry to a spill file itself. */
+        SPILL
+    }
+
+    public static final int DEFAULT_CAPACITY = 65536;
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+    static final String SPILL_FILE = "audit-spill.log";
+    static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final MpscRingBuffer<Transaction> ring;
+    private final AuditSink sink;
+    private final OverflowPolicy overflow;
+    private final Path spillFile;
+    private final Object spillLock = new Object();
+    private FileChannel spillChannel; // Opened on first spill, guarded by spillLock
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    private volatile long logged; // Written by the writer thread only
+    private volatile long batches;
+    private volatile long failed;
+    private volatile long lastWrittenMillis; // Timestamp of the newest transaction written
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+
+    /** Console audit log, dropping entries when it falls behind. */
+    public AuditService() {
+        this(AuditSink.console(), DEFAULT_CAPACITY, OverflowPolicy.DROP, null);
+    }
+
+    /**
+     * @param spillFile where {@link OverflowPolicy#SPILL} appends entries the
+     *                  ring had no room for; ignored by the other policies
+     */
+    public AuditService(AuditSink sink, int capacity, OverflowPolicy overflow, Path spillFile) {
+        if (overflow == OverflowPolicy.SPILL && spillFile == null)
+            throw new IllegalArgumentException("Audit overflow policy SPILL needs a spill file");
+        this.ring = new MpscRingBuffer<>(capacity);
+        this.sink = sink;
+        this.overflow = overflow;
+        this.spillFile = spillFile;
+        this.writerThread = new Thread(this::writeLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Builds the audit log from {@code bank.audit.*} properties.
+     * <ul>
+     * <li>bank.audit: file or console (default file)</li>
+     * <li>bank.audit.dir: directory of the rotated files (default audit)</li>
+     * <li>bank.audit.maxBytes: file size that triggers rotation (default 64 MB)</li>
+     * <li>bank.audit.rotate: file age in seconds that triggers rotation (default
+     * 0, size only)</li>
+     * <li>bank.audit.fsync: never, batch or interval (default interval)</li>
+     * <li>bank.audit.fsync.interval: milliseconds between forces for interval
+     * (default 1000)</li>
+     * <li>bank.audit.capacity: entries the queue holds (default 65536)</li>
+     * <li>bank.audit.overflow: block, drop or spill when it is full (default
+     * block for files, drop for the console); spill appends to
+     * audit-spill.log in the audit directory</li>
+     * </ul>
+     *
+     * @throws IOException if the audit directory cannot be opened
+     */
+    public static AuditService configured(Properties props) throws IOException {
+        int capacity = Integer.parseInt(props.getProperty("bank.audit.capacity", String.valueOf(DEFAULT_CAPACITY)));
+        if ("console".equalsIgnoreCase(props.getProperty("bank.audit", "file"))) {
+            OverflowPolicy overflow = OverflowPolicy.valueOf(props.getProperty("bank.audit.overflow", "drop")
+                    .toUpperCase());
+            return new AuditService(AuditSink.console(), capacity, overflow, null);
+        }
+        OverflowPolicy overflow = OverflowPolicy.valueOf(props.getProperty("bank.audit.overflow", "block")
+                .toUpperCase());
+        RotatingFileAuditSink.FsyncPolicy fsync = RotatingFileAuditSink.FsyncPolicy
+                .valueOf(props.getProperty("bank.audit.fsync", "interval").toUpperCase());
+        Path dir = Paths.get(props.getProperty("bank.audit.dir", "audit"));
+        RotatingFileAuditSink sink = new RotatingFileAuditSink(dir,
+                Long.parseLong(props.getProperty("bank.audit.maxBytes", String.valueOf(DEFAULT_MAX_FILE_BYTES))),
+                Long.parseLong(props.getProperty("bank.audit.rotate", "0")) * 1000, fsync,
+                Long.parseLong(props.getProperty("bank.audit.fsync.interval",
+                        String.valueOf(DEFAULT_FSYNC_INTERVAL_MILLIS))));
+        System.out.println(">> Audit log: " + sink.getActiveFile() + " (fsync " + fsync.name().toLowerCase()
+                + ", overflow " + overflow.name().toLowerCase() + ")");
+        return new AuditService(sink, capacity, overflow, dir.resolve(SPILL_FILE));
+    }
 
     public void logTransaction(Transaction transaction) {
-        auditExecutor.submit(() -> {
-            // Simulate I/O latency
+        if (!running) {
+            dropped.increment();
+            return;
+        }
+        if (!ring.offer(transaction)) {
+            switch (overflow) {
+                case BLOCK:
+                    blocked.increment();
+                    while (!ring.offer(transaction)) {
+                        if (!running) {
+                            dropped.increment();
+                            return;
+                        }
+                        LockSupport.unpark(writerThread);
+                        LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    }
+                    break;
+                case SPILL:
+                    spill(transaction);
+                    return;
+                default:
+                    dropped.increment();
+                    return;
+            }
+        }
+        if (parked)
+            LockSupport.unpark(writerThread);
+    }
+
+    private void spill(Transaction transaction) {
+        ByteBuffer line = ByteBuffer.wrap(format(new StringBuilder(160), transaction).toString()
+                .getBytes(StandardCharsets.UTF_8));
+        synchronized (spillLock) {
+            try {
+                if (spillChannel == null)
+                    spillChannel = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                            StandardOpenOption.APPEND);
+                while (line.hasRemaining())
+                    spillChannel.write(line);
+                spilled.increment();
+            } catch (IOException e) {
+                dropped.increment();
+            }
+        }
+    }
+
+    private static StringBuilder format(StringBuilder sb, Transaction transaction) {
+        return sb.append("[AUDIT] ").append(transaction.getTimestamp()).append(' ').append(transaction).append('\n');
+    }
+
+    private void writeLoop() {
+        StringBuilder sb = new StringBuilder(MAX_BATCH * 160);
+        while (running || !ring.isEmpty()) {
+            sb.setLength(0);
+            int n = 0;
+            long newest = 0;
+            Transaction tx;
+            while (n < MAX_BATCH && (tx = ring.poll()) != null) {
+                format(sb, tx);
+                newest = Math.max(newest, tx.getTimestampMillis());
+                n++;
+            }
+            if (n == 0) {
+                parked = true;
+                // Re-check after publishing 'parked' so a concurrent offer cannot be missed
+                if (ring.isEmpty() && running)
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                parked = false;
+                continue;
+            }
             try {
-                // Thread.sleep(10);
-                System.out.println("[AUDIT] Logged: " + transaction);
-            } catch (Exception e) {
-                System.err.println("Audit log failed: " + e.getMessage());
+                sink.write(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)));
+                logged += n;
+            } catch (IOException e) {
+                failed += n;
+                System.err.println("[AUDIT] Write failed, " + n + " entries lost: " + e.getMessage());
             }
-        });
+            batches++;
+            lastWrittenMillis = newest;
+        }
     }
 
+    /**
+     * Audit entries submitted but not yet written: how far the audit log is behind.
+     */
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    /**
+     * Age of the newest entry written when more are still queued, 0 when the
+     * writer has caught up.
+     */
+    public long getLagMillis() {
+        if (ring.isEmpty() || lastWrittenMillis == 0)
+            return 0;
+        return Math.max(0, System.currentTimeMillis() - lastWrittenMillis);
+    }
+
+    public long getLogged() {
+        return logged;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    /** Entries whose transfer thread had to wait for room (BLOCK policy). */
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public int getCapacity() {
+        return ring.capacity();
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflow;
+    }
+
+    /**
+     * Writes everything already queued, then closes the sink and spill file.
+     */
     public void shutdown() {
-        auditExecutor.shutdown();
+        synchronized (this) {
+            if (!running)
+                return;
+            running = false;
+        }
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+            synchronized (spillLock) {
+                if (spillChannel != null) {
+                    spillChannel.force(false);
+                    spillChannel.close();
+                    spillChannel = null;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[AUDIT] Failed to close audit log: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,36 @@
+package com.bank.simulator.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Destination of the audit writer's batches. Called from the single audit
+ * writer thread only.
+ */
+public interface AuditSink {
+
+    /**
+     * Writes one batch of complete, newline-terminated audit lines. The
+     * buffer is reused after the call returns.
+     */
+    void write(ByteBuffer batch) throws IOException;
+
+    /** Flushes and releases the sink; called once the queue has drained. */
+    void close() throws IOException;
+
+    /** Lines on stdout, one console write per batch rather than per line. */
+    static AuditSink console() {
+        return new AuditSink() {
+            @Override
+            public void write(ByteBuffer batch) {
+                System.out.write(batch.array(), batch.arrayOffset() + batch.position(), batch.remaining());
+                System.out.flush();
+            }
+
+            @Override
+            public void close() {
+                System.out.flush();
+            }
+        };
+    }
+}
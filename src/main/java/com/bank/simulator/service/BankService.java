@@ -2,10 +2,21 @@ package com.bank.simulator.service;
 
 import com.bank.simulator.exception.InsufficientFundsException;
 import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.FixedPointAccount;
 import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.model.TransferRequest;
 import com.bank.simulator.repository.AccountRepository;
 import com.bank.simulator.repository.TransactionRepository;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
@@ -15,90 +26,645 @@ public class BankService {
     private final AccountRepository accountRepository;
     private final FraudDetectionService fraudDetectionService;
     private final AuditService auditService;
+    private final JournalService journalService;
+    private final AccountFactory accountFactory;
+    private final ShardedTransferEngine transferEngine; // null = classic two-lock transfers
+    private final TransferStats stats = new TransferStats();
+    private volatile TransferGraphAnalyzer graphAnalyzer; // null = no ring detection
+    private volatile HotAccountStriper hotAccountStriper; // null = accounts are never striped
+    private BatchPostingRunner batchPostingRunner; // Created on first use
+
+    private static final int ENGINE_RING_CAPACITY = 16384;
 
     // Default constructor for simplicity in main
     public BankService() {
-        this.transactionRepository = new TransactionRepository();
-        this.accountRepository = new AccountRepository();
+        this(AccountFactory.decimal());
+    }
+
+    public BankService(AccountFactory accountFactory) {
+        this(accountFactory, 0);
+    }
+
+    /**
+     * @param transferShards number of single-writer shards for transfers, 0 to
+     *                       keep the lock-based transfer path
+     */
+    public BankService(AccountFactory accountFactory, int transferShards) {
+        this(accountFactory, transferShards, new AuditService());
+    }
+
+    public BankService(AccountFactory accountFactory, int transferShards, AuditService auditService) {
+        this(accountFactory, transferShards, auditService, new TransactionRepository());
+    }
+
+    public BankService(AccountFactory accountFactory, int transferShards, AuditService auditService,
+            TransactionRepository transactionRepository) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = AccountRepository.forFactory(accountFactory);
         this.fraudDetectionService = new FraudDetectionService();
-        this.auditService = new AuditService();
+        this.auditService = auditService;
+        this.accountFactory = accountFactory;
+        this.journalService = new JournalService(accountFactory);
+        this.transferEngine = transferShards > 0
+                ? new ShardedTransferEngine(transferShards, ENGINE_RING_CAPACITY, transactionRepository,
+                        journalService, auditService)
+                : null;
+        if (transferEngine != null)
+            transferEngine.start();
     }
 
     // Dependency injection constructor
     public BankService(TransactionRepository repo, AccountRepository accRepo, FraudDetectionService fraud,
             AuditService audit) {
+        this(repo, accRepo, fraud, audit, new JournalService(), AccountFactory.decimal());
+    }
+
+    public BankService(TransactionRepository repo, AccountRepository accRepo, FraudDetectionService fraud,
+            AuditService audit, JournalService journal) {
+        this(repo, accRepo, fraud, audit, journal, AccountFactory.decimal());
+    }
+
+    public BankService(TransactionRepository repo, AccountRepository accRepo, FraudDetectionService fraud,
+            AuditService audit, JournalService journal, AccountFactory accountFactory) {
+        this(repo, accRepo, fraud, audit, journal, accountFactory, null);
+    }
+
+    public BankService(TransactionRepository repo, AccountRepository accRepo, FraudDetectionService fraud,
+            AuditService audit, JournalService journal, AccountFactory accountFactory,
+            ShardedTransferEngine transferEngine) {
         this.transactionRepository = repo;
         this.accountRepository = accRepo;
         this.fraudDetectionService = fraud;
         this.auditService = audit;
+        this.journalService = journal;
+        this.accountFactory = accountFactory;
+        this.transferEngine = transferEngine;
+    }
+
+    public void openAccount(Account account) {
+        account.setLastLsn(journalService.nextLsn());
+        // Journal first: no transfer can touch the account until it is in the repository
+        journalService.logAccountOpened(account, account.getLastLsn());
+        accountRepository.save(account);
+        journalService.markChanged(account);
+    }
+
+    public void grantLoan(Account account, BigDecimal amount) {
+        // Cash and debt change under one write lock so the journaled loan is atomic
+        Lock lock = account.getLock().writeLock();
+        long lsn;
+        lock.lock();
+        try {
+            account.credit(amount);
+            account.addDebt(amount);
+            lsn = journalService.nextLsn();
+            account.setLastLsn(lsn);
+        } finally {
+            lock.unlock();
+        }
+        journalService.markChanged(account);
+        journalService.logLoan(account.getAccountNumber(), amount, lsn);
     }
 
     public void transfer(Account from, Account to, BigDecimal amount) throws InterruptedException {
-        // 1. Validation
-        if (from.getAccountNumber().equals(to.getAccountNumber())) {
-            throw new IllegalArgumentException("Cannot transfer to same account");
+        if (transferEngine != null) {
+            try {
+                transferAsync(from, to, amount).get();
+            } catch (ExecutionException e) {
+                // Same exceptions as the lock-based path
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+            return;
         }
 
-        // 2. Fraud Check (Pre-lock)
-        if (fraudDetectionService.isFraudulent(from, to, amount)) {
-            Transaction failedTx = new Transaction(from.getAccountNumber(), to.getAccountNumber(), amount);
-            failedTx.markFraud();
-            transactionRepository.save(failedTx);
-            auditService.logTransaction(failedTx);
-            throw new SecurityException("Transaction rejected by fraud detection");
+        long start = stats.start();
+        try {
+            precheck(from, to, amount);
+            TransferResult result = transferLocked(
+                    new Transaction(from.getAccountNumber(), to.getAccountNumber(), amount), from, to, amount,
+                    start != 0);
+            if (result != TransferResult.SUCCESS)
+                throw declined(result, from);
+        } finally {
+            stats.recordTransfer(start);
         }
+    }
 
-        Transaction transaction = new Transaction(
-                from.getAccountNumber(),
-                to.getAccountNumber(),
-                amount);
+    /**
+     * Same as {@link #transfer}, except that declines (insufficient funds, a
+     * fraud rule, a lock timeout) are returned rather than thrown, so callers
+     * for whom they are routine pay for no exception or message. Invalid
+     * requests (same account, amount not representable in the ledger) still
+     * throw IllegalArgumentException.
+     */
+    public TransferResult tryTransfer(Account from, Account to, BigDecimal amount) throws InterruptedException {
+        if (transferEngine != null) {
+            try {
+                transferAsync(from, to, amount).get();
+                return TransferResult.SUCCESS;
+            } catch (ExecutionException e) {
+                return resultOf(e.getCause());
+            }
+        }
+
+        long start = stats.start();
+        try {
+            if (screen(from, to, amount) != null)
+                return TransferResult.REJECTED_FRAUD;
+            return transferLocked(new Transaction(from.getAccountNumber(), to.getAccountNumber(), amount), from,
+                    to, amount, start != 0);
+        } finally {
+            stats.recordTransfer(start);
+        }
+    }
+
+    // Engine failures that are declines, back to codes; anything else is rethrown
+    private static TransferResult resultOf(Throwable failure) {
+        if (failure instanceof InsufficientFundsException)
+            return TransferResult.INSUFFICIENT_FUNDS;
+        if (failure instanceof SecurityException)
+            return TransferResult.REJECTED_FRAUD;
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        throw new RuntimeException(failure);
+    }
+
+    // The exception transfer() has always thrown for a decline transferLocked returned
+    private static RuntimeException declined(TransferResult result, Account from) {
+        if (result == TransferResult.INSUFFICIENT_FUNDS)
+            return from.insufficientFunds();
+        return new RuntimeException("Could not acquire locks - system busy or potential deadlock avoided");
+    }
+
+    // Classic path: both write locks, ordered, with tryLock timeouts. Declines
+    // are result codes; the transaction is recorded either way
+    private TransferResult transferLocked(Transaction transaction, Account from, Account to, BigDecimal amount,
+            boolean timed) throws InterruptedException {
+        // Fixed-point ledger: convert once at the edge, then the critical section
+        // is pure long arithmetic
+        boolean fixedPoint = from instanceof FixedPointAccount && to instanceof FixedPointAccount
+                && ((FixedPointAccount) from).getScale() == ((FixedPointAccount) to).getScale();
+        long units = 0;
+        if (fixedPoint) {
+            try {
+                units = ((FixedPointAccount) from).toUnits(amount);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Amount not representable in the ledger: " + amount);
+            }
+        }
 
         // 3. Lock Ordering to avoid Deadlock (Classic strategy)
         // Even with ReadWriteLock, we need the WRITE lock for both accounts to transfer
-        Account firstLock = from.getAccountNumber().compareTo(to.getAccountNumber()) < 0 ? from : to;
+        Account firstLock = Account.LOCK_ORDER.compare(from, to) < 0 ? from : to;
         Account secondLock = firstLock == from ? to : from;
 
-        Lock lock1 = firstLock.getRwLock().writeLock();
-        Lock lock2 = secondLock.getRwLock().writeLock();
+        Lock lock1 = firstLock.getLock().writeLock();
+        Lock lock2 = secondLock.getLock().writeLock();
 
         // Advanced: Try-Lock with timeout to fail gracefully instead of waiting forever
         boolean locked1 = false;
         boolean locked2 = false;
+        int leg1 = Account.NO_STRIPE; // A stripe of a striped (hot) account, else the write lock
+        int leg2 = Account.NO_STRIPE;
+        long lsn = 0;
+        int change = -1; // Open from the LSN to the save, see JournalService#awaitChanges
+        long acquiredAt = 0;
+        TransferResult result;
 
         try {
-            locked1 = lock1.tryLock(1, TimeUnit.SECONDS);
-            locked2 = lock2.tryLock(1, TimeUnit.SECONDS);
+            long waitStart = timed ? System.nanoTime() : 0;
+            leg1 = acquireLeg(firstLock, lock1, firstLock == from ? amount : null);
+            locked1 = leg1 != Account.STRIPE_TIMEOUT;
+            leg2 = acquireLeg(secondLock, lock2, secondLock == from ? amount : null);
+            locked2 = leg2 != Account.STRIPE_TIMEOUT;
+            if (timed) {
+                acquiredAt = System.nanoTime();
+                stats.recordLockWait(acquiredAt - waitStart);
+            }
 
             if (locked1 && locked2) {
                 // Critical Section
+                int fromLeg = firstLock == from ? leg1 : leg2;
+                int toLeg = firstLock == from ? leg2 : leg1;
                 try {
-                    from.debit(amount);
-                    to.credit(amount);
-                    transaction.markSuccess();
+                    boolean debited = true; // A stripe leg only gets a stripe that covers the debit
+                    if (fromLeg >= 0)
+                        from.debitStripe(fromLeg, amount);
+                    else if (fixedPoint)
+                        debited = ((FixedPointAccount) from).tryDebitUnits(units);
+                    else
+                        debited = from.tryDebit(amount);
+                    if (!debited) {
+                        transaction.markRolledBack();
+                        result = TransferResult.INSUFFICIENT_FUNDS;
+                    } else {
+                        if (toLeg >= 0)
+                            to.creditStripe(toLeg, amount);
+                        else if (fixedPoint)
+                            ((FixedPointAccount) to).creditUnits(units);
+                        else
+                            to.credit(amount);
+                        transaction.markSuccess();
+
+                        // Stamp both accounts in the same critical section (fuzzy checkpoints rely on it)
+                        change = journalService.beginChange();
+                        lsn = journalService.nextLsn();
+                        if (fromLeg >= 0)
+                            from.stampStripe(lsn);
+                        else
+                            from.setLastLsn(lsn);
+                        if (toLeg >= 0)
+                            to.stampStripe(lsn);
+                        else
+                            to.setLastLsn(lsn);
+                        result = TransferResult.SUCCESS;
+                    }
                 } catch (Exception ex) {
                     transaction.markRolledBack();
                     throw ex; // Rethrow to notify caller
                 }
             } else {
                 transaction.markRolledBack();
-                throw new RuntimeException("Could not acquire locks - system busy or potential deadlock avoided");
+                stats.recordLockTimeout();
+                result = TransferResult.LOCK_TIMEOUT;
             }
         } finally {
+            if (acquiredAt != 0 && locked1 && locked2)
+                stats.recordCriticalSection(System.nanoTime() - acquiredAt);
             if (locked2)
-                lock2.unlock();
+                release(secondLock, lock2, leg2);
             if (locked1)
-                lock1.unlock();
+                release(firstLock, lock1, leg1);
+            if (lsn != 0) {
+                journalService.markChanged(from);
+                journalService.markChanged(to);
+            }
 
             // 4. Post-Processing
             transactionRepository.save(transaction);
+            if (change >= 0)
+                journalService.endChange(change);
             from.addTransaction(transaction);
             to.addTransaction(transaction);
+            if (lsn != 0)
+                journalService.logTransaction(transaction, lsn);
+            else
+                journalService.logTransaction(transaction);
             auditService.logTransaction(transaction);
+            stats.recordOutcome(transaction.getStatus());
+            TransferGraphAnalyzer graph = graphAnalyzer;
+            if (graph != null)
+                graph.onTransaction(transaction);
+        }
+        return result;
+    }
+
+    /**
+     * One account's side of a transfer: a stripe if the account is striped and
+     * a stripe can serve the leg, else its write lock.
+     *
+     * @return the stripe, NO_STRIPE for the write lock, STRIPE_TIMEOUT if neither was acquired
+     */
+    private int acquireLeg(Account account, Lock lock, BigDecimal debitAmount) throws InterruptedException {
+        if (account.isStriped()) {
+            int stripe = account.tryLockStripe(debitAmount, 1, TimeUnit.SECONDS);
+            if (stripe != Account.NO_STRIPE)
+                return stripe;
+        }
+        return acquire(account, lock) ? Account.NO_STRIPE : Account.STRIPE_TIMEOUT;
+    }
+
+    private static void release(Account account, Lock lock, int leg) {
+        if (leg >= 0)
+            account.unlockStripe(leg);
+        else
+            lock.unlock();
+    }
+
+    // tryLock that records the account when someone else holds or waits for its lock
+    private boolean acquire(Account account, Lock lock) throws InterruptedException {
+        if (!stats.isEnabled() || !TransferStats.isContended(account.getLock()))
+            return lock.tryLock(1, TimeUnit.SECONDS);
+        long waitStart = System.nanoTime(); // Contended: the wait dwarfs the clock reads
+        try {
+            return lock.tryLock(1, TimeUnit.SECONDS);
+        } finally {
+            stats.recordContention(account.getAccountNumber(), System.nanoTime() - waitStart);
+        }
+    }
+
+    /**
+     * Non-blocking transfer. With the sharded engine the transfer is queued on
+     * the source account's shard; otherwise it runs on the calling thread and
+     * the returned future is already complete.
+     */
+    public CompletableFuture<Transaction> transferAsync(Account from, Account to, BigDecimal amount) {
+        long start = stats.start();
+        if (transferEngine == null) {
+            CompletableFuture<Transaction> result = new CompletableFuture<>();
+            try {
+                precheck(from, to, amount);
+                Transaction tx = new Transaction(from.getAccountNumber(), to.getAccountNumber(), amount);
+                TransferResult outcome = transferLocked(tx, from, to, amount, start != 0);
+                if (outcome == TransferResult.SUCCESS)
+                    result.complete(tx);
+                else
+                    result.completeExceptionally(declined(outcome, from));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            stats.recordTransfer(start);
+            return result;
+        }
+        try {
+            precheck(from, to, amount);
+        } catch (RuntimeException e) {
+            stats.recordTransfer(start);
+            CompletableFuture<Transaction> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
         }
+        CompletableFuture<Transaction> future = transferEngine.submit(from, to, amount);
+        TransferGraphAnalyzer graph = graphAnalyzer;
+        if (graph != null)
+            future.thenAccept(graph::onTransaction);
+        if (stats.isEnabled()) {
+            // Shards don't know about stats; observe the outcome when the future completes
+            future.whenComplete((tx, failure) -> {
+                stats.recordTransfer(start);
+                stats.recordOutcome(failure == null ? tx.getStatus() : TransactionStatus.ROLLED_BACK);
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Runs a batch of transfers with one lock cycle per account.
+     *
+     * The whole batch is validated first (unknown accounts, same-account
+     * transfers, non-positive amounts and amounts the fixed-point ledger
+     * cannot represent reject the batch with an IllegalArgumentException
+     * before anything is applied). Each item is then
+     * fraud-checked on its own. Every account the remaining items touch is
+     * write-locked once, in lock order. Items are evaluated in batch
+     * order against running balances, so MIN_BALANCE applies per item exactly
+     * as with individual transfers. Each account then gets a single net
+     * balance change.
+     *
+     * @return one Transaction per item, in request order, with status
+     *         SUCCESS, ROLLED_BACK or REJECTED_FRAUD
+     */
+    public List<Transaction> transferBatch(List<TransferRequest> requests) throws InterruptedException {
+        // 1. Validate the whole batch; every distinct account gets a slot
+        int n = requests.size();
+        int[] src = new int[n];
+        int[] dest = new int[n];
+        Map<String, Integer> slotOf = new HashMap<>();
+        List<Account> slots = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            TransferRequest req = requests.get(i);
+            if (req.getAmount() == null || req.getAmount().signum() <= 0)
+                throw new IllegalArgumentException("Item " + i + ": amount must be positive");
+            if (req.getSourceAccount().equals(req.getDestinationAccount()))
+                throw new IllegalArgumentException("Item " + i + ": cannot transfer to same account");
+            src[i] = slot(req.getSourceAccount(), slotOf, slots, i);
+            dest[i] = slot(req.getDestinationAccount(), slotOf, slots, i);
+            // Same check as transferLocked: the net credit must not fail halfway through the batch
+            representable(slots.get(src[i]), req.getAmount(), i);
+            representable(slots.get(dest[i]), req.getAmount(), i);
+        }
+        int accounts = slots.size();
+
+        // 2. Fraud check per item (pre-lock)
+        Transaction[] results = new Transaction[n];
+        boolean[] rejected = new boolean[n];
+        boolean[] touched = new boolean[accounts];
+        long batchTime = System.currentTimeMillis(); // The batch executes as one step
+        for (int i = 0; i < n; i++) {
+            Account from = slots.get(src[i]);
+            Account to = slots.get(dest[i]);
+            BigDecimal amount = requests.get(i).getAmount();
+            results[i] = new Transaction(from.getAccountNumber(), to.getAccountNumber(), amount, batchTime);
+            if (fraudDetectionService.isFraudulent(from, to, amount)) {
+                results[i].markFraud();
+                rejected[i] = true;
+            } else {
+                touched[src[i]] = true;
+                touched[dest[i]] = true;
+            }
+        }
+
+        // Same lock order as transfer(): Account.LOCK_ORDER
+        List<Integer> lockOrder = new ArrayList<>(accounts);
+        for (int a = 0; a < accounts; a++) {
+            if (touched[a])
+                lockOrder.add(a);
+        }
+        lockOrder.sort((x, y) -> Account.LOCK_ORDER.compare(slots.get(x), slots.get(y)));
+
+        // 3. Lock every account once, evaluate items in order, apply net changes
+        List<Lock> held = new ArrayList<>(lockOrder.size());
+        long[] lsns = new long[n];
+        int change = -1;
+        try {
+            boolean locked = true;
+            for (int a : lockOrder) {
+                Lock lock = slots.get(a).getLock().writeLock();
+                if (!lock.tryLock(1, TimeUnit.SECONDS)) {
+                    locked = false;
+                    stats.recordLockTimeout();
+                    break;
+                }
+                held.add(lock);
+            }
+
+            if (locked) {
+                BigDecimal[] opening = new BigDecimal[accounts];
+                BigDecimal[] running = new BigDecimal[accounts];
+                for (int a : lockOrder) {
+                    opening[a] = slots.get(a).getBalance();
+                    running[a] = opening[a];
+                }
+                long[] lastLsn = new long[accounts];
+                change = journalService.beginChange();
+                for (int i = 0; i < n; i++) {
+                    if (rejected[i])
+                        continue;
+                    BigDecimal amount = requests.get(i).getAmount();
+                    BigDecimal remaining = running[src[i]].subtract(amount);
+                    if (remaining.compareTo(Account.MIN_BALANCE) < 0) {
+                        results[i].markRolledBack(); // Insufficient funds at this point in the batch
+                        continue;
+                    }
+                    running[src[i]] = remaining;
+                    running[dest[i]] = running[dest[i]].add(amount);
+                    results[i].markSuccess();
+                    lsns[i] = journalService.nextLsn();
+                    lastLsn[src[i]] = lsns[i];
+                    lastLsn[dest[i]] = lsns[i];
+                }
+
+                // One balance change per account, stamped with the newest item LSN
+                for (int a : lockOrder) {
+                    if (lastLsn[a] == 0)
+                        continue;
+                    Account acc = slots.get(a);
+                    BigDecimal net = running[a].subtract(opening[a]);
+                    if (net.signum() != 0)
+                        acc.credit(net); // MIN_BALANCE already checked item by item
+                    // credit() may have journaled lazy interest after the item LSNs: never stamp below it,
+                    // or replay would apply that interest a second time
+                    acc.setLastLsn(Math.max(acc.getLastLsn(), lastLsn[a]));
+                    journalService.markChanged(acc);
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    if (!rejected[i])
+                        results[i].markRolledBack();
+                }
+            }
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--)
+                held.get(i).unlock();
+
+            // 4. Post-Processing: one Transaction per item
+            transactionRepository.saveAll(Arrays.asList(results));
+            if (change >= 0)
+                journalService.endChange(change);
+            TransferGraphAnalyzer graph = graphAnalyzer;
+            for (int i = 0; i < n; i++) {
+                Transaction tx = results[i];
+                stats.recordOutcome(tx.getStatus());
+                slots.get(src[i]).addTransaction(tx);
+                slots.get(dest[i]).addTransaction(tx);
+                if (lsns[i] != 0)
+                    journalService.logTransaction(tx, lsns[i]);
+                else
+                    journalService.logTransaction(tx);
+                auditService.logTransaction(tx);
+                if (graph != null)
+                    graph.onTransaction(tx);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private static void representable(Account account, BigDecimal amount, int item) {
+        if (!(account instanceof FixedPointAccount))
+            return;
+        try {
+            ((FixedPointAccount) account).toUnits(amount);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Item " + item + ": amount not representable in the ledger: " + amount);
+        }
+    }
+
+    private int slot(String accountNumber, Map<String, Integer> slotOf, List<Account> slots, int item) {
+        Integer slot = slotOf.get(accountNumber);
+        if (slot == null) {
+            Account acc = accountRepository.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new IllegalArgumentException("Item " + item + ": account not found: "
+                            + accountNumber));
+            slot = slots.size();
+            slots.add(acc);
+            slotOf.put(accountNumber, slot);
+        }
+        return slot;
+    }
+
+    // 1. Validation and 2. Fraud Check (pre-lock, shared by both transfer paths)
+    private void precheck(Account from, Account to, BigDecimal amount) {
+        FraudRule violated = screen(from, to, amount);
+        if (violated != null)
+            throw new SecurityException("Transaction rejected by fraud detection (" + violated.getName() + ")");
+    }
+
+    // The same checks without the exception: the violated rule (already recorded), or null
+    private FraudRule screen(Account from, Account to, BigDecimal amount) {
+        if (from.getAccountNumber().equals(to.getAccountNumber())) {
+            throw new IllegalArgumentException("Cannot transfer to same account");
+        }
+
+        FraudRule violated = fraudDetectionService.evaluate(from, to, amount);
+        if (violated != null) {
+            Transaction failedTx = new Transaction(from.getAccountNumber(), to.getAccountNumber(), amount);
+            failedTx.markFraud();
+            stats.recordOutcome(TransactionStatus.REJECTED_FRAUD);
+            transactionRepository.save(failedTx);
+            journalService.logTransaction(failedTx);
+            auditService.logTransaction(failedTx);
+        }
+        return violated;
     }
 
     public void shutdown() {
+        if (transferEngine != null)
+            transferEngine.shutdown();
+        TransferGraphAnalyzer graph = graphAnalyzer;
+        if (graph != null)
+            graph.shutdown(); // After the engine: analyzes what is still queued
+        HotAccountStriper striper = hotAccountStriper;
+        if (striper != null)
+            striper.shutdown();
         auditService.shutdown();
+        transactionRepository.shutdown(); // Stays readable for the final checkpoint
+    }
+
+    public TransferStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Feeds every completed transfer to the analyzer from now on (null to
+     * stop). The caller starts it; {@link #shutdown()} stops it.
+     */
+    public void setTransferGraphAnalyzer(TransferGraphAnalyzer graphAnalyzer) {
+        this.graphAnalyzer = graphAnalyzer;
+    }
+
+    public TransferGraphAnalyzer getTransferGraphAnalyzer() {
+        return graphAnalyzer;
+    }
+
+    /** The caller starts it; {@link #shutdown()} stops it. */
+    public void setHotAccountStriper(HotAccountStriper hotAccountStriper) {
+        this.hotAccountStriper = hotAccountStriper;
+    }
+
+    public HotAccountStriper getHotAccountStriper() {
+        return hotAccountStriper;
+    }
+
+    /** Runner for interest / fee posting jobs over this service's accounts. */
+    public synchronized BatchPostingRunner getBatchPostingRunner() {
+        if (batchPostingRunner == null)
+            batchPostingRunner = new BatchPostingRunner(accountRepository, transactionRepository, journalService);
+        return batchPostingRunner;
+    }
+
+    public FraudDetectionService getFraudDetectionService() {
+        return fraudDetectionService;
+    }
+
+    public AuditService getAuditService() {
+        return auditService;
+    }
+
+    public ShardedTransferEngine getTransferEngine() {
+        return transferEngine;
+    }
+
+    public JournalService getJournalService() {
+        return journalService;
+    }
+
+    public AccountFactory getAccountFactory() {
+        return accountFactory;
     }
 
     public TransactionRepository getTransactionRepository() {
@@ -0,0 +1,440 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Posts a {@link PostingJob} (interest, fees, ...) to every account as real
+ * transactions, in parallel.
+ *
+ * The accounts are sorted by number and cut into chunks; a
+ * {@link ForkJoinPool} splits the chunk range recursively and each leaf posts
+ * one chunk. Every posting is a SUCCESS Transaction between the account and
+ * the rule's system counterparty, journaled as a BATCH_POSTING record under
+ * the account's write lock like any other change.
+ *
+ * Progress of a run lives in {@code bank_batch/<runId>.progress}, one
+ * tab-separated line per event:
+ * <pre>
+ * job      interest
+ * begin    A1000  A1999        chunk started (forced before its first posting)
+ * done     A1000  A1999  1873  chunk's journal records are durable
+ * complete 250113
+ * </pre>
+ * Running the same run id again skips done chunks. Accounts of a chunk that
+ * began but never finished are checked against their transaction history
+ * first: transaction ids are derived from (run, rule, account), so a posting
+ * that made it before the crash is found and not repeated. A completed run is
+ * a no-op.
+ */
+public class BatchPostingRunner {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+    private static final Path DEFAULT_DIR = Paths.get("bank_batch");
+    private static final String PROGRESS_SUFFIX = ".progress";
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final JournalService journalService;
+    private final Path progressDir;
+    private final int parallelism;
+    private final int chunkSize;
+    private volatile Result lastResult;
+    private volatile String activeRun;
+
+    public BatchPostingRunner(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            JournalService journalService) {
+        this(accountRepository, transactionRepository, journalService, DEFAULT_DIR,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public BatchPostingRunner(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            JournalService journalService, Path progressDir, int parallelism, int chunkSize) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.journalService = journalService;
+        this.progressDir = progressDir;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Outcome of one run (or of the part of it done by this call, when it
+     * resumed an interrupted run).
+     */
+    public static final class Result {
+        private final String runId;
+        private final String job;
+        private final boolean resumed;
+        private final int accounts;
+        private final long postings;
+        private final long skipped;
+        private final int chunks;
+        private final long millis;
+
+        Result(String runId, String job, boolean resumed, int accounts, long postings, long skipped, int chunks,
+                long millis) {
+            this.runId = runId;
+            this.job = job;
+            this.resumed = resumed;
+            this.accounts = accounts;
+            this.postings = postings;
+            this.skipped = skipped;
+            this.chunks = chunks;
+            this.millis = millis;
+        }
+
+        public String getRunId() { return runId; }
+        public String getJob() { return job; }
+        public boolean isResumed() { return resumed; }
+        public int getAccounts() { return accounts; }
+        public long getPostings() { return postings; }
+        /** Accounts not processed because an earlier attempt of the run already had. */
+        public long getSkipped() { return skipped; }
+        public int getChunks() { return chunks; }
+        public long getMillis() { return millis; }
+
+        public double getAccountsPerSecond() {
+            return millis == 0 ? accounts : accounts * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("run %s (%s)%s: %,d accounts in %,d chunks, %,d postings, %,d already posted, "
+                    + "%,d ms (%,.0f accounts/s)", runId, job, resumed ? " resumed" : "", accounts, chunks, postings,
+                    skipped, millis, getAccountsPerSecond());
+        }
+    }
+
+    /**
+     * Runs (or resumes) {@code job} under {@code runId}. Runs are serialized.
+     *
+     * @throws IOException          if the progress file cannot be written; the
+     *                              run can be resumed with the same id
+     * @throws InterruptedException if interrupted while waiting for the journal
+     */
+    public synchronized Result run(PostingJob job, String runId) throws IOException, InterruptedException {
+        Files.createDirectories(progressDir);
+        Path file = progressDir.resolve(runId + PROGRESS_SUFFIX);
+        Progress progress = Progress.read(file);
+        if (progress.job != null && !progress.job.equals(job.getName()))
+            throw new IllegalArgumentException("Run " + runId + " belongs to job " + progress.job);
+        if (progress.complete)
+            return new Result(runId, job.getName(), true, 0, 0, 0, 0, 0);
+
+        long start = System.nanoTime();
+        List<Account> accounts = new ArrayList<>(accountRepository.findAll());
+        accounts.sort(Comparator.comparing(Account::getAccountNumber));
+        int chunks = (accounts.size() + chunkSize - 1) / chunkSize;
+        activeRun = runId;
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            Run run = new Run(job, runId, accounts, progress, out);
+            if (progress.job == null)
+                run.record("job\t" + job.getName(), true);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new ChunkTask(run, 0, chunks));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (RunInterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedException("Batch run " + runId + " interrupted");
+            } finally {
+                pool.shutdown();
+            }
+            long postings = progress.postings + run.postings.sum();
+            run.record("complete\t" + postings, true);
+            Result result = new Result(runId, job.getName(), progress.job != null, accounts.size(),
+                    run.postings.sum(), run.skipped.sum(), chunks, (System.nanoTime() - start) / 1_000_000);
+            lastResult = result;
+            return result;
+        } finally {
+            activeRun = null;
+        }
+    }
+
+    /**
+     * Resumes every run left incomplete by a crash, using the job of the same
+     * name. Call after recovery, before new postings are scheduled.
+     */
+    public List<Result> resumeIncomplete(Collection<PostingJob> jobs) throws IOException, InterruptedException {
+        List<Result> results = new ArrayList<>();
+        if (!Files.isDirectory(progressDir))
+            return results;
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(progressDir, "*" + PROGRESS_SUFFIX)) {
+            for (Path f : dir)
+                files.add(f);
+        }
+        files.sort(null);
+        for (Path f : files) {
+            Progress progress = Progress.read(f);
+            if (progress.complete || progress.job == null)
+                continue;
+            String name = f.getFileName().toString();
+            String runId = name.substring(0, name.length() - PROGRESS_SUFFIX.length());
+            for (PostingJob job : jobs) {
+                if (job.getName().equals(progress.job)) {
+                    Result r = run(job, runId);
+                    System.out.println("[BATCH] Resumed " + r);
+                    results.add(r);
+                }
+            }
+        }
+        return results;
+    }
+
+    /** Deletes a run's progress file, e.g. once a periodic run is complete and its id will not recur. */
+    public void forget(String runId) throws IOException {
+        Files.deleteIfExists(progressDir.resolve(runId + PROGRESS_SUFFIX));
+    }
+
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    /** Run id in progress, or null. */
+    public String getActiveRun() {
+        return activeRun;
+    }
+
+    // ------------------------------------------------------------------ run
+
+    private final class Run {
+        final PostingJob job;
+        final String runId;
+        final List<Account> accounts;
+        final Progress progress;
+        final FileChannel out;
+        final LongAdder postings = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+
+        Run(PostingJob job, String runId, List<Account> accounts, Progress progress, FileChannel out) {
+            this.job = job;
+            this.runId = runId;
+            this.accounts = accounts;
+            this.progress = progress;
+            this.out = out;
+        }
+
+        void postChunk(int chunk) throws IOException, InterruptedException {
+            int from = chunk * chunkSize;
+            int to = Math.min(accounts.size(), from + chunkSize);
+            String first = accounts.get(from).getAccountNumber();
+            String last = accounts.get(to - 1).getAccountNumber();
+            record("begin\t" + first + "\t" + last, true);
+            Instant now = Instant.now();
+            long posted = 0;
+            for (int i = from; i < to; i++) {
+                Account account = accounts.get(i);
+                String number = account.getAccountNumber();
+                if (progress.isDone(number)) {
+                    skipped.increment();
+                    continue;
+                }
+                posted += post(account, now, progress.isInterrupted(number));
+            }
+            journalService.sync(); // Durable before the chunk counts as done
+            postings.add(posted);
+            record("done\t" + first + "\t" + last + "\t" + posted, true);
+        }
+
+        private int post(Account account, Instant now, boolean verify) {
+            List<PostingRule> rules = job.getRules();
+            Transaction[] txs = new Transaction[rules.size()];
+            PostingRule.Posting[] applied = new PostingRule.Posting[rules.size()];
+            long[] lsns = new long[rules.size()];
+            Lock lock = account.getLock().writeLock();
+            int change = journalService.beginChange(); // Open until the saves, see JournalService#awaitChanges
+            try {
+                lock.lock();
+                try {
+                    List<Transaction> history = verify ? account.getTransactionHistory() : null;
+                    for (int r = 0; r < rules.size(); r++) {
+                        PostingRule rule = rules.get(r);
+                        String id = postingId(runId, rule, account);
+                        if (history != null && contains(history, id))
+                            continue; // Posted before the crash
+                        PostingRule.Posting p = rule.compute(account);
+                        if (p == null)
+                            continue;
+                        if (p.getBalanceDelta().signum() != 0)
+                            account.credit(p.getBalanceDelta());
+                        if (p.getDebtDelta().signum() != 0)
+                            account.addDebt(p.getDebtDelta());
+                        BigDecimal amount = p.getBalanceDelta().signum() != 0 ? p.getBalanceDelta().abs()
+                                : p.getDebtDelta().abs();
+                        boolean inbound = p.getBalanceDelta().signum() > 0;
+                        Transaction tx = new Transaction(id,
+                                inbound ? rule.getCounterparty() : account.getAccountNumber(),
+                                inbound ? account.getAccountNumber() : rule.getCounterparty(), amount, now);
+                        tx.markSuccess();
+                        lsns[r] = journalService.nextLsn();
+                        account.setLastLsn(lsns[r]);
+                        journalService.markChanged(account);
+                        txs[r] = tx;
+                        applied[r] = p;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                for (int r = 0; r < txs.length; r++) {
+                    if (txs[r] != null)
+                        transactionRepository.save(txs[r]);
+                }
+            } finally {
+                journalService.endChange(change);
+            }
+            int count = 0;
+            for (int r = 0; r < txs.length; r++) {
+                if (txs[r] == null)
+                    continue;
+                account.addTransaction(txs[r]);
+                journalService.logBatchPosting(txs[r], account.getAccountNumber(), applied[r].getBalanceDelta(),
+                        applied[r].getDebtDelta(), lsns[r]);
+                count++;
+            }
+            return count;
+        }
+
+        synchronized void record(String line, boolean force) throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining())
+                out.write(bytes);
+            if (force)
+                out.force(false);
+        }
+    }
+
+    static String postingId(String runId, PostingRule rule, Account account) {
+        return UUID.nameUUIDFromBytes((runId + "/" + rule.getName() + "/" + account.getAccountNumber())
+                .getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static boolean contains(List<Transaction> history, String id) {
+        for (int i = history.size() - 1; i >= 0; i--) { // Recent postings are at the end
+            if (history.get(i).getTransactionId().equals(id))
+                return true;
+        }
+        return false;
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Run run;
+        private final int lo;
+        private final int hi;
+
+        ChunkTask(Run run, int lo, int hi) {
+            this.run = run;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= 1) {
+                if (hi > lo) {
+                    try {
+                        run.postChunk(lo);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        throw new RunInterruptedException();
+                    }
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ChunkTask(run, lo, mid), new ChunkTask(run, mid, hi));
+        }
+    }
+
+    private static final class RunInterruptedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    // ------------------------------------------------------------- progress
+
+    /**
+     * What an earlier attempt of the run got through: chunk key ranges that
+     * are done, and ones that began but never finished.
+     */
+    private static final class Progress {
+        String job;
+        boolean complete;
+        long postings;
+        final TreeMap<String, String> done = new TreeMap<>(); // first -> last account number
+        final TreeMap<String, String> interrupted = new TreeMap<>();
+
+        static Progress read(Path file) throws IOException {
+            Progress p = new Progress();
+            if (!Files.exists(file))
+                return p;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] f = line.split("\t");
+                switch (f[0]) {
+                    case "job":
+                        p.job = f[1];
+                        break;
+                    case "begin":
+                        if (f.length == 3)
+                            p.interrupted.put(f[1], f[2]);
+                        break;
+                    case "done":
+                        if (f.length == 4) { // A torn last line is ignored
+                            p.interrupted.remove(f[1]);
+                            p.done.put(f[1], f[2]);
+                            p.postings += Long.parseLong(f[3]);
+                        }
+                        break;
+                    case "complete":
+                        p.complete = true;
+                        break;
+                    default:
+                        break; // Torn line
+                }
+            }
+            return p;
+        }
+
+        boolean isDone(String accountNumber) {
+            return within(done, accountNumber);
+        }
+
+        boolean isInterrupted(String accountNumber) {
+            return within(interrupted, accountNumber);
+        }
+
+        private static boolean within(TreeMap<String, String> ranges, String accountNumber) {
+            Map.Entry<String, String> e = ranges.floorEntry(accountNumber);
+            return e != null && accountNumber.compareTo(e.getValue()) <= 0;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionIds;
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Compact binary snapshot (bank_data.bin).
+ *
+ * Layout:
+ * <pre>
+ * header   : magic, version, lsn, account/transaction/string counts, section offsets,
+ *            log position of the first transaction
+ * (version 1 files, still readable, have no interest period in the account records)
+ * accounts : fixed-width records (ACCOUNT_BYTES)
+ * txns     : fixed-width records (TXN_BYTES)
+ * strings  : interned account numbers and holder names, [int len][utf8]
+ * </pre>
+ * Account numbers are stored once in the string table and referenced by index,
+ * transaction ids as two longs (a UUID, or 0 and a 64-bit TransactionIds id), timestamps as epoch nanos and amounts as
+ * unscaled long + scale. Because records are fixed width, the account and
+ * transaction sections are split into chunks that are memory-mapped and
+ * decoded in parallel.
+ */
+public class BinarySnapshotCodec extends SnapshotCodec {
+
+    private static final int MAGIC = 0x42414E4B; // "BANK"
+    private static final int VERSION = 2; // 2: accounts carry their interest period
+    private static final int HEADER_BYTES = 64;
+
+    // int acc, int holder, long lsn, long bal, long debt, byte balScale, byte debtScale, short pad, long period
+    private static final int ACCOUNT_BYTES = 44;
+    private static final int ACCOUNT_BYTES_V1 = 36; // Version 1: no period
+    // long idHi, long idLo, int src, int dest, long amt, byte amtScale, byte status, short pad, long nanos
+    private static final int TXN_BYTES = 44;
+
+    private static final int CHUNK_RECORDS = 1 << 16; // Records per mapped chunk / parallel task
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    public BinarySnapshotCodec(AccountFactory accountFactory) {
+        super(accountFactory);
+    }
+
+    @Override
+    public int write(Path target, Collection<Account> accounts, Collection<Transaction> transactions, long lsn,
+            long sinceLsn, long txFrom) throws IOException {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> stringTable = new ArrayList<>();
+        int accountCount = 0;
+        long txnCount = 0;
+
+        try (FileChannel ch = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            ch.position(HEADER_BYTES);
+
+            long accountsOffset = HEADER_BYTES;
+            for (Account a : accounts) {
+                AccountState state = AccountState.capture(a);
+                if (sinceLsn > 0 && state.lsn <= sinceLsn)
+                    continue;
+                ensure(ch, buf, ACCOUNT_BYTES);
+                buf.putInt(intern(a.getAccountNumber(), strings, stringTable));
+                buf.putInt(intern(a.getHolderName(), strings, stringTable));
+                buf.putLong(state.lsn);
+                buf.putLong(unscaled(state.balance));
+                buf.putLong(unscaled(state.debt));
+                buf.put((byte) state.balance.scale());
+                buf.put((byte) state.debt.scale());
+                buf.putShort((short) 0);
+                buf.putLong(state.period);
+                accountCount++;
+            }
+
+            long txnOffset = accountsOffset + (long) accountCount * ACCOUNT_BYTES;
+            for (Transaction t : transactions) {
+                long hi = 0;
+                long lo = t.getId();
+                if (lo == 0) {
+                    UUID id = UUID.fromString(t.getTransactionId());
+                    hi = id.getMostSignificantBits(); // Never 0: the version nibble is set
+                    lo = id.getLeastSignificantBits();
+                }
+                Instant time = t.getTimestamp();
+                ensure(ch, buf, TXN_BYTES);
+                buf.putLong(hi);
+                buf.putLong(lo);
+                buf.putInt(intern(t.getSourceAccount(), strings, stringTable));
+                buf.putInt(intern(t.getDestinationAccount(), strings, stringTable));
+                buf.putLong(unscaled(t.getAmount()));
+                buf.put((byte) t.getAmount().scale());
+                buf.put((byte) t.getStatus().ordinal());
+                buf.putShort((short) 0);
+                buf.putLong(time.getEpochSecond() * 1_000_000_000L + time.getNano());
+                txnCount++;
+            }
+
+            long stringsOffset = txnOffset + txnCount * TXN_BYTES;
+            for (String s : stringTable) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                ensure(ch, buf, 4 + utf8.length);
+                buf.putInt(utf8.length);
+                buf.put(utf8);
+            }
+            flush(ch, buf);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(lsn)
+                    .putInt(accountCount).putLong(txnCount).putInt(stringTable.size())
+                    .putLong(accountsOffset).putLong(txnOffset).putLong(stringsOffset).putLong(txFrom);
+            header.clear();
+            while (header.hasRemaining())
+                ch.write(header, header.position());
+            ch.force(true);
+        }
+        return accountCount;
+    }
+
+    @Override
+    public long read(Path source, AccountRepository accountRepository, TransactionRepository transactionRepository)
+            throws IOException {
+        try (FileChannel ch = FileChannel.open(source, StandardOpenOption.READ)) {
+            MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            int magic = header.getInt();
+            int version = header.getInt();
+            if (magic != MAGIC || version < 1 || version > VERSION)
+                throw new IOException("Not a bank snapshot (bad magic/version): " + source);
+            int accountBytes = version == 1 ? ACCOUNT_BYTES_V1 : ACCOUNT_BYTES;
+            long lsn = header.getLong();
+            int accountCount = header.getInt();
+            long txnCount = header.getLong();
+            int stringCount = header.getInt();
+            long accountsOffset = header.getLong();
+            long txnOffset = header.getLong();
+            long stringsOffset = header.getLong();
+            long txFrom = header.getLong(); // Zero padding in files written before it existed
+            if (txnCount > Integer.MAX_VALUE)
+                throw new IOException("Snapshot has too many transactions for one repository: " + txnCount);
+
+            String[] strings = readStrings(ch, stringsOffset, ch.size() - stringsOffset, stringCount);
+
+            // Accounts: one mapped chunk per task
+            Account[] accounts = new Account[accountCount];
+            parallelChunks(accountCount, (from, to) -> {
+                ByteBuffer b = map(ch, accountsOffset + (long) from * accountBytes, (long) (to - from) * accountBytes);
+                for (int i = from; i < to; i++) {
+                    String accNum = strings[b.getInt()];
+                    String holder = strings[b.getInt()];
+                    long accLsn = b.getLong();
+                    long bal = b.getLong();
+                    long debt = b.getLong();
+                    int balScale = b.get();
+                    int debtScale = b.get();
+                    b.getShort();
+                    long period = version == 1 ? 0 : b.getLong();
+                    accounts[i] = accountFactory.create(accNum, holder, BigDecimal.valueOf(bal, balScale),
+                            BigDecimal.valueOf(debt, debtScale));
+                    accounts[i].setLastLsn(accLsn);
+                    accounts[i].restoreInterestPeriod(period);
+                }
+            });
+
+            transactionRepository.resumeAt(txFrom);
+            for (int i = 0; i < accountCount; i++) {
+                restoreHistory(accounts[i], transactionRepository);
+                accountRepository.save(accounts[i]);
+            }
+
+            // String index -> account, so transactions can be attached to histories
+            Account[] accountByString = new Account[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                accountByString[i] = accountRepository.findByAccountNumber(strings[i]).orElse(null);
+            }
+
+            // Transactions
+            int n = (int) txnCount;
+            Transaction[] txns = new Transaction[n];
+            int[] srcIdx = new int[n];
+            int[] destIdx = new int[n];
+            TransactionStatus[] statuses = TransactionStatus.values();
+            parallelChunks(n, (from, to) -> {
+                ByteBuffer b = map(ch, txnOffset + (long) from * TXN_BYTES, (long) (to - from) * TXN_BYTES);
+                for (int i = from; i < to; i++) {
+                    long hi = b.getLong();
+                    long lo = b.getLong();
+                    int src = b.getInt();
+                    int dest = b.getInt();
+                    long amt = b.getLong();
+                    int amtScale = b.get();
+                    TransactionStatus status = statuses[b.get()];
+                    b.getShort();
+                    long nanos = b.getLong();
+                    txns[i] = new Transaction(hi == 0 ? TransactionIds.format(lo) : new UUID(hi, lo).toString(),
+                            strings[src], strings[dest], BigDecimal.valueOf(amt, amtScale),
+                            Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                                    Math.floorMod(nanos, 1_000_000_000L)),
+                            status);
+                    if (hi == 0)
+                        TransactionIds.issueAfter(lo);
+                    srcIdx[i] = src;
+                    destIdx[i] = dest;
+                }
+            });
+
+            transactionRepository.saveAll(Arrays.asList(txns));
+            // Per-account history must keep log order, so this pass stays sequential
+            for (int i = 0; i < n; i++) {
+                Account from = accountByString[srcIdx[i]];
+                Account to = accountByString[destIdx[i]];
+                if (from != null)
+                    from.addTransaction(txns[i]);
+                if (to != null)
+                    to.addTransaction(txns[i]);
+            }
+            return lsn;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface ChunkDecoder {
+        void decode(int from, int to);
+    }
+
+    private static void parallelChunks(int records, ChunkDecoder decoder) {
+        int chunks = (records + CHUNK_RECORDS - 1) / CHUNK_RECORDS;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * CHUNK_RECORDS;
+            decoder.decode(from, Math.min(records, from + CHUNK_RECORDS));
+        });
+    }
+
+    private static ByteBuffer map(FileChannel ch, long position, long size) {
+        try {
+            return ch.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String[] readStrings(FileChannel ch, long offset, long size, int count) throws IOException {
+        String[] strings = new String[count];
+        ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int len = b.getInt();
+            if (len > scratch.length)
+                scratch = new byte[len];
+            b.get(scratch, 0, len);
+            strings[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int intern(String s, Map<String, Integer> strings, List<String> table) {
+        Integer idx = strings.get(s);
+        if (idx == null) {
+            idx = table.size();
+            strings.put(s, idx);
+            table.add(s);
+        }
+        return idx;
+    }
+
+    // Amounts are stored as unscaled long; anything wider cannot use this format
+    private static long unscaled(BigDecimal value) {
+        if (value.unscaledValue().bitLength() > 63 || value.scale() > Byte.MAX_VALUE || value.scale() < Byte.MIN_VALUE)
+            throw new ArithmeticException("Amount does not fit the binary snapshot format: " + value);
+        return value.unscaledValue().longValue();
+    }
+
+    private static void ensure(FileChannel ch, ByteBuffer buf, int bytes) throws IOException {
+        if (buf.remaining() < bytes)
+            flush(ch, buf);
+        if (buf.remaining() < bytes)
+            throw new IOException("Record larger than write buffer: " + bytes);
+    }
+
+    private static void flush(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining())
+            ch.write(buf);
+        buf.clear();
+    }
+}
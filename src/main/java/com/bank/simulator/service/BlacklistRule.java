@@ -0,0 +1,116 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rejects transfers from or to a blacklisted account.
+ *
+ * Entries are exact account numbers, or prefixes written with a trailing
+ * {@code *} ("BLK*"). The list is an immutable snapshot behind a volatile
+ * field, so a reload swaps it in one write and the check itself never locks:
+ * one hash lookup per side plus a scan of the (short) prefix list.
+ *
+ * File format: one entry per line; blank lines and lines starting with
+ * {@code #} are ignored.
+ */
+public class BlacklistRule implements FraudRule {
+
+    private static final class Entries {
+        final Set<String> accounts;
+        final String[] prefixes;
+
+        Entries(Collection<String> entries) {
+            Set<String> exact = new HashSet<>();
+            List<String> prefixList = new ArrayList<>();
+            for (String entry : entries) {
+                String e = entry.trim();
+                if (e.isEmpty() || e.startsWith("#"))
+                    continue;
+                if (e.endsWith("*"))
+                    prefixList.add(e.substring(0, e.length() - 1));
+                else
+                    exact.add(e);
+            }
+            this.accounts = exact;
+            this.prefixes = prefixList.toArray(new String[0]);
+        }
+
+        int size() {
+            return accounts.size() + prefixes.length;
+        }
+    }
+
+    private final Path file; // null = fixed entries, reload is a no-op
+    private volatile Entries entries;
+
+    public BlacklistRule(Collection<String> entries) {
+        this.file = null;
+        this.entries = new Entries(entries);
+    }
+
+    /**
+     * @throws IOException if the file cannot be read; a missing list is a
+     *                     configuration error, not an empty blacklist
+     */
+    public BlacklistRule(Path file) throws IOException {
+        this.file = file;
+        this.entries = new Entries(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getName() {
+        return "blacklist";
+    }
+
+    @Override
+    public boolean isViolated(Account source, Account destination, BigDecimal amount, long nowMillis) {
+        Entries e = entries;
+        return listed(e, source.getAccountNumber()) || listed(e, destination.getAccountNumber());
+    }
+
+    private static boolean listed(Entries e, String accountNumber) {
+        if (e.accounts.contains(accountNumber))
+            return true;
+        for (String prefix : e.prefixes) {
+            if (accountNumber.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Re-reads the backing file and swaps the new list in. Transfers being
+     * checked concurrently see either the old or the new list. On a read
+     * error the current list stays in place.
+     *
+     * @return number of entries now active
+     */
+    public int reload() throws IOException {
+        if (file != null)
+            entries = new Entries(Files.readAllLines(file, StandardCharsets.UTF_8));
+        return entries.size();
+    }
+
+    /** Replaces the list with the given entries (same syntax as the file). */
+    public void replace(Collection<String> newEntries) {
+        entries = new Entries(newEntries);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,49 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accounts whose balance or debt changed since the last {@link #drain}.
+ * Writers mark an account after changing it; the dashboard stream drains the
+ * set once per tick and sends only those accounts instead of scanning them all.
+ *
+ * Marking is off until a consumer turns it on, so without viewers a write pays
+ * one volatile read. An account marked several times between drains is sent once.
+ */
+public class ChangedAccounts {
+
+    private final Set<Account> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean tracking;
+
+    /** Call after the change is applied, so a drain that sees the mark also sees the new values. */
+    public void mark(Account account) {
+        if (tracking)
+            changed.add(account);
+    }
+
+    public void setTracking(boolean tracking) {
+        this.tracking = tracking;
+        if (!tracking)
+            changed.clear();
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /** Removes and returns the marked accounts; marks racing with the drain are kept for the next one. */
+    public List<Account> drain() {
+        List<Account> accounts = new ArrayList<>();
+        for (Iterator<Account> it = changed.iterator(); it.hasNext();) {
+            accounts.add(it.next());
+            it.remove();
+        }
+        return accounts;
+    }
+}
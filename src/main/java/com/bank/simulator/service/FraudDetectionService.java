@@ -1,26 +1,160 @@
 package com.bank.simulator.service;
 
 import com.bank.simulator.model.Account;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Pre-lock fraud screening: an ordered chain of {@link FraudRule}s, first
+ * violation wins.
+ *
+ * The chain is an immutable array behind a volatile field, so rules can be
+ * swapped at runtime without pausing transfers. Hits are counted per rule
+ * (LongAdder) instead of printed: this runs on every transfer and synchronized
+ * console output would serialize them. Put cheap stateless rules first; later
+ * rules, including stateful ones, are not evaluated once one has fired.
+ */
 public class FraudDetectionService {
 
     // Arbitrary threshold for "suspicious" large transfers
-    private static final BigDecimal FRAUD_THRESHOLD = new BigDecimal("10000");
+    public static final BigDecimal DEFAULT_THRESHOLD = new BigDecimal("10000");
+    public static final String DEFAULT_BLACKLIST = "BLK*";
 
-    public boolean isFraudulent(Account source, Account destination, BigDecimal amount) {
-        // Standard check: amount too large?
-        if (amount.compareTo(FRAUD_THRESHOLD) > 0) {
-            System.err.println("FRAUD DETECTED: Transfer of " + amount + " exceeds threshold.");
-            return true;
+    private static final int DEFAULT_TRACKED_ACCOUNTS = 100_000;
+    private static final long DEFAULT_PAYEE_MEMORY_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private static final class Chain {
+        final FraudRule[] rules;
+        final LongAdder[] hits;
+        final boolean usesClock;
+
+        Chain(List<FraudRule> rules) {
+            this.rules = rules.toArray(new FraudRule[0]);
+            this.hits = new LongAdder[this.rules.length];
+            boolean clock = false;
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] = new LongAdder();
+                clock |= this.rules[i].usesClock();
+            }
+            this.usesClock = clock;
+        }
+    }
+
+    private volatile Chain chain;
+
+    /** Amount threshold and the BLK* blacklist. */
+    public FraudDetectionService() {
+        this(defaultRules());
+    }
+
+    public FraudDetectionService(List<FraudRule> rules) {
+        this.chain = new Chain(rules);
+    }
+
+    public static List<FraudRule> defaultRules() {
+        return Arrays.asList(new AmountThresholdRule(DEFAULT_THRESHOLD),
+                new BlacklistRule(Collections.singletonList(DEFAULT_BLACKLIST)));
+    }
+
+    /**
+     * Builds the rule chain from {@code bank.fraud.*} properties; with none set
+     * this is {@link #defaultRules()}.
+     * <ul>
+     * <li>bank.fraud.threshold: largest single transfer (default 10000)</li>
+     * <li>bank.fraud.blacklist: blacklist file, replacing the built-in BLK*
+     * entry; reloadable</li>
+     * <li>bank.fraud.velocity.count / bank.fraud.velocity.amount: most
+     * transfers / largest total per source account per window (off unless
+     * set)</li>
+     * <li>bank.fraud.velocity.window: window in seconds (default 60)</li>
+     * <li>bank.fraud.newpayee.amount: largest first payment to a new
+     * destination (off unless set)</li>
+     * <li>bank.fraud.tracked: accounts each stateful rule keeps state for
+     * (default 100000)</li>
+     * </ul>
+     *
+     * @throws IOException if the blacklist file cannot be read
+     */
+    public static List<FraudRule> configuredRules(Properties props) throws IOException {
+        List<FraudRule> rules = new ArrayList<>();
+        rules.add(new AmountThresholdRule(
+                new BigDecimal(props.getProperty("bank.fraud.threshold", DEFAULT_THRESHOLD.toPlainString()))));
+        String blacklist = props.getProperty("bank.fraud.blacklist");
+        rules.add(blacklist != null ? new BlacklistRule(Paths.get(blacklist))
+                : new BlacklistRule(Collections.singletonList(DEFAULT_BLACKLIST)));
+
+        int tracked = Integer
+                .parseInt(props.getProperty("bank.fraud.tracked", String.valueOf(DEFAULT_TRACKED_ACCOUNTS)));
+        int maxCount = Integer.parseInt(props.getProperty("bank.fraud.velocity.count", "0"));
+        String maxAmount = props.getProperty("bank.fraud.velocity.amount");
+        if (maxCount > 0 || maxAmount != null) {
+            long windowMillis = Long.parseLong(props.getProperty("bank.fraud.velocity.window", "60")) * 1000;
+            rules.add(new VelocityRule(maxCount, maxAmount != null ? new BigDecimal(maxAmount) : null, windowMillis,
+                    tracked));
         }
+        String newPayeeAmount = props.getProperty("bank.fraud.newpayee.amount");
+        if (newPayeeAmount != null)
+            rules.add(new NewPayeeRule(new BigDecimal(newPayeeAmount), DEFAULT_PAYEE_MEMORY_MILLIS, tracked));
+        return rules;
+    }
 
-        // Check 2: Blacklisted accounts (simple hardcoded example)
-        if (source.getAccountNumber().startsWith("BLK") || destination.getAccountNumber().startsWith("BLK")) {
-            System.err.println("FRAUD DETECTED: Blacklisted account involved.");
-            return true;
+    public boolean isFraudulent(Account source, Account destination, BigDecimal amount) {
+        return evaluate(source, destination, amount) != null;
+    }
+
+    /**
+     * @return the first rule the transfer violates, or null if it is clean
+     */
+    public FraudRule evaluate(Account source, Account destination, BigDecimal amount) {
+        Chain c = chain;
+        long now = c.usesClock ? System.currentTimeMillis() : 0;
+        for (int i = 0; i < c.rules.length; i++) {
+            if (c.rules[i].isViolated(source, destination, amount, now)) {
+                c.hits[i].increment();
+                return c.rules[i];
+            }
         }
+        return null;
+    }
 
-        return false;
+    /** Replaces the whole chain; hit counters start from zero. */
+    public void setRules(List<FraudRule> rules) {
+        chain = new Chain(rules);
+    }
+
+    public List<FraudRule> getRules() {
+        return Collections.unmodifiableList(Arrays.asList(chain.rules));
+    }
+
+    /** Hits per rule name, in chain order. */
+    public Map<String, Long> getRuleHits() {
+        Chain c = chain;
+        Map<String, Long> hits = new LinkedHashMap<>();
+        for (int i = 0; i < c.rules.length; i++)
+            hits.merge(c.rules[i].getName(), c.hits[i].sum(), Long::sum);
+        return hits;
+    }
+
+    /**
+     * Re-reads every file-backed blacklist in the chain.
+     *
+     * @return number of blacklist entries now active
+     */
+    public int reloadBlacklists() throws IOException {
+        int entries = 0;
+        for (FraudRule rule : chain.rules) {
+            if (rule instanceof BlacklistRule)
+                entries += ((BlacklistRule) rule).reload();
+        }
+        return entries;
     }
 }
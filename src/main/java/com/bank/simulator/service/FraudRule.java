@@ -0,0 +1,31 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import java.math.BigDecimal;
+
+/**
+ * One check in the {@link FraudDetectionService} rule chain.
+ *
+ * Rules run before any lock is taken, on every transfer, from many threads at
+ * once: implementations must be thread-safe, must not block and should cost
+ * well under a microsecond. Stateful rules (velocity, payee history) update
+ * their state as part of the check.
+ */
+public interface FraudRule {
+
+    /** Short identifier used in rejection messages and metrics. */
+    String getName();
+
+    /**
+     * @param nowMillis wall-clock time of the evaluation, read once per
+     *                  transfer and shared by every rule in the chain; 0 when
+     *                  no rule in the chain {@linkplain #usesClock uses it}
+     * @return true if the transfer must be rejected
+     */
+    boolean isViolated(Account source, Account destination, BigDecimal amount, long nowMillis);
+
+    /** Whether {@link #isViolated} needs {@code nowMillis}; the clock read is skipped otherwise. */
+    default boolean usesClock() {
+        return false;
+    }
+}
@@ -0,0 +1,241 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionHistory;
+import com.bank.simulator.model.TransactionStatus;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the old chunks of every account's {@link TransactionHistory} on disk
+ * so long histories do not have to stay in memory. Chunks of all accounts
+ * are appended to shared segment files (history-000001.dat, ...); a chunk's
+ * reference is its segment and offset. Only the "history-archiver" thread
+ * writes; pages read chunks back from any thread through a RandomAccessFile,
+ * which, unlike a FileChannel, is not closed when a reading thread is
+ * interrupted.
+ *
+ * The archive is a cache of memory, not a record: history is rebuilt from the
+ * snapshot and journal at startup, so segments left by an earlier run are
+ * deleted when the archive opens.
+ */
+public class HistoryArchive implements TransactionHistory.Archive {
+
+    public static final int DEFAULT_RESIDENT_CHUNKS = 4;
+    public static final long DEFAULT_SEGMENT_BYTES = 256L * 1024 * 1024;
+    private static final String FILE_PREFIX = "history-";
+    private static final String FILE_SUFFIX = ".dat";
+    private static final int OFFSET_BITS = 40; // Segments up to 1 TB
+
+    private final Path dir;
+    private final int residentChunks;
+    private final long maxSegmentBytes;
+    private final Map<Integer, RandomAccessFile> segments = new ConcurrentHashMap<>(); // For reads
+    private final BlockingQueue<TransactionHistory> pending = new LinkedBlockingQueue<>();
+    private final Thread archiverThread;
+    private volatile boolean running = true;
+
+    private int segment; // Written by the archiver thread only
+    private FileChannel out;
+    private long outBytes;
+    private volatile long chunksStored;
+    private volatile long bytesStored;
+    private volatile long failures;
+    private final LongAdder chunksLoaded = new LongAdder();
+
+    public HistoryArchive(Path dir, int residentChunks, long maxSegmentBytes) throws IOException {
+        if (residentChunks < 0)
+            throw new IllegalArgumentException("Resident history chunks cannot be negative");
+        this.dir = dir;
+        this.residentChunks = residentChunks;
+        this.maxSegmentBytes = maxSegmentBytes;
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path f : files)
+                Files.delete(f); // Left by an earlier run, nothing refers to it
+        }
+        openNextSegment();
+        this.archiverThread = new Thread(this::archiveLoop, "history-archiver");
+        archiverThread.setDaemon(true);
+        archiverThread.start();
+    }
+
+    /**
+     * Builds the archive from {@code bank.history.*} properties, or returns
+     * null (all history in memory) unless {@code bank.history.archive} is true.
+     * <ul>
+     * <li>bank.history.resident: full chunks of 256 entries each account keeps in
+     * memory (default 4)</li>
+     * <li>bank.history.dir: directory of the segment files (default bank_history)</li>
+     * </ul>
+     */
+    public static HistoryArchive configured(Properties props) throws IOException {
+        if (!Boolean.parseBoolean(props.getProperty("bank.history.archive", "false")))
+            return null;
+        int resident = Integer.parseInt(props.getProperty("bank.history.resident",
+                String.valueOf(DEFAULT_RESIDENT_CHUNKS)));
+        Path dir = Paths.get(props.getProperty("bank.history.dir", "bank_history"));
+        HistoryArchive archive = new HistoryArchive(dir, resident, DEFAULT_SEGMENT_BYTES);
+        System.out.println(">> History archive: " + dir + " (" + resident + " chunks of "
+                + TransactionHistory.CHUNK_SIZE + " in memory per account)");
+        return archive;
+    }
+
+    @Override
+    public int getResidentChunks() {
+        return residentChunks;
+    }
+
+    @Override
+    public void schedule(TransactionHistory history) {
+        pending.add(history);
+    }
+
+    private void archiveLoop() {
+        while (running) {
+            try {
+                TransactionHistory history = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (history != null)
+                    history.archiveOldChunks();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                failures++;
+                System.err.println("[HISTORY] Archive write failed, chunk kept in memory: " + e.getMessage());
+            }
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        segment++;
+        if (out != null)
+            out.close();
+        Path file = dir.resolve(String.format("%s%06d%s", FILE_PREFIX, segment, FILE_SUFFIX));
+        out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segments.put(segment, new RandomAccessFile(file.toFile(), "r"));
+        outBytes = 0;
+    }
+
+    // Archiver thread only
+    @Override
+    public long store(Transaction[] chunk) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(chunk.length * 96);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(0); // Length, patched below
+        data.writeInt(chunk.length);
+        for (Transaction tx : chunk) {
+            data.writeUTF(tx.getTransactionId());
+            data.writeUTF(tx.getSourceAccount());
+            data.writeUTF(tx.getDestinationAccount());
+            byte[] unscaled = tx.getAmount().unscaledValue().toByteArray();
+            data.writeInt(tx.getAmount().scale());
+            data.writeByte(unscaled.length);
+            data.write(unscaled);
+            data.writeLong(tx.getTimestamp().getEpochSecond());
+            data.writeInt(tx.getTimestamp().getNano());
+            data.writeByte(tx.getStatus().ordinal());
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        buf.putInt(0, buf.remaining() - 4);
+        if (outBytes > 0 && outBytes + buf.remaining() > maxSegmentBytes)
+            openNextSegment();
+        long ref = ((long) segment << OFFSET_BITS) | outBytes;
+        long position = outBytes;
+        while (buf.hasRemaining())
+            position += out.write(buf, position);
+        bytesStored += position - outBytes;
+        outBytes = position;
+        chunksStored++;
+        return ref;
+    }
+
+    @Override
+    public Transaction[] load(long ref) throws IOException {
+        RandomAccessFile file = segments.get((int) (ref >>> OFFSET_BITS));
+        if (file == null)
+            throw new IOException("No history segment for reference " + ref);
+        byte[] payload;
+        synchronized (file) {
+            file.seek(ref & ((1L << OFFSET_BITS) - 1));
+            payload = new byte[file.readInt()];
+            file.readFully(payload);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Transaction[] chunk = new Transaction[in.readInt()];
+        TransactionStatus[] statuses = TransactionStatus.values();
+        for (int i = 0; i < chunk.length; i++) {
+            String id = in.readUTF();
+            String source = in.readUTF();
+            String destination = in.readUTF();
+            int scale = in.readInt();
+            byte[] unscaled = new byte[in.readUnsignedByte()];
+            in.readFully(unscaled);
+            Instant timestamp = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            chunk[i] = new Transaction(id, source, destination, new BigDecimal(new BigInteger(unscaled), scale),
+                    timestamp, statuses[in.readUnsignedByte()]);
+        }
+        chunksLoaded.increment();
+        return chunk;
+    }
+
+    public long getChunksStored() {
+        return chunksStored;
+    }
+
+    public long getBytesStored() {
+        return bytesStored;
+    }
+
+    public long getChunksLoaded() {
+        return chunksLoaded.sum();
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public int getPendingHistories() {
+        return pending.size();
+    }
+
+    /**
+     * Stops archiving and closes the segments; pages that reach archived chunks
+     * fail afterwards.
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            archiverThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+            for (RandomAccessFile file : segments.values())
+                file.close();
+        } catch (IOException e) {
+            System.err.println("[HISTORY] Failed to close archive segments: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.repository.AccountRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stripes hot accounts and folds them back when they cool (see
+ * {@link Account#enableStriping(int)}).
+ *
+ * Every window it compares each account's contended lock acquisitions in
+ * {@link TransferStats} with the previous window: an account with at least
+ * {@code promoteThreshold} new ones is split into {@code stripes}
+ * sub-ledgers. Transfer legs on a striped account no longer queue on its
+ * write lock, so it stops showing up as contended; it is demoted instead
+ * when fewer than {@code demoteThreshold} legs went through its stripes in a
+ * window. Needs stats enabled: without contention counts nothing is promoted.
+ */
+public class HotAccountStriper {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 5000;
+    public static final long DEFAULT_PROMOTE_THRESHOLD = 100; // Contended acquisitions per window
+    public static final long DEFAULT_DEMOTE_THRESHOLD = 100; // Stripe legs per window
+
+    private final AccountRepository accountRepository;
+    private final TransferStats stats;
+    private final int stripes;
+    private final long windowMillis;
+    private final long promoteThreshold;
+    private final long demoteThreshold;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hot-accounts");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Scheduler thread only
+    private final Map<String, Long> lastContended = new HashMap<>();
+    private final Map<String, Long> lastLegs = new HashMap<>();
+
+    private final Set<String> striped = ConcurrentHashMap.newKeySet();
+    private final AtomicLong promotions = new AtomicLong();
+    private final AtomicLong demotions = new AtomicLong();
+
+    public HotAccountStriper(AccountRepository accountRepository, TransferStats stats, int stripes) {
+        this(accountRepository, stats, stripes, DEFAULT_WINDOW_MILLIS, DEFAULT_PROMOTE_THRESHOLD,
+                DEFAULT_DEMOTE_THRESHOLD);
+    }
+
+    public HotAccountStriper(AccountRepository accountRepository, TransferStats stats, int stripes,
+            long windowMillis, long promoteThreshold, long demoteThreshold) {
+        if (stripes < 2)
+            throw new IllegalArgumentException("Striping needs at least 2 stripes: " + stripes);
+        this.accountRepository = accountRepository;
+        this.stats = stats;
+        this.stripes = stripes;
+        this.windowMillis = windowMillis;
+        this.promoteThreshold = promoteThreshold;
+        this.demoteThreshold = demoteThreshold;
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::check, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        System.out.println(">> Hot Account Striping: " + stripes + " stripes above " + promoteThreshold
+                + " contended transfers per " + windowMillis / 1000 + "s");
+    }
+
+    /** Stops checking; striped accounts stay striped. */
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    // One window: demote what cooled, then promote what got hot
+    void check() {
+        try {
+            for (String accountNumber : new ArrayList<>(striped)) {
+                Optional<Account> account = accountRepository.findByAccountNumber(accountNumber);
+                long legs = account.map(Account::getStripedLegs).orElse(0L);
+                long recent = legs - lastLegs.getOrDefault(accountNumber, 0L);
+                lastLegs.put(accountNumber, legs);
+                if (recent < demoteThreshold || !account.isPresent() || !account.get().isStriped()) {
+                    account.ifPresent(Account::disableStriping);
+                    striped.remove(accountNumber);
+                    lastLegs.remove(accountNumber);
+                    demotions.incrementAndGet();
+                    System.out.println("[STRIPES] " + accountNumber + " cooled down (" + recent
+                            + " striped legs), stripes folded");
+                }
+            }
+            for (TransferStats.Contention c : stats.getContended()) {
+                long count = c.getCount();
+                Long previous = lastContended.put(c.getAccountNumber(), count);
+                long recent = count - (previous == null ? 0 : previous);
+                if (recent < promoteThreshold || striped.contains(c.getAccountNumber()))
+                    continue;
+                Optional<Account> account = accountRepository.findByAccountNumber(c.getAccountNumber());
+                if (!account.isPresent())
+                    continue;
+                account.get().enableStriping(stripes);
+                if (!account.get().isStriped())
+                    continue; // Shares its lock (dense accounts): cannot be striped
+                striped.add(c.getAccountNumber());
+                lastLegs.put(c.getAccountNumber(), account.get().getStripedLegs());
+                promotions.incrementAndGet();
+                System.out.println("[STRIPES] " + c.getAccountNumber() + " is hot (" + recent
+                        + " contended transfers), split into " + stripes + " stripes");
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next window tries again
+            System.err.println("[STRIPES] Check failed: " + e);
+        }
+    }
+
+    /** Account numbers currently striped. */
+    public List<String> getStripedAccounts() {
+        return new ArrayList<>(striped);
+    }
+
+    public long getPromotions() {
+        return promotions.get();
+    }
+
+    public long getDemotions() {
+        return demotions.get();
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+}
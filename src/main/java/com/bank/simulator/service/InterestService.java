@@ -1,6 +1,10 @@
 package com.bank.simulator.service;
 
 import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.FixedPointAccount;
+import com.bank.simulator.model.InterestAccrual;
+import com.bank.simulator.model.MinorUnits;
 import com.bank.simulator.repository.AccountRepository;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -10,49 +14,172 @@ import java.util.concurrent.TimeUnit;
 
 public class InterestService {
 
+    public enum Mode {
+        SWEEP, // Every account, every period, on a scheduler thread (original behaviour)
+        LAZY, // Each account catches up on its next write, see InterestAccrual
+        BATCH // Posted as transactions by a parallel BatchPostingRunner each period
+    }
+
+    public static final long PERIOD_MILLIS = 5000;
+
     private final AccountRepository accountRepository;
+    private final JournalService journalService;
+    private final AccountFactory accountFactory; // LAZY: accounts created later accrue too
+    private final Mode mode;
+    private final BatchPostingRunner batchRunner; // BATCH only
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     private static final BigDecimal INTEREST_RATE = new BigDecimal("0.05"); // 5% per cycle
+    private static final BigDecimal DEBT_RATE = new BigDecimal("0.10");
 
     public InterestService(AccountRepository accountRepository) {
+        this(accountRepository, new JournalService());
+    }
+
+    public InterestService(AccountRepository accountRepository, JournalService journalService) {
+        this(accountRepository, journalService, null, Mode.SWEEP);
+    }
+
+    public InterestService(AccountRepository accountRepository, JournalService journalService,
+            AccountFactory accountFactory, Mode mode) {
+        this(accountRepository, journalService, accountFactory, mode, null);
+    }
+
+    public InterestService(AccountRepository accountRepository, JournalService journalService,
+            AccountFactory accountFactory, Mode mode, BatchPostingRunner batchRunner) {
+        if (mode == Mode.BATCH && batchRunner == null)
+            throw new IllegalArgumentException("Batch interest needs a BatchPostingRunner");
         this.accountRepository = accountRepository;
+        this.journalService = journalService;
+        this.accountFactory = accountFactory;
+        this.mode = mode;
+        this.batchRunner = batchRunner;
+    }
+
+    public static PostingJob interestJob() {
+        return PostingJob.interest(INTEREST_RATE, DEBT_RATE);
     }
 
     public void start() {
+        if (mode == Mode.LAZY) {
+            InterestAccrual accrual = new InterestAccrual(PERIOD_MILLIS, INTEREST_RATE, DEBT_RATE,
+                    this::journalAccrued);
+            // Factory first, so an account opened meanwhile is not missed by the walk below
+            if (accountFactory != null)
+                accountFactory.setInterestAccrual(accrual);
+            for (Account acc : accountRepository.findAll())
+                acc.enableInterestAccrual(accrual);
+            System.out.println(">> Interest Service Started: Accruing 5% every 5 seconds, applied on account access.");
+            return;
+        }
+        if (mode == Mode.BATCH) {
+            System.out.println(">> Interest Service Started: Posting 5% every 5 seconds as batch transactions.");
+            scheduler.scheduleAtFixedRate(this::postInterest, 5, 5, TimeUnit.SECONDS);
+            return;
+        }
         System.out.println(">> Interest Service Started: Accruing 5% every 5 seconds.");
         scheduler.scheduleAtFixedRate(this::applyInterest, 5, 5, TimeUnit.SECONDS);
     }
 
+    // One run per period; the run id makes a resumed or repeated period a no-op
+    private void postInterest() {
+        String runId = "interest-" + System.currentTimeMillis() / PERIOD_MILLIS;
+        try {
+            batchRunner.run(interestJob(), runId);
+            batchRunner.forget(runId); // Period ids never recur
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Keep the schedule alive; the progress file lets the run resume on restart
+            System.err.println("[INTEREST] Batch run " + runId + " failed: " + e.getMessage());
+        }
+    }
+
+    // Called under the account's write lock, before the change that triggered the accrual
+    private void journalAccrued(Account acc, BigDecimal interest, BigDecimal debtInterest, long period) {
+        long lsn = journalService.nextLsn();
+        acc.setLastLsn(lsn);
+        journalService.markChanged(acc);
+        journalService.logInterest(acc.getAccountNumber(), interest, debtInterest, lsn, period);
+    }
+
     private void applyInterest() {
         for (Account acc : accountRepository.findAll()) {
+            BigDecimal interest = BigDecimal.ZERO;
+            BigDecimal debtInterest = BigDecimal.ZERO;
+            long lsn = 0;
+
             // We need write lock to change balance and debt
-            acc.getRwLock().writeLock().lock();
+            acc.getLock().writeLock().lock();
             try {
-                // 1. Positive Interest (Savings) - 5%
-                BigDecimal currentBalance = acc.getBalance();
-                if (currentBalance.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal interest = currentBalance.multiply(new BigDecimal("0.05")).setScale(2,
-                            RoundingMode.HALF_UP);
-                    acc.credit(interest);
-                    // System.out.println("Interest paid to " + acc.getAccountNumber() + ": " +
-                    // interest);
-                }
+                if (acc instanceof FixedPointAccount) {
+                    // Fixed-point ledger: same rates, whole computation in minor units
+                    FixedPointAccount fp = (FixedPointAccount) acc;
+                    long interestUnits = 0;
+                    long debtInterestUnits = 0;
+                    long balanceUnits = fp.getBalanceUnits();
+                    if (balanceUnits > 0) {
+                        interestUnits = percentHalfUp(balanceUnits, 5);
+                        fp.creditUnits(interestUnits);
+                    }
+                    long debtUnits = fp.getDebtUnits();
+                    if (debtUnits > 0) {
+                        debtInterestUnits = percentHalfUp(debtUnits, 10);
+                        fp.addDebtUnits(debtInterestUnits);
+                    }
+                    if (interestUnits != 0 || debtInterestUnits != 0) {
+                        // BigDecimal only for the journal record
+                        interest = MinorUnits.toDecimal(interestUnits, fp.getScale());
+                        debtInterest = MinorUnits.toDecimal(debtInterestUnits, fp.getScale());
+                        lsn = journalService.nextLsn();
+                        acc.setLastLsn(lsn);
+                        journalService.markChanged(acc);
+                    }
+                } else {
+                    // 1. Positive Interest (Savings) - 5%
+                    BigDecimal currentBalance = acc.getBalance();
+                    if (currentBalance.compareTo(BigDecimal.ZERO) > 0) {
+                        interest = currentBalance.multiply(INTEREST_RATE).setScale(2,
+                                RoundingMode.HALF_UP);
+                        acc.credit(interest);
+                        // System.out.println("Interest paid to " + acc.getAccountNumber() + ": " +
+                        // interest);
+                    }
+
+                    // 2. Negative Interest (Debt) - 10%
+                    BigDecimal currentDebt = acc.getDebt();
+                    if (currentDebt.compareTo(BigDecimal.ZERO) > 0) {
+                        debtInterest = currentDebt.multiply(DEBT_RATE).setScale(2,
+                                RoundingMode.HALF_UP);
+                        acc.addDebt(debtInterest);
+                        // System.out.println("Debt interest applied to " + acc.getAccountNumber() + ":
+                        // " + debtInterest);
+                    }
 
-                // 2. Negative Interest (Debt) - 10%
-                BigDecimal currentDebt = acc.getDebt();
-                if (currentDebt.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal debtInterest = currentDebt.multiply(new BigDecimal("0.10")).setScale(2,
-                            RoundingMode.HALF_UP);
-                    acc.addDebt(debtInterest);
-                    // System.out.println("Debt interest applied to " + acc.getAccountNumber() + ":
-                    // " + debtInterest);
+                    if (interest.signum() != 0 || debtInterest.signum() != 0) {
+                        lsn = journalService.nextLsn();
+                        acc.setLastLsn(lsn);
+                        journalService.markChanged(acc);
+                    }
                 }
             } finally {
-                acc.getRwLock().writeLock().unlock();
+                acc.getLock().writeLock().unlock();
+            }
+
+            if (lsn != 0) {
+                journalService.logInterest(acc.getAccountNumber(), interest, debtInterest, lsn, 0);
             }
         }
     }
 
+    // units * percent / 100, rounded half up (units are positive here)
+    private static long percentHalfUp(long units, int percent) {
+        return Math.addExact(Math.multiplyExact(units, percent), 50) / 100;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
     public void shutdown() {
         scheduler.shutdown();
     }
@@ -0,0 +1,892 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionIds;
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal.
+ *
+ * Every state change (account opened, transfer completed, loan granted, interest
+ * posted) is encoded on the caller's thread into a small binary record and
+ * handed to a single writer thread. The writer group-commits: it collects
+ * everything that arrives within one commit window, writes it with a single
+ * channel write and issues a single fsync for the whole batch.
+ *
+ * Record layout: [int payloadLength][int crc32(payload)][payload]. A torn
+ * record at the tail (crash mid-write) fails the length/CRC check and replay
+ * stops there, so a crash loses at most the last commit window.
+ *
+ * Every record carries a log sequence number (LSN) assigned inside the
+ * critical section of the change it describes. The journal is split into
+ * segments; a checkpoint rotates to a fresh segment and, once the snapshot is
+ * durable, archives the sealed ones (see {@link StorageService#checkpoint()}).
+ */
+public class JournalService {
+
+    private static final String JOURNAL_DIR = "bank_journal";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long DEFAULT_COMMIT_WINDOW_MILLIS = 5;
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int MAX_BATCH = 4096;
+    private static final int HEADER_BYTES = 8;
+    private static final int RESTORED_OVERLAP = 4096; // Saved before a checkpoint read the log, journaled after its rotate
+    private static final int CHANGE_STRIPES = 64;
+    private static final int CHANGE_PAD = 8; // One stripe per 64-byte line
+
+    static final byte ACCOUNT_OPENED = 1;
+    static final byte TRANSFER = 2;
+    static final byte LOAN = 3;
+    static final byte INTEREST = 4;
+    static final byte POSTING = 5; // One leg of a cross-shard transfer (single account)
+    static final byte SETTLED = 6; // Cross-shard transfer record; its legs were journaled as POSTINGs
+    static final byte BATCH_POSTING = 7; // Interest / fee posted by a batch run (balance and debt delta)
+
+    // POSTING legs
+    static final byte LEG_DEBIT = 0;
+    static final byte LEG_CREDIT = 1;
+    static final byte LEG_REFUND = 2;
+    static final byte LEG_CARRIED = 3; // Debit still open at a checkpoint, restated in the live segment
+
+    private final Path journalDir;
+    private final Path archiveDir;
+    private final long commitWindowMillis;
+    private final AccountFactory accountFactory; // Replayed accounts use the deployment's ledger mode
+    private final AtomicLong lsnCounter = new AtomicLong();
+    // Changes between their LSN and their transaction save, per phase and stripe (see awaitChanges)
+    private final AtomicLongArray inFlight = new AtomicLongArray(2 * CHANGE_STRIPES * CHANGE_PAD);
+    private volatile int changePhase;
+
+    // Bounded: if the disk cannot keep up, producers block instead of growing the heap
+    private final BlockingQueue<byte[]> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong appended = new AtomicLong(); // Counted before the put, see sync()
+    private final Object commitMonitor = new Object();
+    private long committed; // Guarded by commitMonitor
+    private long failedRecords; // Guarded by commitMonitor
+    private IOException failure; // First failed group commit, guarded by commitMonitor
+    private final Object channelLock = new Object(); // Guards channel/segment vs rotate()
+    private FileChannel channel;
+    private Path activeSegment;
+    private long segmentSeq;
+    private Thread writerThread;
+    private volatile boolean running;
+    private final List<Record> recoveryRecords = new ArrayList<>(); // Written by replay, appended on open()
+    private final Map<String, OpenLeg> openLegs = new ConcurrentHashMap<>(); // Debited, not credited/refunded
+    private final ChangedAccounts changedAccounts = new ChangedAccounts(); // Shared by every writer that takes an LSN
+
+    public JournalService() {
+        this(AccountFactory.decimal());
+    }
+
+    public JournalService(AccountFactory accountFactory) {
+        this(Paths.get(JOURNAL_DIR), DEFAULT_COMMIT_WINDOW_MILLIS, accountFactory);
+    }
+
+    public JournalService(Path journalDir, long commitWindowMillis, AccountFactory accountFactory) {
+        this.accountFactory = accountFactory;
+        this.journalDir = journalDir;
+        this.archiveDir = journalDir.resolve("archive");
+        this.commitWindowMillis = commitWindowMillis;
+    }
+
+    /**
+     * Next log sequence number. Call it inside the critical section of the
+     * change and stamp the touched accounts with {@link Account#setLastLsn}.
+     */
+    public long nextLsn() {
+        return lsnCounter.incrementAndGet();
+    }
+
+    /**
+     * Highest LSN handed out so far. Every change with an LSN at or below this
+     * value has already been applied to its accounts.
+     */
+    public long currentLsn() {
+        return lsnCounter.get();
+    }
+
+    /**
+     * Marks an account for the dashboard stream. Writers call it after a
+     * balance or debt change, next to the LSN stamp; a no-op while no one
+     * is watching.
+     */
+    public void markChanged(Account account) {
+        changedAccounts.mark(account);
+    }
+
+    public ChangedAccounts getChangedAccounts() {
+        return changedAccounts;
+    }
+
+    /**
+     * Opens a change whose transaction is saved after its LSN is taken. Call
+     * it before {@link #nextLsn()} and pass the result to {@link #endChange}
+     * once the transaction is in the repository.
+     */
+    public int beginChange() {
+        int stripe = (int) Thread.currentThread().getId() & (CHANGE_STRIPES - 1);
+        while (true) {
+            int phase = changePhase;
+            int slot = (phase * CHANGE_STRIPES + stripe) * CHANGE_PAD;
+            inFlight.incrementAndGet(slot);
+            if (changePhase == phase)
+                return slot;
+            inFlight.decrementAndGet(slot); // awaitChanges flipped in between: join the new phase
+        }
+    }
+
+    public void endChange(int token) {
+        inFlight.decrementAndGet(token);
+    }
+
+    /**
+     * Waits until every change begun before this call has ended. A checkpoint
+     * calls it between reading {@link #currentLsn()} and the transaction log
+     * size, so every transaction with an LSN at or below the one it read is
+     * already saved below that size. Changes begun afterwards are not waited
+     * for. Each change decrements the stripe it incremented, so a stripe never
+     * reads as empty while one of its changes is open.
+     */
+    public synchronized void awaitChanges() {
+        int old = changePhase;
+        changePhase = 1 - old;
+        for (int stripe = 0; stripe < CHANGE_STRIPES; stripe++) {
+            int slot = (old * CHANGE_STRIPES + stripe) * CHANGE_PAD;
+            while (inFlight.get(slot) != 0)
+                Thread.yield();
+        }
+    }
+
+    // ---------------------------------------------------------------- writing
+
+    public synchronized void open() throws IOException {
+        if (running)
+            return;
+        Files.createDirectories(journalDir);
+        synchronized (channelLock) {
+            List<Path> existing = listSegments();
+            segmentSeq = existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1));
+            openNextSegment();
+        }
+        running = true;
+        writerThread = new Thread(this::writeLoop, "journal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        for (Record r : recoveryRecords)
+            append(r);
+        recoveryRecords.clear();
+        System.out.println(">> Journal opened: " + activeSegment + " (group commit every " + commitWindowMillis + "ms)");
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentSeq++;
+        activeSegment = journalDir.resolve(String.format("%s%09d%s", SEGMENT_PREFIX, segmentSeq, SEGMENT_SUFFIX));
+        channel = FileChannel.open(activeSegment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Seals the active segment and starts a new one. Records already queued
+     * may land in the new segment; that is fine because replay filters by LSN.
+     *
+     * @return all sealed segments (everything except the new active one)
+     */
+    public List<Path> rotate() throws IOException {
+        synchronized (channelLock) {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                openNextSegment();
+            }
+            List<Path> sealed = listSegments();
+            sealed.remove(activeSegment);
+            return sealed;
+        }
+    }
+
+    /**
+     * Moves sealed segments out of the replay path. Only call this once a
+     * checkpoint covering every record in them is durable.
+     */
+    public void archive(List<Path> segments) throws IOException {
+        if (segments.isEmpty())
+            return;
+        Files.createDirectories(archiveDir);
+        for (Path segment : segments) {
+            Files.move(segment, archiveDir.resolve(segment.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(journalDir))
+            return segments;
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(journalDir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : dir)
+                segments.add(p);
+        }
+        segments.sort(Comparator.comparingLong(JournalService::segmentNumber));
+        return segments;
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Stops accepting records, flushes everything still queued and fsyncs.
+     */
+    public synchronized void close() {
+        if (!running)
+            return;
+        running = false;
+        try {
+            writerThread.join();
+            synchronized (channelLock) {
+                channel.close();
+                channel = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("[JOURNAL] Failed to close journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Call before the account is published to the repository so the record is
+     * queued ahead of any transfer touching it.
+     */
+    public void logAccountOpened(Account account, long lsn) {
+        if (!running)
+            return;
+        Record r = new Record(ACCOUNT_OPENED, lsn);
+        r.utf(account.getAccountNumber());
+        r.utf(account.getHolderName());
+        r.decimal(account.getBalance());
+        r.decimal(account.getDebt());
+        r.longValue(account.getInterestPeriod()); // Optional trailer: absent in older journals
+        append(r);
+    }
+
+    /**
+     * Journals a transaction that did not change any balance (fraud / rollback).
+     */
+    public void logTransaction(Transaction tx) {
+        logTransaction(tx, nextLsn());
+    }
+
+    public void logTransaction(Transaction tx, long lsn) {
+        if (!running)
+            return;
+        append(transferRecord(TRANSFER, tx, lsn));
+    }
+
+    public void logLoan(String accountNumber, BigDecimal amount, long lsn) {
+        if (!running)
+            return;
+        Record r = new Record(LOAN, lsn);
+        r.utf(accountNumber);
+        r.decimal(amount);
+        append(r);
+    }
+
+    /**
+     * @param period lazy interest: the period the account has accrued to, so
+     *               recovery resumes accrual there (0 for sweep interest)
+     */
+    public void logInterest(String accountNumber, BigDecimal balanceInterest, BigDecimal debtInterest, long lsn,
+            long period) {
+        if (!running)
+            return;
+        Record r = new Record(INTEREST, lsn);
+        r.utf(accountNumber);
+        r.decimal(balanceInterest);
+        r.decimal(debtInterest);
+        r.longValue(period); // Optional trailer: absent in older journals
+        append(r);
+    }
+
+    /**
+     * Journals one leg of a cross-shard transfer. Each leg changes a single
+     * account under its own LSN, so replay can apply legs independently even
+     * when other changes to the same accounts were interleaved between them.
+     */
+    void logPosting(String transactionId, String accountNumber, BigDecimal delta, byte leg, long lsn) {
+        if (!running)
+            return;
+        // Before the append: a debit whose record may sit in a sealed segment is always in the map
+        if (leg == LEG_DEBIT)
+            openLegs.put(transactionId, new OpenLeg(accountNumber, delta.negate()));
+        else
+            openLegs.remove(transactionId);
+        Record r = new Record(POSTING, lsn);
+        r.utf(transactionId);
+        r.utf(accountNumber);
+        r.decimal(delta);
+        r.writeByte(leg);
+        append(r);
+    }
+
+    /**
+     * Restates every cross-shard debit that is still waiting for its credit
+     * as a {@link #LEG_CARRIED} posting. Call it after {@link #rotate()} and
+     * sync before archiving: the restated legs are then in the live segment,
+     * so replay can still refund them once the segment holding the debit is
+     * archived.
+     *
+     * @return number of legs restated
+     */
+    public int carryOpenLegs() {
+        if (!running)
+            return 0;
+        int carried = 0;
+        for (Map.Entry<String, OpenLeg> e : openLegs.entrySet()) {
+            Record r = new Record(POSTING, nextLsn());
+            r.utf(e.getKey());
+            r.utf(e.getValue().accountNumber);
+            r.decimal(e.getValue().amount.negate());
+            r.writeByte(LEG_CARRIED);
+            append(r);
+            carried++;
+        }
+        return carried;
+    }
+
+    /**
+     * Journals a completed cross-shard transfer for the transaction log. Replay
+     * restores the transaction but never touches balances (see logPosting).
+     */
+    void logSettledTransfer(Transaction tx, long lsn) {
+        if (!running)
+            return;
+        append(transferRecord(SETTLED, tx, lsn));
+    }
+
+    /**
+     * Journals a batch posting: one Transaction against a system counterparty
+     * and the balance / debt change it made to {@code accountNumber}.
+     */
+    void logBatchPosting(Transaction tx, String accountNumber, BigDecimal balanceDelta, BigDecimal debtDelta,
+            long lsn) {
+        if (!running)
+            return;
+        Record r = transferRecord(BATCH_POSTING, tx, lsn);
+        r.utf(accountNumber);
+        r.decimal(balanceDelta);
+        r.decimal(debtDelta);
+        append(r);
+    }
+
+    /**
+     * Waits until every record this thread appended so far is on disk (or
+     * the journal is closed).
+     *
+     * @throws IOException if a group commit failed before those records were
+     *                     durable; they, and everything queued after them, may
+     *                     be lost
+     */
+    public void sync() throws InterruptedException, IOException {
+        long target = appended.get();
+        synchronized (commitMonitor) {
+            while (committed < target && failure == null && running)
+                commitMonitor.wait(100);
+            if (committed < target && failure != null)
+                throw new IOException("Journal records not durable, group commit failed", failure);
+        }
+    }
+
+    /**
+     * Records dropped because a group commit failed. Once one fails the
+     * journal stops writing: a torn or unsynced batch would cut replay short
+     * there, so nothing after it could be counted as durable.
+     */
+    public long getFailedRecords() {
+        synchronized (commitMonitor) {
+            return failedRecords;
+        }
+    }
+
+    private static Record transferRecord(byte type, Transaction tx, long lsn) {
+        Record r = new Record(type, lsn);
+        r.utf(tx.getTransactionId());
+        r.utf(tx.getSourceAccount());
+        r.utf(tx.getDestinationAccount());
+        r.decimal(tx.getAmount());
+        r.writeByte(tx.getStatus().ordinal());
+        r.instant(tx.getTimestamp());
+        return r;
+    }
+
+    private void append(Record record) {
+        try {
+            // Count first: anything queued ahead of this record is then covered by the count (sync())
+            appended.incrementAndGet();
+            pending.put(record.toBytes());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("[JOURNAL] Interrupted while appending record, record dropped");
+        }
+    }
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !pending.isEmpty()) {
+            try {
+                byte[] first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+
+                // Group commit: keep collecting until the window closes or the batch is full
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commitWindowMillis);
+                while (batch.size() < MAX_BATCH) {
+                    pending.drainTo(batch, MAX_BATCH - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || batch.size() >= MAX_BATCH)
+                        break;
+                    byte[] next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+
+                commitOrFail(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Waiters are only woken as committed once the batch is written and fsynced
+    private void commitOrFail(List<byte[]> batch) {
+        IOException error;
+        synchronized (commitMonitor) {
+            error = failure;
+        }
+        if (error == null) {
+            try {
+                commit(batch);
+                synchronized (commitMonitor) {
+                    committed += batch.size();
+                    commitMonitor.notifyAll();
+                }
+                return;
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        synchronized (commitMonitor) {
+            if (failure == null)
+                failure = error;
+            failedRecords += batch.size();
+            commitMonitor.notifyAll(); // sync() callers get the failure instead of waiting
+        }
+    }
+
+    private void commit(List<byte[]> batch) throws IOException {
+        int size = 0;
+        for (byte[] b : batch)
+            size += b.length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] b : batch)
+            buffer.put(b);
+        buffer.flip();
+        synchronized (channelLock) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false); // One fsync for the whole batch
+        }
+    }
+
+    // --------------------------------------------------------------- recovery
+
+    /**
+     * Replays every live segment on top of the state already loaded from the
+     * snapshot. A record is applied to an account only if its LSN is newer
+     * than the account's {@link Account#getLastLsn()}, so records the fuzzy
+     * snapshot already reflects are skipped. Must be called before
+     * {@link #open()}.
+     *
+     * @param snapshotLsn LSN the loaded snapshot covers (0 if none); older
+     *                    transactions are not restored into the log again
+     * @return number of records applied
+     */
+    public int replay(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            long snapshotLsn) throws IOException {
+        lsnCounter.accumulateAndGet(snapshotLsn, Math::max);
+
+        ReplayContext ctx = new ReplayContext(accountRepository, transactionRepository, snapshotLsn);
+        for (Path segment : listSegments()) {
+            replaySegment(segment, ctx);
+        }
+
+        // Cross-shard transfers debited but never credited (crash in between): refund the source
+        for (Map.Entry<String, OpenLeg> e : ctx.openLegs.entrySet()) {
+            Account acc = accountRepository.findByAccountNumber(e.getValue().accountNumber).orElse(null);
+            if (acc == null)
+                continue;
+            BigDecimal refund = e.getValue().amount;
+            long lsn = nextLsn();
+            acc.credit(refund);
+            ctx.appliedLsn.merge(acc.getAccountNumber(), lsn, Math::max);
+            Record r = new Record(POSTING, lsn);
+            r.utf(e.getKey());
+            r.utf(acc.getAccountNumber());
+            r.decimal(refund);
+            r.writeByte(LEG_REFUND);
+            recoveryRecords.add(r);
+        }
+        if (!ctx.openLegs.isEmpty())
+            System.out.println("[JOURNAL] Refunded " + ctx.openLegs.size() + " interrupted cross-shard transfer(s)");
+
+        // Stamp accounts with the newest LSN replayed into them
+        for (Map.Entry<String, Long> e : ctx.appliedLsn.entrySet()) {
+            accountRepository.findByAccountNumber(e.getKey()).ifPresent(acc -> acc.setLastLsn(e.getValue()));
+        }
+        return ctx.applied;
+    }
+
+    private void replaySegment(Path segment, ReplayContext ctx) throws IOException {
+        long validEnd = 0;
+        try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            long fileSize = in.size();
+            while (validEnd + HEADER_BYTES <= fileSize) {
+                header.clear();
+                readFully(in, header, validEnd);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || validEnd + HEADER_BYTES + length > fileSize)
+                    break; // Torn tail
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(in, payload, validEnd + HEADER_BYTES);
+                crc.reset();
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != checksum)
+                    break; // Corrupt tail
+
+                apply(payload.array(), ctx);
+                validEnd += HEADER_BYTES + length;
+            }
+
+            if (validEnd < fileSize) {
+                System.err.println("[JOURNAL] Discarding " + (fileSize - validEnd) + " bytes of incomplete tail in "
+                        + segment.getFileName());
+            }
+        }
+
+        // Cut the torn tail so the segment stays readable
+        try (FileChannel out = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            if (out.size() > validEnd)
+                out.truncate(validEnd);
+        }
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = in.read(buffer, position + buffer.position());
+            if (n < 0)
+                throw new IOException("Unexpected end of journal");
+        }
+    }
+
+    private void apply(byte[] payload, ReplayContext ctx) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        long lsn = in.readLong();
+        lsnCounter.accumulateAndGet(lsn, Math::max);
+
+        switch (type) {
+            case ACCOUNT_OPENED: {
+                String accNum = in.readUTF();
+                String holder = in.readUTF();
+                BigDecimal balance = readDecimal(in);
+                BigDecimal debt = readDecimal(in);
+                long period = readTrailer(in);
+                Account existing = ctx.accounts.findByAccountNumber(accNum).orElse(null);
+                if (existing == null || lsn > existing.getLastLsn()) {
+                    Account acc = accountFactory.create(accNum, holder, balance, debt);
+                    acc.setLastLsn(lsn);
+                    acc.restoreInterestPeriod(period);
+                    ctx.accounts.save(acc);
+                    ctx.applied++;
+                }
+                break;
+            }
+            case TRANSFER:
+            case SETTLED: {
+                String id = in.readUTF();
+                TransactionIds.issueAfter(TransactionIds.parse(id)); // Skipped records too: ids must stay above them
+                String src = in.readUTF();
+                String dest = in.readUTF();
+                BigDecimal amount = readDecimal(in);
+                TransactionStatus status = TransactionStatus.values()[in.readByte()];
+                Instant time = Instant.ofEpochSecond(in.readLong(), in.readInt());
+
+                Account from = ctx.accounts.findByAccountNumber(src).orElse(null);
+                Account to = ctx.accounts.findByAccountNumber(dest).orElse(null);
+                if (type == TRANSFER && status == TransactionStatus.SUCCESS) {
+                    // MIN_BALANCE was enforced when the transfer originally ran; records
+                    // may be journaled slightly out of order, so replay applies raw deltas.
+                    if (ctx.needsApply(from, lsn))
+                        from.credit(amount.negate());
+                    if (ctx.needsApply(to, lsn))
+                        to.credit(amount);
+                }
+
+                // The snapshot's transaction list is read after its LSN, so it may already hold this one
+                if (lsn > ctx.snapshotLsn && !ctx.restoredIds.contains(id)) {
+                    Transaction tx = new Transaction(id, src, dest, amount, time, status);
+                    ctx.transactions.save(tx);
+                    if (from != null)
+                        from.addTransaction(tx);
+                    if (to != null)
+                        to.addTransaction(tx);
+                    ctx.applied++;
+                }
+                break;
+            }
+            case BATCH_POSTING: {
+                String id = in.readUTF();
+                TransactionIds.issueAfter(TransactionIds.parse(id));
+                String src = in.readUTF();
+                String dest = in.readUTF();
+                BigDecimal amount = readDecimal(in);
+                TransactionStatus status = TransactionStatus.values()[in.readByte()];
+                Instant time = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                Account acc = ctx.accounts.findByAccountNumber(in.readUTF()).orElse(null);
+                BigDecimal balanceDelta = readDecimal(in);
+                BigDecimal debtDelta = readDecimal(in);
+                if (ctx.needsApply(acc, lsn)) {
+                    acc.credit(balanceDelta);
+                    acc.addDebt(debtDelta);
+                }
+                if (lsn > ctx.snapshotLsn && !ctx.restoredIds.contains(id)) {
+                    Transaction tx = new Transaction(id, src, dest, amount, time, status);
+                    ctx.transactions.save(tx);
+                    if (acc != null)
+                        acc.addTransaction(tx);
+                    ctx.applied++;
+                }
+                break;
+            }
+            case POSTING: {
+                String id = in.readUTF();
+                TransactionIds.issueAfter(TransactionIds.parse(id));
+                Account acc = ctx.accounts.findByAccountNumber(in.readUTF()).orElse(null);
+                BigDecimal delta = readDecimal(in);
+                byte leg = in.readByte();
+                if (leg != LEG_CARRIED && ctx.needsApply(acc, lsn))
+                    acc.credit(delta); // A carried leg restates a debit the balance already holds
+                // Pair legs by transaction id, whether or not the snapshot already had them. A
+                // carried leg may be written after its credit, so settled ids are remembered
+                if (leg == LEG_DEBIT || leg == LEG_CARRIED) {
+                    if (acc != null && !ctx.settledLegs.contains(id))
+                        ctx.openLegs.put(id, new OpenLeg(acc.getAccountNumber(), delta.negate()));
+                } else {
+                    ctx.openLegs.remove(id);
+                    ctx.settledLegs.add(id);
+                }
+                break;
+            }
+            case LOAN: {
+                Account acc = ctx.accounts.findByAccountNumber(in.readUTF()).orElse(null);
+                BigDecimal amount = readDecimal(in);
+                if (ctx.needsApply(acc, lsn)) {
+                    acc.credit(amount);
+                    acc.addDebt(amount);
+                }
+                break;
+            }
+            case INTEREST: {
+                Account acc = ctx.accounts.findByAccountNumber(in.readUTF()).orElse(null);
+                BigDecimal balanceInterest = readDecimal(in);
+                BigDecimal debtInterest = readDecimal(in);
+                long period = readTrailer(in);
+                if (ctx.needsApply(acc, lsn)) {
+                    acc.credit(balanceInterest);
+                    acc.addDebt(debtInterest);
+                }
+                if (acc != null)
+                    acc.restoreInterestPeriod(period); // Moves forward only, applied or not
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * Replay state. Accounts keep their snapshot LSN for the whole replay
+     * (segments are not strictly LSN-ordered), the newest applied LSN is
+     * collected separately and stamped at the end.
+     */
+    private static final class ReplayContext {
+        final AccountRepository accounts;
+        final TransactionRepository transactions;
+        final long snapshotLsn;
+        final Set<String> restoredIds = new HashSet<>();
+        final Map<String, Long> appliedLsn = new HashMap<>();
+        final Map<String, OpenLeg> openLegs = new LinkedHashMap<>(); // Debited, not yet credited/refunded
+        final Set<String> settledLegs = new HashSet<>(); // Credited or refunded
+        int applied;
+
+        ReplayContext(AccountRepository accounts, TransactionRepository transactions, long snapshotLsn) {
+            this.accounts = accounts;
+            this.transactions = transactions;
+            this.snapshotLsn = snapshotLsn;
+
+            // Only the tail of the restored log can overlap the journal
+            for (Transaction tx : transactions.findFrom(transactions.size() - RESTORED_OVERLAP))
+                restoredIds.add(tx.getTransactionId());
+        }
+
+        boolean needsApply(Account acc, long lsn) {
+            if (acc == null || lsn <= acc.getLastLsn())
+                return false;
+            appliedLsn.merge(acc.getAccountNumber(), lsn, Math::max);
+            applied++;
+            return true;
+        }
+    }
+
+    private static final class OpenLeg {
+        final String accountNumber;
+        final BigDecimal amount;
+
+        OpenLeg(String accountNumber, BigDecimal amount) {
+            this.accountNumber = accountNumber;
+            this.amount = amount;
+        }
+    }
+
+    // A long appended to a record type after journals of it existed; 0 if the record predates it
+    private static long readTrailer(DataInputStream in) throws IOException {
+        return in.available() >= Long.BYTES ? in.readLong() : 0;
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readUnsignedByte()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    /**
+     * Builder for a single framed journal record.
+     */
+    private static final class Record {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        Record(byte type, long lsn) {
+            writeByte(type);
+            try {
+                out.writeLong(lsn);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void writeByte(int b) {
+            try {
+                out.writeByte(b);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // ByteArrayOutputStream never throws
+            }
+        }
+
+        void utf(String s) {
+            try {
+                out.writeUTF(s);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void decimal(BigDecimal value) {
+            try {
+                byte[] unscaled = value.unscaledValue().toByteArray();
+                out.writeInt(value.scale());
+                out.writeByte(unscaled.length);
+                out.write(unscaled);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void longValue(long value) {
+            try {
+                out.writeLong(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void instant(Instant time) {
+            try {
+                out.writeLong(time.getEpochSecond());
+                out.writeInt(time.getNano());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        byte[] toBytes() {
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, payload.length);
+            return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                    .putInt(payload.length)
+                    .putInt((int) crc.getValue())
+                    .put(payload)
+                    .array();
+        }
+    }
+}
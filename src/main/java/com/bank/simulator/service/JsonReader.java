@@ -0,0 +1,393 @@
+package com.bank.simulator.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser for UTF-8 JSON, read straight from an InputStream (in bulk,
+ * through one pooled 64 KB buffer) or a ByteBuffer. Nothing is tokenized
+ * ahead of the caller and no tree is built: the caller walks the document
+ * with begin/end, hasNext and the next* reads, and skips what it does not
+ * need. Strings are decoded from a reused byte scratch buffer, so the only
+ * allocation per value is the value itself.
+ *
+ * Lenient where the bank's own data and clients have always been: a number
+ * may come quoted ("amount":"10") and vice versa. Malformed input fails with
+ * an IOException naming the byte offset.
+ */
+public final class JsonReader implements Closeable {
+
+    private final InputStream in; // null: reading a ByteBuffer
+    private final ByteBuffer source;
+    private byte[] buf;
+    private final boolean pooled;
+    private int pos;
+    private int limit;
+    private long consumed; // Bytes before buf[0], for error offsets
+    private byte[] scratch = new byte[128]; // Bytes of the value being decoded
+    private int highSurrogate; // Pending \\uD8xx escape waiting for its low half, or 0
+
+    public JsonReader(InputStream in) {
+        this.in = in;
+        this.source = null;
+        this.buf = JsonWriter.acquireBuffer();
+        this.pooled = true;
+    }
+
+    /** Reads the buffer's remaining bytes, in place when it has a backing array. */
+    public JsonReader(ByteBuffer source) {
+        this.in = null;
+        if (source.hasArray()) {
+            this.source = null;
+            this.buf = source.array();
+            this.pos = source.arrayOffset() + source.position();
+            this.limit = source.arrayOffset() + source.limit();
+            this.consumed = -pos;
+            this.pooled = false;
+        } else {
+            this.source = source.duplicate();
+            this.buf = JsonWriter.acquireBuffer();
+            this.pooled = true;
+        }
+    }
+
+    // ------------------------------------------------------------ structure
+
+    public void beginObject() throws IOException {
+        expect('{');
+    }
+
+    public void endObject() throws IOException {
+        skipComma();
+        expect('}');
+    }
+
+    public void beginArray() throws IOException {
+        expect('[');
+    }
+
+    public void endArray() throws IOException {
+        skipComma();
+        expect(']');
+    }
+
+    /** True if the current object or array has another member; consumes the comma before it. */
+    public boolean hasNext() throws IOException {
+        int c = skipComma();
+        return c != '}' && c != ']';
+    }
+
+    /** The next non-whitespace character, not consumed. */
+    public int peek() throws IOException {
+        return skipWhitespace();
+    }
+
+    /** The next member's name; the comma before it, if not consumed by hasNext, is skipped. */
+    public String nextName() throws IOException {
+        skipComma();
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    // --------------------------------------------------------------- values
+
+    /** A string, or the literal text of a number or boolean; null for JSON null. */
+    public String nextString() throws IOException {
+        int c = skipWhitespace();
+        if (c == '"')
+            return readString();
+        if (c == '{' || c == '[')
+            throw syntax("Expected a value but found '" + (char) c + "'");
+        int len = readLiteral();
+        if (len == 4 && scratch[0] == 'n' && scratch[1] == 'u' && scratch[2] == 'l' && scratch[3] == 'l')
+            return null;
+        return new String(scratch, 0, len, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A number, quoted or not; null for JSON null. Plain decimals of up to 18
+     * digits are assembled as a long and a scale instead of parsed from text.
+     */
+    public BigDecimal nextDecimal() throws IOException {
+        int c = skipWhitespace();
+        int len;
+        if (c == '"') {
+            pos++;
+            len = readStringBytes();
+        } else {
+            len = readLiteral();
+            if (len == 4 && scratch[0] == 'n' && scratch[1] == 'u' && scratch[2] == 'l' && scratch[3] == 'l')
+                return null;
+        }
+        BigDecimal value = parseDecimal(scratch, len);
+        if (value == null)
+            throw syntax("Not a number: " + new String(scratch, 0, len, StandardCharsets.UTF_8));
+        return value;
+    }
+
+    public long nextLong() throws IOException {
+        String s = nextString();
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw syntax("Not an integer: " + s);
+        }
+    }
+
+    /** Skips one value of any kind, nested objects and arrays included. */
+    public void skipValue() throws IOException {
+        int c = skipWhitespace();
+        if (c == '"') {
+            pos++;
+            readStringBytes();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = next();
+                if (c == '"') {
+                    readStringBytes();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        } else {
+            readLiteral();
+        }
+    }
+
+    /** Returns the pooled buffer and closes the stream, if any. */
+    @Override
+    public void close() throws IOException {
+        if (pooled && buf != null)
+            JsonWriter.releaseBuffer(buf);
+        buf = null;
+        if (in != null)
+            in.close();
+    }
+
+    // ------------------------------------------------------------- internals
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        if (in != null) {
+            int n = in.read(buf, 0, buf.length);
+            if (n > 0)
+                limit = n;
+        } else if (source != null && source.hasRemaining()) {
+            int n = Math.min(buf.length, source.remaining());
+            source.get(buf, 0, n);
+            limit = n;
+        }
+        return limit > 0;
+    }
+
+    private int next() throws IOException {
+        if (pos == limit && !fill())
+            throw syntax("Unexpected end of JSON");
+        return buf[pos++] & 0xFF;
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill())
+                throw syntax("Unexpected end of JSON");
+            int c = buf[pos] & 0xFF;
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return c;
+            pos++;
+        }
+    }
+
+    private int skipComma() throws IOException {
+        int c = skipWhitespace();
+        if (c == ',') {
+            pos++;
+            c = skipWhitespace();
+        }
+        return c;
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = skipWhitespace();
+        if (c != expected)
+            throw syntax("Expected '" + expected + "' but found '" + (char) c + "'");
+        pos++;
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        int len = readStringBytes();
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    // Decodes up to the closing quote (the opening one is consumed) into scratch
+    private int readStringBytes() throws IOException {
+        int len = 0;
+        highSurrogate = 0;
+        while (true) {
+            if (pos == limit && !fill())
+                throw syntax("Unexpected end of JSON");
+            // Bulk-copy the plain run up to the next quote or escape
+            int start = pos;
+            while (pos < limit && buf[pos] != '"' && buf[pos] != '\\')
+                pos++;
+            if (pos > start) {
+                len = flushSurrogate(len);
+                len = append(len, buf, start, pos - start);
+            }
+            if (pos == limit)
+                continue;
+
+            if (buf[pos++] == '"')
+                return flushSurrogate(len);
+
+            int c = next(); // Escaped character
+            if (c == 'u') {
+                len = appendCodeUnit(len, hex4());
+                continue;
+            }
+            switch (c) {
+                case 'n': c = '\n'; break;
+                case 't': c = '\t'; break;
+                case 'r': c = '\r'; break;
+                case 'b': c = '\b'; break;
+                case 'f': c = '\f'; break;
+                case '"': case '\\': case '/': break;
+                default: throw syntax("Bad escape '\\" + (char) c + "'");
+            }
+            len = flushSurrogate(len);
+            len = append(len, c);
+        }
+    }
+
+    private int hex4() throws IOException {
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int d = Character.digit(next(), 16);
+            if (d < 0)
+                throw syntax("Bad \\u escape");
+            v = v << 4 | d;
+        }
+        return v;
+    }
+
+    // A \\u escape as UTF-8; a surrogate pair is held until both halves are in
+    private int appendCodeUnit(int len, int unit) {
+        if (Character.isHighSurrogate((char) unit)) {
+            len = flushSurrogate(len);
+            highSurrogate = unit;
+            return len;
+        }
+        if (Character.isLowSurrogate((char) unit) && highSurrogate != 0) {
+            int cp = Character.toCodePoint((char) highSurrogate, (char) unit);
+            highSurrogate = 0;
+            len = append(len, 0xF0 | cp >>> 18);
+            len = append(len, 0x80 | (cp >>> 12 & 0x3F));
+            len = append(len, 0x80 | (cp >>> 6 & 0x3F));
+            return append(len, 0x80 | (cp & 0x3F));
+        }
+        len = flushSurrogate(len);
+        return appendChar(len, unit);
+    }
+
+    // A high surrogate with no low half decodes as '?', like String's own decoder
+    private int flushSurrogate(int len) {
+        if (highSurrogate == 0)
+            return len;
+        highSurrogate = 0;
+        return append(len, '?');
+    }
+
+    private int appendChar(int len, int ch) {
+        if (ch < 0x80)
+            return append(len, ch);
+        if (ch < 0x800) {
+            len = append(len, 0xC0 | ch >>> 6);
+            return append(len, 0x80 | (ch & 0x3F));
+        }
+        if (Character.isSurrogate((char) ch))
+            return append(len, '?');
+        len = append(len, 0xE0 | ch >>> 12);
+        len = append(len, 0x80 | (ch >>> 6 & 0x3F));
+        return append(len, 0x80 | (ch & 0x3F));
+    }
+
+    // Number / true / false / null, as its bytes in scratch
+    private int readLiteral() throws IOException {
+        int len = 0;
+        while (true) {
+            if (pos == limit && !fill())
+                break;
+            int c = buf[pos] & 0xFF;
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t')
+                break;
+            if (c == '"' || c == '{' || c == '[' || c == ':')
+                throw syntax("Unexpected '" + (char) c + "'");
+            len = append(len, c);
+            pos++;
+        }
+        if (len == 0)
+            throw syntax("Expected a value");
+        return len;
+    }
+
+    private int append(int len, byte[] src, int from, int count) {
+        if (len + count > scratch.length)
+            scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, len + count));
+        System.arraycopy(src, from, scratch, len, count);
+        return len + count;
+    }
+
+    private int append(int len, int b) {
+        if (len == scratch.length)
+            scratch = Arrays.copyOf(scratch, len * 2);
+        scratch[len] = (byte) b;
+        return len + 1;
+    }
+
+    private IOException syntax(String message) {
+        return new IOException(message + " at byte " + (consumed + pos));
+    }
+
+    /** [-]digits[.digits] of up to 18 digits as unscaled long and scale; anything else via BigDecimal(String). */
+    static BigDecimal parseDecimal(byte[] b, int len) {
+        int i = 0;
+        boolean negative = len > 0 && b[0] == '-';
+        if (negative)
+            i++;
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < len; i++) {
+            int c = b[i];
+            if (c >= '0' && c <= '9') {
+                unscaled = unscaled * 10 + (c - '0');
+                digits++;
+                if (scale >= 0)
+                    scale++;
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                digits = 0; // Exponent, '+', stray characters: let BigDecimal decide
+                break;
+            }
+        }
+        if (digits > 0 && digits <= 18 && scale != 0)
+            return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+        try {
+            return new BigDecimal(new String(b, 0, len, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionIds;
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The original hand-written bank_data.json layout, one record per line,
+ * written and read through {@link JsonWriter} and {@link JsonReader}.
+ */
+public class JsonSnapshotCodec extends SnapshotCodec {
+
+    public JsonSnapshotCodec(AccountFactory accountFactory) {
+        super(accountFactory);
+    }
+
+    @Override
+    public int write(Path target, Collection<Account> accounts, Collection<Transaction> transactions, long lsn,
+            long sinceLsn, long txFrom) throws IOException {
+        int written = 0;
+        try (FileOutputStream fos = new FileOutputStream(target.toFile());
+                JsonWriter json = new JsonWriter(fos)) {
+            json.beginObject().newline().name("lsn").stringValue(lsn).name("txFrom").stringValue(txFrom);
+
+            // Accounts, one per line
+            json.newline().name("accounts").beginArray();
+            for (Account a : accounts) {
+                AccountState state = AccountState.capture(a);
+                if (sinceLsn > 0 && state.lsn <= sinceLsn)
+                    continue;
+
+                json.newline().beginObject().name("acc").value(a.getAccountNumber())
+                        .name("holder").value(a.getHolderName()).name("bal").stringValue(state.balance)
+                        .name("debt").stringValue(state.debt).name("lsn").stringValue(state.lsn)
+                        .name("accrued").stringValue(state.period).endObject();
+                written++;
+            }
+            json.endArray();
+
+            // Transactions
+            json.newline().name("transactions").beginArray();
+            for (Transaction t : transactions) {
+                json.newline().beginObject().name("id").value(t.getTransactionId())
+                        .name("src").value(t.getSourceAccount()).name("dest").value(t.getDestinationAccount())
+                        .name("amt").stringValue(t.getAmount()).name("stat").value(t.getStatus().name())
+                        .name("time").value(t.getTimestamp()).endObject();
+            }
+            json.endArray().endObject();
+
+            json.finish();
+            fos.getFD().sync();
+        }
+        return written;
+    }
+
+    /**
+     * Streaming, byte-level load. The file is consumed through the reader's
+     * fixed-size buffer and each account/transaction object is decoded on its
+     * own, so heap use during load is bounded by the largest single object
+     * rather than by the file size.
+     */
+    @Override
+    public long read(Path source, AccountRepository accounts, TransactionRepository transactions)
+            throws IOException {
+        try (JsonReader in = new JsonReader(Files.newInputStream(source))) {
+            return new SnapshotReader(in, accounts, transactions).read();
+        }
+    }
+
+    private final class SnapshotReader {
+        private static final int RESTORE_BATCH = 4096;
+
+        private final JsonReader in;
+        private final AccountRepository accounts;
+        private final TransactionRepository transactions;
+        private final Map<String, String> fields = new HashMap<>(); // Reused for every object
+        private final List<Transaction> batch = new ArrayList<>(RESTORE_BATCH);
+        private long txFrom; // 0 in files written before the log was kept in sealed files
+        private boolean resumed;
+
+        SnapshotReader(JsonReader in, AccountRepository accounts, TransactionRepository transactions) {
+            this.in = in;
+            this.accounts = accounts;
+            this.transactions = transactions;
+        }
+
+        long read() throws IOException {
+            long lsn = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if ("lsn".equals(key)) {
+                    lsn = in.nextLong();
+                } else if ("txFrom".equals(key)) {
+                    txFrom = in.nextLong();
+                } else if ("accounts".equals(key)) {
+                    resume();
+                    readObjects(this::restoreAccount);
+                } else if ("transactions".equals(key)) {
+                    resume();
+                    readObjects(this::restoreTransaction);
+                    flushBatch();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return lsn;
+        }
+
+        // Before any account or transaction: the log continues where this file's transactions start
+        private void resume() throws IOException {
+            if (!resumed)
+                transactions.resumeAt(txFrom);
+            resumed = true;
+        }
+
+        private void readObjects(Runnable onObject) throws IOException {
+            in.beginArray();
+            while (in.hasNext()) {
+                fields.clear();
+                in.beginObject();
+                while (in.hasNext()) {
+                    String key = in.nextName();
+                    int c = in.peek();
+                    if (c == '{' || c == '[')
+                        in.skipValue(); // Not part of the layout
+                    else
+                        fields.put(key, in.nextString());
+                }
+                in.endObject();
+                onObject.run();
+            }
+            in.endArray();
+        }
+
+        private void restoreAccount() {
+            String accNum = fields.get("acc");
+            String holder = fields.get("holder");
+            String balStr = fields.get("bal");
+            if (accNum == null || holder == null || balStr == null)
+                return;
+            String debtStr = fields.get("debt");
+            BigDecimal debt = (debtStr != null) ? new BigDecimal(debtStr) : BigDecimal.ZERO;
+            String lsnStr = fields.get("lsn");
+            String accruedStr = fields.get("accrued");
+            // A delta updates accounts the base restored in place: a new instance would drop their history
+            Account acc = accounts.findByAccountNumber(accNum).orElse(null);
+            boolean created = acc == null;
+            if (created)
+                acc = accountFactory.create(accNum, holder, new BigDecimal(balStr), debt);
+            else
+                acc.restoreBalance(new BigDecimal(balStr), debt);
+            if (lsnStr != null)
+                acc.setLastLsn(Long.parseLong(lsnStr));
+            if (accruedStr != null)
+                acc.restoreInterestPeriod(Long.parseLong(accruedStr));
+            if (!created)
+                return;
+            restoreHistory(acc, transactions);
+            accounts.save(acc);
+        }
+
+        private void restoreTransaction() {
+            String id = fields.get("id");
+            String src = fields.get("src");
+            String dest = fields.get("dest");
+            String amt = fields.get("amt");
+            if (id == null || src == null || dest == null || amt == null)
+                return;
+            String stat = fields.get("stat");
+            String time = fields.get("time");
+
+            Account from = accounts.findByAccountNumber(src).orElse(null);
+            Account to = accounts.findByAccountNumber(dest).orElse(null);
+            // Share the account's number instance instead of keeping one copy per transaction
+            Transaction tx = new Transaction(id, from != null ? from.getAccountNumber() : src,
+                    to != null ? to.getAccountNumber() : dest, new BigDecimal(amt),
+                    time != null ? parseInstant(time) : Instant.EPOCH,
+                    stat != null ? TransactionStatus.valueOf(stat) : TransactionStatus.FAILED);
+            TransactionIds.issueAfter(tx.getId());
+            if (from != null)
+                from.addTransaction(tx);
+            if (to != null)
+                to.addTransaction(tx);
+
+            batch.add(tx);
+            if (batch.size() == RESTORE_BATCH)
+                flushBatch();
+        }
+
+        /**
+         * Fast path for the "2026-01-18T10:17:13.614658300Z" form Instant.toString()
+         * writes; Instant.parse goes through DateTimeFormatter and dominates load
+         * time on large files.
+         */
+        private static Instant parseInstant(String s) {
+            int n = s.length();
+            if (n < 20 || s.charAt(4) != '-' || s.charAt(10) != 'T' || s.charAt(n - 1) != 'Z')
+                return Instant.parse(s);
+            try {
+                long days = LocalDate.of(digits(s, 0, 4), digits(s, 5, 7), digits(s, 8, 10)).toEpochDay();
+                long seconds = days * 86_400 + digits(s, 11, 13) * 3600L + digits(s, 14, 16) * 60L + digits(s, 17, 19);
+                int nanos = 0;
+                if (s.charAt(19) == '.') {
+                    int fractionDigits = n - 1 - 20;
+                    nanos = digits(s, 20, n - 1);
+                    for (int i = fractionDigits; i < 9; i++)
+                        nanos *= 10;
+                }
+                return Instant.ofEpochSecond(seconds, nanos);
+            } catch (RuntimeException e) {
+                return Instant.parse(s);
+            }
+        }
+
+        private static int digits(String s, int from, int to) {
+            int v = 0;
+            for (int i = from; i < to; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9')
+                    throw new NumberFormatException(s);
+                v = v * 10 + (c - '0');
+            }
+            return v;
+        }
+
+        private void flushBatch() {
+            transactions.saveAll(batch);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.bank.simulator.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Streaming JSON writer that encodes UTF-8 straight into a byte buffer. It
+ * replaces String.format, the intermediate String and its getBytes copy.
+ * Longs, BigDecimals and Instants are written digit by digit: a BigDecimal
+ * of up to 18 digits goes through its unscaled long, and fixed-point callers
+ * can pass minor units directly ({@link #decimal}).
+ *
+ * A writer with a {@link Sink} borrows a 64 KB buffer from a shared pool and
+ * hands each full buffer to the sink. A document that fits in one buffer
+ * reaches the sink in one piece marked last, so an HTTP response can still
+ * be sent with a Content-Length. {@link #close} returns the buffer. A writer
+ * without a sink grows its own buffer, for documents that are built once and
+ * sent many times.
+ *
+ * Commas are inserted automatically. There is no nesting check: callers
+ * write well-formed documents.
+ */
+public final class JsonWriter implements Closeable {
+
+    /** Receives the encoded document in order; {@code last} is set on the final piece only. */
+    public interface Sink {
+        void write(byte[] b, int off, int len, boolean last) throws IOException;
+    }
+
+    static final int BUFFER_SIZE = 1 << 16;
+    private static final ArrayBlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(64); // 4 MB at most
+    private static final byte[] DIGIT_PAIRS = new byte[200]; // "00" .. "99"
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private final Sink sink; // null: in memory
+    private byte[] buf;
+    private int count;
+    private boolean comma; // A value was just written at this level
+
+    /** In memory; see {@link #toByteArray()}. */
+    public JsonWriter(int initialCapacity) {
+        this.sink = null;
+        this.buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public JsonWriter(Sink sink) {
+        this.sink = sink;
+        this.buf = acquireBuffer();
+    }
+
+    /** Writes to {@code out}, which is neither flushed nor closed. */
+    public JsonWriter(OutputStream out) {
+        this((b, off, len, last) -> out.write(b, off, len));
+    }
+
+    static byte[] acquireBuffer() {
+        byte[] b = POOL.poll();
+        return b != null ? b : new byte[BUFFER_SIZE];
+    }
+
+    static void releaseBuffer(byte[] b) {
+        if (b.length == BUFFER_SIZE)
+            POOL.offer(b);
+    }
+
+    // ------------------------------------------------------------ structure
+
+    public JsonWriter beginObject() throws IOException {
+        separate();
+        put('{');
+        comma = false;
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        put('}');
+        comma = true;
+        return this;
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        separate();
+        put('[');
+        comma = false;
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        put(']');
+        comma = true;
+        return this;
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        put(':');
+        comma = false;
+        return this;
+    }
+
+    /** The comma, if one is due, then a line break: one record per line. */
+    public JsonWriter newline() throws IOException {
+        separate();
+        put('\n');
+        comma = false;
+        return this;
+    }
+
+    /**
+     * ASCII text between documents, such as SSE framing. The next value
+     * starts a new document, so it gets no comma.
+     */
+    public JsonWriter raw(String ascii) throws IOException {
+        ascii(ascii);
+        comma = false;
+        return this;
+    }
+
+    // --------------------------------------------------------------- values
+
+    public JsonWriter value(String s) throws IOException {
+        if (s == null)
+            return nullValue();
+        separate();
+        string(s);
+        comma = true;
+        return this;
+    }
+
+    public JsonWriter value(long v) throws IOException {
+        separate();
+        digits(v);
+        comma = true;
+        return this;
+    }
+
+    public JsonWriter value(boolean v) throws IOException {
+        return literal(v ? "true" : "false");
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        return literal("null");
+    }
+
+    /** In plain notation (never 1E+3), as a number. */
+    public JsonWriter value(BigDecimal d) throws IOException {
+        if (d == null)
+            return nullValue();
+        separate();
+        plain(d);
+        comma = true;
+        return this;
+    }
+
+    /** {@code units / 10^scale} as a number, e.g. 12345 at scale 2 is 123.45. */
+    public JsonWriter decimal(long units, int scale) throws IOException {
+        separate();
+        decimalDigits(units, scale);
+        comma = true;
+        return this;
+    }
+
+    /** As a string, like the snapshot layout's "bal":"100.00". */
+    public JsonWriter stringValue(BigDecimal d) throws IOException {
+        if (d == null)
+            return nullValue();
+        separate();
+        put('"');
+        plain(d);
+        put('"');
+        comma = true;
+        return this;
+    }
+
+    /** As a string, like the snapshot layout's "lsn":"42". */
+    public JsonWriter stringValue(long v) throws IOException {
+        separate();
+        put('"');
+        digits(v);
+        put('"');
+        comma = true;
+        return this;
+    }
+
+    /** Same text as Instant.toString(): ISO-8601 UTC with 0, 3, 6 or 9 fraction digits. */
+    public JsonWriter value(Instant t) throws IOException {
+        if (t == null)
+            return nullValue();
+        separate();
+        put('"');
+        instant(t.getEpochSecond(), t.getNano());
+        put('"');
+        comma = true;
+        return this;
+    }
+
+    // ---------------------------------------------------------------- output
+
+    public int size() {
+        return count;
+    }
+
+    /** The document so far, for an in-memory writer. */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    /** Hands what is left to the sink as the last piece and returns the buffer. */
+    public void finish() throws IOException {
+        if (sink == null)
+            throw new IllegalStateException("In-memory writer: use toByteArray()");
+        try {
+            sink.write(buf, 0, count, true);
+            count = 0;
+        } finally {
+            close();
+        }
+    }
+
+    /** Returns a pooled buffer without writing anything more; a no-op once finished. */
+    @Override
+    public void close() {
+        if (sink != null && buf != null) {
+            releaseBuffer(buf);
+            buf = null;
+        }
+    }
+
+    // ------------------------------------------------------------- internals
+
+    private void separate() throws IOException {
+        if (comma)
+            put(',');
+    }
+
+    private JsonWriter literal(String s) throws IOException {
+        separate();
+        ascii(s);
+        comma = true;
+        return this;
+    }
+
+    private void ascii(String s) throws IOException {
+        for (int i = 0, n = s.length(); i < n; i++)
+            put(s.charAt(i));
+    }
+
+    private void ensure(int n) throws IOException {
+        if (count + n <= buf.length)
+            return;
+        if (sink == null) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + n));
+        } else {
+            sink.write(buf, 0, count, false);
+            count = 0;
+        }
+    }
+
+    private void put(int b) throws IOException {
+        if (count == buf.length)
+            ensure(1);
+        buf[count++] = (byte) b;
+    }
+
+    private void string(String s) throws IOException {
+        put('"');
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                put(c);
+            } else if (c < 0x80) {
+                escape(c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[count++] = (byte) (0xC0 | c >>> 6);
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buf[count++] = (byte) (0xF0 | cp >>> 18);
+                buf[count++] = (byte) (0x80 | (cp >>> 12 & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp >>> 6 & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                put('?'); // Unpaired half, as String.getBytes would
+            } else {
+                ensure(3);
+                buf[count++] = (byte) (0xE0 | c >>> 12);
+                buf[count++] = (byte) (0x80 | (c >>> 6 & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        put('"');
+    }
+
+    private void escape(char c) throws IOException {
+        put('\\');
+        switch (c) {
+            case '"': put('"'); return;
+            case '\\': put('\\'); return;
+            case '\n': put('n'); return;
+            case '\r': put('r'); return;
+            case '\t': put('t'); return;
+            case '\b': put('b'); return;
+            case '\f': put('f'); return;
+            default:
+                put('u');
+                put('0');
+                put('0');
+                put(Character.forDigit(c >>> 4, 16));
+                put(Character.forDigit(c & 0xF, 16));
+        }
+    }
+
+    private void digits(long v) throws IOException {
+        if (v == Long.MIN_VALUE) {
+            ascii(Long.toString(v));
+            return;
+        }
+        ensure(20);
+        if (v < 0) {
+            buf[count++] = '-';
+            v = -v;
+        }
+        int n = 1;
+        while (n < 19 && v >= POWERS_OF_TEN[n])
+            n++;
+        writeDigits(v, n);
+    }
+
+    // The last n digits of v >= 0, zero-padded; room must be ensured
+    private void writeDigits(long v, int n) {
+        int end = count + n;
+        int i = end;
+        while (i - count >= 2) {
+            int pair = (int) (v % 100);
+            v /= 100;
+            buf[--i] = DIGIT_PAIRS[2 * pair + 1];
+            buf[--i] = DIGIT_PAIRS[2 * pair];
+        }
+        if (i > count)
+            buf[--i] = (byte) ('0' + v % 10);
+        count = end;
+    }
+
+    private void plain(BigDecimal d) throws IOException {
+        int scale = d.scale();
+        if (scale >= 0 && scale < POWERS_OF_TEN.length && d.precision() <= 18) {
+            decimalDigits(d.unscaledValue().longValue(), scale);
+        } else {
+            ascii(d.toPlainString());
+        }
+    }
+
+    private void decimalDigits(long units, int scale) throws IOException {
+        if (units == Long.MIN_VALUE || scale < 0 || scale >= POWERS_OF_TEN.length) {
+            ascii(BigDecimal.valueOf(units, scale).toPlainString());
+            return;
+        }
+        ensure(22);
+        if (units < 0) {
+            buf[count++] = '-';
+            units = -units;
+        }
+        long pow = POWERS_OF_TEN[scale];
+        long whole = units / pow;
+        int n = 1;
+        while (n < 19 && whole >= POWERS_OF_TEN[n])
+            n++;
+        writeDigits(whole, n);
+        if (scale > 0) {
+            buf[count++] = '.';
+            writeDigits(units % pow, scale);
+        }
+    }
+
+    private void instant(long epochSecond, int nano) throws IOException {
+        long days = Math.floorDiv(epochSecond, 86_400L);
+        int secondOfDay = (int) Math.floorMod(epochSecond, 86_400L);
+        // Civil date from days since 1970-01-01 (proleptic Gregorian, eras of 400 years)
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            ascii(Instant.ofEpochSecond(epochSecond, nano).toString()); // Signed or 5+ digit years
+            return;
+        }
+        ensure(30);
+        writeDigits(year, 4);
+        buf[count++] = '-';
+        writeDigits(month, 2);
+        buf[count++] = '-';
+        writeDigits(day, 2);
+        buf[count++] = 'T';
+        writeDigits(secondOfDay / 3600, 2);
+        buf[count++] = ':';
+        writeDigits(secondOfDay / 60 % 60, 2);
+        buf[count++] = ':';
+        writeDigits(secondOfDay % 60, 2);
+        if (nano != 0) {
+            buf[count++] = '.';
+            if (nano % 1_000_000 == 0)
+                writeDigits(nano / 1_000_000, 3);
+            else if (nano % 1000 == 0)
+                writeDigits(nano / 1000, 6);
+            else
+                writeDigits(nano, 9);
+        }
+        buf[count++] = 'Z';
+    }
+}
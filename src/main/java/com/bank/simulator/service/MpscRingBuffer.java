@@ -0,0 +1,81 @@
+package com.bank.simulator.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer / single-consumer ring buffer.
+ *
+ * Producers claim a slot with one CAS on the tail and publish it by bumping the
+ * slot's sequence number; the single consumer reads slots in order without any
+ * CAS. Capacity is rounded up to a power of two.
+ */
+public class MpscRingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray sequences; // Slot i is writable when seq == pos, readable when seq == pos + 1
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong(); // Written only by the consumer
+
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    public boolean offer(E element) {
+        long pos;
+        int index;
+        while (true) {
+            pos = tail.get();
+            index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1))
+                    break;
+            } else if (diff < 0) {
+                return false; // Consumer has not freed this slot yet
+            }
+        }
+        slots[index] = element;
+        sequences.lazySet(index, pos + 1); // Publish
+        return true;
+    }
+
+    /**
+     * Consumer only.
+     *
+     * @return next element, or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long pos = head.get();
+        int index = (int) pos & mask;
+        if (sequences.get(index) != pos + 1)
+            return null;
+        E element = (E) slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, pos + slots.length); // Free for the producer one lap ahead
+        head.lazySet(pos + 1);
+        return element;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
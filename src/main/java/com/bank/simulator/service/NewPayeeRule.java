@@ -0,0 +1,105 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Rejects a transfer above {@code minAmount} to a destination the source
+ * account has not paid before. Smaller first payments go through and make the
+ * destination a known payee.
+ *
+ * Each tracked source keeps the hashes of its last {@link #PAYEES}
+ * destinations in a small lock-free array (CAS into a free slot, round-robin
+ * replacement once full), so memory per account is fixed. A hash collision
+ * makes an unknown payee look known, which fails open; with 32-bit hashes and
+ * a handful of payees that is negligible for a heuristic.
+ *
+ * Payee history of accounts idle for {@code memoryMillis} may be dropped
+ * when the table fills up.
+ */
+public class NewPayeeRule implements FraudRule {
+
+    static final int PAYEES = 32;
+
+    private final BigDecimal minAmount;
+    private final long memoryMillis;
+    private final AccountStateTable<Payees> payees;
+
+    static final class Payees extends AccountStateTable.State {
+        final AtomicIntegerArray hashes = new AtomicIntegerArray(PAYEES); // 0 = free
+        final AtomicInteger next = new AtomicInteger(); // Replacement cursor once full
+    }
+
+    public NewPayeeRule(BigDecimal minAmount, long memoryMillis, int maxAccounts) {
+        this.minAmount = minAmount;
+        this.memoryMillis = memoryMillis;
+        this.payees = new AccountStateTable<>(maxAccounts, memoryMillis, account -> new Payees());
+    }
+
+    @Override
+    public String getName() {
+        return "new-payee";
+    }
+
+    @Override
+    public boolean usesClock() {
+        return true;
+    }
+
+    @Override
+    public boolean isViolated(Account source, Account destination, BigDecimal amount, long nowMillis) {
+        Payees p = payees.get(source.getAccountNumber(), nowMillis);
+        if (p == null)
+            return false; // Table full of active accounts: fail open rather than grow
+        int hash = destination.getAccountNumber().hashCode();
+        if (hash == 0)
+            hash = 1;
+        if (known(p, hash))
+            return false;
+        if (amount.compareTo(minAmount) > 0)
+            return true; // Not remembered: a rejected payment does not make a payee known
+        remember(p, hash);
+        return false;
+    }
+
+    private static boolean known(Payees p, int hash) {
+        for (int i = 0; i < PAYEES; i++) {
+            int h = p.hashes.get(i);
+            if (h == hash)
+                return true;
+            if (h == 0)
+                return false; // Slots fill in order, so the rest are free
+        }
+        return false;
+    }
+
+    private static void remember(Payees p, int hash) {
+        for (int i = 0; i < PAYEES; i++) {
+            int h = p.hashes.get(i);
+            if (h == hash)
+                return; // A concurrent payment to the same payee got here first
+            if (h == 0 && p.hashes.compareAndSet(i, 0, hash))
+                return;
+        }
+        // Full: overwrite the oldest-ish slot
+        p.hashes.set(Math.floorMod(p.next.getAndIncrement(), PAYEES), hash);
+    }
+
+    public BigDecimal getMinAmount() {
+        return minAmount;
+    }
+
+    public long getMemoryMillis() {
+        return memoryMillis;
+    }
+
+    public int getTrackedAccounts() {
+        return payees.size();
+    }
+
+    public long getUntracked() {
+        return payees.getUntracked();
+    }
+}
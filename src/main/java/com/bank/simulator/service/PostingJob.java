@@ -0,0 +1,151 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.FixedPointAccount;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A named set of {@link PostingRule}s that a {@link BatchPostingRunner} applies
+ * to every account. The name is stored with the run's progress, so an
+ * interrupted run is resumed with the job of the same name.
+ */
+public class PostingJob {
+
+    public static final String INTEREST = "interest";
+    public static final String FEES = "fees";
+    public static final BigDecimal DEFAULT_MONTHLY_FEE = new BigDecimal("2.50");
+
+    private final String name;
+    private final List<PostingRule> rules;
+
+    public PostingJob(String name, List<PostingRule> rules) {
+        this.name = name;
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+    }
+
+    /** Savings interest on positive balances and debt interest on outstanding debt. */
+    public static PostingJob interest(BigDecimal rate, BigDecimal debtRate) {
+        return new PostingJob(INTEREST, Arrays.asList(new InterestRule(rate), new DebtInterestRule(debtRate)));
+    }
+
+    /** A flat fee, waived when it would take the balance below MIN_BALANCE. */
+    public static PostingJob monthlyFee(BigDecimal fee) {
+        return new PostingJob(FEES, Collections.singletonList(new FeeRule(fee)));
+    }
+
+    /**
+     * The built-in job called {@code name}: {@value #INTEREST} (the interest
+     * service's rates) or {@value #FEES} ({@code bank.fees.monthly}, default
+     * 2.50).
+     */
+    public static PostingJob configured(String name, Properties props) {
+        switch (name) {
+            case INTEREST:
+                return InterestService.interestJob();
+            case FEES:
+                return monthlyFee(new BigDecimal(
+                        props.getProperty("bank.fees.monthly", DEFAULT_MONTHLY_FEE.toPlainString())));
+            default:
+                throw new IllegalArgumentException("Unknown posting job: " + name);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<PostingRule> getRules() {
+        return rules;
+    }
+
+    // Postings are rounded to the ledger scale: 2 for decimal accounts, like the sweep
+    private static BigDecimal round(Account account, BigDecimal value) {
+        int scale = account instanceof FixedPointAccount ? ((FixedPointAccount) account).getScale() : 2;
+        return value.setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    private static final class InterestRule implements PostingRule {
+        private final BigDecimal rate;
+
+        InterestRule(BigDecimal rate) {
+            this.rate = rate;
+        }
+
+        @Override
+        public String getName() {
+            return "interest";
+        }
+
+        @Override
+        public String getCounterparty() {
+            return "SYS-INTEREST";
+        }
+
+        @Override
+        public Posting compute(Account account) {
+            BigDecimal balance = account.getBalance();
+            if (balance.signum() <= 0)
+                return null;
+            BigDecimal interest = round(account, balance.multiply(rate));
+            return interest.signum() == 0 ? null : new Posting(interest, BigDecimal.ZERO);
+        }
+    }
+
+    private static final class DebtInterestRule implements PostingRule {
+        private final BigDecimal rate;
+
+        DebtInterestRule(BigDecimal rate) {
+            this.rate = rate;
+        }
+
+        @Override
+        public String getName() {
+            return "debt-interest";
+        }
+
+        @Override
+        public String getCounterparty() {
+            return "SYS-DEBT-INTEREST";
+        }
+
+        @Override
+        public Posting compute(Account account) {
+            BigDecimal debt = account.getDebt();
+            if (debt.signum() <= 0)
+                return null;
+            BigDecimal interest = round(account, debt.multiply(rate));
+            return interest.signum() == 0 ? null : new Posting(BigDecimal.ZERO, interest);
+        }
+    }
+
+    private static final class FeeRule implements PostingRule {
+        private final BigDecimal fee;
+
+        FeeRule(BigDecimal fee) {
+            this.fee = fee;
+        }
+
+        @Override
+        public String getName() {
+            return "monthly-fee";
+        }
+
+        @Override
+        public String getCounterparty() {
+            return "SYS-FEES";
+        }
+
+        @Override
+        public Posting compute(Account account) {
+            if (account.getBalance().subtract(fee).compareTo(Account.MIN_BALANCE) < 0)
+                return null;
+            return new Posting(fee.negate(), BigDecimal.ZERO);
+        }
+    }
+}
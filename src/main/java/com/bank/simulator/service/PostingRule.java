@@ -0,0 +1,44 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import java.math.BigDecimal;
+
+/**
+ * One posting a {@link BatchPostingRunner} job makes to each account, e.g.
+ * savings interest or a monthly fee. Each posting becomes a Transaction
+ * between the account and the rule's system counterparty.
+ *
+ * Rules run on many worker threads at once, each under the write lock of the
+ * account it is computing for; they must be stateless or thread-safe.
+ */
+public interface PostingRule {
+
+    /** Short identifier, part of each posting's transaction id. */
+    String getName();
+
+    /** Account number recorded on the other side of the transaction (not a real account). */
+    String getCounterparty();
+
+    /**
+     * @return the change to post, or null if nothing is due for this account
+     */
+    Posting compute(Account account);
+
+    final class Posting {
+        private final BigDecimal balanceDelta;
+        private final BigDecimal debtDelta;
+
+        public Posting(BigDecimal balanceDelta, BigDecimal debtDelta) {
+            this.balanceDelta = balanceDelta;
+            this.debtDelta = debtDelta;
+        }
+
+        public BigDecimal getBalanceDelta() {
+            return balanceDelta;
+        }
+
+        public BigDecimal getDebtDelta() {
+            return debtDelta;
+        }
+    }
+}
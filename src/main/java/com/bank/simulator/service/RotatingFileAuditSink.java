@@ -0,0 +1,126 @@
+package com.bank.simulator.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Audit files in a directory, rotated by size and age: audit-000000001.log,
+ * audit-000000002.log, ... Numbering continues from the highest file already
+ * there, so a restart never appends to or overwrites an older file.
+ *
+ * Each batch is one channel write. How often it is forced to disk is the
+ * {@link FsyncPolicy}; a file is always forced when it is sealed or closed.
+ */
+public class RotatingFileAuditSink implements AuditSink {
+
+    public enum FsyncPolicy {
+        /** Leave it to the OS: fastest, a crash can lose the last seconds. */
+        NEVER,
+        /** Force after every batch: nothing acknowledged-as-written is lost. */
+        BATCH,
+        /** Force at most once per interval. */
+        INTERVAL
+    }
+
+    private static final String FILE_PREFIX = "audit-";
+    private static final String FILE_SUFFIX = ".log";
+
+    private final Path dir;
+    private final long maxFileBytes;
+    private final long maxFileMillis;
+    private final FsyncPolicy fsync;
+    private final long fsyncIntervalMillis;
+
+    private FileChannel channel;
+    private Path activeFile;
+    private long fileSeq;
+    private long fileBytes;
+    private long fileOpenedAt;
+    private long lastForceAt;
+    private volatile long rotations;
+    private volatile long forces;
+
+    /**
+     * @param maxFileBytes  rotate before a batch would take the file past this
+     * @param maxFileMillis rotate once a file has been open this long, 0 for
+     *                      size-only rotation
+     */
+    public RotatingFileAuditSink(Path dir, long maxFileBytes, long maxFileMillis, FsyncPolicy fsync,
+            long fsyncIntervalMillis) throws IOException {
+        this.dir = dir;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFileMillis = maxFileMillis;
+        this.fsync = fsync;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                try {
+                    fileSeq = Math.max(fileSeq, Long.parseLong(
+                            name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        openNextFile();
+    }
+
+    private void openNextFile() throws IOException {
+        fileSeq++;
+        activeFile = dir.resolve(String.format("%s%09d%s", FILE_PREFIX, fileSeq, FILE_SUFFIX));
+        channel = FileChannel.open(activeFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        fileBytes = 0;
+        fileOpenedAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public void write(ByteBuffer batch) throws IOException {
+        long now = System.currentTimeMillis();
+        if (fileBytes > 0 && (fileBytes + batch.remaining() > maxFileBytes
+                || (maxFileMillis > 0 && now - fileOpenedAt >= maxFileMillis)))
+            rotate(now);
+        fileBytes += batch.remaining();
+        while (batch.hasRemaining())
+            channel.write(batch);
+        if (fsync == FsyncPolicy.BATCH || (fsync == FsyncPolicy.INTERVAL && now - lastForceAt >= fsyncIntervalMillis))
+            force(now);
+    }
+
+    private void rotate(long now) throws IOException {
+        force(now);
+        channel.close();
+        openNextFile();
+        rotations++;
+    }
+
+    private void force(long now) throws IOException {
+        channel.force(false);
+        lastForceAt = now;
+        forces++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        force(System.currentTimeMillis());
+        channel.close();
+    }
+
+    public Path getActiveFile() {
+        return activeFile;
+    }
+
+    public long getRotations() {
+        return rotations;
+    }
+
+    public long getForces() {
+        return forces;
+    }
+}
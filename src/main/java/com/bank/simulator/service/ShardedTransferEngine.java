@@ -0,0 +1,471 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.FixedPointAccount;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.TransactionRepository;
+import java.math.BigDecimal;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer transfer engine.
+ *
+ * Accounts are partitioned across N shards by account number. Each shard is
+ * owned by one thread that drains a bounded MPSC ring of transfer commands, so
+ * transfers never compete with each other for account locks and never time
+ * out waiting for one.
+ * <ul>
+ * <li>Same-shard transfer: debit and credit run back to back on the owning
+ * thread, journaled as one TRANSFER record.</li>
+ * <li>Cross-shard transfer: the source shard debits (checking MIN_BALANCE) and
+ * hands the command to the destination shard, which credits. If the credit
+ * fails the command goes back to the source shard, which refunds it. Every leg
+ * is journaled as its own POSTING record; a crash between the legs is refunded
+ * during journal replay.</li>
+ * </ul>
+ * The owner thread still takes each account's write lock for the few
+ * nanoseconds of the update. Nothing else contends for it except interest
+ * postings, loans and balance readers, which keeps those paths and fuzzy
+ * checkpoints (balance + LSN read together) correct unchanged. While a
+ * cross-shard transfer is between its legs the amount is in flight and is not
+ * visible in either account.
+ */
+public class ShardedTransferEngine {
+
+    private static final int DRAIN_BATCH = 256;
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Shard[] shards;
+    private final TransactionRepository transactionRepository;
+    private final JournalService journalService;
+    private final AuditService auditService;
+    private volatile boolean accepting; // submit() admits new commands
+    private volatile boolean running; // Shard threads keep polling
+
+    // Submitters between their 'accepting' check and the end of their offer (see shutdown())
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder enqueued = new LongAdder();
+
+    // Metrics
+    private final AtomicLong localTransfers = new AtomicLong();
+    private final AtomicLong crossShardTransfers = new AtomicLong();
+    private final AtomicLong compensations = new AtomicLong();
+
+    public ShardedTransferEngine(int shardCount, int ringCapacity, TransactionRepository transactionRepository,
+            JournalService journalService, AuditService auditService) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("shardCount must be >= 1");
+        this.transactionRepository = transactionRepository;
+        this.journalService = journalService;
+        this.auditService = auditService;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard(i, ringCapacity);
+    }
+
+    public synchronized void start() {
+        if (running)
+            return;
+        running = true;
+        accepting = true;
+        for (Shard shard : shards) {
+            shard.thread = new Thread(shard::runLoop, "transfer-shard-" + shard.id);
+            shard.thread.setDaemon(true);
+            shard.thread.start();
+        }
+        System.out.println(">> Sharded Transfer Engine Started: " + shards.length + " shards.");
+    }
+
+    /**
+     * Stops admitting transfers, waits for submitters already past the check
+     * to finish their offer, lets every shard drain what is queued, then stops
+     * the threads. A command still queued after that fails its future.
+     */
+    public synchronized void shutdown() {
+        if (!running)
+            return;
+        accepting = false;
+        // Exits are read first: a submitter counted in neither sum sees accepting == false
+        while (enqueued.sum() != admitted.sum())
+            Thread.onSpinWait(); // Shards are still polling, so a full ring keeps draining
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (Shard shard : shards)
+            shard.failLeftovers();
+    }
+
+    /**
+     * Queues a transfer on the source account's shard. Blocks (spinning, then
+     * parking) while that shard's ring is full.
+     *
+     * @return completes with the SUCCESS transaction, or exceptionally with the
+     *         failure (e.g. InsufficientFundsException) after rolling back
+     */
+    public CompletableFuture<Transaction> submit(Account from, Account to, BigDecimal amount) {
+        CompletableFuture<Transaction> future = new CompletableFuture<>();
+        admitted.increment();
+        try {
+            if (!accepting) {
+                future.completeExceptionally(new IllegalStateException("Transfer engine is not running"));
+                return future;
+            }
+            enqueue(from, to, amount, future);
+        } finally {
+            enqueued.increment();
+        }
+        return future;
+    }
+
+    private void enqueue(Account from, Account to, BigDecimal amount, CompletableFuture<Transaction> future) {
+        // Fixed-point ledger: convert once here, shards only do long arithmetic
+        boolean fixedPoint = from instanceof FixedPointAccount && to instanceof FixedPointAccount
+                && ((FixedPointAccount) from).getScale() == ((FixedPointAccount) to).getScale();
+        long units = 0;
+        if (fixedPoint) {
+            try {
+                units = ((FixedPointAccount) from).toUnits(amount);
+            } catch (ArithmeticException e) {
+                future.completeExceptionally(
+                        new IllegalArgumentException("Amount not representable in the ledger: " + amount));
+                return;
+            }
+        }
+
+        TransferCommand cmd = new TransferCommand(from, to, amount, fixedPoint, units,
+                new Transaction(from.getAccountNumber(), to.getAccountNumber(), amount), future);
+        Shard shard = shardOf(from);
+        int idle = 0;
+        while (!shard.ring.offer(cmd)) {
+            // Back-pressure: the shard is saturated
+            if (++idle < SPINS_BEFORE_PARK)
+                Thread.onSpinWait();
+            else
+                LockSupport.parkNanos(PARK_NANOS);
+        }
+        shard.wake();
+    }
+
+    private Shard shardOf(Account account) {
+        return shards[Math.floorMod(account.getAccountNumber().hashCode(), shards.length)];
+    }
+
+    // ----------------------------------------------------------------- shards
+
+    private enum Phase {
+        DEBIT, // On the source shard; same-shard transfers complete here
+        CREDIT, // On the destination shard
+        REFUND // Back on the source shard after a failed credit
+    }
+
+    private static final class TransferCommand {
+        final Account from;
+        final Account to;
+        final BigDecimal amount;
+        final boolean fixedPoint;
+        final long units;
+        final Transaction transaction;
+        final CompletableFuture<Transaction> future;
+        Phase phase = Phase.DEBIT; // Handed between shard threads via a concurrent queue (safe publication)
+        RuntimeException failure;
+
+        TransferCommand(Account from, Account to, BigDecimal amount, boolean fixedPoint, long units,
+                Transaction transaction, CompletableFuture<Transaction> future) {
+            this.from = from;
+            this.to = to;
+            this.amount = amount;
+            this.fixedPoint = fixedPoint;
+            this.units = units;
+            this.transaction = transaction;
+            this.future = future;
+        }
+    }
+
+    private final class Shard {
+        final int id;
+        // External submissions: bounded, callers back off when it is full
+        final MpscRingBuffer<TransferCommand> ring;
+        // Second legs from other shards: never blocks a shard thread (which could deadlock two
+        // shards waiting on each other); bounded in practice by the commands already admitted
+        final Queue<TransferCommand> handoff = new ConcurrentLinkedQueue<>();
+        volatile boolean parked;
+        Thread thread;
+
+        Shard(int id, int ringCapacity) {
+            this.id = id;
+            this.ring = new MpscRingBuffer<>(ringCapacity);
+        }
+
+        void wake() {
+            if (parked)
+                LockSupport.unpark(thread);
+        }
+
+        void handOff(TransferCommand cmd) {
+            handoff.add(cmd);
+            wake();
+        }
+
+        // After the thread is gone: nothing may wait forever on a command it never ran
+        void failLeftovers() {
+            TransferCommand cmd;
+            while ((cmd = handoff.poll()) != null || (cmd = ring.poll()) != null)
+                cmd.future.completeExceptionally(new IllegalStateException("Transfer engine stopped"));
+        }
+
+        void runLoop() {
+            int idle = 0;
+            while (running || !ring.isEmpty() || !handoff.isEmpty()) {
+                int done = 0;
+                TransferCommand cmd;
+                while (done < DRAIN_BATCH && (cmd = handoff.poll()) != null) {
+                    execute(cmd);
+                    done++;
+                }
+                while (done < DRAIN_BATCH && (cmd = ring.poll()) != null) {
+                    execute(cmd);
+                    done++;
+                }
+
+                if (done > 0) {
+                    idle = 0;
+                } else if (++idle < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    parked = true;
+                    // Re-check after publishing 'parked' so a concurrent submit cannot be missed;
+                    // the timeout bounds any remaining race
+                    if (ring.isEmpty() && handoff.isEmpty() && running)
+                        LockSupport.parkNanos(PARK_NANOS);
+                    parked = false;
+                }
+            }
+        }
+
+        void execute(TransferCommand cmd) {
+            try {
+                switch (cmd.phase) {
+                    case DEBIT:
+                        if (shardOf(cmd.to) == this)
+                            transferLocal(cmd);
+                        else
+                            debitLeg(cmd);
+                        break;
+                    case CREDIT:
+                        creditLeg(cmd);
+                        break;
+                    case REFUND:
+                        refundLeg(cmd);
+                        break;
+                }
+            } catch (RuntimeException e) {
+                // Never let one command kill the shard thread
+                cmd.future.completeExceptionally(e);
+            }
+        }
+
+        private void transferLocal(TransferCommand cmd) {
+            Account first = Account.LOCK_ORDER.compare(cmd.from, cmd.to) < 0 ? cmd.from : cmd.to;
+            Account second = first == cmd.from ? cmd.to : cmd.from;
+            Lock lock1 = first.getLock().writeLock();
+            Lock lock2 = second.getLock().writeLock();
+            long lsn = 0;
+            int change = -1;
+            RuntimeException failure = null;
+            lock1.lock();
+            lock2.lock();
+            boolean declined = false;
+            try {
+                if (debit(cmd)) {
+                    credit(cmd);
+                    cmd.transaction.markSuccess();
+                    change = journalService.beginChange();
+                    lsn = journalService.nextLsn();
+                    cmd.from.setLastLsn(lsn);
+                    cmd.to.setLastLsn(lsn);
+                    journalService.markChanged(cmd.from);
+                    journalService.markChanged(cmd.to);
+                } else {
+                    cmd.transaction.markRolledBack();
+                    declined = true;
+                }
+            } catch (RuntimeException e) {
+                cmd.transaction.markRolledBack();
+                failure = e;
+            } finally {
+                lock2.unlock();
+                lock1.unlock();
+            }
+            if (declined)
+                failure = cmd.from.insufficientFunds(); // The future is the API edge
+            localTransfers.incrementAndGet();
+            transactionRepository.save(cmd.transaction); // Saved before journaled, see StorageService#checkpoint
+            if (change >= 0)
+                journalService.endChange(change);
+            if (lsn != 0)
+                journalService.logTransaction(cmd.transaction, lsn);
+            else
+                journalService.logTransaction(cmd.transaction);
+            complete(cmd, failure);
+        }
+
+        private void debitLeg(TransferCommand cmd) {
+            Lock lock = cmd.from.getLock().writeLock();
+            long lsn = 0;
+            RuntimeException failure = null;
+            boolean declined = false;
+            lock.lock();
+            try {
+                if (debit(cmd)) {
+                    lsn = journalService.nextLsn();
+                    cmd.from.setLastLsn(lsn);
+                    journalService.markChanged(cmd.from);
+                } else {
+                    cmd.transaction.markRolledBack();
+                    declined = true;
+                }
+            } catch (RuntimeException e) {
+                cmd.transaction.markRolledBack();
+                failure = e;
+            } finally {
+                lock.unlock();
+            }
+            if (declined)
+                failure = cmd.from.insufficientFunds();
+            if (failure != null) {
+                transactionRepository.save(cmd.transaction);
+                journalService.logTransaction(cmd.transaction);
+                complete(cmd, failure);
+                return;
+            }
+            journalService.logPosting(cmd.transaction.getTransactionId(), cmd.from.getAccountNumber(),
+                    cmd.amount.negate(), JournalService.LEG_DEBIT, lsn);
+            crossShardTransfers.incrementAndGet();
+            cmd.phase = Phase.CREDIT;
+            shardOf(cmd.to).handOff(cmd);
+        }
+
+        private void creditLeg(TransferCommand cmd) {
+            Lock lock = cmd.to.getLock().writeLock();
+            long lsn = 0;
+            lock.lock();
+            try {
+                credit(cmd);
+                cmd.transaction.markSuccess();
+                lsn = journalService.nextLsn();
+                cmd.to.setLastLsn(lsn);
+                journalService.markChanged(cmd.to);
+            } catch (RuntimeException e) {
+                cmd.failure = e;
+            } finally {
+                lock.unlock();
+            }
+            if (cmd.failure != null) {
+                // Compensate on the shard that owns the source account
+                cmd.phase = Phase.REFUND;
+                shardOf(cmd.from).handOff(cmd);
+                return;
+            }
+            journalService.logPosting(cmd.transaction.getTransactionId(), cmd.to.getAccountNumber(), cmd.amount,
+                    JournalService.LEG_CREDIT, lsn);
+            transactionRepository.save(cmd.transaction);
+            journalService.logSettledTransfer(cmd.transaction, journalService.nextLsn());
+            complete(cmd, null);
+        }
+
+        private void refundLeg(TransferCommand cmd) {
+            Lock lock = cmd.from.getLock().writeLock();
+            long lsn;
+            lock.lock();
+            try {
+                if (cmd.fixedPoint)
+                    ((FixedPointAccount) cmd.from).creditUnits(cmd.units);
+                else
+                    cmd.from.credit(cmd.amount);
+                cmd.transaction.markRolledBack();
+                lsn = journalService.nextLsn();
+                cmd.from.setLastLsn(lsn);
+                journalService.markChanged(cmd.from);
+            } finally {
+                lock.unlock();
+            }
+            compensations.incrementAndGet();
+            journalService.logPosting(cmd.transaction.getTransactionId(), cmd.from.getAccountNumber(), cmd.amount,
+                    JournalService.LEG_REFUND, lsn);
+            transactionRepository.save(cmd.transaction);
+            journalService.logTransaction(cmd.transaction);
+            complete(cmd, cmd.failure);
+        }
+
+        // False if declined for insufficient funds
+        private boolean debit(TransferCommand cmd) {
+            if (cmd.fixedPoint)
+                return ((FixedPointAccount) cmd.from).tryDebitUnits(cmd.units);
+            return cmd.from.tryDebit(cmd.amount);
+        }
+
+        private void credit(TransferCommand cmd) {
+            if (cmd.fixedPoint)
+                ((FixedPointAccount) cmd.to).creditUnits(cmd.units);
+            else
+                cmd.to.credit(cmd.amount);
+        }
+    }
+
+    // Same post-processing as BankService.transfer; the transaction is already saved
+    private void complete(TransferCommand cmd, RuntimeException failure) {
+        Transaction tx = cmd.transaction;
+        cmd.from.addTransaction(tx);
+        cmd.to.addTransaction(tx);
+        auditService.logTransaction(tx);
+        if (failure == null)
+            cmd.future.complete(tx);
+        else
+            cmd.future.completeExceptionally(failure);
+    }
+
+    // --------------------------------------------------------------- metrics
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Commands waiting in each shard's ring (external submissions only).
+     */
+    public int[] getQueueDepths() {
+        int[] depths = new int[shards.length];
+        for (int i = 0; i < shards.length; i++)
+            depths[i] = shards[i].ring.size();
+        return depths;
+    }
+
+    public long getLocalTransfers() {
+        return localTransfers.get();
+    }
+
+    public long getCrossShardTransfers() {
+        return crossShardTransfers.get();
+    }
+
+    public long getCompensations() {
+        return compensations.get();
+    }
+}
@@ -0,0 +1,114 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.AccountLock;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * On-disk snapshot format used by {@link StorageService} checkpoints.
+ */
+public abstract class SnapshotCodec {
+
+    protected final AccountFactory accountFactory; // Restored accounts use the deployment's ledger mode
+
+    protected SnapshotCodec(AccountFactory accountFactory) {
+        this.accountFactory = accountFactory;
+    }
+
+    /**
+     * Writes a snapshot and fsyncs it. The caller is responsible for writing to
+     * a temp file and moving it into place.
+     *
+     * @param sinceLsn only accounts changed after this LSN are written (0 = all)
+     * @param txFrom   log position of the first of {@code transactions}; the
+     *                 positions below it are in the transaction store's sealed
+     *                 files (see {@link TransactionRepository#resumeAt(long)})
+     * @return number of accounts written
+     */
+    public abstract int write(Path target, Collection<Account> accounts, Collection<Transaction> transactions,
+            long lsn, long sinceLsn, long txFrom) throws IOException;
+
+    /** A snapshot whose transactions are the whole log. */
+    public int write(Path target, Collection<Account> accounts, Collection<Transaction> transactions, long lsn,
+            long sinceLsn) throws IOException {
+        return write(target, accounts, transactions, lsn, sinceLsn, 0);
+    }
+
+    /**
+     * Loads a snapshot into the repositories.
+     *
+     * @return the LSN the snapshot covers (0 for files written before
+     *         checkpointing)
+     */
+    public abstract long read(Path source, AccountRepository accounts, TransactionRepository transactions)
+            throws IOException;
+
+    /**
+     * Gives a restored account the entries it has in sealed files of the
+     * transaction log, which the snapshot does not carry.
+     */
+    static void restoreHistory(Account account, TransactionRepository transactions) {
+        if (transactions.hasRestoredFiles())
+            account.restoreHistory(transactions::restoredHistory);
+    }
+
+    /**
+     * Balance, debt, LSN and interest period of one account, read together
+     * under its read lock so a fuzzy checkpoint never pairs a balance with the
+     * wrong LSN.
+     */
+    static final class AccountState {
+        final long lsn;
+        final BigDecimal balance;
+        final BigDecimal debt;
+        final long period; // Lazy interest accrued up to here (0 = none)
+
+        private AccountState(long lsn, BigDecimal balance, BigDecimal debt, long period) {
+            this.lsn = lsn;
+            this.balance = balance;
+            this.debt = debt;
+            this.period = period;
+        }
+
+        static AccountState capture(Account account) {
+            AccountLock lock = account.getLock();
+            while (true) {
+                // Lazy interest is materialized (and journaled) first: a balance that
+                // included unjournaled interest would be counted again on replay
+                account.accrueInterest();
+                // Holds off writers; the getters below read inside it. Stripe legs
+                // do not take the account lock, only the write lock excludes them
+                boolean striped = account.isStriped();
+                Lock writeLock = lock.writeLock();
+                long stamp = 0;
+                if (striped)
+                    writeLock.lock();
+                else
+                    stamp = lock.readLock();
+                try {
+                    if (striped || !account.isStriped()) { // Not striped while we waited for the read lock
+                        AccountState state = new AccountState(account.getLastLsn(), account.getBalance(),
+                                account.getDebt(), account.getInterestPeriod());
+                        if (!account.hasPendingInterest())
+                            return state;
+                    }
+                } finally {
+                    if (striped)
+                        writeLock.unlock();
+                    else
+                        lock.unlockRead(stamp);
+                }
+                // A period boundary passed in between (or the account got striped): again
+            }
+        }
+    }
+}
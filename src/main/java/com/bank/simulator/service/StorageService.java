@@ -1,155 +1,379 @@
 package com.bank.simulator.service;
 
-import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
 import com.bank.simulator.model.Transaction;
 import com.bank.simulator.repository.AccountRepository;
 import com.bank.simulator.repository.TransactionRepository;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 public class StorageService {
     private static final String DATA_FILE = "bank_data.json";
+    private static final String BINARY_DATA_FILE = "bank_data.bin";
+    private static final Path CHECKPOINT_DIR = Paths.get("bank_checkpoints");
+    private static final String DELTA_PREFIX = "delta-";
+    private static final long CHECKPOINT_INTERVAL_SECONDS = 30;
+    private static final int FULL_SNAPSHOT_EVERY = 10; // Every 10th checkpoint rewrites the full base file
+    private static final long RECOVERY_BUDGET_MILLIS = 10_000;
+
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
+    private final JournalService journalService;
+    private final SnapshotFormat snapshotFormat;
+    private final SnapshotCodec jsonCodec;
+    private final SnapshotCodec binaryCodec;
     private final java.util.concurrent.ScheduledExecutorService scheduler = java.util.concurrent.Executors
             .newScheduledThreadPool(1);
 
+    // Checkpoint state (guarded by this)
+    private long lastCheckpointLsn;
+    private int deltasSinceFull;
+    private long checkpointTxPosition; // Log positions below it are in the snapshot or a delta
+
+    // Recovery / checkpoint metrics
+    private volatile long recoveryMillis;
+    private volatile long snapshotLoadMillis;
+    private volatile long replayMillis;
+    private volatile int recordsReplayed;
+    private volatile int deltasLoaded;
+    private volatile long checkpointMillis;
+    private volatile int checkpointAccounts;
+    private volatile long checkpointCount;
+
     public StorageService(AccountRepository accountRepository, TransactionRepository transactionRepository) {
+        this(accountRepository, transactionRepository, new JournalService());
+    }
+
+    public StorageService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            JournalService journalService) {
+        this(accountRepository, transactionRepository, journalService, SnapshotFormat.JSON);
+    }
+
+    public StorageService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            JournalService journalService, SnapshotFormat snapshotFormat) {
+        this(accountRepository, transactionRepository, journalService, snapshotFormat, AccountFactory.decimal());
+    }
+
+    public StorageService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            JournalService journalService, SnapshotFormat snapshotFormat, AccountFactory accountFactory) {
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
+        this.journalService = journalService;
+        this.snapshotFormat = snapshotFormat;
+        this.jsonCodec = new JsonSnapshotCodec(accountFactory);
+        this.binaryCodec = new BinarySnapshotCodec(accountFactory);
+    }
+
+    /**
+     * Format of the full snapshot. Incremental checkpoints are always small
+     * JSON deltas.
+     */
+    public enum SnapshotFormat {
+        JSON,
+        BINARY // Compact fixed-width records, memory-mapped parallel load
     }
 
     public void start() {
-        // Auto-save every 10 seconds
-        scheduler.scheduleAtFixedRate(this::save, 10, 10, java.util.concurrent.TimeUnit.SECONDS);
-        System.out.println(">> Storage Service Started: Auto-saving every 10s.");
+        // Every change is journaled as it happens; checkpoints only bound the replay tail
+        try {
+            journalService.open();
+            scheduler.scheduleWithFixedDelay(this::checkpoint, CHECKPOINT_INTERVAL_SECONDS,
+                    CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+            System.out.println(">> Storage Service Started: Journaling every change, checkpoint every "
+                    + CHECKPOINT_INTERVAL_SECONDS + "s.");
+        } catch (IOException e) {
+            System.err.println("[STORAGE] Failed to open journal: " + e.getMessage());
+        }
     }
 
     public void stop() {
-        save(); // Save one last time
         scheduler.shutdown();
+        journalService.close(); // Flush and fsync whatever is still queued
+        checkpoint(true); // Full snapshot so the next start replays nothing
     }
 
-    public synchronized void save() {
+    // ------------------------------------------------------------ checkpoints
+
+    public void checkpoint() {
+        checkpoint(false);
+    }
+
+    /**
+     * Fuzzy checkpoint, taken while transfers keep running:
+     * 1. rotate the journal so everything older sits in sealed segments,
+     * 2. read the current LSN (every change at or below it is already applied)
+     *    and wait for the changes still between their LSN and their transaction
+     *    save, so the log read in step 4 holds every transaction up to that LSN,
+     * 3. write account state, each account read under its own read lock together
+     *    with its lastLsn (incremental: only accounts changed since the previous
+     *    checkpoint, except every {@value #FULL_SNAPSHOT_EVERY}th run),
+     * 4. write the transactions saved since the previous checkpoint in a delta;
+     *    a full snapshot holds those after the transaction store's sealed
+     *    files instead, so neither rewrites old history,
+     * 5. restate open cross-shard debits in the live segment and archive the
+     *    sealed segments once the snapshot and the restated legs are durable.
+     *
+     * Every transaction is saved to the repository before it is journaled, so
+     * the transactions of the sealed segments are all below the log position
+     * read in step 4 and archiving them loses none.
+     */
+    private synchronized void checkpoint(boolean forceFull) {
+        long started = System.nanoTime();
         try {
-            StringBuilder json = new StringBuilder();
-            json.append("{\n");
-
-            // Accounts
-            json.append("  \"accounts\": [\n");
-            String accountsJson = accountRepository.findAll().stream()
-                    .map(a -> String.format("    {\"acc\":\"%s\", \"holder\":\"%s\", \"bal\":\"%s\", \"debt\":\"%s\"}",
-                            a.getAccountNumber(), a.getHolderName(), a.getBalance(), a.getDebt()))
-                    .collect(Collectors.joining(",\n"));
-            json.append(accountsJson);
-            json.append("\n  ],\n");
-
-            // Transactions (Limit to last 100 to save space if needed, but lets save all
-            // for now)
-            json.append("  \"transactions\": [\n");
-            String txnJson = transactionRepository.findAll().stream()
-                    .map(t -> String.format(
-                            "    {\"id\":\"%s\", \"src\":\"%s\", \"dest\":\"%s\", \"amt\":\"%s\", \"stat\":\"%s\", \"time\":\"%s\"}",
-                            t.getTransactionId(), t.getSourceAccount(), t.getDestinationAccount(), t.getAmount(),
-                            t.getStatus(), t.getTimestamp()))
-                    .collect(Collectors.joining(",\n"));
-            json.append(txnJson);
-            json.append("\n  ]\n");
-
-            json.append("}");
-
-            Files.write(Paths.get(DATA_FILE), json.toString().getBytes());
-            System.out.println("[STORAGE] Saved data to " + DATA_FILE);
+            List<Path> sealed = journalService.rotate();
+            long lsn = journalService.currentLsn();
+            journalService.awaitChanges(); // Transactions up to 'lsn' are now all below txPosition
+            long txPosition = transactionRepository.size();
+            if (lsn == lastCheckpointLsn && !forceFull) {
+                archive(sealed); // Nothing new since the last checkpoint
+                return;
+            }
+
+            boolean full = forceFull || deltasSinceFull + 1 >= FULL_SNAPSHOT_EVERY || latestBaseFile() == null;
+            int written;
+            if (full) {
+                long history = Math.min(transactionRepository.getSealedPosition(), txPosition);
+                written = writeFullSnapshot(lsn, history, transactionRepository.range(history, txPosition));
+                deleteDeltas(lsn);
+                deltasSinceFull = 0;
+            } else {
+                Files.createDirectories(CHECKPOINT_DIR);
+                written = writeSnapshot(jsonCodec,
+                        CHECKPOINT_DIR.resolve(String.format("%s%019d.json", DELTA_PREFIX, lsn)), lsn,
+                        lastCheckpointLsn, checkpointTxPosition,
+                        transactionRepository.range(checkpointTxPosition, txPosition));
+                deltasSinceFull++;
+            }
+
+            archive(sealed);
+            lastCheckpointLsn = lsn;
+            checkpointTxPosition = txPosition;
+            checkpointAccounts = written;
+            checkpointMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            checkpointCount++;
+            System.out.println("[STORAGE] " + (full ? "Full" : "Incremental") + " checkpoint @ LSN " + lsn + ": "
+                    + written + " accounts in " + checkpointMillis + "ms");
         } catch (IOException e) {
-            System.err.println("[STORAGE] Failed to save data: " + e.getMessage());
+            System.err.println("[STORAGE] Checkpoint failed: " + e.getMessage());
         }
     }
 
-    public boolean load() {
-        if (!Files.exists(Paths.get(DATA_FILE)))
-            return false;
+    private void archive(List<Path> sealed) throws IOException {
+        if (sealed.isEmpty())
+            return;
+        // A debit in a sealed segment whose credit is still in flight would otherwise never be refunded
+        journalService.carryOpenLegs();
+        try {
+            journalService.sync();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted before archiving the journal", e);
+        }
+        journalService.archive(sealed);
+    }
+
+    private int writeFullSnapshot(long lsn, long txFrom, Collection<Transaction> transactions) throws IOException {
+        if (snapshotFormat == SnapshotFormat.BINARY) {
+            try {
+                int written = writeSnapshot(binaryCodec, Paths.get(BINARY_DATA_FILE), lsn, 0, txFrom, transactions);
+                Files.deleteIfExists(Paths.get(DATA_FILE)); // Only one full snapshot may be live
+                return written;
+            } catch (ArithmeticException | IllegalArgumentException e) {
+                // Amount too wide for fixed-width records, or an id neither UUID nor TransactionIds
+                System.err.println("[STORAGE] Binary snapshot not possible, writing JSON: " + e.getMessage());
+            }
+        }
+        int written = writeSnapshot(jsonCodec, Paths.get(DATA_FILE), lsn, 0, txFrom, transactions);
+        Files.deleteIfExists(Paths.get(BINARY_DATA_FILE));
+        return written;
+    }
 
+    /**
+     * Writes to a temp file (the codec fsyncs it) and atomically moves it into
+     * place.
+     */
+    private int writeSnapshot(SnapshotCodec codec, Path target, long lsn, long sinceLsn, long txFrom,
+            Collection<Transaction> transactions) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
         try {
-            String content = new String(Files.readAllBytes(Paths.get(DATA_FILE)));
-            System.out.println("[STORAGE] Found data file. Loading...");
-
-            // Very Basic Parser (Manual String Parsing)
-            // 1. Extract Accounts Array
-            int accStart = content.indexOf("\"accounts\": [");
-            int accEnd = content.indexOf("],", accStart);
-            if (accStart != -1 && accEnd != -1) {
-                String accBlock = content.substring(accStart, accEnd);
-                parseAccounts(accBlock);
+            int written = codec.write(tmp, accountRepository.findAll(), transactions, lsn, sinceLsn, txFrom);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return written;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // The full snapshot currently in use, whichever format wrote it
+    private Path latestBaseFile() {
+        Path json = Paths.get(DATA_FILE);
+        Path bin = Paths.get(BINARY_DATA_FILE);
+        if (!Files.exists(bin))
+            return Files.exists(json) ? json : null;
+        if (!Files.exists(json))
+            return bin;
+        try {
+            return Files.getLastModifiedTime(bin).compareTo(Files.getLastModifiedTime(json)) >= 0 ? bin : json;
+        } catch (IOException e) {
+            return json;
+        }
+    }
+
+    private List<Path> listDeltas() throws IOException {
+        List<Path> deltas = new ArrayList<>();
+        if (!Files.isDirectory(CHECKPOINT_DIR))
+            return deltas;
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(CHECKPOINT_DIR, DELTA_PREFIX + "*.json")) {
+            for (Path p : dir)
+                deltas.add(p);
+        }
+        deltas.sort(Comparator.comparingLong(StorageService::deltaLsn));
+        return deltas;
+    }
+
+    private static long deltaLsn(Path delta) {
+        String name = delta.getFileName().toString();
+        return Long.parseLong(name.substring(DELTA_PREFIX.length(), name.length() - ".json".length()));
+    }
+
+    // Deltas at or below a full snapshot's LSN are superseded by it
+    private void deleteDeltas(long upToLsn) throws IOException {
+        for (Path delta : listDeltas()) {
+            if (deltaLsn(delta) <= upToLsn)
+                Files.deleteIfExists(delta);
+        }
+    }
+
+    // --------------------------------------------------------------- recovery
+
+    /**
+     * Recovery: loads the latest full snapshot (bank_data.json), applies the
+     * incremental checkpoints newer than it, then replays only the journal
+     * tail behind the last checkpoint. The transaction log comes back from
+     * the store's sealed files, mapped rather than read, then the snapshot's
+     * transactions after them and each delta's, so restart time does not grow
+     * with history.
+     */
+    public boolean load() {
+        long started = System.nanoTime();
+        try {
+            Path base = latestBaseFile();
+            if (base == null)
+                transactionRepository.resumeAt(0); // Sealed files without a snapshot are not trusted
+            long baseLsn = base == null ? -1 : loadSnapshotFile(base);
+            long snapshotLsn = Math.max(baseLsn, 0);
+            int deltas = 0;
+            for (Path delta : listDeltas()) {
+                long lsn = deltaLsn(delta);
+                if (lsn <= snapshotLsn) {
+                    Files.deleteIfExists(delta); // Left over from a crash during a full checkpoint
+                    continue;
+                }
+                loadSnapshotFile(delta);
+                snapshotLsn = lsn;
+                deltas++;
             }
+            long snapshotDone = System.nanoTime();
+            long txPosition = transactionRepository.size(); // Replayed transactions go into the next delta
 
-            // 2. Extract Transactions Array
-            int txnStart = content.indexOf("\"transactions\": [");
-            int txnEnd = content.lastIndexOf("]");
-            if (txnStart != -1 && txnEnd != -1) {
-                String txnBlock = content.substring(txnStart, txnEnd);
-                parseTransactions(txnBlock);
+            int replayed = journalService.replay(accountRepository, transactionRepository, snapshotLsn);
+            long replayDone = System.nanoTime();
+
+            synchronized (this) {
+                lastCheckpointLsn = snapshotLsn;
+                deltasSinceFull = deltas;
+                checkpointTxPosition = txPosition;
             }
+            deltasLoaded = deltas;
+            recordsReplayed = replayed;
+            snapshotLoadMillis = TimeUnit.NANOSECONDS.toMillis(snapshotDone - started);
+            replayMillis = TimeUnit.NANOSECONDS.toMillis(replayDone - snapshotDone);
+            recoveryMillis = TimeUnit.NANOSECONDS.toMillis(replayDone - started);
 
-            return true;
+            System.out.println("[STORAGE] Recovered in " + recoveryMillis + "ms (snapshot " + snapshotLoadMillis
+                    + "ms incl. " + deltas + " deltas, replayed " + replayed + " journal records in " + replayMillis
+                    + "ms)");
+            if (!isWithinRecoveryBudget()) {
+                System.err.println("[STORAGE] WARNING: Recovery exceeded budget of " + RECOVERY_BUDGET_MILLIS + "ms");
+            }
+            return baseLsn >= 0 || deltas > 0 || replayed > 0;
+        } catch (IOException e) {
+            System.err.println("[STORAGE] Failed to recover: " + e.getMessage());
+            return !accountRepository.findAll().isEmpty();
+        }
+    }
+
+    /**
+     * @return the LSN recorded in the snapshot (0 for files written before
+     *         checkpointing), or -1 if it could not be loaded
+     */
+    private long loadSnapshotFile(Path file) {
+        try {
+            System.out.println("[STORAGE] Found data file " + file + ". Loading...");
+            SnapshotCodec codec = file.toString().endsWith(".bin") ? binaryCodec : jsonCodec;
+            return codec.read(file, accountRepository, transactionRepository);
         } catch (Exception e) {
             System.err.println("[STORAGE] Failed to load data (Corrupt?): " + e.getMessage());
             e.printStackTrace();
-            return false;
+            return -1;
         }
     }
 
-    private void parseAccounts(String block) {
-        // Find all {...}
-        int idx = 0;
-        while ((idx = block.indexOf("{", idx)) != -1) {
-            int end = block.indexOf("}", idx);
-            String item = block.substring(idx + 1, end);
+    public boolean isWithinRecoveryBudget() {
+        return recoveryMillis <= RECOVERY_BUDGET_MILLIS;
+    }
 
-            String accNum = extract(item, "acc");
-            String holder = extract(item, "holder");
-            String balStr = extract(item, "bal");
-            String debtStr = extract(item, "debt");
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
 
-            if (accNum != null && holder != null && balStr != null) {
-                BigDecimal debt = (debtStr != null) ? new BigDecimal(debtStr) : BigDecimal.ZERO;
-                Account acc = new Account(accNum, holder, new BigDecimal(balStr), debt);
-                accountRepository.save(acc);
-            }
-            idx = end + 1;
-        }
+    public long getSnapshotLoadMillis() {
+        return snapshotLoadMillis;
+    }
+
+    public long getReplayMillis() {
+        return replayMillis;
+    }
+
+    public int getRecordsReplayed() {
+        return recordsReplayed;
+    }
+
+    public int getDeltasLoaded() {
+        return deltasLoaded;
+    }
+
+    public long getRecoveryBudgetMillis() {
+        return RECOVERY_BUDGET_MILLIS;
+    }
+
+    public synchronized long getLastCheckpointLsn() {
+        return lastCheckpointLsn;
+    }
+
+    public long getCheckpointMillis() {
+        return checkpointMillis;
+    }
+
+    public int getCheckpointAccounts() {
+        return checkpointAccounts;
+    }
+
+    public long getCheckpointCount() {
+        return checkpointCount;
     }
 
-    private void parseTransactions(String block) {
-        // Because Transaction constructor might not be public or flexible enough,
-        // and we mostly care about restoring balances (which we did above),
-        // restoring transaction history is secondary but nice for the UI log.
-        // For SIMPLICITY in this 'Level 4' task, I will skip re-hydrating the
-        // transaction object fully if it requires changing the Transaction model
-        // significantly (e.g. timestamp parsing).
-        // However, I'll try to do a best-effort restore if I can.
-
-        // Actually, let's just skip transaction history restore for now to avoid
-        // Timestamp parsing headers. Restoring balances is the critical part for
-        // "Persistence".
-        // The log can start fresh for the session.
-        // *User decision: I will assume they care most about money.*
-
-        // If I were to implement it, I'd need to parse Instant.
-    }
-
-    private String extract(String json, String key) {
-        String search = "\"" + key + "\":\"";
-        int start = json.indexOf(search);
-        if (start == -1)
-            return null;
-        start += search.length();
-        int end = json.indexOf("\"", start);
-        return json.substring(start, end);
+    public long getJournalFailedRecords() {
+        return journalService.getFailedRecords();
     }
 }
@@ -0,0 +1,475 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.model.TransactionStatus;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Incremental laundering-ring detection over the graph of recent successful
+ * transfers.
+ *
+ * Transfer threads only offer the completed Transaction to a bounded MPSC
+ * ring; if the analyzer falls behind, events are dropped and counted, never
+ * waited for. One analyzer thread owns the graph, so nothing in it is
+ * synchronized:
+ * <ul>
+ * <li>An edge is one (source, destination) pair, with the last time it was
+ * used and the total moved along it within the window. Accounts are interned
+ * as nodes holding their outgoing edges, so the ring search follows
+ * references and compares by identity. Edges are also threaded on a recency
+ * list (least recently used at the head). Edges older than the window are
+ * expired from there as event time advances, and the oldest are evicted
+ * early if the graph exceeds {@code maxEdges}.</li>
+ * <li>Cycles: a transfer u-&gt;v that adds a new edge closes a ring when v
+ * reaches u in at most {@code maxCycleLength}-1 hops and every hop was last
+ * used no earlier than the hop before it (money moving forward in time).
+ * Only new edges are searched from: a ring is complete the moment its last
+ * missing edge appears, and repeat transfers over a known edge, which
+ * dominate busy accounts, would only find rings already reported. Rings of
+ * length 3 and up are reported; a plain round trip A-&gt;B-&gt;A is too
+ * common to flag. The search is depth-first with a budget of edge visits, so
+ * a hub account cannot stall the analyzer. While the backlog exceeds a
+ * quarter of the queue the budget drops to an eighth, trading depth for
+ * keeping up. Cut-off searches are counted.</li>
+ * <li>Fan-out / fan-in: when an edge is new to the window and its source
+ * (destination) now has at least {@code fanThreshold} distinct
+ * counterparties, the account is flagged.</li>
+ * </ul>
+ * An alert for the same ring or account is not repeated within the window.
+ * The most recent {@link #MAX_ALERTS} alerts are kept for /api/alerts.
+ */
+public class TransferGraphAnalyzer {
+
+    public enum AlertType {
+        CYCLE, FAN_OUT, FAN_IN
+    }
+
+    public static final class Alert {
+        private final AlertType type;
+        private final List<String> accounts;
+        private final BigDecimal amount;
+        private final String transactionId;
+        private final Instant detectedAt;
+
+        Alert(AlertType type, List<String> accounts, BigDecimal amount, String transactionId, Instant detectedAt) {
+            this.type = type;
+            this.accounts = Collections.unmodifiableList(accounts);
+            this.amount = amount;
+            this.transactionId = transactionId;
+            this.detectedAt = detectedAt;
+        }
+
+        public AlertType getType() {
+            return type;
+        }
+
+        /** Ring members in flow order starting at the smallest account number, or the hub account. */
+        public List<String> getAccounts() {
+            return accounts;
+        }
+
+        /** Total moved along the ring's edges, or the triggering transfer for fan alerts. */
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        /** The transfer that completed the pattern. */
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        public Instant getDetectedAt() {
+            return detectedAt;
+        }
+    }
+
+    // One account with outgoing edges by destination; nodes are compared by identity
+    private static final class Node {
+        final String account;
+        Map<Node, Edge> out; // Created on first outgoing edge
+        int inDegree;
+
+        Node(String account) {
+            this.account = account;
+        }
+
+        int outDegree() {
+            return out == null ? 0 : out.size();
+        }
+    }
+
+    private static final class Edge {
+        final Node from;
+        final Node to;
+        long lastSeen;
+        BigDecimal total = BigDecimal.ZERO;
+        Edge older; // Recency list, least recently used at the head
+        Edge newer;
+
+        Edge(Node from, Node to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    public static final int MAX_ALERTS = 1000;
+    public static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final int DEFAULT_MAX_CYCLE_LENGTH = 4;
+    public static final int DEFAULT_FAN_THRESHOLD = 25;
+    public static final int DEFAULT_MAX_EDGES = 500_000; // Roughly 150 bytes each
+    private static final int DEFAULT_SEARCH_BUDGET = 256;
+    private static final int MIN_SEARCH_BUDGET = 16;
+    private static final int DEFAULT_QUEUE_CAPACITY = 65536;
+    private static final int MAX_SUPPRESSED = 100_000; // Dedup keys remembered
+    private static final int DRAIN_BATCH = 256;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long windowMillis;
+    private final int maxCycleLength;
+    private final int fanThreshold;
+    private final int maxEdges;
+    private final int searchBudget;
+
+    private final MpscRingBuffer<Transaction> inbox;
+    private volatile boolean running;
+    private Thread thread;
+
+    // Analyzer thread only
+    private final Map<String, Node> nodes = new HashMap<>();
+    private Edge eldest;
+    private Edge newest;
+    private int edges;
+    private final LinkedHashMap<String, Long> recentAlerts = new LinkedHashMap<>(); // Dedup key -> event time
+    private long clock; // Latest event time seen
+    private Transaction current; // Transfer being processed
+    private final List<Edge> path = new ArrayList<>(); // Current search path, closing edge first
+    private int budgetLeft;
+
+    // Shared with readers
+    private final ArrayDeque<Alert> alerts = new ArrayDeque<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long processed;
+    private volatile long truncatedSearches;
+    private volatile long evictedEdges;
+    private volatile int edgeCount;
+    private volatile long alertCount;
+
+    public TransferGraphAnalyzer() {
+        this(DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_CYCLE_LENGTH, DEFAULT_FAN_THRESHOLD, DEFAULT_MAX_EDGES);
+    }
+
+    public TransferGraphAnalyzer(long windowMillis, int maxCycleLength, int fanThreshold, int maxEdges) {
+        this(windowMillis, maxCycleLength, fanThreshold, maxEdges, DEFAULT_SEARCH_BUDGET, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param windowMillis   how long a transfer stays part of the graph
+     * @param maxCycleLength longest ring searched for (3 or more)
+     * @param fanThreshold   distinct counterparties within the window that
+     *                       flag an account
+     * @param maxEdges       graph size cap; oldest edges go first
+     * @param searchBudget   edge visits allowed per transfer for the ring
+     *                       search
+     * @param queueCapacity  transfers buffered between the transfer threads
+     *                       and the analyzer
+     */
+    public TransferGraphAnalyzer(long windowMillis, int maxCycleLength, int fanThreshold, int maxEdges,
+            int searchBudget, int queueCapacity) {
+        if (maxCycleLength < 3)
+            throw new IllegalArgumentException("maxCycleLength must be >= 3");
+        this.windowMillis = windowMillis;
+        this.maxCycleLength = maxCycleLength;
+        this.fanThreshold = fanThreshold;
+        this.maxEdges = maxEdges;
+        this.searchBudget = searchBudget;
+        this.inbox = new MpscRingBuffer<>(queueCapacity);
+    }
+
+    public synchronized void start() {
+        if (running)
+            return;
+        running = true;
+        thread = new Thread(this::runLoop, "transfer-graph");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void shutdown() {
+        if (!running)
+            return;
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Called on the transfer path once a transfer has completed. Only
+     * successful transfers move money, so only they become edges. Never
+     * blocks.
+     */
+    public void onTransaction(Transaction tx) {
+        if (tx.getStatus() != TransactionStatus.SUCCESS)
+            return;
+        received.increment();
+        if (!inbox.offer(tx))
+            dropped.increment();
+    }
+
+    private void runLoop() {
+        while (running || !inbox.isEmpty()) {
+            int done = 0;
+            Transaction tx;
+            while (done < DRAIN_BATCH && (tx = inbox.poll()) != null) {
+                process(tx);
+                done++;
+            }
+            if (done > 0)
+                processed += done; // Single writer
+            else if (running)
+                LockSupport.parkNanos(PARK_NANOS); // Alerts can wait a millisecond; producers never wake us
+        }
+    }
+
+    // ------------------------------------------------------------- analysis
+
+    private void process(Transaction tx) {
+        long time = tx.getTimestampMillis();
+        if (time > clock)
+            clock = time;
+        expire();
+        current = tx;
+
+        Node from = node(tx.getSourceAccount());
+        Node to = node(tx.getDestinationAccount());
+        if (from.out == null)
+            from.out = new HashMap<>(4);
+        Edge edge = from.out.get(to);
+        boolean added = edge == null;
+        if (added) {
+            edge = new Edge(from, to);
+            from.out.put(to, edge);
+            to.inDegree++;
+            edges++;
+        } else {
+            unlinkRecency(edge);
+        }
+        appendRecency(edge);
+        edge.lastSeen = Math.max(edge.lastSeen, time);
+        edge.total = edge.total.add(tx.getAmount());
+        if (edges > maxEdges) {
+            remove(eldest);
+            evictedEdges++;
+        }
+        edgeCount = edges;
+
+        if (added) {
+            findCycles(edge);
+            if (from.outDegree() >= fanThreshold)
+                raise("out:" + from.account, AlertType.FAN_OUT, Collections.singletonList(from.account),
+                        tx.getAmount());
+            if (to.inDegree >= fanThreshold)
+                raise("in:" + to.account, AlertType.FAN_IN, Collections.singletonList(to.account), tx.getAmount());
+        }
+    }
+
+    private Node node(String account) {
+        Node n = nodes.get(account);
+        if (n == null) {
+            n = new Node(account);
+            nodes.put(account, n);
+        }
+        return n;
+    }
+
+    private void expire() {
+        long horizon = clock - windowMillis;
+        while (eldest != null && eldest.lastSeen < horizon)
+            remove(eldest); // Recency order: everything after is newer
+        Iterator<Long> alerted = recentAlerts.values().iterator();
+        while (alerted.hasNext() && alerted.next() < horizon)
+            alerted.remove();
+    }
+
+    private void remove(Edge e) {
+        unlinkRecency(e);
+        e.from.out.remove(e.to);
+        e.to.inDegree--;
+        edges--;
+        if (e.from.outDegree() == 0 && e.from.inDegree == 0)
+            nodes.remove(e.from.account);
+        if (e.to.outDegree() == 0 && e.to.inDegree == 0)
+            nodes.remove(e.to.account);
+    }
+
+    private void appendRecency(Edge e) {
+        e.older = newest;
+        e.newer = null;
+        if (newest != null)
+            newest.newer = e;
+        else
+            eldest = e;
+        newest = e;
+    }
+
+    private void unlinkRecency(Edge e) {
+        if (e.older != null)
+            e.older.newer = e.newer;
+        else
+            eldest = e.newer;
+        if (e.newer != null)
+            e.newer.older = e.older;
+        else
+            newest = e.older;
+        e.older = null;
+        e.newer = null;
+    }
+
+    // Rings closed by the edge u->v: paths v -> ... -> u whose hops move forward in time
+    private void findCycles(Edge closing) {
+        // Falling behind: search shallower rather than start dropping transfers
+        boolean behind = inbox.size() > inbox.capacity() / 4;
+        budgetLeft = behind ? Math.max(MIN_SEARCH_BUDGET, searchBudget / 8) : searchBudget;
+        path.clear();
+        path.add(closing);
+        search(closing.to, closing.from, clock - windowMillis);
+        if (budgetLeft < 0)
+            truncatedSearches++;
+    }
+
+    private void search(Node node, Node target, long notBefore) {
+        if (node.out == null)
+            return;
+        for (Edge hop : node.out.values()) {
+            if (--budgetLeft < 0)
+                return;
+            if (hop.lastSeen < notBefore)
+                continue;
+            if (hop.to == target) {
+                if (path.size() >= 2) { // path plus this hop: a ring of 3 or more
+                    path.add(hop);
+                    reportCycle();
+                    path.remove(path.size() - 1);
+                }
+                continue;
+            }
+            if (path.size() + 1 >= maxCycleLength || onPath(hop.to))
+                continue;
+            path.add(hop);
+            search(hop.to, target, hop.lastSeen);
+            path.remove(path.size() - 1);
+            if (budgetLeft < 0)
+                return;
+        }
+    }
+
+    private boolean onPath(Node n) {
+        for (int i = 0; i < path.size(); i++) {
+            if (path.get(i).from == n)
+                return true;
+        }
+        return false;
+    }
+
+    // path = closing edge u->v, then v->...->u
+    private void reportCycle() {
+        int n = path.size();
+        int start = 0;
+        for (int i = 1; i < n; i++) {
+            if (path.get(i).from.account.compareTo(path.get(start).from.account) < 0)
+                start = i;
+        }
+        List<String> ring = new ArrayList<>(n);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < n; i++) {
+            Edge e = path.get((start + i) % n);
+            ring.add(e.from.account);
+            total = total.add(e.total);
+        }
+        raise("ring:" + String.join(">", ring), AlertType.CYCLE, ring, total);
+    }
+
+    private void raise(String key, AlertType type, List<String> accounts, BigDecimal amount) {
+        if (recentAlerts.containsKey(key))
+            return;
+        recentAlerts.put(key, clock);
+        if (recentAlerts.size() > MAX_SUPPRESSED) {
+            Iterator<Long> eldest = recentAlerts.values().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        Alert alert = new Alert(type, accounts, amount, current.getTransactionId(), Instant.ofEpochMilli(clock));
+        synchronized (alerts) {
+            if (alerts.size() == MAX_ALERTS)
+                alerts.removeFirst();
+            alerts.addLast(alert);
+        }
+        alertCount++;
+    }
+
+    // --------------------------------------------------------------- readers
+
+    /** Most recent alerts, newest first. */
+    public List<Alert> getAlerts(int limit) {
+        List<Alert> result = new ArrayList<>(Math.min(limit, MAX_ALERTS));
+        synchronized (alerts) {
+            Iterator<Alert> it = alerts.descendingIterator();
+            while (it.hasNext() && result.size() < limit)
+                result.add(it.next());
+        }
+        return result;
+    }
+
+    public long getAlertCount() {
+        return alertCount;
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    /** Transfers waiting for the analyzer. */
+    public int getBacklog() {
+        return inbox.size();
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public long getEvictedEdges() {
+        return evictedEdges;
+    }
+
+    public long getTruncatedSearches() {
+        return truncatedSearches;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+}
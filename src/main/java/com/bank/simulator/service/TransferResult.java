@@ -0,0 +1,13 @@
+package com.bank.simulator.service;
+
+/**
+ * Outcome of {@link BankService#tryTransfer}. Declines are ordinary results
+ * there, not exceptions; {@link BankService#transfer} turns them into
+ * exceptions for API callers.
+ */
+public enum TransferResult {
+    SUCCESS,
+    INSUFFICIENT_FUNDS, // The source would drop below MIN_BALANCE; rolled back
+    REJECTED_FRAUD,
+    LOCK_TIMEOUT // An account stayed busy past the timeout; rolled back
+}
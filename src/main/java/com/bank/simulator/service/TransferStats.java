@@ -0,0 +1,185 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.AccountLock;
+import com.bank.simulator.model.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Transfer instrumentation: latency histograms, outcome counters and per-account
+ * lock contention.
+ *
+ * Histograms (all nanoseconds):
+ * <ul>
+ * <li>transfer: end to end, from the call until the transfer has completed or
+ * failed (includes fraud check, lock wait and post-processing)</li>
+ * <li>lockWait: acquiring both account locks (lock-based path only)</li>
+ * <li>criticalSection: holding both locks</li>
+ * </ul>
+ *
+ * Outcome and contention counters are exact. Latencies are sampled: one
+ * transfer in {@code sampleRate} (chosen at random, per thread) is timed,
+ * because a clock read costs about as much as a tenth of an uncontended
+ * transfer. An account counts as contended when its lock is held or has
+ * waiters at the moment a transfer asks for it; only then is the wait timed
+ * and the account looked up in the contention map, so uncontended
+ * acquisitions pay a lock-state read and nothing else. Everything here is
+ * lock-free and can be switched off at runtime.
+ */
+public class TransferStats {
+
+    public static final int DEFAULT_SAMPLE_RATE = 64;
+
+    private volatile boolean enabled = true;
+    private volatile int sampleRate = DEFAULT_SAMPLE_RATE;
+
+    private final LatencyHistogram transferLatency = new LatencyHistogram();
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+    private final LatencyHistogram criticalSection = new LatencyHistogram();
+
+    private final LongAdder[] outcomes = new LongAdder[TransactionStatus.values().length];
+    private final LongAdder lockTimeouts = new LongAdder();
+    private final Map<String, Contention> contention = new ConcurrentHashMap<>();
+
+    public TransferStats() {
+        for (int i = 0; i < outcomes.length; i++)
+            outcomes[i] = new LongAdder();
+    }
+
+    public static final class Contention {
+        private final String accountNumber;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        Contention(String accountNumber) {
+            this.accountNumber = accountNumber;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getWaitNanos() {
+            return waitNanos.sum();
+        }
+    }
+
+    // ----------------------------------------------------------- recording
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @param sampleRate time one transfer in this many (1 = every transfer)
+     */
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate < 1)
+            throw new IllegalArgumentException("Sample rate must be at least 1");
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return System.nanoTime() if this transfer is sampled, otherwise 0
+     *         (callers skip timing when 0)
+     */
+    public long start() {
+        if (!enabled)
+            return 0;
+        int rate = sampleRate;
+        if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0)
+            return 0;
+        return System.nanoTime();
+    }
+
+    public void recordTransfer(long startNanos) {
+        if (startNanos != 0)
+            transferLatency.record(System.nanoTime() - startNanos);
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWait.record(nanos);
+    }
+
+    public void recordCriticalSection(long nanos) {
+        criticalSection.record(nanos);
+    }
+
+    public void recordOutcome(TransactionStatus status) {
+        if (enabled)
+            outcomes[status.ordinal()].increment();
+    }
+
+    public void recordLockTimeout() {
+        if (enabled)
+            lockTimeouts.increment();
+    }
+
+    /**
+     * Cheap pre-acquisition check: is somebody else holding or waiting for the lock?
+     */
+    public static boolean isContended(AccountLock lock) {
+        return lock.isContended();
+    }
+
+    public void recordContention(String accountNumber, long waitNanos) {
+        Contention c = contention.get(accountNumber);
+        if (c == null)
+            c = contention.computeIfAbsent(accountNumber, Contention::new);
+        c.count.increment();
+        c.waitNanos.add(waitNanos);
+    }
+
+    // ------------------------------------------------------------- reading
+
+    public LatencyHistogram.Snapshot getTransferLatency() {
+        return transferLatency.snapshot();
+    }
+
+    public LatencyHistogram.Snapshot getLockWait() {
+        return lockWait.snapshot();
+    }
+
+    public LatencyHistogram.Snapshot getCriticalSection() {
+        return criticalSection.snapshot();
+    }
+
+    public long getOutcomeCount(TransactionStatus status) {
+        return outcomes[status.ordinal()].sum();
+    }
+
+    public long getLockTimeouts() {
+        return lockTimeouts.sum();
+    }
+
+    /** Every account with a contended acquisition so far, unordered. */
+    public List<Contention> getContended() {
+        return new ArrayList<>(contention.values());
+    }
+
+    /**
+     * @return the n accounts with the most contended acquisitions, most first
+     */
+    public List<Contention> getTopContended(int n) {
+        List<Contention> all = new ArrayList<>(contention.values());
+        all.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return all.size() > n ? new ArrayList<>(all.subList(0, n)) : all;
+    }
+}
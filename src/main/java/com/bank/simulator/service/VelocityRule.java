@@ -0,0 +1,125 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rejects a transfer when its source account has sent more than
+ * {@code maxCount} transfers, or more than {@code maxAmount} in total, within
+ * the last {@code window} milliseconds (this transfer included).
+ *
+ * Every checked transfer counts, including ones rejected further down the
+ * line, so a burst of attempts keeps tripping the rule until it ages out.
+ *
+ * Each tracked account has a ring of {@link #BUCKETS} time buckets covering
+ * the window. A bucket is one long for the count and one for the amount (in
+ * minor units), each packing the bucket's epoch in the high 32 bits and the
+ * value in the low 32. Recording is a CAS on each; a bucket last written in an
+ * older epoch is reset by the same CAS, so expiry needs no sweeper and no
+ * lock. The window total sums the buckets whose epoch is still inside the
+ * window, so it slides in steps of window/BUCKETS. Values saturate at 2^32-1,
+ * which is far beyond any sensible limit and still trips it.
+ */
+public class VelocityRule implements FraudRule {
+
+    static final int BUCKETS = 10;
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+    private static final int AMOUNT_SCALE = 2; // Amounts are summed in cents
+    // Epochs count from here; with buckets of 100 ms or more they fit in 32 bits for 13 years
+    private static final long ORIGIN_MILLIS = System.currentTimeMillis();
+
+    private final int maxCount; // 0 = no count limit
+    private final long maxUnits; // 0 = no amount limit
+    private final long windowMillis;
+    private final long bucketMillis;
+    private final AccountStateTable<Window> windows;
+
+    static final class Window extends AccountStateTable.State {
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        final AtomicLongArray amounts = new AtomicLongArray(BUCKETS);
+    }
+
+    /**
+     * @param maxCount    transfers allowed per window, 0 for no limit
+     * @param maxAmount   total allowed per window, null or zero for no limit
+     * @param maxAccounts accounts tracked at once (see AccountStateTable)
+     */
+    public VelocityRule(int maxCount, BigDecimal maxAmount, long windowMillis, int maxAccounts) {
+        if (windowMillis < 1000)
+            throw new IllegalArgumentException("Velocity window must be at least one second");
+        this.maxCount = maxCount;
+        this.maxUnits = maxAmount == null ? 0 : units(maxAmount);
+        this.windowMillis = windowMillis;
+        this.bucketMillis = windowMillis / BUCKETS;
+        // An account idle for a whole window has nothing left to count: dropping it loses nothing
+        this.windows = new AccountStateTable<>(maxAccounts, windowMillis, account -> new Window());
+    }
+
+    @Override
+    public String getName() {
+        return "velocity";
+    }
+
+    @Override
+    public boolean usesClock() {
+        return true;
+    }
+
+    @Override
+    public boolean isViolated(Account source, Account destination, BigDecimal amount, long nowMillis) {
+        Window w = windows.get(source.getAccountNumber(), nowMillis);
+        if (w == null)
+            return false; // Table full of active accounts: fail open rather than grow
+        long epoch = Math.max(0, nowMillis - ORIGIN_MILLIS) / bucketMillis;
+        int slot = (int) (epoch % BUCKETS);
+        add(w.counts, slot, epoch, 1);
+        if (maxUnits > 0)
+            add(w.amounts, slot, epoch, units(amount));
+        return (maxCount > 0 && total(w.counts, epoch) > maxCount)
+                || (maxUnits > 0 && total(w.amounts, epoch) > maxUnits);
+    }
+
+    private static void add(AtomicLongArray buckets, int slot, long epoch, long delta) {
+        long tag = epoch << 32;
+        while (true) {
+            long current = buckets.get(slot);
+            long value = (current & ~MAX_VALUE) == tag ? current & MAX_VALUE : 0; // Older epoch: reset
+            long next = tag | Math.min(value + delta, MAX_VALUE);
+            if (current == next || buckets.compareAndSet(slot, current, next))
+                return;
+        }
+    }
+
+    private static long total(AtomicLongArray buckets, long epoch) {
+        long sum = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucket = buckets.get(i);
+            if (epoch - (bucket >>> 32) < BUCKETS)
+                sum += bucket & MAX_VALUE;
+        }
+        return sum;
+    }
+
+    // Sub-cent fractions are dropped; setScale is a no-op for amounts already in cents
+    private static long units(BigDecimal amount) {
+        return amount.setScale(AMOUNT_SCALE, RoundingMode.DOWN).scaleByPowerOfTen(AMOUNT_SCALE).longValue();
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public int getTrackedAccounts() {
+        return windows.size();
+    }
+
+    public long getUntracked() {
+        return windows.getUntracked();
+    }
+}
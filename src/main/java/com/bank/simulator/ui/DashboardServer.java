@@ -1,46 +1,100 @@
 package com.bank.simulator.ui;
 
 import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountTable;
 import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.DenseAccountRepository;
 import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.JsonReader;
+import com.bank.simulator.service.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.Map;
 
 public class DashboardServer {
 
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
     private final com.bank.simulator.service.BankService bankService; // Added bridge
+    private final com.bank.simulator.service.StorageService storageService; // Optional, for recovery metrics
+    private final RequestExecutor requestExecutor;
+    private final EventStreamPublisher streamPublisher;
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_POOL_THREADS = 200;
+    private static final int ACCEPT_BACKLOG = 1024; // Bursts of concurrent clients wait in the kernel, not refused
+    private static final int MAX_STREAM_CLIENTS = 100; // Each open dashboard holds one request thread
 
     public DashboardServer(AccountRepository accountRepository, TransactionRepository transactionRepository,
             com.bank.simulator.service.BankService bankService) {
+        this(accountRepository, transactionRepository, bankService, null);
+    }
+
+    public DashboardServer(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            com.bank.simulator.service.BankService bankService,
+            com.bank.simulator.service.StorageService storageService) {
+        this(accountRepository, transactionRepository, bankService, storageService,
+                RequestExecutor.create(RequestExecutor.Mode.VIRTUAL, DEFAULT_POOL_THREADS));
+    }
+
+    public DashboardServer(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            com.bank.simulator.service.BankService bankService,
+            com.bank.simulator.service.StorageService storageService, RequestExecutor requestExecutor) {
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
         this.bankService = bankService;
+        this.storageService = storageService;
+        this.requestExecutor = requestExecutor;
+        this.streamPublisher = new EventStreamPublisher(accountRepository, transactionRepository,
+                bankService.getJournalService().getChangedAccounts(), bankService.getAccountFactory(),
+                MAX_STREAM_CLIENTS);
     }
 
     public void start() throws IOException {
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+        start(DEFAULT_PORT);
+    }
+
+    public void start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), ACCEPT_BACKLOG);
 
         server.createContext("/", new StaticHandler());
         server.createContext("/api/metrics", new MetricsHandler());
         server.createContext("/api/logs", new LogsHandler());
         server.createContext("/api/transfer", new TransferHandler());
+        server.createContext("/api/transfers/batch", new BatchTransferHandler());
         server.createContext("/api/accounts", new CreateAccountHandler()); // New API for Expansion
+        server.createContext("/api/accounts/", new AccountHistoryHandler()); // /api/accounts/{id}/history
         server.createContext("/api/loans", new CreateLoanHandler()); // New API for Loans
+        server.createContext("/api/storage", new StorageHandler()); // Recovery / checkpoint metrics
+        server.createContext("/api/server", new ServerHandler()); // Request executor gauges
+        server.createContext("/api/stats", new StatsHandler(bankService.getStats(), bankService.getAuditService(),
+                bankService.getFraudDetectionService(), bankService.getHotAccountStriper()));
+        server.createContext("/api/fraud/reload", new FraudReloadHandler()); // Re-read blacklist files
+        server.createContext("/api/alerts", new AlertsHandler()); // Laundering rings, fan-out / fan-in bursts
+        server.createContext("/api/batch", new BatchPostingHandler()); // Interest / fee posting runs
+        server.createContext("/api/transactions", new TransactionQueryHandler()); // Indexed log queries
+        // Push updates (SSE). Each viewer holds its request open, which the single dispatcher
+        // thread cannot do, so in that mode the page keeps polling instead.
+        if (requestExecutor.getMode() != RequestExecutor.Mode.DISPATCHER) {
+            server.createContext("/api/stream", streamPublisher);
+            streamPublisher.start();
+        }
 
-        server.setExecutor(null); // default executor
+        // Handlers can block (tryLock), so they must not run on the single dispatcher thread
+        server.setExecutor(requestExecutor);
         server.start();
-        System.out.println(">> Dashboard started at http://localhost:8080/");
+        System.out.println(">> Dashboard started at http://localhost:" + port + "/ (" + requestExecutor.getMode()
+                + " request executor)");
     }
 
     // NEW: Handle Loans
@@ -48,40 +102,54 @@ public class DashboardServer {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("POST".equals(exchange.getRequestMethod())) {
-                StringBuilder sb = new StringBuilder();
-                java.io.InputStream ios = exchange.getRequestBody();
-                int i;
-                while ((i = ios.read()) != -1) {
-                    sb.append((char) i);
-                }
-                String body = sb.toString();
                 try {
-                    String accNum = extractJsonValue(body, "account");
-                    String amountStr = extractJsonValue(body, "amount");
+                    String accNum = null;
+                    BigDecimal amount = null;
+                    try (JsonReader json = JsonExchange.body(exchange)) {
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            switch (json.nextName()) {
+                                case "account": accNum = json.nextString(); break;
+                                case "amount": amount = json.nextDecimal(); break;
+                                default: json.skipValue();
+                            }
+                        }
+                        json.endObject();
+                    }
 
-                    if (accNum == null || amountStr == null) {
+                    if (accNum == null || amount == null) {
                         throw new IllegalArgumentException("Missing fields");
                     }
 
-                    java.math.BigDecimal amount = new java.math.BigDecimal(amountStr);
                     com.bank.simulator.model.Account acc = bankService.getAccountRepository()
                             .findByAccountNumber(accNum)
                             .orElseThrow(() -> new IllegalArgumentException("Account not found"));
 
-                    // Loan Logic:
-                    // 1. Add Cash to Balance
-                    acc.credit(amount);
-                    // 2. Add Debt
-                    acc.addDebt(amount);
+                    // Loan Logic: Cash + Debt (journaled by BankService)
+                    bankService.grantLoan(acc, amount);
 
-                    sendJson(exchange, "{\"status\":\"OK\", \"message\":\"Loan approved\"}");
+                    sendOk(exchange, "Loan approved");
                 } catch (Exception e) {
                     e.printStackTrace();
-                    String err = "{\"status\":\"ERROR\", " + "\"message\":\"" + e.getMessage() + "\"}";
-                    byte[] bytes = err.getBytes(StandardCharsets.UTF_8);
-                    exchange.sendResponseHeaders(500, bytes.length);
-                    exchange.getResponseBody().write(bytes);
-                    exchange.getResponseBody().close();
+                    JsonExchange.error(exchange, 500, e.getMessage());
+                }
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private class FraudReloadHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                try {
+                    int entries = bankService.getFraudDetectionService().reloadBlacklists();
+                    JsonExchange.send(exchange, 200, json -> json.beginObject().name("status").value("OK")
+                            .name("blacklistEntries").value(entries).endObject());
+                } catch (IOException e) {
+                    // The previous list stays active
+                    JsonExchange.error(exchange, 500, e.getMessage());
                 }
             } else {
                 exchange.sendResponseHeaders(405, -1);
@@ -107,35 +175,36 @@ public class DashboardServer {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("POST".equals(exchange.getRequestMethod())) {
-                StringBuilder sb = new StringBuilder();
-                java.io.InputStream ios = exchange.getRequestBody();
-                int i;
-                while ((i = ios.read()) != -1) {
-                    sb.append((char) i);
-                }
-                String body = sb.toString();
                 try {
-                    String accNum = extractJsonValue(body, "account");
-                    String holder = extractJsonValue(body, "holder");
-                    String initBal = extractJsonValue(body, "balance");
+                    String accNum = null;
+                    String holder = null;
+                    BigDecimal initBal = null;
+                    try (JsonReader json = JsonExchange.body(exchange)) {
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            switch (json.nextName()) {
+                                case "account": accNum = json.nextString(); break;
+                                case "holder": holder = json.nextString(); break;
+                                case "balance": initBal = json.nextDecimal(); break;
+                                default: json.skipValue();
+                            }
+                        }
+                        json.endObject();
+                    }
 
                     if (accNum == null || holder == null || initBal == null) {
                         throw new IllegalArgumentException("Missing fields");
                     }
 
                     // Logic to create account
-                    com.bank.simulator.model.Account newAcc = new com.bank.simulator.model.Account(accNum, holder,
-                            new java.math.BigDecimal(initBal));
-                    accountRepository.save(newAcc);
+                    com.bank.simulator.model.Account newAcc = bankService.getAccountFactory().create(accNum, holder,
+                            initBal);
+                    bankService.openAccount(newAcc);
 
-                    sendJson(exchange, "{\"status\":\"OK\", \"message\":\"Account created\"}");
+                    sendOk(exchange, "Account created");
                 } catch (Exception e) {
                     e.printStackTrace();
-                    String err = "{\"status\":\"ERROR\", " + "\"message\":\"" + e.getMessage() + "\"}";
-                    byte[] bytes = err.getBytes(StandardCharsets.UTF_8);
-                    exchange.sendResponseHeaders(500, bytes.length);
-                    exchange.getResponseBody().write(bytes);
-                    exchange.getResponseBody().close();
+                    JsonExchange.error(exchange, 500, e.getMessage());
                 }
             } else {
                 exchange.sendResponseHeaders(405, -1);
@@ -143,30 +212,306 @@ public class DashboardServer {
         }
     }
 
+    // GET /api/accounts/{id}/history?after=&limit=: one page of the account's history, oldest first
+    private class AccountHistoryHandler implements HttpHandler {
+        private static final int DEFAULT_LIMIT = 50;
+        private static final int MAX_LIMIT = 1000;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath(); // Decoded
+            String prefix = "/api/accounts/";
+            if (!path.endsWith("/history") || path.length() <= prefix.length() + "/history".length()) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String accountNumber = path.substring(prefix.length(), path.length() - "/history".length());
+            Account account = accountRepository.findByAccountNumber(accountNumber).orElse(null);
+            if (account == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            long after = -1;
+            int limit = DEFAULT_LIMIT;
+            String query = exchange.getRequestURI().getQuery();
+            try {
+                if (query != null) {
+                    for (String pair : query.split("&")) {
+                        if (pair.startsWith("after=") && pair.length() > "after=".length())
+                            after = Long.parseLong(pair.substring("after=".length()));
+                        else if (pair.startsWith("limit="))
+                            limit = Integer.parseInt(pair.substring("limit=".length()));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            limit = Math.max(1, Math.min(limit, MAX_LIMIT));
+            com.bank.simulator.model.TransactionHistory history = account.getHistory();
+            java.util.List<com.bank.simulator.model.Transaction> page;
+            try {
+                page = history.page(after, limit);
+            } catch (java.io.UncheckedIOException e) {
+                JsonExchange.error(exchange, 500, e.getMessage());
+                return;
+            }
+            long first = Math.max(0, after + 1);
+            long total = history.size();
+            JsonExchange.send(exchange, 200, json -> {
+                json.beginObject().name("account").value(accountNumber).name("total").value(total);
+                // next: cursor for the following page, null once the page reached the end
+                long last = first + page.size() - 1;
+                json.name("next");
+                if (page.isEmpty() || last >= total - 1)
+                    json.nullValue();
+                else
+                    json.value(last);
+                json.name("items").beginArray();
+                for (int i = 0; i < page.size(); i++)
+                    writeItem(json, first + i, page.get(i));
+                json.endArray().endObject();
+            });
+        }
+    }
+
     private class MetricsHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            StringBuilder json = new StringBuilder("[");
             // Sorting for stable UI
             java.util.List<com.bank.simulator.model.Account> accounts = new java.util.ArrayList<>(
                     bankService.getAccountRepository().findAll());
             accounts.sort(java.util.Comparator.comparing(com.bank.simulator.model.Account::getAccountNumber));
 
-            for (int i = 0; i < accounts.size(); i++) {
-                com.bank.simulator.model.Account acc = accounts.get(i);
-                json.append(String.format("{\"account\":\"%s\", \"holder\":\"%s\", \"balance\":%s, \"debt\":%s}",
-                        acc.getAccountNumber(), acc.getHolderName(), acc.getBalance(), acc.getDebt()));
-                if (i < accounts.size() - 1)
-                    json.append(",");
+            JsonExchange.send(exchange, 200, json -> {
+                json.beginArray();
+                for (com.bank.simulator.model.Account acc : accounts)
+                    EventStreamPublisher.writeAccount(json, acc);
+                json.endArray();
+            });
+        }
+    }
+
+    private class StorageHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (storageService == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
             }
-            json.append("]");
+            AccountTable table = accountRepository instanceof DenseAccountRepository
+                    ? ((DenseAccountRepository) accountRepository).getTable()
+                    : null;
+            JsonExchange.send(exchange, 200, json -> json.beginObject()
+                    .name("recoveryMillis").value(storageService.getRecoveryMillis())
+                    .name("recoveryBudgetMillis").value(storageService.getRecoveryBudgetMillis())
+                    .name("withinBudget").value(storageService.isWithinRecoveryBudget())
+                    .name("snapshotLoadMillis").value(storageService.getSnapshotLoadMillis())
+                    .name("deltasLoaded").value(storageService.getDeltasLoaded())
+                    .name("replayMillis").value(storageService.getReplayMillis())
+                    .name("recordsReplayed").value(storageService.getRecordsReplayed())
+                    .name("lastCheckpointLsn").value(storageService.getLastCheckpointLsn())
+                    .name("checkpointMillis").value(storageService.getCheckpointMillis())
+                    .name("checkpointAccounts").value(storageService.getCheckpointAccounts())
+                    .name("checkpoints").value(storageService.getCheckpointCount())
+                    .name("journalFailedRecords").value(storageService.getJournalFailedRecords())
+                    .name("txTiered").value(transactionRepository.isTiered())
+                    .name("txSegments").value(transactionRepository.getSegmentCount())
+                    .name("txMemorySegments").value(transactionRepository.getMemorySegmentCount())
+                    .name("txMappedBytes").value(transactionRepository.getMappedBytes())
+                    .name("txFirstPosition").value(transactionRepository.getFirstPosition())
+                    .name("txSize").value(transactionRepository.size())
+                    .name("txDroppedSegments").value(transactionRepository.getDroppedSegments())
+                    .name("denseAccounts").value(table != null)
+                    .name("denseAccountCount").value(table == null ? 0 : table.getRegisteredCount())
+                    .name("denseFootprintBytes").value(table == null ? 0 : table.getFootprintBytes())
+                    .endObject());
+        }
+    }
 
-            byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
-            exchange.getResponseHeaders().set("Content-Type", "application/json");
-            exchange.sendResponseHeaders(200, bytes.length);
-            OutputStream os = exchange.getResponseBody();
-            os.write(bytes);
-            os.close();
+    private class AlertsHandler implements HttpHandler {
+        private static final int DEFAULT_LIMIT = 100;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            com.bank.simulator.service.TransferGraphAnalyzer analyzer = bankService.getTransferGraphAnalyzer();
+            if (analyzer == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            int limit = DEFAULT_LIMIT;
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.startsWith("limit=")) {
+                try {
+                    limit = Integer.parseInt(query.substring("limit=".length()));
+                } catch (NumberFormatException e) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+            }
+            java.util.List<com.bank.simulator.service.TransferGraphAnalyzer.Alert> alerts = analyzer.getAlerts(limit);
+            JsonExchange.send(exchange, 200, json -> {
+                json.beginObject()
+                        .name("windowMillis").value(analyzer.getWindowMillis())
+                        .name("received").value(analyzer.getReceived())
+                        .name("processed").value(analyzer.getProcessed())
+                        .name("dropped").value(analyzer.getDropped())
+                        .name("backlog").value(analyzer.getBacklog())
+                        .name("edges").value(analyzer.getEdgeCount())
+                        .name("evictedEdges").value(analyzer.getEvictedEdges())
+                        .name("truncatedSearches").value(analyzer.getTruncatedSearches())
+                        .name("alertCount").value(analyzer.getAlertCount())
+                        .name("alerts").beginArray();
+                for (com.bank.simulator.service.TransferGraphAnalyzer.Alert a : alerts) {
+                    json.beginObject().name("type").value(a.getType().name()).name("accounts").beginArray();
+                    for (String acc : a.getAccounts())
+                        json.value(acc);
+                    json.endArray().name("amount").value(a.getAmount())
+                            .name("transactionId").value(a.getTransactionId())
+                            .name("time").value(a.getDetectedAt()).endObject();
+                }
+                json.endArray().endObject();
+            });
+        }
+    }
+
+    // GET: last run and the one in progress; POST ?job=interest|fees[&run=id]: start a run
+    private class BatchPostingHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            com.bank.simulator.service.BatchPostingRunner runner = bankService.getBatchPostingRunner();
+            if ("POST".equals(exchange.getRequestMethod())) {
+                Map<String, String> params = new HashMap<>();
+                String query = exchange.getRequestURI().getQuery();
+                if (query != null) {
+                    for (String pair : query.split("&")) {
+                        int eq = pair.indexOf('=');
+                        if (eq > 0)
+                            params.put(pair.substring(0, eq), pair.substring(eq + 1));
+                    }
+                }
+                String jobName = params.getOrDefault("job", "fees");
+                // Default id: one run per job and month, so a repeated request posts nothing twice
+                String runId = params.getOrDefault("run", jobName + "-" + java.time.YearMonth.now());
+                if (!runId.matches("[A-Za-z0-9._-]+")) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                com.bank.simulator.service.PostingJob job;
+                try {
+                    job = com.bank.simulator.service.PostingJob.configured(jobName, System.getProperties());
+                } catch (IllegalArgumentException e) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                // Runs can take minutes: start it and report progress via GET
+                Thread worker = new Thread(() -> {
+                    try {
+                        System.out.println("[BATCH] " + runner.run(job, runId));
+                    } catch (Exception e) {
+                        System.err.println("[BATCH] Run " + runId + " failed: " + e.getMessage());
+                    }
+                }, "batch-run");
+                worker.setDaemon(true);
+                worker.start();
+                JsonExchange.send(exchange, 202, json -> json.beginObject().name("status").value("STARTED")
+                        .name("run").value(runId).name("job").value(jobName).endObject());
+            } else if ("GET".equals(exchange.getRequestMethod())) {
+                com.bank.simulator.service.BatchPostingRunner.Result r = runner.getLastResult();
+                String active = runner.getActiveRun();
+                JsonExchange.send(exchange, 200, json -> {
+                    json.beginObject().name("active").value(active).name("last");
+                    if (r == null) {
+                        json.nullValue();
+                    } else {
+                        json.beginObject().name("run").value(r.getRunId()).name("job").value(r.getJob())
+                                .name("resumed").value(r.isResumed()).name("accounts").value(r.getAccounts())
+                                .name("chunks").value(r.getChunks()).name("postings").value(r.getPostings())
+                                .name("alreadyPosted").value(r.getSkipped()).name("millis").value(r.getMillis())
+                                .name("accountsPerSecond").value(Math.round(r.getAccountsPerSecond())).endObject();
+                    }
+                    json.endObject();
+                });
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    // GET ?account=&source=&destination=&status=&from=&to=&limit=&after=&order=desc
+    private class TransactionQueryHandler implements HttpHandler {
+        private static final int MAX_LIMIT = 1000;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Map<String, String> params = new HashMap<>();
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String pair : query.split("&")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0)
+                        params.put(pair.substring(0, eq),
+                                java.net.URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8.name()));
+                }
+            }
+            com.bank.simulator.repository.TransactionQuery q = new com.bank.simulator.repository.TransactionQuery();
+            try {
+                q.account(params.get("account")).source(params.get("source"))
+                        .destination(params.get("destination"))
+                        .between(params.containsKey("from") ? java.time.Instant.parse(params.get("from")) : null,
+                                params.containsKey("to") ? java.time.Instant.parse(params.get("to")) : null)
+                        .limit(Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(params.getOrDefault("limit",
+                                String.valueOf(com.bank.simulator.repository.TransactionQuery.DEFAULT_LIMIT))))));
+                if (params.containsKey("status"))
+                    q.status(com.bank.simulator.model.TransactionStatus.valueOf(params.get("status").toUpperCase()));
+                if (params.containsKey("after"))
+                    q.after(Long.parseLong(params.get("after")));
+                if ("desc".equalsIgnoreCase(params.get("order")))
+                    q.newestFirst();
+            } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            TransactionRepository.QueryResult result = transactionRepository.query(q);
+            java.util.List<com.bank.simulator.model.Transaction> txs = result.getTransactions();
+            JsonExchange.send(exchange, 200, json -> {
+                json.beginObject().name("count").value(txs.size()).name("scanned").value(result.getScanned())
+                        .name("next");
+                if (result.getNext() < 0)
+                    json.nullValue();
+                else
+                    json.value(result.getNext());
+                json.name("items").beginArray();
+                for (int i = 0; i < txs.size(); i++)
+                    writeItem(json, result.getPosition(i), txs.get(i));
+                json.endArray().endObject();
+            });
+        }
+    }
+
+    private class ServerHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            JsonExchange.send(exchange, 200, json -> json.beginObject()
+                    .name("executor").value(requestExecutor.getMode().name())
+                    .name("poolThreads").value(requestExecutor.getPoolThreads())
+                    .name("inFlight").value(requestExecutor.getInFlight())
+                    .name("active").value(requestExecutor.getActive())
+                    .name("queued").value(requestExecutor.getQueued())
+                    .name("peakInFlight").value(requestExecutor.getPeakInFlight())
+                    .name("completed").value(requestExecutor.getCompleted())
+                    .name("streamClients").value(streamPublisher.getClientCount())
+                    .name("streamDropped").value(streamPublisher.getClientsDropped())
+                    .name("streamFrames").value(streamPublisher.getFramesPublished())
+                    .endObject());
         }
     }
 
@@ -174,16 +519,15 @@ public class DashboardServer {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             // Get last 20 transactions
-            String json = transactionRepository.findAll().stream()
-                    .sorted((t1, t2) -> t2.getTimestamp().compareTo(t1.getTimestamp())) // Newest first
-                    .limit(20)
-                    .map(t -> String.format(
-                            "{\"id\":\"%s\", \"src\":\"%s\", \"dest\":\"%s\", \"amount\":%s, \"status\":\"%s\", \"time\":\"%s\"}",
-                            t.getTransactionId(), t.getSourceAccount(), t.getDestinationAccount(), t.getAmount(),
-                            t.getStatus(), t.getTimestamp()))
-                    .collect(Collectors.joining(",", "[", "]"));
-
-            sendJson(exchange, json);
+            java.util.List<com.bank.simulator.model.Transaction> latest = transactionRepository
+                    .query(new com.bank.simulator.repository.TransactionQuery().newestFirst().limit(20))
+                    .getTransactions();
+            JsonExchange.send(exchange, 200, json -> {
+                json.beginArray();
+                for (com.bank.simulator.model.Transaction t : latest)
+                    EventStreamPublisher.writeLogEntry(json, t);
+                json.endArray();
+            });
         }
     }
 
@@ -192,36 +536,25 @@ public class DashboardServer {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             if ("POST".equals(exchange.getRequestMethod())) {
-                StringBuilder sb = new StringBuilder();
-                java.io.InputStream ios = exchange.getRequestBody();
-                int i;
-                while ((i = ios.read()) != -1) {
-                    sb.append((char) i);
-                }
-                String body = sb.toString();
-                // Expecting simple JSON: {"from":"A", "to":"B", "amount":10}
-                // Very crude manual parsing for demo (no gson/jackson usage allowed to keep it
-                // zero-dep)
+                // Expecting {"from":"A", "to":"B", "amount":10}; parsed in-tree to stay zero-dep
                 try {
-                    String from = extractJsonValue(body, "from");
-                    String to = extractJsonValue(body, "to");
-                    String amountStr = extractJsonValue(body, "amount");
+                    com.bank.simulator.model.TransferRequest request;
+                    try (JsonReader json = JsonExchange.body(exchange)) {
+                        request = readTransfer(json);
+                    }
+                    if (request.getAmount() == null)
+                        throw new IllegalArgumentException("Missing fields");
 
-                    Account src = accountRepository.findByAccountNumber(from)
+                    Account src = accountRepository.findByAccountNumber(request.getSourceAccount())
                             .orElseThrow(() -> new RuntimeException("Source not found"));
-                    Account dest = accountRepository.findByAccountNumber(to)
+                    Account dest = accountRepository.findByAccountNumber(request.getDestinationAccount())
                             .orElseThrow(() -> new RuntimeException("Dest not found"));
-                    java.math.BigDecimal amt = new java.math.BigDecimal(amountStr);
 
-                    bankService.transfer(src, dest, amt);
-                    sendJson(exchange, "{\"status\":\"OK\"}");
+                    bankService.transfer(src, dest, request.getAmount());
+                    JsonExchange.send(exchange, 200, json -> json.beginObject().name("status").value("OK").endObject());
                 } catch (Exception e) {
                     e.printStackTrace();
-                    String err = "{\"status\":\"ERROR\", " + "\"message\":\"" + e.getMessage() + "\"}";
-                    byte[] bytes = err.getBytes(StandardCharsets.UTF_8);
-                    exchange.sendResponseHeaders(500, bytes.length);
-                    exchange.getResponseBody().write(bytes);
-                    exchange.getResponseBody().close();
+                    JsonExchange.error(exchange, 500, e.getMessage());
                 }
             } else {
                 exchange.sendResponseHeaders(405, -1); // Method Not Allowed
@@ -229,27 +562,96 @@ public class DashboardServer {
         }
     }
 
-    private String extractJsonValue(String json, String key) {
-        // Crude parser: find "key":"value" or "key":value
-        int keyIdx = json.indexOf("\"" + key + "\"");
-        if (keyIdx == -1)
-            return null;
-        int colonIdx = json.indexOf(":", keyIdx);
-        int commaIdx = json.indexOf(",", colonIdx);
-        int closeBraceIdx = json.indexOf("}", colonIdx);
-        int endIdx = (commaIdx == -1) ? closeBraceIdx
-                : (closeBraceIdx == -1 ? commaIdx : Math.min(commaIdx, closeBraceIdx));
+    // Batch: {"transfers":[{"from":"A","to":"B","amount":10}, ...]} -> per-item status
+    private class BatchTransferHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                try {
+                    java.util.List<com.bank.simulator.model.TransferRequest> requests = new java.util.ArrayList<>();
+                    try (JsonReader json = JsonExchange.body(exchange)) {
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            if (!"transfers".equals(json.nextName())) {
+                                json.skipValue();
+                                continue;
+                            }
+                            json.beginArray();
+                            while (json.hasNext()) {
+                                com.bank.simulator.model.TransferRequest request = readTransfer(json);
+                                if (request.getAmount() == null) {
+                                    throw new IllegalArgumentException("Item " + requests.size() + ": missing fields");
+                                }
+                                requests.add(request);
+                            }
+                            json.endArray();
+                        }
+                        json.endObject();
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Malformed JSON: " + e.getMessage());
+                    }
+                    if (requests.isEmpty()) {
+                        throw new IllegalArgumentException("Empty batch");
+                    }
+
+                    java.util.List<com.bank.simulator.model.Transaction> results = bankService.transferBatch(requests);
+
+                    int[] counts = new int[com.bank.simulator.model.TransactionStatus.values().length];
+                    for (com.bank.simulator.model.Transaction t : results)
+                        counts[t.getStatus().ordinal()]++;
+                    JsonExchange.send(exchange, 200, json -> {
+                        json.beginObject().name("status").value("OK")
+                                .name("succeeded")
+                                .value(counts[com.bank.simulator.model.TransactionStatus.SUCCESS.ordinal()])
+                                .name("rolledBack")
+                                .value(counts[com.bank.simulator.model.TransactionStatus.ROLLED_BACK.ordinal()])
+                                .name("rejectedFraud")
+                                .value(counts[com.bank.simulator.model.TransactionStatus.REJECTED_FRAUD.ordinal()])
+                                .name("results").beginArray();
+                        for (com.bank.simulator.model.Transaction t : results)
+                            json.beginObject().name("id").value(t.getTransactionId())
+                                    .name("status").value(t.getStatus().name()).endObject();
+                        json.endArray().endObject();
+                    });
+                } catch (Exception e) {
+                    // Validation problems reject the whole batch before anything is applied
+                    JsonExchange.error(exchange, e instanceof IllegalArgumentException ? 400 : 500, e.getMessage());
+                }
+            } else {
+                exchange.sendResponseHeaders(405, -1); // Method Not Allowed
+            }
+        }
+    }
+
+    // {"from":"A", "to":"B", "amount":10}; the amount is null if any field is missing
+    private static com.bank.simulator.model.TransferRequest readTransfer(JsonReader json) throws IOException {
+        String from = null;
+        String to = null;
+        BigDecimal amount = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case "from": from = json.nextString(); break;
+                case "to": to = json.nextString(); break;
+                case "amount": amount = json.nextDecimal(); break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+        return new com.bank.simulator.model.TransferRequest(from, to, from == null || to == null ? null : amount);
+    }
 
-        String raw = json.substring(colonIdx + 1, endIdx).trim();
-        return raw.replace("\"", "");
+    // History pages and queries: {"seq", "id", "from", "to", "amount", "status", "time"}
+    private static void writeItem(JsonWriter json, long seq, com.bank.simulator.model.Transaction tx)
+            throws IOException {
+        json.beginObject().name("seq").value(seq).name("id").value(tx.getTransactionId())
+                .name("from").value(tx.getSourceAccount()).name("to").value(tx.getDestinationAccount())
+                .name("amount").value(tx.getAmount()).name("status").value(tx.getStatus().name())
+                .name("time").value(tx.getTimestamp()).endObject();
     }
 
-    private void sendJson(HttpExchange exchange, String json) throws IOException {
-        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(200, bytes.length);
-        OutputStream os = exchange.getResponseBody();
-        os.write(bytes);
-        os.close();
+    private static void sendOk(HttpExchange exchange, String message) throws IOException {
+        JsonExchange.send(exchange, 200, json -> json.beginObject().name("status").value("OK")
+                .name("message").value(message).endObject());
     }
 }
@@ -0,0 +1,244 @@
+package com.bank.simulator.ui;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.InterestAccrual;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import com.bank.simulator.service.ChangedAccounts;
+import com.bank.simulator.service.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events at /api/stream: pushes new transactions and changed
+ * balances to every open dashboard.
+ *
+ * One publisher thread does the work once per tick for all viewers: it reads
+ * only the transactions appended since its cursor, drains the accounts the
+ * transfer, posting and interest paths marked in {@link ChangedAccounts},
+ * encodes a single frame and hands the same byte[] to every client. Marking
+ * is on only while someone is watching. With lazy interest, reads grow every
+ * period without a write, so the first tick of each period sends all accounts. Each client has a small bounded queue drained by its own request
+ * thread; a client whose queue is full is dropped instead of buffering for
+ * it. New clients receive a full snapshot built in the same tick as the diff
+ * that follows it, so they never miss or reorder an update.
+ *
+ * Events: "accounts" (changed accounts, or all of them in a snapshot) and
+ * "transactions" (newest first, at most LOG_TAIL per event).
+ */
+public class EventStreamPublisher implements HttpHandler {
+
+    private static final long TICK_MILLIS = 200;
+    private static final long HEARTBEAT_MILLIS = 15_000;
+    private static final int CLIENT_QUEUE_FRAMES = 32; // ~6s of ticks before a stalled client is dropped
+    private static final int LOG_TAIL = 20; // The dashboard shows the newest 20 transactions
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final ChangedAccounts changedAccounts;
+    private final AccountFactory accountFactory; // For the lazy interest period, if any
+    private final int maxClients;
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sse-publisher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Publisher thread only
+    private long transactionCursor;
+    private long interestPeriod = -1;
+
+    private final AtomicLong framesPublished = new AtomicLong();
+    private final AtomicLong clientsDropped = new AtomicLong();
+
+    public EventStreamPublisher(AccountRepository accountRepository, TransactionRepository transactionRepository,
+            ChangedAccounts changedAccounts, AccountFactory accountFactory, int maxClients) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.changedAccounts = changedAccounts;
+        this.accountFactory = accountFactory;
+        this.maxClients = maxClients;
+    }
+
+    public void start() {
+        transactionCursor = transactionRepository.size();
+        scheduler.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        changedAccounts.setTracking(false);
+    }
+
+    private static final class Client {
+        final BlockingQueue<byte[]> frames = new ArrayBlockingQueue<>(CLIENT_QUEUE_FRAMES);
+        volatile boolean needsSnapshot = true;
+        volatile boolean dropped;
+    }
+
+    // ---------------------------------------------------------- publisher
+
+    private void tick() {
+        try {
+            long size = transactionRepository.size();
+            if (clients.isEmpty()) {
+                // Nobody watching: writers stop marking; the next viewer starts from a snapshot
+                transactionCursor = size;
+                changedAccounts.setTracking(false);
+                return;
+            }
+            // Marking starts before any snapshot is read, so a change is in the snapshot or in a later diff
+            changedAccounts.setTracking(true);
+
+            List<Transaction> fresh = size > transactionCursor
+                    ? transactionRepository.findFrom(Math.max(transactionCursor, size - LOG_TAIL))
+                    : Collections.emptyList();
+            transactionCursor = size;
+
+            List<Account> changed = changedAccounts.drain();
+            InterestAccrual accrual = accountFactory != null ? accountFactory.getInterestAccrual() : null;
+            long period = accrual != null ? accrual.currentPeriod() : -1;
+            if (period != interestPeriod) {
+                interestPeriod = period;
+                if (accrual != null)
+                    changed = new ArrayList<>(accountRepository.findAll()); // Every balance read has grown
+            }
+
+            byte[] diff = frame(changed, fresh);
+            byte[] snapshot = null;
+            for (Client client : clients) {
+                if (client.needsSnapshot) {
+                    if (snapshot == null)
+                        snapshot = frame(new ArrayList<>(accountRepository.findAll()),
+                                transactionRepository.findFrom(size - LOG_TAIL));
+                    client.needsSnapshot = false;
+                    offer(client, snapshot);
+                } else if (diff != null) {
+                    offer(client, diff);
+                }
+            }
+            if (diff != null)
+                framesPublished.incrementAndGet();
+        } catch (RuntimeException e) {
+            System.err.println("[STREAM] Publish failed: " + e.getMessage()); // Keep the schedule alive
+        }
+    }
+
+    private void offer(Client client, byte[] frame) {
+        if (!client.frames.offer(frame)) {
+            // Slow consumer: drop it rather than buffer without limit
+            client.dropped = true;
+            clients.remove(client);
+            client.frames.clear();
+            clientsDropped.incrementAndGet();
+        }
+    }
+
+    // Encoded once per tick, shared by every client; null when there is nothing new
+    private static byte[] frame(List<Account> accounts, List<Transaction> transactions) {
+        if (accounts.isEmpty() && transactions.isEmpty())
+            return null;
+        JsonWriter json = new JsonWriter(256 + accounts.size() * 96 + transactions.size() * 160);
+        try {
+            if (!accounts.isEmpty()) {
+                json.raw("event: accounts\ndata: ").beginArray();
+                for (Account acc : accounts)
+                    writeAccount(json, acc);
+                json.endArray().raw("\n\n");
+            }
+            if (!transactions.isEmpty()) {
+                json.raw("event: transactions\ndata: ").beginArray();
+                for (int i = transactions.size() - 1; i >= 0; i--) // Newest first, like /api/logs
+                    writeLogEntry(json, transactions.get(i));
+                json.endArray().raw("\n\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // In memory: never thrown
+        }
+        return json.toByteArray();
+    }
+
+    // /api/metrics and the accounts event: {"account", "holder", "balance", "debt"}
+    static void writeAccount(JsonWriter json, Account acc) throws IOException {
+        json.beginObject().name("account").value(acc.getAccountNumber()).name("holder").value(acc.getHolderName())
+                .name("balance").value(acc.getBalance()).name("debt").value(acc.getDebt()).endObject();
+    }
+
+    // /api/logs and the transactions event: {"id", "src", "dest", "amount", "status", "time"}
+    static void writeLogEntry(JsonWriter json, Transaction t) throws IOException {
+        json.beginObject().name("id").value(t.getTransactionId()).name("src").value(t.getSourceAccount())
+                .name("dest").value(t.getDestinationAccount()).name("amount").value(t.getAmount())
+                .name("status").value(t.getStatus().name()).name("time").value(t.getTimestamp()).endObject();
+    }
+
+    // ------------------------------------------------------------- clients
+
+    /**
+     * Holds the request open and writes frames as the publisher queues them.
+     * Runs on the dashboard's request executor, one thread per viewer.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (clients.size() >= maxClients) {
+            exchange.sendResponseHeaders(503, -1); // Protect the request executor
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0); // Chunked, open-ended
+
+        Client client = new Client();
+        clients.add(client);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(("retry: 2000\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            while (!client.dropped) {
+                byte[] frame = client.frames.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (client.dropped)
+                    break;
+                // Comment line as heartbeat: detects closed connections, keeps proxies from timing out
+                out.write(frame != null ? frame : ": ping\n\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Viewer went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(client);
+            exchange.close();
+        }
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public long getClientsDropped() {
+        return clientsDropped.get();
+    }
+
+    public long getFramesPublished() {
+        return framesPublished.get();
+    }
+}
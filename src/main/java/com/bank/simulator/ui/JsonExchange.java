@@ -0,0 +1,71 @@
+package com.bank.simulator.ui;
+
+import com.bank.simulator.service.JsonReader;
+import com.bank.simulator.service.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JSON in and out of an HttpExchange. Request bodies are parsed straight from
+ * the request stream. Responses are rendered into a pooled buffer. One that
+ * fits the buffer is sent with a Content-Length; a larger one is streamed
+ * chunked as the buffer fills, so it is never held in memory whole.
+ */
+final class JsonExchange {
+
+    /** Renders a response body. */
+    interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private JsonExchange() {
+    }
+
+    /** The request body; close it when done (returns its buffer). */
+    static JsonReader body(HttpExchange exchange) {
+        return new JsonReader(exchange.getRequestBody());
+    }
+
+    static void send(HttpExchange exchange, int status, Body body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        ResponseSink sink = new ResponseSink(exchange, status);
+        try (JsonWriter json = new JsonWriter(sink)) {
+            body.write(json);
+            json.finish();
+        } catch (IOException | RuntimeException e) {
+            if (sink.out != null)
+                exchange.close(); // Half a response is out: cut the connection, the client sees it failed
+            throw e;
+        }
+    }
+
+    /** {"status":"ERROR", "message":...}, with the message escaped. */
+    static void error(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, json -> json.beginObject().name("status").value("ERROR")
+                .name("message").value(message).endObject());
+    }
+
+    private static final class ResponseSink implements JsonWriter.Sink {
+        private final HttpExchange exchange;
+        private final int status;
+        private OutputStream out; // Set once headers are sent
+
+        ResponseSink(HttpExchange exchange, int status) {
+            this.exchange = exchange;
+            this.status = status;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len, boolean last) throws IOException {
+            if (out == null) {
+                exchange.sendResponseHeaders(status, last ? len : 0); // 0: chunked
+                out = exchange.getResponseBody();
+            }
+            out.write(b, off, len);
+            if (last)
+                out.close();
+        }
+    }
+}
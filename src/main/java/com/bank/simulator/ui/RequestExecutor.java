@@ -0,0 +1,145 @@
+package com.bank.simulator.ui;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for the dashboard's HttpServer, with in-flight request gauges.
+ *
+ * Modes:
+ * <ul>
+ * <li>VIRTUAL: one virtual thread per request (Java 21+). Blocking in a
+ * handler (e.g. a transfer waiting in tryLock) costs no platform thread.
+ * Looked up reflectively so the code still builds and runs on Java 17; falls
+ * back to POOL when unavailable.</li>
+ * <li>POOL: bounded platform thread pool. When both threads and queue are
+ * full the dispatcher thread runs the request itself, which stops it
+ * accepting new connections (back-pressure instead of unbounded queueing).</li>
+ * <li>DISPATCHER: the JDK default, every request on the single dispatcher
+ * thread (the original behaviour).</li>
+ * </ul>
+ */
+public class RequestExecutor implements Executor {
+
+    public enum Mode {
+        VIRTUAL,
+        POOL,
+        DISPATCHER
+    }
+
+    private static final int POOL_QUEUE_CAPACITY = 10_000;
+
+    private final Mode mode;
+    private final Executor delegate; // null = run on the calling (dispatcher) thread
+    private final int poolThreads;
+
+    private final AtomicInteger inFlight = new AtomicInteger(); // Accepted, not yet finished
+    private final AtomicInteger active = new AtomicInteger(); // Currently running in a handler
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+
+    private RequestExecutor(Mode mode, Executor delegate, int poolThreads) {
+        this.mode = mode;
+        this.delegate = delegate;
+        this.poolThreads = poolThreads;
+    }
+
+    /**
+     * @param poolThreads size of the platform pool (POOL mode and the VIRTUAL
+     *                    fallback)
+     */
+    public static RequestExecutor create(Mode mode, int poolThreads) {
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+            if (virtual != null)
+                return new RequestExecutor(Mode.VIRTUAL, virtual, 0);
+            System.out.println(">> Virtual threads not available on Java " + Runtime.version().feature()
+                    + ", using a bounded pool of " + poolThreads + " threads");
+            mode = Mode.POOL;
+        }
+        if (mode == Mode.POOL) {
+            AtomicInteger n = new AtomicInteger();
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "http-worker-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(poolThreads, poolThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(POOL_QUEUE_CAPACITY), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            return new RequestExecutor(Mode.POOL, pool, poolThreads);
+        }
+        return new RequestExecutor(Mode.DISPATCHER, null, 0);
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null; // Pre-21 JDK (or preview not enabled)
+        }
+    }
+
+    @Override
+    public void execute(Runnable request) {
+        int now = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(now, Math::max);
+        Runnable tracked = () -> {
+            active.incrementAndGet();
+            try {
+                request.run();
+            } finally {
+                active.decrementAndGet();
+                inFlight.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        };
+        if (delegate == null)
+            tracked.run();
+        else
+            delegate.execute(tracked);
+    }
+
+    public void shutdown() {
+        if (delegate instanceof ExecutorService)
+            ((ExecutorService) delegate).shutdown();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getPoolThreads() {
+        return poolThreads;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Accepted but waiting for a thread (always 0 in VIRTUAL mode).
+     */
+    public int getQueued() {
+        return Math.max(0, inFlight.get() - active.get());
+    }
+
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+}
@@ -0,0 +1,197 @@
+package com.bank.simulator.ui;
+
+import com.bank.simulator.model.TransactionStatus;
+import com.bank.simulator.service.AuditService;
+import com.bank.simulator.service.FraudDetectionService;
+import com.bank.simulator.service.HotAccountStriper;
+import com.bank.simulator.service.JsonWriter;
+import com.bank.simulator.service.LatencyHistogram;
+import com.bank.simulator.service.TransferStats;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /api/stats: transfer latency, outcomes, lock contention, striped hot
+ * accounts, fraud rule hits and audit backlog.
+ *
+ * JSON by default. Prometheus text exposition format with ?format=prometheus,
+ * or when the client asks for text/plain (as Prometheus scrapers do).
+ */
+public class StatsHandler implements HttpHandler {
+
+    private static final int TOP_CONTENDED = 10;
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+    private static final String[] QUANTILE_LABELS = { "0.5", "0.9", "0.99", "0.999" };
+
+    private final TransferStats stats;
+    private final AuditService auditService;
+    private final FraudDetectionService fraudDetectionService; // Optional
+    private final HotAccountStriper hotAccountStriper; // Optional
+
+    public StatsHandler(TransferStats stats, AuditService auditService) {
+        this(stats, auditService, null);
+    }
+
+    public StatsHandler(TransferStats stats, AuditService auditService, FraudDetectionService fraudDetectionService) {
+        this(stats, auditService, fraudDetectionService, null);
+    }
+
+    public StatsHandler(TransferStats stats, AuditService auditService, FraudDetectionService fraudDetectionService,
+            HotAccountStriper hotAccountStriper) {
+        this.stats = stats;
+        this.auditService = auditService;
+        this.fraudDetectionService = fraudDetectionService;
+        this.hotAccountStriper = hotAccountStriper;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        boolean prometheus = (query != null && query.contains("format=prometheus"))
+                || (accept != null && accept.contains("text/plain") && !accept.contains("application/json"));
+
+        if (!prometheus) {
+            JsonExchange.send(exchange, 200, this::json);
+            return;
+        }
+        byte[] bytes = prometheus().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes);
+        os.close();
+    }
+
+    // ------------------------------------------------------------------ JSON
+
+    private void json(JsonWriter json) throws IOException {
+        json.beginObject().name("enabled").value(stats.isEnabled());
+        json.name("latencyNanos").beginObject();
+        histogram(json.name("transfer"), stats.getTransferLatency());
+        histogram(json.name("lockWait"), stats.getLockWait());
+        histogram(json.name("criticalSection"), stats.getCriticalSection());
+        json.endObject().name("outcomes").beginObject();
+        for (TransactionStatus status : TransactionStatus.values())
+            json.name(status.name()).value(stats.getOutcomeCount(status));
+        json.endObject().name("lockTimeouts").value(stats.getLockTimeouts());
+        json.name("contendedAccounts").beginArray();
+        for (TransferStats.Contention c : stats.getTopContended(TOP_CONTENDED))
+            json.beginObject().name("account").value(c.getAccountNumber()).name("contended").value(c.getCount())
+                    .name("waitNanos").value(c.getWaitNanos()).endObject();
+        json.endArray();
+        if (hotAccountStriper != null) {
+            json.name("stripedAccounts").beginArray();
+            for (String account : hotAccountStriper.getStripedAccounts())
+                json.value(account);
+            json.endArray().name("stripePromotions").value(hotAccountStriper.getPromotions())
+                    .name("stripeDemotions").value(hotAccountStriper.getDemotions());
+        }
+        if (fraudDetectionService != null) {
+            json.name("fraudRuleHits").beginObject();
+            for (Map.Entry<String, Long> e : fraudDetectionService.getRuleHits().entrySet())
+                json.name(e.getKey()).value(e.getValue().longValue());
+            json.endObject();
+        }
+        json.name("auditQueueDepth").value(auditService.getQueueDepth())
+                .name("auditLogged").value(auditService.getLogged())
+                .name("auditDropped").value(auditService.getDropped())
+                .name("auditSpilled").value(auditService.getSpilled())
+                .name("auditBlocked").value(auditService.getBlocked())
+                .name("auditLagMillis").value(auditService.getLagMillis())
+                .endObject();
+    }
+
+    private static void histogram(JsonWriter json, LatencyHistogram.Snapshot h) throws IOException {
+        json.beginObject().name("count").value(h.getCount()).name("mean").value(Math.round(h.getMean()))
+                .name("p50").value(h.valueAt(50)).name("p90").value(h.valueAt(90))
+                .name("p99").value(h.valueAt(99)).name("p999").value(h.valueAt(99.9))
+                .name("max").value(h.getMax()).endObject();
+    }
+
+    // ------------------------------------------------------------ Prometheus
+
+    private String prometheus() {
+        StringBuilder sb = new StringBuilder(2048);
+        summary(sb, "bank_transfer_latency_seconds", "End-to-end transfer latency.", stats.getTransferLatency());
+        summary(sb, "bank_lock_wait_seconds", "Time spent acquiring both account locks.", stats.getLockWait());
+        summary(sb, "bank_critical_section_seconds", "Time spent holding both account locks.",
+                stats.getCriticalSection());
+
+        header(sb, "bank_transfers_total", "Transfers by outcome.", "counter");
+        for (TransactionStatus status : TransactionStatus.values())
+            sb.append("bank_transfers_total{status=\"").append(status).append("\"} ")
+                    .append(stats.getOutcomeCount(status)).append('\n');
+
+        header(sb, "bank_lock_timeouts_total", "Transfers that gave up waiting for a lock.", "counter");
+        sb.append("bank_lock_timeouts_total ").append(stats.getLockTimeouts()).append('\n');
+
+        List<TransferStats.Contention> top = stats.getTopContended(TOP_CONTENDED);
+        header(sb, "bank_account_lock_contended_total", "Contended lock acquisitions (most contended accounts).",
+                "counter");
+        for (TransferStats.Contention c : top)
+            sb.append("bank_account_lock_contended_total{account=\"").append(c.getAccountNumber()).append("\"} ")
+                    .append(c.getCount()).append('\n');
+        header(sb, "bank_account_lock_wait_seconds_total", "Time spent waiting on contended account locks.",
+                "counter");
+        for (TransferStats.Contention c : top)
+            sb.append("bank_account_lock_wait_seconds_total{account=\"").append(c.getAccountNumber()).append("\"} ")
+                    .append(seconds(c.getWaitNanos())).append('\n');
+
+        if (hotAccountStriper != null) {
+            header(sb, "bank_striped_accounts", "Hot accounts currently split into balance stripes.", "gauge");
+            sb.append("bank_striped_accounts ").append(hotAccountStriper.getStripedAccounts().size()).append('\n');
+            header(sb, "bank_stripe_changes_total", "Accounts striped (promoted) or folded back (demoted).",
+                    "counter");
+            sb.append("bank_stripe_changes_total{change=\"promoted\"} ").append(hotAccountStriper.getPromotions())
+                    .append('\n');
+            sb.append("bank_stripe_changes_total{change=\"demoted\"} ").append(hotAccountStriper.getDemotions())
+                    .append('\n');
+        }
+
+        if (fraudDetectionService != null) {
+            header(sb, "bank_fraud_rejections_total", "Transfers rejected, by the fraud rule that fired.", "counter");
+            for (Map.Entry<String, Long> e : fraudDetectionService.getRuleHits().entrySet())
+                sb.append("bank_fraud_rejections_total{rule=\"").append(e.getKey()).append("\"} ").append(e.getValue())
+                        .append('\n');
+        }
+
+        header(sb, "bank_audit_queue_depth", "Audit entries waiting to be written.", "gauge");
+        sb.append("bank_audit_queue_depth ").append(auditService.getQueueDepth()).append('\n');
+        header(sb, "bank_audit_lag_seconds", "Age of the newest audit entry written while more are queued.", "gauge");
+        sb.append("bank_audit_lag_seconds ").append(auditService.getLagMillis() / 1000.0).append('\n');
+        header(sb, "bank_audit_entries_total", "Audit entries by outcome.", "counter");
+        sb.append("bank_audit_entries_total{outcome=\"written\"} ").append(auditService.getLogged()).append('\n');
+        sb.append("bank_audit_entries_total{outcome=\"dropped\"} ").append(auditService.getDropped()).append('\n');
+        sb.append("bank_audit_entries_total{outcome=\"spilled\"} ").append(auditService.getSpilled()).append('\n');
+        sb.append("bank_audit_entries_total{outcome=\"failed\"} ").append(auditService.getFailed()).append('\n');
+        header(sb, "bank_audit_blocked_total", "Transfers that waited for room in the audit queue.", "counter");
+        sb.append("bank_audit_blocked_total ").append(auditService.getBlocked()).append('\n');
+        return sb.toString();
+    }
+
+    private static void summary(StringBuilder sb, String name, String help, LatencyHistogram.Snapshot h) {
+        header(sb, name, help, "summary");
+        for (int i = 0; i < PERCENTILES.length; i++)
+            sb.append(name).append("{quantile=\"").append(QUANTILE_LABELS[i]).append("\"} ")
+                    .append(seconds(h.valueAt(PERCENTILES[i]))).append('\n');
+        sb.append(name).append("_sum ").append(seconds(h.getSum())).append('\n');
+        sb.append(name).append("_count ").append(h.getCount()).append('\n');
+    }
+
+    private static void header(StringBuilder sb, String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    // Double.toString: locale-independent, and Prometheus accepts exponents
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
@@ -0,0 +1,97 @@
+package com.bank.simulator.service;
+
+import com.bank.simulator.model.Account;
+import com.bank.simulator.model.AccountFactory;
+import com.bank.simulator.model.AccountLock;
+import com.bank.simulator.model.AccountTable;
+import com.bank.simulator.model.Transaction;
+import com.bank.simulator.repository.AccountRepository;
+import com.bank.simulator.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonSnapshotCodecTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deltaKeepsHistoryOfDecimalAccounts() throws IOException {
+        roundTrip(AccountFactory.decimal(), AccountFactory.decimal());
+    }
+
+    @Test
+    void deltaKeepsHistoryOfFixedPointAccounts() throws IOException {
+        roundTrip(AccountFactory.fixedPoint(2), AccountFactory.fixedPoint(2));
+    }
+
+    @Test
+    void deltaKeepsHistoryOfDenseAccounts() throws IOException {
+        roundTrip(AccountFactory.dense(new AccountTable(2, 16, AccountLock.Mode.FAIR)),
+                AccountFactory.dense(new AccountTable(2, 16, AccountLock.Mode.FAIR)));
+    }
+
+    // Base with one transfer, delta with a second: both must be in each account's history after a load
+    private void roundTrip(AccountFactory writing, AccountFactory reading) throws IOException {
+        AccountRepository accounts = AccountRepository.forFactory(writing);
+        TransactionRepository transactions = new TransactionRepository();
+        Account a = writing.create("A", "Alice", new BigDecimal("100.00"));
+        Account b = writing.create("B", "Bob", new BigDecimal("50.00"));
+        accounts.save(a);
+        accounts.save(b);
+
+        Transaction first = transfer(a, b, "10.00", 1, transactions);
+        JsonSnapshotCodec codec = new JsonSnapshotCodec(writing);
+        Path base = dir.resolve("base.json");
+        codec.write(base, accounts.findAll(), transactions.findAll(), 1, 0);
+
+        Transaction second = transfer(b, a, "5.00", 2, transactions);
+        Path delta = dir.resolve("delta.json");
+        codec.write(delta, accounts.findAll(), transactions.findFrom(1), 2, 1, 1);
+
+        AccountRepository restored = AccountRepository.forFactory(reading);
+        TransactionRepository restoredLog = new TransactionRepository();
+        JsonSnapshotCodec reader = new JsonSnapshotCodec(reading);
+        assertEquals(1, reader.read(base, restored, restoredLog));
+        Account baseA = restored.findByAccountNumber("A").get();
+        assertEquals(2, reader.read(delta, restored, restoredLog));
+
+        Account restoredA = restored.findByAccountNumber("A").get();
+        Account restoredB = restored.findByAccountNumber("B").get();
+        assertEquals(baseA, restoredA); // Dense accounts are views: same row, not same instance
+        assertEquals(0, new BigDecimal("95.00").compareTo(restoredA.getBalance()));
+        assertEquals(0, new BigDecimal("55.00").compareTo(restoredB.getBalance()));
+        assertEquals(2, restoredA.getLastLsn());
+        assertEquals(List.of(first.getTransactionId(), second.getTransactionId()), ids(restoredA));
+        assertEquals(List.of(first.getTransactionId(), second.getTransactionId()), ids(restoredB));
+        assertEquals(2, restoredLog.size());
+    }
+
+    private static Transaction transfer(Account from, Account to, String amount, long lsn,
+            TransactionRepository transactions) {
+        BigDecimal value = new BigDecimal(amount);
+        Transaction tx = new Transaction(from.getAccountNumber(), to.getAccountNumber(), value);
+        from.debit(value);
+        to.credit(value);
+        from.setLastLsn(lsn);
+        to.setLastLsn(lsn);
+        tx.markSuccess();
+        from.addTransaction(tx);
+        to.addTransaction(tx);
+        transactions.save(tx);
+        return tx;
+    }
+
+    private static List<String> ids(Account account) {
+        return account.getHistory().toList().stream().map(Transaction::getTransactionId)
+                .collect(Collectors.toList());
+    }
+}